@@ -0,0 +1,47 @@
+#!/usr/bin/env tsx
+
+import { readFileSync } from "fs";
+import type { BenchmarkResult } from "./harness.js";
+
+/*
+ * Uso: npm run bench:compare -- base.json actual.json [--threshold 10]
+ *
+ * Compara la p50 de cada caso presente en ambos reportes y termina con
+ * código 1 si alguno empeora más que el umbral (en %).
+ */
+const [basePath, currentPath, ...rest] = process.argv.slice(2);
+if (!basePath || !currentPath) {
+  console.error("Uso: compare.ts <base.json> <actual.json> [--threshold 10]");
+  process.exit(2);
+}
+
+const thresholdIndex = rest.indexOf("--threshold");
+const threshold = thresholdIndex !== -1 ? Number(rest[thresholdIndex + 1]) : 10;
+
+const load = (path: string): Map<string, BenchmarkResult> => {
+  const report = JSON.parse(readFileSync(path, "utf-8"));
+  return new Map((report.results as BenchmarkResult[]).map((r) => [r.name, r]));
+};
+
+const base = load(basePath);
+const current = load(currentPath);
+
+let regressions = 0;
+console.log(`${"caso".padEnd(60)} ${"base p50".padStart(10)} ${"actual".padStart(10)} ${"Δ %".padStart(8)}`);
+current.forEach((result, name) => {
+  const previous = base.get(name);
+  if (!previous) return;
+
+  const delta = previous.p50Ms > 0 ? ((result.p50Ms - previous.p50Ms) / previous.p50Ms) * 100 : 0;
+  const regressed = delta > threshold;
+  if (regressed) regressions++;
+  console.log(
+    `${name.slice(0, 60).padEnd(60)} ${previous.p50Ms.toFixed(2).padStart(10)} ${result.p50Ms.toFixed(2).padStart(10)} ${delta.toFixed(1).padStart(8)}${regressed ? "  ❌" : ""}`
+  );
+});
+
+if (regressions > 0) {
+  console.log(`\n❌ ${regressions} caso(s) empeoran más de un ${threshold}%`);
+  process.exit(1);
+}
+console.log(`\n✅ Sin regresiones por encima del ${threshold}%`);
@@ -0,0 +1,107 @@
+export interface BenchmarkCase {
+  /** Identificador estable entre ejecuciones, usado para comparar */
+  name: string;
+  validator: "typescript" | "java" | "java-full" | "vue";
+  input: string;
+  loc: number;
+  bytes: number;
+  fn: () => unknown;
+}
+
+export interface HarnessOptions {
+  warmupIterations: number;
+  iterations: number;
+  /** Corta la medición de un caso al superar este tiempo (mínimo 3 muestras) */
+  maxTimeMs: number;
+}
+
+export interface BenchmarkResult {
+  name: string;
+  validator: BenchmarkCase["validator"];
+  input: string;
+  loc: number;
+  bytes: number;
+  warmup: number;
+  samples: number;
+  opsPerSec: number;
+  locPerSec: number;
+  meanMs: number;
+  p50Ms: number;
+  p99Ms: number;
+  minMs: number;
+  maxMs: number;
+  /** Crecimiento del heap por operación; null si no se ejecutó con --expose-gc */
+  heapDeltaBytes: { mean: number; p50: number } | null;
+}
+
+const gc = (globalThis as { gc?: () => void }).gc;
+
+// Evita que el JIT descarte el trabajo cuyo resultado no se usa
+let sink: unknown;
+
+export function percentile(sorted: number[], p: number): number {
+  if (sorted.length === 0) return 0;
+  const rank = Math.ceil((p / 100) * sorted.length) - 1;
+  return sorted[Math.min(sorted.length - 1, Math.max(0, rank))];
+}
+
+/**
+ * Ejecuta un caso al estilo JMH: iteraciones de calentamiento descartadas y
+ * luego muestras de una operación cada una. Con --expose-gc se fuerza una
+ * recolección antes de cada muestra para aislar el heap asignado por la
+ * operación.
+ */
+export function runCase(benchmark: BenchmarkCase, options: HarnessOptions): BenchmarkResult {
+  for (let i = 0; i < options.warmupIterations; i++) {
+    sink = benchmark.fn();
+  }
+
+  const times: number[] = [];
+  const heapDeltas: number[] = [];
+  const started = performance.now();
+
+  for (let i = 0; i < options.iterations; i++) {
+    gc?.();
+    const heapBefore = process.memoryUsage().heapUsed;
+    const t0 = performance.now();
+    sink = benchmark.fn();
+    const elapsed = performance.now() - t0;
+    const heapAfter = process.memoryUsage().heapUsed;
+
+    times.push(elapsed);
+    if (gc) heapDeltas.push(Math.max(0, heapAfter - heapBefore));
+    if (times.length >= 3 && performance.now() - started > options.maxTimeMs) break;
+  }
+
+  const total = times.reduce((sum, t) => sum + t, 0);
+  const sorted = [...times].sort((a, b) => a - b);
+  const sortedHeap = [...heapDeltas].sort((a, b) => a - b);
+  const opsPerSec = total > 0 ? (times.length * 1000) / total : 0;
+
+  return {
+    name: benchmark.name,
+    validator: benchmark.validator,
+    input: benchmark.input,
+    loc: benchmark.loc,
+    bytes: benchmark.bytes,
+    warmup: options.warmupIterations,
+    samples: times.length,
+    opsPerSec,
+    locPerSec: opsPerSec * benchmark.loc,
+    meanMs: total / times.length,
+    p50Ms: percentile(sorted, 50),
+    p99Ms: percentile(sorted, 99),
+    minMs: sorted[0],
+    maxMs: sorted[sorted.length - 1],
+    heapDeltaBytes: gc
+      ? {
+          mean: heapDeltas.reduce((sum, b) => sum + b, 0) / heapDeltas.length,
+          p50: percentile(sortedHeap, 50),
+        }
+      : null,
+  };
+}
+
+export function consumeSink(): unknown {
+  return sink;
+}
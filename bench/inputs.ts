@@ -0,0 +1,169 @@
+import { readdirSync, readFileSync, statSync } from "fs";
+import { join, relative } from "path";
+
+export interface BenchmarkInput {
+  name: string;
+  code: string;
+  loc: number;
+}
+
+const countLines = (code: string) => code.split("\n").length;
+
+function collect(dir: string, extension: string, excluded: (path: string) => boolean = () => false): string[] {
+  const files: string[] = [];
+  for (const entry of readdirSync(dir).sort()) {
+    const path = join(dir, entry);
+    if (statSync(path).isDirectory()) {
+      files.push(...collect(path, extension, excluded));
+    } else if (path.endsWith(extension) && !excluded(path)) {
+      files.push(path);
+    }
+  }
+  return files;
+}
+
+/** Un caso por archivo del corpus. */
+function corpus(files: string[], label: string): BenchmarkInput[] {
+  return files.map((file) => {
+    const code = readFileSync(file, "utf-8");
+    return { name: `${label}/${relative(".", file)}`, code, loc: countLines(code) };
+  });
+}
+
+export function typescriptCorpus(): BenchmarkInput[] {
+  return corpus(collect("src", ".ts", (path) => path.endsWith(".d.ts")), "corpus");
+}
+
+export function javaCorpus(): BenchmarkInput[] {
+  return corpus(collect("examples", ".java"), "corpus");
+}
+
+export function vueCorpus(): BenchmarkInput[] {
+  return corpus(collect("examples", ".vue"), "corpus");
+}
+
+/** Repite un bloque con nombres únicos hasta alcanzar `targetLoc` líneas. */
+function scale(targetLoc: number, header: string, footer: string, block: (i: number) => string): BenchmarkInput {
+  const parts = [header];
+  let loc = countLines(header) + countLines(footer);
+  for (let i = 0; loc < targetLoc; i++) {
+    const chunk = block(i);
+    parts.push(chunk);
+    loc += countLines(chunk);
+  }
+  parts.push(footer);
+  const code = parts.join("\n");
+  return { name: `synthetic/${targetLoc}`, code, loc: countLines(code) };
+}
+
+export function typescriptSynthetic(targetLoc: number): BenchmarkInput {
+  return scale(targetLoc, "// synthetic benchmark input", "", (i) => `
+export class OrderService${i} {
+  private readonly items: number[] = [];
+  private total_amount = 0;
+
+  addItem(price: number, quantity: number): void {
+    const subtotal = price * quantity;
+    this.items.push(subtotal);
+    this.total_amount += subtotal;
+  }
+
+  getTotal(): number {
+    return this.items.reduce((sum, value) => sum + value, 0);
+  }
+}
+
+export function Compute_discount${i}(total: number, rate: number): number {
+  const unused${i} = rate * 2;
+  if (total > 100) {
+    return total * rate;
+  }
+  return 0;
+}
+`);
+}
+
+export function javaSynthetic(targetLoc: number): BenchmarkInput {
+  return scale(targetLoc, "package bench;\n\nimport java.util.*;\n", "", (i) => `
+interface Handler${i} {
+    void handle(String request);
+}
+
+class Repository${i} {
+    private static Repository${i} instance;
+    private final Map<String, Object> store = new HashMap<>();
+
+    private Repository${i}() {}
+
+    public static Repository${i} getInstance() {
+        if (instance == null) {
+            instance = new Repository${i}();
+        }
+        return instance;
+    }
+
+    public Object findById(String id) {
+        return store.get(id);
+    }
+
+    public void save(String id, Object value) {
+        store.put(id, value);
+    }
+
+    public void delete(String id) {
+        store.remove(id);
+    }
+}
+
+class ConcreteHandler${i} implements Handler${i} {
+    private Handler${i} next;
+
+    public void setNext(Handler${i} next) {
+        this.next = next;
+    }
+
+    public void handle(String request) {
+        if (next != null) {
+            next.handle(request);
+        }
+    }
+}
+`);
+}
+
+export function vueSynthetic(targetLoc: number): BenchmarkInput {
+  // La mitad en el template y la mitad en el script, como un componente grande real
+  const half = Math.max(1, Math.floor(targetLoc / 2));
+  const template = scale(half, "<template>\n  <div class=\"root\">", "  </div>\n</template>", (i) => `
+    <ul class="list-${i}">
+      <li v-for="item in items${i}" v-if="item.visible">{{ item.label }}</li>
+    </ul>
+    <button @click="select${i}(item)">Select ${i}</button>`).code;
+  const methods = scale(half, "", "", (i) => `
+    select${i}(item) {
+      this.selected = item;
+      this.$emit('selected', item);
+    },`).code;
+
+  const code = `${template}
+
+<script>
+export default {
+  name: 'SyntheticComponent',
+  mixins: [LegacyMixin],
+  props: {
+    value: { type: String, required: true }
+  },
+  data() {
+    return {
+      selected: null,
+      items: []
+    };
+  },
+  methods: {${methods}
+  }
+};
+</script>
+`;
+  return { name: `synthetic/${targetLoc}`, code, loc: countLines(code) };
+}
@@ -0,0 +1,186 @@
+#!/usr/bin/env tsx
+
+import { spawn } from "child_process";
+import { existsSync, mkdtempSync, readFileSync, rmSync, writeFileSync } from "fs";
+import { once } from "events";
+import { createInterface } from "readline";
+import * as os from "os";
+import { join } from "path";
+import { percentile } from "./harness.js";
+
+/*
+ * Uso:
+ *   npm run bench:startup -- [--iterations N] [--entries dist/index.js,bundle/main.js]
+ *                            [--modes off,cold,warm] [--out FILE]
+ *
+ * Arranca el servidor por stdio como lo haría un cliente MCP y mide, desde
+ * el spawn, cuándo responde a `initialize`, a `tools/list` y a la primera
+ * llamada `validate_code` (que incluye cargar el parser de TypeScript si el
+ * precalentamiento no llegó antes). Modos de la caché de compilación de
+ * Node: `off` sin caché, `cold` con un directorio vacío en cada arranque y
+ * `warm` con uno ya poblado.
+ */
+type CacheMode = "off" | "cold" | "warm";
+
+interface StartupSample {
+  initializeMs: number;
+  toolsListMs: number;
+  firstCallMs: number;
+  /** RSS del proceso al responder tools/list (solo Linux) */
+  rssBytes: number | null;
+}
+
+function parseArgs(argv: string[]) {
+  const args = new Map<string, string>();
+  for (let i = 0; i < argv.length; i++) {
+    if (argv[i].startsWith("--")) args.set(argv[i].slice(2), argv[i + 1] ?? "");
+  }
+  const iterations = Number(args.get("iterations"));
+  const defaultEntries = ["dist/index.js", "dist/main.js", "bundle/main.js"].filter((entry) => existsSync(entry));
+
+  return {
+    iterations: Number.isInteger(iterations) && iterations > 0 ? iterations : 10,
+    entries: args.has("entries") ? args.get("entries")!.split(",") : defaultEntries,
+    modes: (args.get("modes") ?? "off,cold,warm").split(",") as CacheMode[],
+    out: args.get("out") || null,
+  };
+}
+
+function readRss(pid: number | undefined): number | null {
+  try {
+    const match = /VmRSS:\s+(\d+) kB/.exec(readFileSync(`/proc/${pid}/status`, "utf-8"));
+    return match ? Number(match[1]) * 1024 : null;
+  } catch {
+    return null;
+  }
+}
+
+async function measure(entry: string, env: NodeJS.ProcessEnv): Promise<StartupSample> {
+  const start = performance.now();
+  const child = spawn(process.execPath, [entry], { env, stdio: ["pipe", "pipe", "ignore"] });
+  const pending = new Map<number, { resolve: (ms: number) => void; reject: (error: Error) => void }>();
+
+  createInterface({ input: child.stdout }).on("line", (line) => {
+    let message: { id?: number };
+    try {
+      message = JSON.parse(line);
+    } catch {
+      return;
+    }
+    if (message.id !== undefined) pending.get(message.id)?.resolve(performance.now() - start);
+  });
+  child.once("exit", (code) => {
+    pending.forEach(({ reject }) => reject(new Error(`El servidor terminó con código ${code}`)));
+  });
+
+  const request = (id: number, method: string, params: object = {}) => {
+    const response = new Promise<number>((resolve, reject) => pending.set(id, { resolve, reject }));
+    child.stdin.write(`${JSON.stringify({ jsonrpc: "2.0", id, method, params })}\n`);
+    return response;
+  };
+
+  try {
+    const initializeMs = await request(1, "initialize", {
+      protocolVersion: "2025-06-18",
+      capabilities: {},
+      clientInfo: { name: "pattern-police-startup-bench", version: "1.0.0" },
+    });
+    child.stdin.write(`${JSON.stringify({ jsonrpc: "2.0", method: "notifications/initialized" })}\n`);
+
+    const toolsListMs = await request(2, "tools/list");
+    const rssBytes = readRss(child.pid);
+
+    const callStart = performance.now() - start;
+    const firstCallMs =
+      (await request(3, "tools/call", {
+        name: "validate_code",
+        arguments: { code: "export const answer = 42;\n", filename: "bench.ts" },
+      })) - callStart;
+
+    return { initializeMs, toolsListMs, firstCallMs, rssBytes };
+  } finally {
+    child.kill();
+    if (child.exitCode === null) await once(child, "exit");
+  }
+}
+
+const options = parseArgs(process.argv.slice(2));
+if (options.entries.length === 0) {
+  console.error("No hay entradas que medir: ejecuta `npm run build` o pasa --entries");
+  process.exit(1);
+}
+
+const baseEnv: NodeJS.ProcessEnv = { ...process.env, PATTERN_POLICE_CONFIG_WATCH: "0" };
+delete baseEnv.NODE_COMPILE_CACHE;
+
+const stats = (values: number[]) => {
+  const sorted = [...values].sort((a, b) => a - b);
+  return { p50: percentile(sorted, 50), p99: percentile(sorted, 99), min: sorted[0], max: sorted[sorted.length - 1] };
+};
+
+const fmt = (n: number) => n.toFixed(1).padStart(10);
+console.error(
+  `${"entrada".padEnd(24)} ${"caché".padEnd(6)} ${"init ms".padStart(10)} ${"list ms".padStart(10)} ${"1ª llamada".padStart(10)} ${"RSS MB".padStart(10)}`
+);
+
+const results = [];
+for (const entry of options.entries) {
+  for (const mode of options.modes) {
+    const warmDir = mode === "warm" ? mkdtempSync(join(os.tmpdir(), "pp-compile-cache-")) : null;
+    const envFor = () => {
+      if (mode === "off") return { ...baseEnv, PATTERN_POLICE_COMPILE_CACHE: "0" };
+      return { ...baseEnv, NODE_COMPILE_CACHE: warmDir ?? mkdtempSync(join(os.tmpdir(), "pp-compile-cache-")) };
+    };
+
+    // Un arranque descartado: puebla la caché en `warm` y calienta la caché de disco del SO
+    await measure(entry, envFor());
+
+    const samples: StartupSample[] = [];
+    for (let i = 0; i < options.iterations; i++) {
+      const env = envFor();
+      samples.push(await measure(entry, env));
+      if (mode === "cold") rmSync(env.NODE_COMPILE_CACHE!, { recursive: true, force: true });
+    }
+    if (warmDir) rmSync(warmDir, { recursive: true, force: true });
+
+    const rss = samples.map((s) => s.rssBytes).filter((r): r is number => r !== null);
+    const result = {
+      entry,
+      mode,
+      samples: samples.length,
+      initializeMs: stats(samples.map((s) => s.initializeMs)),
+      toolsListMs: stats(samples.map((s) => s.toolsListMs)),
+      firstCallMs: stats(samples.map((s) => s.firstCallMs)),
+      rssBytes: rss.length > 0 ? stats(rss) : null,
+    };
+    results.push(result);
+    console.error(
+      `${entry.padEnd(24)} ${mode.padEnd(6)} ${fmt(result.initializeMs.p50)} ${fmt(result.toolsListMs.p50)} ${fmt(result.firstCallMs.p50)} ${
+        result.rssBytes ? fmt(result.rssBytes.p50 / 1024 / 1024) : "—".padStart(10)
+      }`
+    );
+  }
+}
+
+const packageJson = JSON.parse(readFileSync("package.json", "utf-8"));
+const report = {
+  meta: {
+    package: packageJson.name,
+    version: packageJson.version,
+    date: new Date().toISOString(),
+    node: process.version,
+    platform: `${process.platform}-${process.arch}`,
+    cpu: os.cpus()[0]?.model ?? "unknown",
+    cpus: os.cpus().length,
+  },
+  options: { iterations: options.iterations, entries: options.entries, modes: options.modes },
+  results,
+};
+
+const json = JSON.stringify(report, null, 2);
+if (options.out) {
+  writeFileSync(options.out, json + "\n");
+  console.error(`\n💾 Resultados guardados en ${options.out}`);
+} else {
+  process.stdout.write(json + "\n");
+}
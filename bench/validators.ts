@@ -0,0 +1,135 @@
+#!/usr/bin/env tsx
+
+import { readFileSync, writeFileSync } from "fs";
+import * as os from "os";
+import { PatternValidator } from "../src/validators/PatternValidator.js";
+import { JavaPatternValidator } from "../src/validators/JavaPatternValidator.js";
+import { VuePatternValidator } from "../src/validators/VuePatternValidator.js";
+import { DEFAULT_CONFIG } from "../src/config.js";
+import type { JavaPatternConfig } from "../src/types-java.js";
+import type { VuePatternConfig } from "../src/types-vue.js";
+import { BenchmarkCase, BenchmarkResult, consumeSink, runCase } from "./harness.js";
+import {
+  BenchmarkInput,
+  javaCorpus,
+  javaSynthetic,
+  typescriptCorpus,
+  typescriptSynthetic,
+  vueCorpus,
+  vueSynthetic,
+} from "./inputs.js";
+
+/*
+ * Uso:
+ *   npm run bench -- [--warmup N] [--iterations N] [--max-time MS]
+ *                    [--sizes 1000,10000,100000] [--filter REGEX] [--out FILE]
+ *
+ * La tabla legible va a stderr y el JSON a stdout (o a --out), para poder
+ * guardarlo y compararlo con bench/compare.ts.
+ */
+function parseArgs(argv: string[]) {
+  const args = new Map<string, string>();
+  for (let i = 0; i < argv.length; i++) {
+    if (argv[i].startsWith("--")) args.set(argv[i].slice(2), argv[i + 1] ?? "");
+  }
+  const number = (name: string, fallback: number) => {
+    const value = Number(args.get(name));
+    return Number.isFinite(value) && value >= 0 ? value : fallback;
+  };
+
+  return {
+    warmupIterations: number("warmup", 5),
+    iterations: number("iterations", 30),
+    maxTimeMs: number("max-time", 10_000),
+    sizes: (args.get("sizes") ?? "1000,10000,100000").split(",").map(Number).filter((n) => n > 0),
+    filter: args.has("filter") ? new RegExp(args.get("filter")!) : null,
+    out: args.get("out") || null,
+  };
+}
+
+const options = parseArgs(process.argv.slice(2));
+
+const javaConfig: JavaPatternConfig = JSON.parse(readFileSync("java-patterns.config.json", "utf-8"));
+const vueConfig: VuePatternConfig = JSON.parse(readFileSync("vue-patterns.config.json", "utf-8"));
+
+const tsValidator = new PatternValidator(DEFAULT_CONFIG);
+const javaValidator = new JavaPatternValidator(javaConfig);
+// Referencia del parse completo frente al esquema por defecto
+const javaFullValidator = new JavaPatternValidator({ ...javaConfig, parseMode: "full" });
+const vueValidator = new VuePatternValidator(vueConfig);
+
+const cases: BenchmarkCase[] = [];
+const add = (validator: BenchmarkCase["validator"], inputs: BenchmarkInput[], run: (input: BenchmarkInput) => unknown) => {
+  for (const input of inputs) {
+    const name = `${validator}/${input.name}`;
+    if (options.filter && !options.filter.test(name)) continue;
+    cases.push({
+      name,
+      validator,
+      input: input.name,
+      loc: input.loc,
+      bytes: Buffer.byteLength(input.code),
+      fn: () => run(input),
+    });
+  }
+};
+
+add("typescript", [...typescriptCorpus(), ...options.sizes.map(typescriptSynthetic)], (input) =>
+  tsValidator.validateCode(input.code, "bench.ts")
+);
+add("java", [...javaCorpus(), ...options.sizes.map(javaSynthetic)], (input) =>
+  javaValidator.validateCode(input.code, "Bench.java")
+);
+add("java-full", [...javaCorpus(), ...options.sizes.map(javaSynthetic)], (input) =>
+  javaFullValidator.validateCode(input.code, "Bench.java")
+);
+add("vue", [...vueCorpus(), ...options.sizes.map(vueSynthetic)], (input) =>
+  vueValidator.validate(input.code, "Bench.vue")
+);
+
+const gcExposed = typeof (globalThis as { gc?: unknown }).gc === "function";
+if (!gcExposed) {
+  console.error("⚠️  Sin --expose-gc: no se reportan estadísticas de heap\n");
+}
+
+const fmt = (n: number, digits = 2) => n.toFixed(digits).padStart(10);
+console.error(`${"caso".padEnd(60)} ${"LOC".padStart(8)} ${"ops/s".padStart(10)} ${"p50 ms".padStart(10)} ${"p99 ms".padStart(10)}`);
+
+const results: BenchmarkResult[] = [];
+for (const benchmark of cases) {
+  const result = runCase(benchmark, options);
+  results.push(result);
+  console.error(
+    `${benchmark.name.slice(0, 60).padEnd(60)} ${String(result.loc).padStart(8)} ${fmt(result.opsPerSec)} ${fmt(result.p50Ms)} ${fmt(result.p99Ms)}`
+  );
+}
+consumeSink();
+
+const packageJson = JSON.parse(readFileSync("package.json", "utf-8"));
+const report = {
+  meta: {
+    package: packageJson.name,
+    version: packageJson.version,
+    date: new Date().toISOString(),
+    node: process.version,
+    platform: `${process.platform}-${process.arch}`,
+    cpu: os.cpus()[0]?.model ?? "unknown",
+    cpus: os.cpus().length,
+    gcExposed,
+  },
+  options: {
+    warmupIterations: options.warmupIterations,
+    iterations: options.iterations,
+    maxTimeMs: options.maxTimeMs,
+    sizes: options.sizes,
+  },
+  results,
+};
+
+const json = JSON.stringify(report, null, 2);
+if (options.out) {
+  writeFileSync(options.out, json + "\n");
+  console.error(`\n💾 Resultados guardados en ${options.out}`);
+} else {
+  process.stdout.write(json + "\n");
+}
@@ -0,0 +1,283 @@
+import { once } from "events";
+import * as fs from "fs/promises";
+import { relative, resolve, sep } from "path";
+import { pathToFileURL } from "url";
+import type { Writable } from "stream";
+import { ValidationEngine } from "./engine/ValidationEngine.js";
+import { createValidationPool, validateFiles } from "./engine/DirectoryValidator.js";
+import { detectLanguage, discoverFiles, FileDiscoveryOptions } from "./project/files.js";
+import { loadPackageVersion } from "./config.js";
+import { DirectoryReport, FileReport, ReportSeverity } from "./types-report.js";
+
+/** Códigos de salida: sin violaciones sobre el umbral, con ellas, y error de uso o de validación. */
+export const EXIT_OK = 0;
+export const EXIT_VIOLATIONS = 1;
+export const EXIT_ERROR = 2;
+
+type OutputFormat = "ndjson" | "sarif";
+type FailOn = ReportSeverity | "never";
+
+interface CliOptions extends FileDiscoveryOptions {
+  paths: string[];
+  format: OutputFormat;
+  failOn: FailOn;
+  maxFiles?: number;
+  workers?: number;
+}
+
+const SEVERITY_RANK: Record<ReportSeverity, number> = { info: 0, warning: 1, error: 2 };
+
+const USAGE = `Uso: pattern-police check [rutas...] [opciones]
+
+Valida archivos y directorios (por defecto, el directorio actual) y emite un
+registro por archivo en cuanto termina.
+
+Opciones:
+  --format ndjson|sarif    Formato de salida (por defecto ndjson)
+  --fail-on error|warning|info|never
+                           Severidad mínima que hace fallar (por defecto error)
+  --include <glob>         Solo archivos que cumplan el glob (repetible)
+  --exclude <glob>         Excluye archivos que cumplan el glob (repetible)
+  --max-files <n>          Máximo de archivos a validar
+  --workers <n>            Tamaño del pool de workers
+  -h, --help               Muestra esta ayuda
+
+Salida: 0 sin violaciones sobre el umbral, 1 con violaciones, 2 error.`;
+
+class UsageError extends Error {}
+
+function parseArgs(argv: string[]): CliOptions | null {
+  const options: CliOptions = { paths: [], format: "ndjson", failOn: "error" };
+  const include: string[] = [];
+  const exclude: string[] = [];
+
+  for (let i = 0; i < argv.length; i++) {
+    const arg = argv[i];
+    const value = () => {
+      const next = argv[++i];
+      if (next === undefined) throw new UsageError(`Falta el valor de ${arg}`);
+      return next;
+    };
+    const count = () => {
+      const parsed = Number(value());
+      if (!Number.isInteger(parsed) || parsed < 1) throw new UsageError(`${arg} espera un entero positivo`);
+      return parsed;
+    };
+
+    switch (arg) {
+      case "-h":
+      case "--help":
+        return null;
+      case "--format": {
+        const format = value();
+        if (format !== "ndjson" && format !== "sarif") throw new UsageError(`Formato no soportado: '${format}'`);
+        options.format = format;
+        break;
+      }
+      case "--fail-on": {
+        const failOn = value();
+        if (failOn !== "never" && !(failOn in SEVERITY_RANK)) throw new UsageError(`Severidad no válida: '${failOn}'`);
+        options.failOn = failOn as FailOn;
+        break;
+      }
+      case "--include":
+        include.push(value());
+        break;
+      case "--exclude":
+        exclude.push(value());
+        break;
+      case "--max-files":
+        options.maxFiles = count();
+        break;
+      case "--workers":
+        options.workers = count();
+        break;
+      default:
+        if (arg.startsWith("-")) throw new UsageError(`Opción desconocida: '${arg}'`);
+        options.paths.push(arg);
+    }
+  }
+
+  if (options.paths.length === 0) options.paths.push(".");
+  if (include.length > 0) options.include = include;
+  if (exclude.length > 0) options.exclude = exclude;
+  return options;
+}
+
+const toUri = (cwd: string, filepath: string) => {
+  const rel = relative(cwd, filepath);
+  return sep === "/" ? rel : rel.split(sep).join("/");
+};
+
+/** Registro de un archivo sin los datos internos de los índices de proyecto. */
+function publicReport(cwd: string, report: FileReport) {
+  const { classes: _classes, fingerprints: _fingerprints, contentHash: _hash, configFingerprint: _config, ...item } =
+    report;
+  return { ...item, filepath: toUri(cwd, report.filepath) };
+}
+
+interface ReportWriter {
+  file(report: FileReport): void;
+  end(summary: Omit<DirectoryReport, "reports">, exitCode: number): void;
+}
+
+/** Una línea JSON por archivo con violaciones o error, y una final con el resumen. */
+function ndjsonWriter(out: Writable, cwd: string, failOn: FailOn): ReportWriter {
+  const write = (record: object) => out.write(`${JSON.stringify(record)}\n`);
+  return {
+    file: (report) => write({ type: "file", ...publicReport(cwd, report) }),
+    end: (summary, exitCode) => write({ type: "summary", ...summary, failOn, exitCode }),
+  };
+}
+
+/**
+ * SARIF 2.1.0 escrito de forma incremental: la cabecera sale al empezar,
+ * cada resultado según termina su archivo y `invocations` al final. Solo se
+ * retienen los archivos que no se pudieron validar.
+ */
+function sarifWriter(out: Writable, cwd: string): ReportWriter {
+  const LEVEL: Record<ReportSeverity, string> = { error: "error", warning: "warning", info: "note" };
+  const failures: { filepath: string; error: string }[] = [];
+  let first = true;
+
+  const header = {
+    $schema: "https://json.schemastore.org/sarif-2.1.0.json",
+    version: "2.1.0",
+  };
+  const run = {
+    tool: {
+      driver: {
+        name: "pattern-police",
+        version: loadPackageVersion(),
+        informationUri: "https://github.com/cmiretf/pattern-police-mcp",
+      },
+    },
+    originalUriBaseIds: { SRCROOT: { uri: `${pathToFileURL(cwd).href}/` } },
+  };
+  // Se abren `runs` y `results` a mano para poder cerrarlos al terminar
+  out.write(`${JSON.stringify(header).slice(0, -1)},"runs":[${JSON.stringify(run).slice(0, -1)},"results":[\n`);
+
+  return {
+    file: (report) => {
+      const uri = encodeURI(toUri(cwd, report.filepath));
+      if (report.error) failures.push({ filepath: uri, error: report.error });
+
+      for (const violation of report.violations) {
+        const result = {
+          ruleId: violation.rule,
+          level: LEVEL[violation.severity],
+          message: { text: violation.message },
+          locations: [
+            {
+              physicalLocation: {
+                artifactLocation: { uri, uriBaseId: "SRCROOT" },
+                // En Vue las líneas son relativas al bloque del SFC: solo se informa el archivo
+                ...(violation.line && report.language !== "vue" ? { region: { startLine: violation.line } } : {}),
+              },
+            },
+          ],
+        };
+        out.write(`${first ? "" : ",\n"}${JSON.stringify(result)}`);
+        first = false;
+      }
+    },
+    end: (_summary, exitCode) => {
+      const invocation = {
+        executionSuccessful: exitCode !== EXIT_ERROR,
+        exitCode,
+        toolExecutionNotifications: failures.map((failure) => ({
+          level: "error",
+          message: { text: failure.error },
+          locations: [{ physicalLocation: { artifactLocation: { uri: failure.filepath, uriBaseId: "SRCROOT" } } }],
+        })),
+      };
+      out.write(`\n],"invocations":[${JSON.stringify(invocation)}]}]}\n`);
+    },
+  };
+}
+
+/**
+ * Expande las rutas de la línea de comandos en archivos. Los archivos dados
+ * explícitamente se validan si su lenguaje está soportado; include/exclude
+ * solo filtran lo que se descubre dentro de directorios. Antes de cada
+ * archivo espera a que la salida se vacíe, para que un consumidor lento
+ * frene el descubrimiento en lugar de acumular salida en memoria.
+ */
+async function* expandPaths(options: CliOptions, out: Writable): AsyncGenerator<string> {
+  for (const path of options.paths) {
+    const absolute = resolve(path);
+    const stat = await fs.stat(absolute);
+    const files = stat.isDirectory()
+      ? discoverFiles(absolute, options)
+      : detectLanguage(absolute)
+        ? [absolute]
+        : [];
+
+    for await (const filepath of files) {
+      if (out.writableNeedDrain) await once(out, "drain");
+      yield filepath;
+    }
+  }
+}
+
+/**
+ * Modo sin servidor: `pattern-police check` valida las rutas en el pool de
+ * workers y escribe cada archivo según termina. No se retienen los reportes,
+ * así que la memoria no crece con el tamaño del repositorio.
+ */
+export async function runCli(argv: string[], out: Writable = process.stdout): Promise<number> {
+  let options: CliOptions | null;
+  try {
+    options = parseArgs(argv);
+  } catch (error) {
+    if (!(error instanceof UsageError)) throw error;
+    console.error(`${error.message}\n\n${USAGE}`);
+    return EXIT_ERROR;
+  }
+  if (!options) {
+    console.error(USAGE);
+    return EXIT_OK;
+  }
+
+  for (const path of options.paths) {
+    try {
+      await fs.stat(path);
+    } catch {
+      console.error(`No existe la ruta '${path}'`);
+      return EXIT_ERROR;
+    }
+  }
+
+  const cwd = process.cwd();
+  const engine = new ValidationEngine({ persistent: true });
+  const pool = createValidationPool(options.workers);
+  const writer = options.format === "sarif" ? sarifWriter(out, cwd) : ndjsonWriter(out, cwd, options.failOn);
+
+  try {
+    const { reports: _reports, ...summary } = await validateFiles(cwd, expandPaths(options, out), pool, {
+      maxFiles: options.maxFiles,
+      diskCache: engine.diskCache,
+      maxReports: 0,
+      onReport: (report) => {
+        if (report.violations.length > 0 || report.error) writer.file(report);
+      },
+    });
+
+    const threshold = options.failOn === "never" ? Infinity : SEVERITY_RANK[options.failOn];
+    const failing = (Object.keys(SEVERITY_RANK) as ReportSeverity[])
+      .filter((severity) => SEVERITY_RANK[severity] >= threshold)
+      .reduce((sum, severity) => sum + summary.bySeverity[severity], 0);
+    const exitCode = summary.errors > 0 ? EXIT_ERROR : failing > 0 ? EXIT_VIOLATIONS : EXIT_OK;
+
+    writer.end(summary, exitCode);
+    console.error(
+      `${summary.files} archivos en ${(summary.durationMs / 1000).toFixed(1)} s: ` +
+        `${summary.bySeverity.error} errores, ${summary.bySeverity.warning} advertencias, ` +
+        `${summary.bySeverity.info} info, ${summary.errors} sin validar`
+    );
+    return exitCode;
+  } finally {
+    await pool.destroy();
+    await engine.diskCache?.flush();
+  }
+}
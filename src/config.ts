@@ -0,0 +1,163 @@
+import { PatternConfig } from "./types.js";
+import { JavaPatternConfig } from "./types-java.js";
+import { VuePatternConfig } from "./types-vue.js";
+import { Language } from "./types-report.js";
+import { existsSync, readFileSync } from "fs";
+import * as fs from "fs/promises";
+import { fileURLToPath } from "url";
+import { dirname, join, resolve } from "path";
+
+// Resolver la ruta del directorio del módulo actual
+const __filename = fileURLToPath(import.meta.url);
+const __dirname = dirname(__filename);
+
+// Función helper para resolver rutas de archivos de configuración
+// Busca en el directorio del paquete instalado (relativo a dist/)
+export const resolveConfigPath = (filename: string): string => {
+  // Cuando se ejecuta desde npm, el archivo está en dist/config.js
+  // Los configs están en la raíz del paquete (un nivel arriba de dist/)
+  return join(__dirname, "..", filename);
+};
+
+export const DEFAULT_CONFIG: PatternConfig = {
+  rules: {
+    naming: {
+      enabled: true,
+      severity: "warning",
+      patterns: {
+        classes: "PascalCase",
+        functions: "camelCase",
+        constants: "UPPER_CASE",
+        variables: "camelCase",
+      },
+    },
+    solid: {
+      enabled: true,
+      severity: "warning",
+      maxFunctionLines: 50,
+      maxClassMethods: 10,
+      maxParameters: 5,
+    },
+    codeSmells: {
+      enabled: true,
+      severity: "warning",
+      detectDuplication: true,
+      detectLongMethods: true,
+      detectGodClasses: true,
+      detectDeadCode: true,
+    },
+  },
+};
+
+/** Nombre de archivo de configuración por lenguaje, buscado en el proyecto. */
+export const CONFIG_FILES: Record<Language, string> = {
+  typescript: "pattern-police.config.json",
+  java: "java-patterns.config.json",
+  vue: "vue-patterns.config.json",
+};
+
+export interface ConfigSet {
+  typescript: PatternConfig;
+  java: JavaPatternConfig | null;
+  vue: VuePatternConfig | null;
+  /** Archivo del que salió cada configuración (null = valores por defecto) */
+  sources: Record<Language, string | null>;
+}
+
+/**
+ * Directorio de configuración del proyecto: PATTERN_POLICE_CONFIG_DIR o el
+ * primer directorio, subiendo desde `start`, que contenga alguno de los
+ * archivos de CONFIG_FILES. Null si no hay ninguno.
+ */
+export function discoverConfigDir(start = process.cwd(), env: NodeJS.ProcessEnv = process.env): string | null {
+  if (env.PATTERN_POLICE_CONFIG_DIR) return resolve(env.PATTERN_POLICE_CONFIG_DIR);
+
+  let dir = resolve(start);
+  for (;;) {
+    if (Object.values(CONFIG_FILES).some((file) => existsSync(join(dir, file)))) return dir;
+    const parent = dirname(dir);
+    if (parent === dir) return null;
+    dir = parent;
+  }
+}
+
+/**
+ * Ruta efectiva de cada configuración: la del proyecto si existe y, si no,
+ * la que acompaña al paquete (TS/JS no tiene archivo: usa DEFAULT_CONFIG).
+ */
+export function resolveConfigFiles(projectDir = discoverConfigDir()): Record<Language, string | null> {
+  const pick = (language: Language): string | null => {
+    const filename = CONFIG_FILES[language];
+    if (projectDir && existsSync(join(projectDir, filename))) return join(projectDir, filename);
+    if (language === "typescript") return null;
+    return resolveConfigPath(filename);
+  };
+  return { typescript: pick("typescript"), java: pick("java"), vue: pick("vue") };
+}
+
+/** Las reglas TS/JS del proyecto se combinan por categoría con DEFAULT_CONFIG. */
+function mergeTypeScriptConfig(project: Partial<PatternConfig> | null): PatternConfig {
+  if (!project?.rules) return DEFAULT_CONFIG;
+  const rules = { ...DEFAULT_CONFIG.rules } as Record<string, unknown>;
+  Object.entries(project.rules).forEach(([category, value]) => {
+    rules[category] = { ...(rules[category] as object), ...(value as object) };
+  });
+  return { ...DEFAULT_CONFIG, ...project, rules } as PatternConfig;
+}
+
+/**
+ * Carga síncrona usada al arrancar. Un archivo ilegible o con JSON inválido
+ * desactiva ese lenguaje (Java/Vue) o cae a DEFAULT_CONFIG (TS/JS).
+ */
+export function loadConfigSet(projectDir = discoverConfigDir()): ConfigSet {
+  const sources = resolveConfigFiles(projectDir);
+  const read = <T>(language: Language): T | null => {
+    const file = sources[language];
+    if (!file) return null;
+    try {
+      return JSON.parse(readFileSync(file, "utf-8")) as T;
+    } catch (error) {
+      console.error(
+        `Warning: Could not load ${language} validator config (${file}), ${
+          language === "typescript" ? "using defaults" : `${language} validation disabled`
+        }`
+      );
+      return null;
+    }
+  };
+
+  return {
+    typescript: mergeTypeScriptConfig(read<PatternConfig>("typescript")),
+    java: read<JavaPatternConfig>("java"),
+    vue: read<VuePatternConfig>("vue"),
+    sources,
+  };
+}
+
+/**
+ * Recarga asíncrona para el hot reload. A diferencia de loadConfigSet, un
+ * error rechaza la promesa: quien recarga conserva la configuración anterior
+ * en lugar de desactivar un lenguaje por un archivo a medio guardar.
+ */
+export async function reloadConfigSet(projectDir = discoverConfigDir()): Promise<ConfigSet> {
+  const sources = resolveConfigFiles(projectDir);
+  const read = async <T>(language: Language): Promise<T | null> => {
+    const file = sources[language];
+    return file ? (JSON.parse(await fs.readFile(file, "utf-8")) as T) : null;
+  };
+
+  const [typescript, java, vue] = await Promise.all([
+    read<PatternConfig>("typescript"),
+    read<JavaPatternConfig>("java"),
+    read<VuePatternConfig>("vue"),
+  ]);
+  return { typescript: mergeTypeScriptConfig(typescript), java, vue, sources };
+}
+
+export const loadPackageVersion = (): string => {
+  try {
+    return JSON.parse(readFileSync(resolveConfigPath("package.json"), "utf-8")).version ?? "0.0.0";
+  } catch {
+    return "0.0.0";
+  }
+};
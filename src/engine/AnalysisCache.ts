@@ -0,0 +1,173 @@
+import { createHash } from "crypto";
+
+export interface AnalysisCacheOptions {
+  maxEntries: number;
+  maxBytes: number;
+}
+
+export interface AnalysisCacheStats {
+  entries: number;
+  bytes: number;
+  maxEntries: number;
+  maxBytes: number;
+  hits: number;
+  misses: number;
+  evictions: number;
+  hitRate: number;
+}
+
+interface CacheEntry {
+  value: unknown;
+  bytes: number;
+}
+
+export function hashContent(content: string): string {
+  return createHash("sha1").update(content).digest("hex");
+}
+
+export function fingerprintConfig(config: unknown): string {
+  return hashContent(JSON.stringify(config)).slice(0, 16);
+}
+
+/**
+ * Caché LRU de resultados de validación, indexada por hash del contenido
+ * y huella de la configuración. Se acota por número de entradas y por
+ * tamaño estimado en bytes.
+ */
+export class AnalysisCache {
+  private entries = new Map<string, CacheEntry>();
+  private bytes = 0;
+  private hits = 0;
+  private misses = 0;
+  private evictions = 0;
+  private options: AnalysisCacheOptions;
+
+  constructor(options: AnalysisCacheOptions) {
+    this.options = options;
+  }
+
+  static fromEnv(env: NodeJS.ProcessEnv = process.env): AnalysisCache {
+    const maxEntries = Number(env.PATTERN_POLICE_CACHE_MAX_ENTRIES ?? 500);
+    const maxMb = Number(env.PATTERN_POLICE_CACHE_MAX_MB ?? 64);
+    return new AnalysisCache({
+      maxEntries: Number.isFinite(maxEntries) && maxEntries >= 0 ? maxEntries : 500,
+      maxBytes: (Number.isFinite(maxMb) && maxMb >= 0 ? maxMb : 64) * 1024 * 1024,
+    });
+  }
+
+  static key(kind: string, fingerprint: string, content: string, discriminator = ""): string {
+    return AnalysisCache.keyForHash(kind, fingerprint, hashContent(content), discriminator);
+  }
+
+  /** Igual que key() cuando el hash del contenido ya está calculado. */
+  static keyForHash(kind: string, fingerprint: string, hash: string, discriminator = ""): string {
+    return `${kind}:${fingerprint}:${discriminator}:${hash}`;
+  }
+
+  get enabled(): boolean {
+    return this.options.maxEntries > 0 && this.options.maxBytes > 0;
+  }
+
+  get<T>(key: string): T | undefined {
+    const entry = this.entries.get(key);
+    if (!entry) {
+      this.misses++;
+      return undefined;
+    }
+
+    // Reinsertar para mover la entrada al final (más reciente)
+    this.entries.delete(key);
+    this.entries.set(key, entry);
+    this.hits++;
+    return entry.value as T;
+  }
+
+  set<T>(key: string, value: T): void {
+    if (!this.enabled) return;
+
+    const bytes = estimateBytes(value);
+    if (bytes > this.options.maxBytes) return;
+
+    this.delete(key);
+    this.entries.set(key, { value, bytes });
+    this.bytes += bytes;
+    this.evict();
+  }
+
+  getOrCompute<T>(key: string, compute: () => T): T {
+    if (!this.enabled) return compute();
+
+    const cached = this.get<T>(key);
+    if (cached !== undefined) return cached;
+
+    const value = compute();
+    this.set(key, value);
+    return value;
+  }
+
+  delete(key: string): boolean {
+    const entry = this.entries.get(key);
+    if (!entry) return false;
+    this.entries.delete(key);
+    this.bytes -= entry.bytes;
+    return true;
+  }
+
+  clear(): void {
+    this.entries.clear();
+    this.bytes = 0;
+  }
+
+  /**
+   * Elimina las entradas de un tipo calculadas con una huella concreta (p. ej.
+   * tras recargar la configuración de un lenguaje). Devuelve cuántas borró.
+   */
+  invalidate(kind: string, fingerprint: string): number {
+    const prefix = `${kind}:${fingerprint}:`;
+    let removed = 0;
+    for (const key of [...this.entries.keys()]) {
+      if (key.startsWith(prefix) && this.delete(key)) removed++;
+    }
+    return removed;
+  }
+
+  getStats(): AnalysisCacheStats {
+    const lookups = this.hits + this.misses;
+    return {
+      entries: this.entries.size,
+      bytes: this.bytes,
+      maxEntries: this.options.maxEntries,
+      maxBytes: this.options.maxBytes,
+      hits: this.hits,
+      misses: this.misses,
+      evictions: this.evictions,
+      hitRate: lookups > 0 ? this.hits / lookups : 0,
+    };
+  }
+
+  private evict(): void {
+    while (
+      this.entries.size > this.options.maxEntries ||
+      this.bytes > this.options.maxBytes
+    ) {
+      const oldest = this.entries.keys().next();
+      if (oldest.done) break;
+      this.delete(oldest.value);
+      this.evictions++;
+    }
+  }
+}
+
+function estimateBytes(value: unknown): number {
+  // Aproximación: tamaño del JSON en UTF-16; los arrays tipados (huellas de
+  // clones) cuentan por sus bytes reales en vez de serializarse
+  let binary = 0;
+  const json = JSON.stringify(value, (_key, item) => {
+    if (ArrayBuffer.isView(item)) {
+      binary += item.byteLength;
+      return 0;
+    }
+    return item;
+  });
+  return (json?.length ?? 0) * 2 + binary;
+}
@@ -0,0 +1,77 @@
+import { watch, FSWatcher } from "fs";
+import { dirname } from "path";
+import { CONFIG_FILES } from "../config.js";
+
+export interface ConfigWatcherOptions {
+  debounceMs?: number;
+}
+
+/**
+ * Vigila los archivos de configuración y avisa (con debounce) cuando alguno
+ * cambia. Vigila directorios y no archivos: los editores suelen guardar
+ * escribiendo un temporal y renombrándolo, lo que deja huérfano un watch
+ * sobre el archivo original. Así también se detecta un archivo nuevo en el
+ * directorio de configuración del proyecto.
+ */
+export class ConfigWatcher {
+  private watchers: FSWatcher[] = [];
+  private timer: NodeJS.Timeout | null = null;
+  private running: Promise<void> = Promise.resolve();
+  private readonly names = new Set(Object.values(CONFIG_FILES));
+  private readonly debounceMs: number;
+
+  constructor(
+    private directories: () => string[],
+    private onChange: () => Promise<void>,
+    options: ConfigWatcherOptions = {}
+  ) {
+    this.debounceMs = options.debounceMs ?? 200;
+  }
+
+  /** Directorios a vigilar para una configuración dada. */
+  static directoriesFor(configDir: string | null, sources: Record<string, string | null>): string[] {
+    const dirs = new Set<string>();
+    if (configDir) dirs.add(configDir);
+    Object.values(sources).forEach((file) => file && dirs.add(dirname(file)));
+    return [...dirs];
+  }
+
+  start(): void {
+    this.close();
+    for (const dir of this.directories()) {
+      try {
+        const watcher = watch(dir, (_event, filename) => {
+          if (filename && this.names.has(filename.toString())) this.schedule();
+        });
+        watcher.on("error", (error) => {
+          console.error(`Config watcher error (${dir}):`, error);
+        });
+        watcher.unref();
+        this.watchers.push(watcher);
+      } catch (error) {
+        console.error(`No se puede vigilar la configuración en ${dir}:`, error);
+      }
+    }
+  }
+
+  close(): void {
+    this.watchers.forEach((watcher) => watcher.close());
+    this.watchers = [];
+    if (this.timer) clearTimeout(this.timer);
+    this.timer = null;
+  }
+
+  private schedule(): void {
+    if (this.timer) clearTimeout(this.timer);
+    this.timer = setTimeout(() => {
+      this.timer = null;
+      // Las recargas se encadenan: nunca hay dos aplicándose a la vez
+      this.running = this.running.then(() =>
+        this.onChange().catch((error) => {
+          console.error("Error recargando la configuración:", error);
+        })
+      );
+    }, this.debounceMs);
+    this.timer.unref();
+  }
+}
@@ -0,0 +1,258 @@
+import { extname, resolve } from "path";
+import { fileURLToPath } from "url";
+import * as fs from "fs/promises";
+import { DirectoryReport, FileReport, Language, ReportedViolation } from "../types-report.js";
+import { createFileFilter, detectLanguage, discoverFiles, FileDiscoveryOptions } from "../project/files.js";
+import type { FileChanges, LineRange } from "../project/changes.js";
+import { poolOptionsFromEnv, WorkerLimitError, WorkerPool } from "./WorkerPool.js";
+import { DiskCache } from "./DiskCache.js";
+import type { CodeAnalysis } from "./ValidationEngine.js";
+
+/**
+ * Un archivo del disco, entero o acotado a sus líneas modificadas (devuelve
+ * FileReport), o código en memoria (devuelve CodeAnalysis).
+ */
+export type ValidationTask =
+  | { filepath: string }
+  | { filepath: string; changedLines: readonly LineRange[] }
+  | { language: Language; code: string; filename: string };
+
+export type ValidationPool = WorkerPool<ValidationTask, FileReport | CodeAnalysis[Language]>;
+
+/**
+ * El worker junto a este módulo y con su misma extensión: `.js` compilado o
+ * empaquetado, `.ts` al ejecutar el código fuente con tsx (el loader de tsx
+ * llega a los workers a través de execArgv).
+ */
+const WORKER_SCRIPT = new URL(`./validation-worker${extname(fileURLToPath(import.meta.url))}`, import.meta.url);
+
+/** Informes de archivo que conserva `DirectoryReport.reports` si no se indica otra cosa. */
+export const DEFAULT_MAX_REPORTS = 50;
+
+export function createValidationPool(size?: number): ValidationPool {
+  return new WorkerPool<ValidationTask, FileReport | CodeAnalysis[Language]>(
+    WORKER_SCRIPT,
+    size,
+    poolOptionsFromEnv()
+  );
+}
+
+/** Violación estructurada para una validación cancelada por tiempo o memoria. */
+export function limitViolation(error: WorkerLimitError): ReportedViolation & { suggestion: string } {
+  return {
+    rule: error.limit === "timeout" ? "resource-timeout" : "resource-memory",
+    severity: "error",
+    message: error.message,
+    suggestion: "Divide el archivo o simplifica las construcciones muy anidadas; el resto del proyecto se sigue validando",
+  };
+}
+
+/** Analiza código en memoria en el pool; los WorkerLimitError se propagan. */
+export function analyzeInPool<L extends Language>(
+  pool: ValidationPool,
+  language: L,
+  code: string,
+  filename: string
+): Promise<CodeAnalysis[L]> {
+  return pool.run({ language, code, filename }) as Promise<CodeAnalysis[L]>;
+}
+
+/**
+ * Valida un archivo en el pool sirviendo primero la caché en disco. Si la
+ * tarea se cancela por tiempo o memoria, el archivo se informa con una
+ * violación de límite en lugar de un error.
+ */
+export function validateFileInPool(
+  filepath: string,
+  pool: ValidationPool,
+  diskCache: DiskCache | null = null
+): Promise<FileReport> {
+  return reportLimits(filepath, async () => {
+    await diskCache?.ready();
+    return validateOne(filepath, pool, diskCache);
+  });
+}
+
+/** Valida en el pool solo lo que toca las líneas modificadas del archivo. */
+export function validateChangesInPool(changes: FileChanges, pool: ValidationPool): Promise<FileReport> {
+  const { filepath, lines } = changes;
+  return reportLimits(filepath, () => pool.run({ filepath, changedLines: lines.ranges }) as Promise<FileReport>);
+}
+
+async function reportLimits(filepath: string, validate: () => Promise<FileReport>): Promise<FileReport> {
+  try {
+    return await validate();
+  } catch (error) {
+    if (!(error instanceof WorkerLimitError)) throw error;
+    const { suggestion: _suggestion, ...violation } = limitViolation(error);
+    return {
+      filepath,
+      language: detectLanguage(filepath) ?? "typescript",
+      violations: [violation],
+    };
+  }
+}
+
+export interface DirectoryValidationOptions extends FileDiscoveryOptions {
+  maxFiles?: number;
+  onReport?: (report: FileReport) => void;
+  /** Archivos sin cambios (mtime y tamaño) se sirven sin pasar por el pool */
+  diskCache?: DiskCache | null;
+  /**
+   * Máximo de FileReport que se conservan en `reports`: los de más
+   * violaciones (por defecto DEFAULT_MAX_REPORTS; 0 = ninguno). El resto solo
+   * llega por `onReport`, así que la memoria no crece con el tamaño del árbol
+   */
+  maxReports?: number;
+}
+
+/**
+ * Descubre los archivos de `root` y los valida en paralelo en el pool.
+ * Las tareas en vuelo y los informes conservados se acotan para que la
+ * memoria no crezca con el tamaño del repositorio.
+ */
+export async function validateDirectory(
+  root: string,
+  pool: ValidationPool,
+  options: DirectoryValidationOptions = {}
+): Promise<DirectoryReport> {
+  const absoluteRoot = resolve(root);
+  return validateFiles(absoluteRoot, discoverFiles(absoluteRoot, options), pool, options);
+}
+
+/**
+ * Valida en el pool una secuencia de archivos ya resuelta, como
+ * validateDirectory. La secuencia se consume según hay hueco, así que un
+ * generador puede frenar el descubrimiento mientras la salida se vacía.
+ */
+export async function validateFiles(
+  root: string,
+  filepaths: AsyncIterable<string> | Iterable<string>,
+  pool: ValidationPool,
+  options: DirectoryValidationOptions = {}
+): Promise<DirectoryReport> {
+  const diskCache = options.diskCache ?? null;
+  await diskCache?.ready();
+
+  return collectReports(resolve(root), pool, filepaths, options, (filepath) =>
+    validateFileInPool(filepath, pool, diskCache)
+  );
+}
+
+/**
+ * Valida solo los archivos de un diff y, en cada uno, solo lo que toca sus
+ * líneas modificadas: el coste es proporcional al cambio y no al
+ * repositorio. Los archivos sin lenguaje soportado o fuera de los filtros
+ * include/exclude (relativos a `root`) se ignoran.
+ */
+export async function validateChanges(
+  root: string,
+  changes: FileChanges[],
+  pool: ValidationPool,
+  options: DirectoryValidationOptions = {}
+): Promise<DirectoryReport> {
+  const absoluteRoot = resolve(root);
+  const accepts = createFileFilter(absoluteRoot, options);
+  const byPath = new Map(changes.filter((file) => accepts(file.filepath)).map((file) => [file.filepath, file]));
+
+  return collectReports(absoluteRoot, pool, byPath.keys(), options, (filepath) =>
+    validateChangesInPool(byPath.get(filepath)!, pool)
+  );
+}
+
+async function collectReports(
+  root: string,
+  pool: ValidationPool,
+  filepaths: AsyncIterable<string> | Iterable<string>,
+  options: DirectoryValidationOptions,
+  validate: (filepath: string) => Promise<FileReport>
+): Promise<DirectoryReport> {
+  const start = performance.now();
+  const report: DirectoryReport = {
+    root,
+    files: 0,
+    filesWithViolations: 0,
+    errors: 0,
+    durationMs: 0,
+    workers: pool.size,
+    byLanguage: { typescript: 0, java: 0, vue: 0 },
+    bySeverity: { error: 0, warning: 0, info: 0 },
+    byRule: {},
+    reports: [],
+  };
+
+  const maxReports = options.maxReports ?? DEFAULT_MAX_REPORTS;
+  const weight = (fileReport: FileReport) => fileReport.violations.length + (fileReport.error ? 1 : 0);
+  const retain = (fileReport: FileReport) => {
+    const kept = report.reports;
+    if (kept.length < maxReports) {
+      kept.push(fileReport);
+      return;
+    }
+    if (kept.length === 0) return;
+    // Lleno: sustituye al de menos violaciones si el nuevo tiene más
+    let lightest = 0;
+    for (let i = 1; i < kept.length; i++) {
+      if (weight(kept[i]) < weight(kept[lightest])) lightest = i;
+    }
+    if (weight(fileReport) > weight(kept[lightest])) kept[lightest] = fileReport;
+  };
+
+  const collect = (fileReport: FileReport) => {
+    report.files++;
+    report.byLanguage[fileReport.language]++;
+    if (fileReport.error) report.errors++;
+    if (fileReport.violations.length > 0) report.filesWithViolations++;
+
+    for (const violation of fileReport.violations) {
+      report.bySeverity[violation.severity]++;
+      report.byRule[violation.rule] = (report.byRule[violation.rule] || 0) + 1;
+    }
+
+    if (fileReport.violations.length > 0 || fileReport.error) retain(fileReport);
+    options.onReport?.(fileReport);
+  };
+
+  const maxInFlight = Math.max(1, pool.size * 4);
+  const inFlight = new Set<Promise<void>>();
+  let submitted = 0;
+
+  for await (const filepath of filepaths) {
+    if (options.maxFiles !== undefined && submitted >= options.maxFiles) break;
+    submitted++;
+
+    const task: Promise<void> = validate(filepath)
+      .then(collect, (error: Error) => {
+        collect({
+          filepath,
+          language: detectLanguage(filepath) ?? "typescript",
+          violations: [],
+          error: error.message,
+        });
+      })
+      .finally(() => inFlight.delete(task));
+    inFlight.add(task);
+
+    if (inFlight.size >= maxInFlight) {
+      await Promise.race(inFlight);
+    }
+  }
+
+  await Promise.all(inFlight);
+
+  report.reports.sort((a, b) => weight(b) - weight(a));
+  report.durationMs = performance.now() - start;
+  return report;
+}
+
+async function validateOne(filepath: string, pool: ValidationPool, diskCache: DiskCache | null): Promise<FileReport> {
+  if (!diskCache) return pool.run({ filepath }) as Promise<FileReport>;
+
+  const stat = await fs.stat(filepath);
+  const cached = diskCache.get(filepath, stat);
+  if (cached) return cached;
+
+  const report = (await pool.run({ filepath })) as FileReport;
+  diskCache.set(filepath, stat, report);
+  return report;
+}
@@ -0,0 +1,337 @@
+import { mkdirSync, renameSync, Stats, writeFileSync } from "fs";
+import * as fs from "fs/promises";
+import { join } from "path";
+import { deserialize, serialize } from "v8";
+import { FileReport, Language } from "../types-report.js";
+import { detectLanguage } from "../project/files.js";
+
+/*
+ * Formato del archivo (little endian):
+ *
+ *   cabecera: "PPCA" | u16 versión de formato | u16 len | huella (utf8) | u32 nº registros
+ *             (huella = "versión/ts/java/vue", una huella de configuración por lenguaje)
+ *   registro: u16 len | ruta (utf8) | f64 mtimeMs | f64 size | 20 bytes sha1 | u32 len | FileReport (v8)
+ *
+ * Los payloads se mantienen como vistas sobre el buffer leído y solo se
+ * deserializan cuando se consultan.
+ */
+const MAGIC = Buffer.from("PPCA", "ascii");
+// 2: los FileReport de TypeScript incluyen las huellas de clones
+// 3: las huellas incluyen el flujo de tokens
+const FORMAT_VERSION = 3;
+const HASH_BYTES = 20;
+const FILE_NAME = "analysis.cache";
+
+export interface DiskCacheOptions {
+  maxEntries: number;
+  flushDelayMs: number;
+}
+
+export interface DiskCacheStats {
+  file: string;
+  entries: number;
+  hits: number;
+  misses: number;
+  loaded: number;
+}
+
+/** Versión del validador y huella de la configuración de cada lenguaje. */
+export interface CacheFingerprint {
+  version: string;
+  languages: Record<Language, string>;
+}
+
+const LANGUAGES: Language[] = ["typescript", "java", "vue"];
+
+export function encodeFingerprint(fingerprint: CacheFingerprint): string {
+  return [fingerprint.version, ...LANGUAGES.map((language) => fingerprint.languages[language])].join("/");
+}
+
+function decodeFingerprint(value: string): CacheFingerprint | null {
+  const parts = value.split("/");
+  if (parts.length !== LANGUAGES.length + 1) return null;
+  const [version, ...languages] = parts;
+  return {
+    version,
+    languages: Object.fromEntries(LANGUAGES.map((language, i) => [language, languages[i]])) as Record<Language, string>,
+  };
+}
+
+/** Lenguajes cuyos resultados dejan de valer al pasar de `from` a `to`. */
+function staleLanguages(from: CacheFingerprint | null, to: CacheFingerprint): Set<Language> {
+  if (!from || from.version !== to.version) return new Set(LANGUAGES);
+  return new Set(LANGUAGES.filter((language) => from.languages[language] !== to.languages[language]));
+}
+
+interface DiskEntry {
+  mtimeMs: number;
+  size: number;
+  hash: Buffer;
+  payload: Buffer;
+}
+
+/**
+ * Caché persistente de resultados por archivo. Sobrevive a reinicios del
+ * servidor para que un arranque en caliente no vuelva a parsear los archivos
+ * que no cambiaron. Un cambio de versión del validador la invalida completa;
+ * un cambio de configuración solo descarta los archivos de ese lenguaje.
+ */
+export class DiskCache {
+  readonly file: string;
+  private entries = new Map<string, DiskEntry>();
+  private hits = 0;
+  private misses = 0;
+  private loaded = 0;
+  private dirty = false;
+  private timer: NodeJS.Timeout | null = null;
+  private loading: Promise<void> | null = null;
+  private options: DiskCacheOptions;
+
+  constructor(
+    private dir: string,
+    private fingerprint: CacheFingerprint,
+    options: Partial<DiskCacheOptions> = {}
+  ) {
+    this.file = join(dir, FILE_NAME);
+    this.options = { maxEntries: 100_000, flushDelayMs: 2000, ...options };
+    process.on("exit", () => this.flushSync());
+  }
+
+  static fromEnv(fingerprint: CacheFingerprint, env: NodeJS.ProcessEnv = process.env): DiskCache | null {
+    const dir = env.PATTERN_POLICE_CACHE_DIR;
+    if (!dir) return null;
+
+    const maxEntries = Number(env.PATTERN_POLICE_DISK_CACHE_MAX_ENTRIES ?? 100_000);
+    return new DiskCache(dir, fingerprint, {
+      maxEntries: Number.isInteger(maxEntries) && maxEntries > 0 ? maxEntries : 100_000,
+    });
+  }
+
+  ready(): Promise<void> {
+    this.loading ??= this.load();
+    return this.loading;
+  }
+
+  /** Acierto rápido: misma ruta, mtime y tamaño. */
+  get(filepath: string, stat: Stats): FileReport | undefined {
+    const entry = this.entries.get(filepath);
+    if (!entry || entry.mtimeMs !== stat.mtimeMs || entry.size !== stat.size) {
+      this.misses++;
+      return undefined;
+    }
+    return this.hit(filepath, entry);
+  }
+
+  /**
+   * Acierto por contenido cuando el mtime cambió pero el contenido no
+   * (checkout, touch). Actualiza el mtime para que la próxima vez sea rápido.
+   * Se consulta tras un get() fallido, así que un acierto aquí corrige ese
+   * fallo en las estadísticas.
+   */
+  getByHash(filepath: string, stat: Stats, contentHash: string): FileReport | undefined {
+    const entry = this.entries.get(filepath);
+    if (!entry || !entry.hash.equals(Buffer.from(contentHash, "hex"))) {
+      return undefined;
+    }
+    entry.mtimeMs = stat.mtimeMs;
+    entry.size = stat.size;
+    this.markDirty();
+    this.misses--;
+    return this.hit(filepath, entry);
+  }
+
+  set(filepath: string, stat: Stats, report: FileReport): void {
+    if (!report.contentHash || report.error) return;
+    // Resultado calculado con una configuración que se recargó mientras tanto
+    if (report.configFingerprint && report.configFingerprint !== this.fingerprint.languages[report.language]) return;
+
+    const { durationMs: _durationMs, ...stored } = report;
+    this.entries.delete(filepath);
+    this.entries.set(filepath, {
+      mtimeMs: stat.mtimeMs,
+      size: stat.size,
+      hash: Buffer.from(report.contentHash, "hex"),
+      payload: serialize(stored),
+    });
+
+    while (this.entries.size > this.options.maxEntries) {
+      const oldest = this.entries.keys().next().value as string;
+      this.entries.delete(oldest);
+    }
+    this.markDirty();
+  }
+
+  delete(filepath: string): void {
+    if (this.entries.delete(filepath)) this.markDirty();
+  }
+
+  /**
+   * Adopta una nueva huella tras recargar la configuración y descarta solo
+   * las entradas de los lenguajes afectados. Devuelve cuántas descartó.
+   */
+  async setFingerprint(next: CacheFingerprint): Promise<number> {
+    await this.ready();
+    const stale = staleLanguages(this.fingerprint, next);
+    this.fingerprint = next;
+    if (stale.size === 0) return 0;
+
+    let removed = 0;
+    for (const filepath of [...this.entries.keys()]) {
+      const language = detectLanguage(filepath);
+      if (!language || stale.has(language)) {
+        this.entries.delete(filepath);
+        removed++;
+      }
+    }
+    this.markDirty();
+    return removed;
+  }
+
+  getStats(): DiskCacheStats {
+    return {
+      file: this.file,
+      entries: this.entries.size,
+      hits: this.hits,
+      misses: this.misses,
+      loaded: this.loaded,
+    };
+  }
+
+  async flush(): Promise<void> {
+    if (!this.dirty) return;
+    this.dirty = false;
+
+    const data = this.encode();
+    const tmp = `${this.file}.${process.pid}.tmp`;
+    try {
+      await fs.mkdir(this.dir, { recursive: true });
+      await fs.writeFile(tmp, data);
+      await fs.rename(tmp, this.file);
+    } catch (error) {
+      console.error(`No se pudo escribir la caché en disco (${this.file}):`, error);
+    }
+  }
+
+  flushSync(): void {
+    if (this.timer) clearTimeout(this.timer);
+    this.timer = null;
+    if (!this.dirty) return;
+    this.dirty = false;
+
+    const tmp = `${this.file}.${process.pid}.tmp`;
+    try {
+      mkdirSync(this.dir, { recursive: true });
+      writeFileSync(tmp, this.encode());
+      renameSync(tmp, this.file);
+    } catch {
+      // El proceso está terminando: no hay a quién informar
+    }
+  }
+
+  private hit(filepath: string, entry: DiskEntry): FileReport {
+    this.hits++;
+    this.entries.delete(filepath);
+    this.entries.set(filepath, entry);
+    return { ...(deserialize(entry.payload) as FileReport), filepath };
+  }
+
+  private markDirty(): void {
+    this.dirty = true;
+    if (this.timer) return;
+    this.timer = setTimeout(() => {
+      this.timer = null;
+      void this.flush();
+    }, this.options.flushDelayMs);
+    this.timer.unref();
+  }
+
+  private async load(): Promise<void> {
+    let buffer: Buffer;
+    try {
+      buffer = await fs.readFile(this.file);
+    } catch {
+      return;
+    }
+
+    try {
+      this.decode(buffer);
+    } catch (error) {
+      this.entries.clear();
+      console.error(`Caché en disco corrupta, se descarta (${this.file}):`, error);
+    }
+    this.loaded = this.entries.size;
+  }
+
+  private decode(buffer: Buffer): void {
+    let offset = 0;
+    if (!buffer.subarray(0, MAGIC.length).equals(MAGIC)) {
+      throw new Error("cabecera inválida");
+    }
+    offset += MAGIC.length;
+
+    const version = buffer.readUInt16LE(offset);
+    offset += 2;
+    const fingerprintLength = buffer.readUInt16LE(offset);
+    offset += 2;
+    const fingerprint = buffer.toString("utf8", offset, offset + fingerprintLength);
+    offset += fingerprintLength;
+
+    // Otra versión del validador: todo obsoleto. Otra configuración: solo
+    // los archivos de los lenguajes cuya huella cambió
+    if (version !== FORMAT_VERSION) return;
+    const stale = staleLanguages(decodeFingerprint(fingerprint), this.fingerprint);
+    if (stale.size === LANGUAGES.length) return;
+
+    const count = buffer.readUInt32LE(offset);
+    offset += 4;
+
+    for (let i = 0; i < count; i++) {
+      const pathLength = buffer.readUInt16LE(offset);
+      offset += 2;
+      const filepath = buffer.toString("utf8", offset, offset + pathLength);
+      offset += pathLength;
+      const mtimeMs = buffer.readDoubleLE(offset);
+      offset += 8;
+      const size = buffer.readDoubleLE(offset);
+      offset += 8;
+      const hash = buffer.subarray(offset, offset + HASH_BYTES);
+      offset += HASH_BYTES;
+      const payloadLength = buffer.readUInt32LE(offset);
+      offset += 4;
+      if (offset + payloadLength > buffer.length) {
+        throw new Error("registro truncado");
+      }
+      const payload = buffer.subarray(offset, offset + payloadLength);
+      offset += payloadLength;
+
+      const language = detectLanguage(filepath);
+      if (!language || stale.has(language)) continue;
+      this.entries.set(filepath, { mtimeMs, size, hash, payload });
+    }
+  }
+
+  private encode(): Buffer {
+    const fingerprint = Buffer.from(encodeFingerprint(this.fingerprint), "utf8");
+    const header = Buffer.alloc(MAGIC.length + 2 + 2 + fingerprint.length + 4);
+    let offset = MAGIC.copy(header, 0);
+    offset = header.writeUInt16LE(FORMAT_VERSION, offset);
+    offset = header.writeUInt16LE(fingerprint.length, offset);
+    offset += fingerprint.copy(header, offset);
+    header.writeUInt32LE(this.entries.size, offset);
+
+    const chunks: Buffer[] = [header];
+    this.entries.forEach((entry, filepath) => {
+      const path = Buffer.from(filepath, "utf8");
+      const record = Buffer.alloc(2 + path.length + 8 + 8 + HASH_BYTES + 4);
+      let pos = record.writeUInt16LE(path.length, 0);
+      pos += path.copy(record, pos);
+      pos = record.writeDoubleLE(entry.mtimeMs, pos);
+      pos = record.writeDoubleLE(entry.size, pos);
+      pos += entry.hash.copy(record, pos);
+      record.writeUInt32LE(entry.payload.length, pos);
+      chunks.push(record, entry.payload);
+    });
+
+    return Buffer.concat(chunks);
+  }
+}
@@ -0,0 +1,207 @@
+import { defaultPoolSize } from "./WorkerPool.js";
+import { metrics } from "../metrics.js";
+
+export type RequestPriority = "high" | "normal";
+
+export interface RequestSchedulerOptions {
+  /** Peticiones normales ejecutándose a la vez */
+  maxConcurrent: number;
+  /** Peticiones normales esperando; por encima se responde "ocupado" */
+  maxQueue: number;
+  /** Espera máxima en cola antes de responder "ocupado" (0 = sin límite) */
+  maxWaitMs: number;
+  /** Trabajos en segundo plano a la vez (por defecto 2); por encima se responde "ocupado" */
+  maxBackground?: number;
+}
+
+export interface SchedulerStats {
+  active: number;
+  queued: number;
+  background: number;
+  coalesced: number;
+  rejected: number;
+}
+
+/** El servidor está saturado; la petición no llegó a ejecutarse. */
+export class SchedulerBusyError extends Error {
+  constructor(
+    message: string,
+    readonly active: number,
+    readonly queued: number
+  ) {
+    super(message);
+    this.name = "SchedulerBusyError";
+  }
+}
+
+interface QueuedRequest {
+  start: () => void;
+  reject: (error: Error) => void;
+  enqueuedAt: number;
+  timer?: NodeJS.Timeout;
+}
+
+/**
+ * Control de admisión de las llamadas a herramientas. Las peticiones normales
+ * ocupan uno de `maxConcurrent` huecos y las excedentes esperan en una cola
+ * acotada; cuando la cola está llena, o una petición espera demasiado, se
+ * rechaza con SchedulerBusyError para que el cliente reintente en vez de
+ * acumular latencia y memoria sin límite.
+ *
+ * Las de prioridad alta (listados, páginas de resultados, métricas) son
+ * baratas y no pasan por la cola: un agente puede consultar el estado del
+ * servidor aunque esté saturado.
+ *
+ * El trabajo que sigue tras responder (validaciones en segundo plano) ocupa
+ * un cupo aparte hasta que termina: no retiene huecos de peticiones, pero
+ * tampoco puede acumularse sin límite.
+ */
+export class RequestScheduler {
+  private active = 0;
+  private backgroundActive = 0;
+  private queue: QueuedRequest[] = [];
+  private inFlight = new Map<string, Promise<unknown>>();
+  private coalesced = 0;
+  private rejected = 0;
+
+  constructor(private options: RequestSchedulerOptions) {}
+
+  static fromEnv(env: NodeJS.ProcessEnv = process.env): RequestScheduler {
+    const number = (value: string | undefined, fallback: number) => {
+      const parsed = Number(value ?? fallback);
+      return Number.isFinite(parsed) && parsed >= 0 ? parsed : fallback;
+    };
+    return new RequestScheduler({
+      maxConcurrent: Math.max(1, number(env.PATTERN_POLICE_MAX_CONCURRENT, defaultPoolSize(env) * 2)),
+      maxQueue: number(env.PATTERN_POLICE_MAX_QUEUE, 64),
+      maxWaitMs: number(env.PATTERN_POLICE_MAX_QUEUE_WAIT_MS, 30000),
+      maxBackground: Math.max(1, number(env.PATTERN_POLICE_MAX_BACKGROUND, 2)),
+    });
+  }
+
+  getStats(): SchedulerStats {
+    return {
+      active: this.active,
+      queued: this.queue.length,
+      background: this.backgroundActive,
+      coalesced: this.coalesced,
+      rejected: this.rejected,
+    };
+  }
+
+  /**
+   * Arranca `fn` en el cupo de segundo plano y lo ocupa hasta que termina.
+   * Con el cupo lleno lanza SchedulerBusyError sin llamar a `fn`, para que
+   * quien responde sepa que el trabajo no empezó.
+   */
+  background<T>(fn: () => Promise<T>): Promise<T> {
+    const max = this.options.maxBackground ?? 2;
+    if (this.backgroundActive >= max) {
+      throw this.busy(`${this.backgroundActive} validaciones en segundo plano en curso`);
+    }
+    this.backgroundActive++;
+    let promise: Promise<T>;
+    try {
+      promise = fn();
+    } catch (error) {
+      promise = Promise.reject(error);
+    }
+    return promise.finally(() => this.backgroundActive--);
+  }
+
+  async run<T>(priority: RequestPriority, fn: () => Promise<T>, signal?: AbortSignal): Promise<T> {
+    if (priority === "high") return fn();
+
+    await this.acquire(signal);
+    try {
+      return await fn();
+    } finally {
+      this.release();
+    }
+  }
+
+  /**
+   * Comparte el resultado entre llamadas concurrentes con la misma clave: la
+   * segunda espera a la primera en lugar de repetir el análisis.
+   */
+  shared<T>(key: string, fn: () => Promise<T>): Promise<T> {
+    const existing = this.inFlight.get(key);
+    if (existing) {
+      this.coalesced++;
+      return existing as Promise<T>;
+    }
+
+    const promise = fn().finally(() => this.inFlight.delete(key));
+    this.inFlight.set(key, promise);
+    return promise;
+  }
+
+  private acquire(signal?: AbortSignal): Promise<void> {
+    // El evento abort ya pasó: nunca llegaría a onAbort
+    if (signal?.aborted) return Promise.reject(new Error("Petición cancelada"));
+
+    if (this.active < this.options.maxConcurrent) {
+      this.active++;
+      return Promise.resolve();
+    }
+
+    if (this.queue.length >= this.options.maxQueue) {
+      return Promise.reject(this.busy(`cola llena (${this.queue.length} peticiones esperando)`));
+    }
+
+    return new Promise<void>((resolve, reject) => {
+      const request: QueuedRequest = {
+        enqueuedAt: performance.now(),
+        start: () => {
+          signal?.removeEventListener("abort", onAbort);
+          metrics.record("scheduler.wait", performance.now() - request.enqueuedAt);
+          resolve();
+        },
+        reject,
+      };
+      const remove = () => {
+        const index = this.queue.indexOf(request);
+        if (index === -1) return false;
+        this.queue.splice(index, 1);
+        clearTimeout(request.timer);
+        return true;
+      };
+      // Una petición cancelada por el cliente deja la cola sin ejecutarse
+      const onAbort = () => {
+        if (remove()) reject(new Error("Petición cancelada"));
+      };
+
+      if (this.options.maxWaitMs > 0) {
+        request.timer = setTimeout(() => {
+          if (remove()) {
+            signal?.removeEventListener("abort", onAbort);
+            reject(this.busy(`sin hueco tras ${this.options.maxWaitMs} ms en cola`));
+          }
+        }, this.options.maxWaitMs);
+      }
+      signal?.addEventListener("abort", onAbort, { once: true });
+      this.queue.push(request);
+    });
+  }
+
+  private release(): void {
+    const next = this.queue.shift();
+    if (next) {
+      // El hueco pasa directamente a la siguiente petición
+      clearTimeout(next.timer);
+      next.start();
+    } else {
+      this.active--;
+    }
+  }
+
+  private busy(reason: string): SchedulerBusyError {
+    this.rejected++;
+    metrics.record("scheduler.busy", 0);
+    return new SchedulerBusyError(
+      `Servidor ocupado: ${reason}, ${this.active} en ejecución`,
+      this.active,
+      this.queue.length
+    );
+  }
+}
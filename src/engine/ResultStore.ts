@@ -0,0 +1,118 @@
+import { randomBytes } from "crypto";
+
+export interface ResultStoreOptions {
+  maxResults: number;
+  ttlMs: number;
+}
+
+export interface ResultPage<T = unknown, M = unknown> {
+  resultId: string;
+  kind: string;
+  meta: M;
+  offset: number;
+  total: number;
+  complete: boolean;
+  items: T[];
+  nextCursor?: string;
+}
+
+interface StoredResult {
+  kind: string;
+  meta: unknown;
+  items: unknown[];
+  complete: boolean;
+  touchedAt: number;
+}
+
+export const DEFAULT_PAGE_SIZE = 50;
+export const MAX_PAGE_SIZE = 500;
+
+export function clampPageSize(value: unknown): number {
+  const size = Number(value);
+  if (!Number.isInteger(size) || size <= 0) return DEFAULT_PAGE_SIZE;
+  return Math.min(size, MAX_PAGE_SIZE);
+}
+
+/**
+ * Resultados de validación retenidos en el servidor para servirlos por
+ * páginas con cursores opacos. Un resultado puede seguir creciendo
+ * (`complete: false`) mientras el análisis continúa, de modo que el cliente
+ * consume las primeras páginas antes de que termine. Acotado por número de
+ * resultados completos (LRU) y por tiempo sin acceso.
+ */
+export class ResultStore {
+  private results = new Map<string, StoredResult>();
+  private options: ResultStoreOptions;
+
+  constructor(options: Partial<ResultStoreOptions> = {}) {
+    this.options = { maxResults: 32, ttlMs: 10 * 60 * 1000, ...options };
+  }
+
+  static encodeCursor(resultId: string, offset: number): string {
+    return Buffer.from(`${resultId}:${offset}`).toString("base64url");
+  }
+
+  static decodeCursor(cursor: string): { resultId: string; offset: number } | null {
+    const [resultId, offset] = Buffer.from(cursor, "base64url").toString().split(":");
+    const value = Number(offset);
+    return resultId && Number.isInteger(value) && value >= 0 ? { resultId, offset: value } : null;
+  }
+
+  create(kind: string, meta: unknown, items: unknown[] = [], complete = true): string {
+    this.expire();
+    const resultId = randomBytes(6).toString("hex");
+    this.results.set(resultId, { kind, meta, items, complete, touchedAt: Date.now() });
+
+    // Un resultado en curso sigue recibiendo append(): se descartan antes los
+    // completos, del menos usado al más, y los en curso pueden superar el límite
+    for (const [id, result] of this.results) {
+      if (this.results.size <= this.options.maxResults) break;
+      if (result.complete && id !== resultId) this.results.delete(id);
+    }
+    return resultId;
+  }
+
+  append(resultId: string, ...items: unknown[]): void {
+    const result = this.results.get(resultId);
+    if (!result) return;
+    result.items.push(...items);
+    result.touchedAt = Date.now();
+  }
+
+  complete(resultId: string, meta?: unknown): void {
+    const result = this.results.get(resultId);
+    if (!result) return;
+    result.complete = true;
+    if (meta !== undefined) result.meta = meta;
+  }
+
+  page<T = unknown, M = unknown>(resultId: string, offset: number, pageSize: number): ResultPage<T, M> | null {
+    this.expire();
+    const result = this.results.get(resultId);
+    if (!result) return null;
+
+    result.touchedAt = Date.now();
+    this.results.delete(resultId);
+    this.results.set(resultId, result);
+
+    const end = Math.min(result.items.length, offset + pageSize);
+    const hasMore = end < result.items.length || !result.complete;
+    return {
+      resultId,
+      kind: result.kind,
+      meta: result.meta as M,
+      offset,
+      total: result.items.length,
+      complete: result.complete,
+      items: result.items.slice(offset, end) as T[],
+      nextCursor: hasMore ? ResultStore.encodeCursor(resultId, end) : undefined,
+    };
+  }
+
+  private expire(): void {
+    const limit = Date.now() - this.options.ttlMs;
+    this.results.forEach((result, resultId) => {
+      if (result.touchedAt < limit) this.results.delete(resultId);
+    });
+  }
+}
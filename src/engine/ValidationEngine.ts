@@ -0,0 +1,401 @@
+import type { PatternValidator, TypeScriptAnalysisResult } from "../validators/PatternValidator.js";
+import type { JavaPatternValidator } from "../validators/JavaPatternValidator.js";
+import type { VuePatternValidator } from "../validators/VuePatternValidator.js";
+import { PatternConfig, PatternViolation } from "../types.js";
+import { JavaAnalysisResult, JavaParseMode, JavaPatternViolation } from "../types-java.js";
+import { VueValidationResult } from "../types-vue.js";
+import { FileReport, Language } from "../types-report.js";
+import { ConfigSet, discoverConfigDir, loadConfigSet, loadPackageVersion, reloadConfigSet } from "../config.js";
+import { detectLanguage } from "../project/files.js";
+import type { LineRanges } from "../project/changes.js";
+import { AnalysisCache, fingerprintConfig, hashContent } from "./AnalysisCache.js";
+import { CacheFingerprint, DiskCache, encodeFingerprint } from "./DiskCache.js";
+import { metrics } from "../metrics.js";
+import * as fs from "fs/promises";
+
+/** Prefijo de las claves de AnalysisCache de cada lenguaje. */
+const CACHE_KINDS: Record<Language, string> = { typescript: "ts", java: "java", vue: "vue" };
+
+interface ValidatorClasses {
+  typescript: typeof PatternValidator;
+  java: typeof JavaPatternValidator;
+  vue: typeof VuePatternValidator;
+}
+
+/**
+ * Cada validador arrastra su parser (typescript-estree, java-parser,
+ * @vue/compiler-sfc), así que su módulo se importa al primer uso del
+ * lenguaje y no al arrancar. Una vez cargado, lo comparten todos los motores
+ * del hilo.
+ */
+const VALIDATOR_MODULES: { [L in Language]: () => Promise<ValidatorClasses[L]> } = {
+  typescript: () => import("../validators/PatternValidator.js").then((m) => m.PatternValidator),
+  java: () => import("../validators/JavaPatternValidator.js").then((m) => m.JavaPatternValidator),
+  vue: () => import("../validators/VuePatternValidator.js").then((m) => m.VuePatternValidator),
+};
+
+const loadedClasses: Partial<ValidatorClasses> = {};
+const loadingClasses = new Map<Language, Promise<void>>();
+
+export function loadLanguage(language: Language): Promise<void> {
+  let loading = loadingClasses.get(language);
+  if (!loading) {
+    const start = metrics.start();
+    loading = VALIDATOR_MODULES[language]().then((validatorClass) => {
+      (loadedClasses as Record<Language, unknown>)[language] = validatorClass;
+      metrics.end(`engine.load.${language}`, start);
+    });
+    // Un fallo de importación se puede reintentar
+    loading.catch(() => loadingClasses.delete(language));
+    loadingClasses.set(language, loading);
+  }
+  return loading;
+}
+
+function loadedClass<L extends Language>(language: L): ValidatorClasses[L] {
+  const validatorClass = loadedClasses[language];
+  if (!validatorClass) {
+    throw new Error(`Validador ${language} sin cargar: falta await loadLanguage("${language}")`);
+  }
+  return validatorClass as ValidatorClasses[L];
+}
+
+export interface ValidationEngineOptions {
+  cache?: AnalysisCache;
+  /** Usa la caché en disco si PATTERN_POLICE_CACHE_DIR está definido */
+  persistent?: boolean;
+  /** Directorio de configuración del proyecto (por defecto, discoverConfigDir()) */
+  configDir?: string | null;
+}
+
+/**
+ * Configuración concreta con sus huellas y los validadores ya construidos
+ * para ella (al primer uso de cada lenguaje). Se sustituye entero al
+ * recargar, así que una validación que lo leyó al empezar usa validador y
+ * huella coherentes aunque llegue una recarga a mitad.
+ */
+interface RuleSet {
+  config: ConfigSet;
+  validators: { typescript?: PatternValidator; java?: JavaPatternValidator; vue?: VuePatternValidator };
+  fingerprints: Record<Language, string>;
+  sources: ConfigSet["sources"];
+}
+
+/** Resultado completo del análisis de código en memoria, por lenguaje. */
+export interface CodeAnalysis {
+  typescript: TypeScriptAnalysisResult;
+  java: JavaAnalysisResult | null;
+  vue: VueValidationResult | null;
+}
+
+export interface ConfigReloadResult {
+  changed: Language[];
+  sources: ConfigSet["sources"];
+  /** Entradas descartadas de la caché en memoria y en disco */
+  invalidated: { memory: number; disk: number };
+}
+
+/**
+ * Punto único de acceso a los validadores. Comparte una caché de resultados
+ * entre llamadas para no re-parsear contenido que ya fue analizado.
+ */
+export class ValidationEngine {
+  readonly cache: AnalysisCache;
+  readonly diskCache: DiskCache | null = null;
+  readonly configDir: string | null;
+  private rules: RuleSet;
+  private readonly version = loadPackageVersion();
+
+  constructor(options: ValidationEngineOptions = {}) {
+    this.cache = options.cache ?? AnalysisCache.fromEnv();
+    this.configDir = options.configDir !== undefined ? options.configDir : discoverConfigDir();
+    this.rules = ValidationEngine.compile(loadConfigSet(this.configDir), null);
+
+    if (options.persistent) {
+      this.diskCache = DiskCache.fromEnv(this.getCacheFingerprint());
+    }
+  }
+
+  /**
+   * Construye el RuleSet de una configuración. Los lenguajes cuya huella no
+   * cambió reutilizan el validador anterior (y su plan ya compilado), si ya
+   * se había construido.
+   */
+  private static compile(config: ConfigSet, previous: RuleSet | null): RuleSet {
+    const fingerprints: Record<Language, string> = {
+      typescript: fingerprintConfig(config.typescript),
+      java: config.java ? fingerprintConfig(config.java) : "",
+      vue: config.vue ? fingerprintConfig(config.vue) : "",
+    };
+    const reuse = (language: Language) => previous !== null && previous.fingerprints[language] === fingerprints[language];
+
+    return {
+      config,
+      validators: {
+        typescript: reuse("typescript") ? previous!.validators.typescript : undefined,
+        java: reuse("java") ? previous!.validators.java : undefined,
+        vue: reuse("vue") ? previous!.validators.vue : undefined,
+      },
+      fingerprints,
+      sources: config.sources,
+    };
+  }
+
+  /** Importa el validador del lenguaje; los métodos síncronos lo necesitan cargado. */
+  load(language: Language): Promise<void> {
+    return loadLanguage(language);
+  }
+
+  private static typescriptValidator(rules: RuleSet): PatternValidator {
+    return (rules.validators.typescript ??= new (loadedClass("typescript"))(rules.config.typescript));
+  }
+
+  private static javaValidator(rules: RuleSet): JavaPatternValidator | null {
+    if (!rules.config.java) return null;
+    return (rules.validators.java ??= new (loadedClass("java"))(rules.config.java));
+  }
+
+  private static vueValidator(rules: RuleSet): VuePatternValidator | null {
+    if (!rules.config.vue) return null;
+    return (rules.validators.vue ??= new (loadedClass("vue"))(rules.config.vue));
+  }
+
+  /**
+   * Vuelve a leer la configuración y la activa de forma atómica. Solo se
+   * invalidan las entradas de caché de los lenguajes cuya huella cambió. Si
+   * algún archivo no se puede leer o parsear, se rechaza y sigue vigente la
+   * configuración anterior.
+   */
+  async reloadConfig(): Promise<ConfigReloadResult> {
+    return this.applyConfig(await reloadConfigSet(this.configDir));
+  }
+
+  async applyConfig(config: ConfigSet): Promise<ConfigReloadResult> {
+    const previous = this.rules;
+    const next = ValidationEngine.compile(config, previous);
+    const changed = (Object.keys(next.fingerprints) as Language[]).filter(
+      (language) => next.fingerprints[language] !== previous.fingerprints[language]
+    );
+    this.rules = next;
+
+    const invalidated = { memory: 0, disk: 0 };
+    changed.forEach((language) => {
+      invalidated.memory += this.cache.invalidate(CACHE_KINDS[language], previous.fingerprints[language]);
+    });
+    if (this.diskCache) {
+      invalidated.disk = await this.diskCache.setFingerprint(this.getCacheFingerprint());
+    }
+    return { changed, sources: next.sources, invalidated };
+  }
+
+  getConfigSources(): ConfigSet["sources"] {
+    return this.rules.sources;
+  }
+
+  private getCacheFingerprint(): CacheFingerprint {
+    return { version: this.version, languages: { ...this.rules.fingerprints } };
+  }
+
+  /** Huella de la versión del validador y de las tres configuraciones. */
+  getFingerprint(): string {
+    return encodeFingerprint(this.getCacheFingerprint());
+  }
+
+  getConfigFingerprint(language: Language): string {
+    return this.rules.fingerprints[language];
+  }
+
+  getTypeScriptConfig(): PatternConfig {
+    return this.rules.config.typescript;
+  }
+
+  hasJava(): boolean {
+    return this.rules.config.java !== null;
+  }
+
+  hasVue(): boolean {
+    return this.rules.config.vue !== null;
+  }
+
+  async getJavaValidator(): Promise<JavaPatternValidator | null> {
+    if (!this.hasJava()) return null;
+    await this.load("java");
+    return ValidationEngine.javaValidator(this.rules);
+  }
+
+  /**
+   * Clave de caché del análisis de `code` con la configuración vigente. El
+   * hilo principal la usa para guardar los resultados que calculan los
+   * workers con la misma clave que usaría el propio motor.
+   */
+  analysisKey(
+    language: Language,
+    code: string,
+    filename: string,
+    hash = hashContent(code),
+    parseMode: JavaParseMode = "full"
+  ): string {
+    // El nombre del componente Vue se deriva del nombre de archivo; en Java,
+    // el esquema no informa errores de sintaxis dentro de los cuerpos
+    const discriminator = language === "vue" ? filename : language === "java" ? parseMode : "";
+    return AnalysisCache.keyForHash(CACHE_KINDS[language], this.rules.fingerprints[language], hash, discriminator);
+  }
+
+  analyzeCode<L extends Language>(language: L, code: string, filename: string): CodeAnalysis[L] {
+    const analyses: { [K in Language]: () => CodeAnalysis[K] } = {
+      typescript: () => this.analyzeTypeScript(code, filename),
+      java: () => this.analyzeJava(code, filename),
+      vue: () => this.validateVue(code, filename),
+    };
+    return analyses[language]();
+  }
+
+  validateTypeScript(code: string, filename: string, hash = hashContent(code)): PatternViolation[] {
+    return this.analyzeTypeScript(code, filename, hash).violations;
+  }
+
+  analyzeTypeScript(code: string, filename: string, hash = hashContent(code)): TypeScriptAnalysisResult {
+    const validator = ValidationEngine.typescriptValidator(this.rules);
+    const key = this.analysisKey("typescript", code, filename, hash);
+    return this.cache.getOrCompute(key, () => validator.analyze(code, filename));
+  }
+
+  validateJava(code: string, filename: string): JavaPatternViolation[] | null {
+    return this.analyzeJava(code, filename)?.violations ?? null;
+  }
+
+  /**
+   * Las herramientas de un solo archivo parsean completo; los recorridos de
+   * directorio, proyecto y cambios piden "outline".
+   */
+  analyzeJava(
+    code: string,
+    filename: string,
+    hash = hashContent(code),
+    parseMode: JavaParseMode = "full"
+  ): JavaAnalysisResult | null {
+    const javaValidator = ValidationEngine.javaValidator(this.rules);
+    if (!javaValidator) return null;
+
+    const key = this.analysisKey("java", code, filename, hash, parseMode);
+    return this.cache.getOrCompute(key, () => javaValidator.analyze(code, filename, null, parseMode));
+  }
+
+  validateVue(code: string, filename: string, hash = hashContent(code)): VueValidationResult | null {
+    const vueValidator = ValidationEngine.vueValidator(this.rules);
+    if (!vueValidator) return null;
+
+    const key = this.analysisKey("vue", code, filename, hash);
+    return this.cache.getOrCompute(key, () => vueValidator.validate(code, filename));
+  }
+
+  async validateFile(filepath: string): Promise<FileReport> {
+    const language = detectLanguage(filepath);
+    if (!language) {
+      throw new Error(`Tipo de archivo no soportado: ${filepath}`);
+    }
+
+    const diskCache = this.diskCache;
+    if (!diskCache) {
+      const code = await fs.readFile(filepath, "utf-8");
+      await this.load(language);
+      return this.validateSource(language, code, filepath);
+    }
+
+    await diskCache.ready();
+    const stat = await fs.stat(filepath);
+    const cached = diskCache.get(filepath, stat);
+    if (cached) return cached;
+
+    const code = await fs.readFile(filepath, "utf-8");
+    const byHash = diskCache.getByHash(filepath, stat, hashContent(code));
+    if (byHash) return byHash;
+
+    // Un acierto de caché no necesita cargar el parser del lenguaje
+    await this.load(language);
+    const report = this.validateSource(language, code, filepath);
+    diskCache.set(filepath, stat, report);
+    return report;
+  }
+
+  /**
+   * Valida solo lo que toca las líneas modificadas de un archivo. Un archivo
+   * nuevo cuenta entero y pasa por las cachés como cualquier otro; el
+   * resultado acotado depende de los cambios y no se cachea.
+   */
+  async validateChanges(filepath: string, changes: LineRanges): Promise<FileReport> {
+    if (changes.isWhole) return this.validateFile(filepath);
+
+    const language = detectLanguage(filepath);
+    if (!language) {
+      throw new Error(`Tipo de archivo no soportado: ${filepath}`);
+    }
+    await this.load(language);
+    const code = await fs.readFile(filepath, "utf-8");
+    return this.validateSource(language, code, filepath, changes);
+  }
+
+  /**
+   * Valida el código con el validador del lenguaje y normaliza el resultado
+   * a un FileReport común para los tres lenguajes. El lenguaje debe estar
+   * cargado (`load`), como en el resto de métodos síncronos.
+   */
+  validateSource(language: Language, code: string, filepath: string, changes: LineRanges | null = null): FileReport {
+    const start = performance.now();
+    const contentHash = hashContent(code);
+    const rules = this.rules;
+    const configFingerprint = rules.fingerprints[language];
+    const report: FileReport = { filepath, language, violations: [], contentHash, configFingerprint };
+
+    if (language === "typescript") {
+      const validator = ValidationEngine.typescriptValidator(rules);
+      const result = changes ? validator.analyze(code, filepath, changes) : this.analyzeTypeScript(code, filepath, contentHash);
+      if (result.fingerprints && !changes) report.fingerprints = result.fingerprints;
+      report.violations = result.violations.map((v) => ({
+        rule: v.rule,
+        severity: v.severity,
+        message: v.message,
+        line: v.line,
+        column: v.column,
+      }));
+    } else if (language === "java") {
+      const javaValidator = ValidationEngine.javaValidator(rules);
+      // validateSource sirve a los recorridos de muchos archivos: solo el esquema
+      const result =
+        changes && javaValidator
+          ? javaValidator.analyze(code, filepath, changes, "outline")
+          : this.analyzeJava(code, filepath, contentHash, "outline");
+      if (result) {
+        report.classes = result.classes;
+        report.violations = result.violations.map((v) => ({
+          rule: v.rule,
+          severity: v.severity,
+          message: v.message,
+          line: v.line,
+          column: v.column,
+        }));
+      } else {
+        report.error = "Validador Java no disponible";
+      }
+    } else {
+      const vueValidator = ValidationEngine.vueValidator(rules);
+      const result =
+        changes && vueValidator ? vueValidator.validate(code, filepath, changes) : this.validateVue(code, filepath, contentHash);
+      if (result) {
+        report.detections = result.detections.length;
+        report.violations = result.violations.map((v) => ({
+          rule: v.rule,
+          severity: v.severity,
+          message: v.message,
+          line: v.location.line,
+          column: v.location.column,
+        }));
+      } else {
+        report.error = "Validador Vue no disponible";
+      }
+    }
+
+    report.durationMs = performance.now() - start;
+    return report;
+  }
+}
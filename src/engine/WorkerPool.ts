@@ -0,0 +1,253 @@
+import { ResourceLimits, Worker } from "worker_threads";
+import * as os from "os";
+
+interface PendingTask<TTask, TResult> {
+  id: number;
+  task: TTask;
+  resolve: (result: TResult) => void;
+  reject: (error: Error) => void;
+  timer?: NodeJS.Timeout;
+}
+
+interface WorkerMessage<TResult> {
+  id?: number;
+  control?: number;
+  result?: TResult;
+  error?: string;
+}
+
+interface PendingControl {
+  /** Workers que aún no han respondido */
+  waiting: Set<Worker>;
+  results: unknown[];
+  resolve: (results: unknown[]) => void;
+}
+
+export function defaultPoolSize(env: NodeJS.ProcessEnv = process.env): number {
+  const configured = Number(env.PATTERN_POLICE_WORKERS);
+  if (Number.isInteger(configured) && configured > 0) return configured;
+  return os.availableParallelism?.() ?? os.cpus().length;
+}
+
+export interface WorkerPoolOptions {
+  workerData?: unknown;
+  /** Tiempo máximo de una tarea desde que empieza a ejecutarse (0 = sin límite) */
+  taskTimeoutMs?: number;
+  /** Límites de heap y pila de cada worker */
+  resourceLimits?: ResourceLimits;
+}
+
+export type WorkerLimit = "timeout" | "memory";
+
+/** La tarea superó su presupuesto y el worker que la ejecutaba se descartó. */
+export class WorkerLimitError extends Error {
+  constructor(readonly limit: WorkerLimit, message: string) {
+    super(message);
+    this.name = "WorkerLimitError";
+  }
+}
+
+/** Presupuestos por tarea a partir del entorno (PATTERN_POLICE_TASK_TIMEOUT_MS, PATTERN_POLICE_WORKER_MAX_MB). */
+export function poolOptionsFromEnv(env: NodeJS.ProcessEnv = process.env): WorkerPoolOptions {
+  const timeout = Number(env.PATTERN_POLICE_TASK_TIMEOUT_MS ?? 30000);
+  const maxMb = Number(env.PATTERN_POLICE_WORKER_MAX_MB ?? 512);
+  return {
+    taskTimeoutMs: Number.isFinite(timeout) && timeout >= 0 ? timeout : 30000,
+    resourceLimits: Number.isFinite(maxMb) && maxMb > 0 ? { maxOldGenerationSizeMb: maxMb } : undefined,
+  };
+}
+
+/**
+ * Pool de worker threads reutilizables. Cada worker procesa una tarea a la
+ * vez; las tareas excedentes esperan en una cola FIFO.
+ *
+ * Cada tarea tiene un presupuesto de tiempo y cada worker uno de memoria: una
+ * entrada patológica (recursión profunda en un parser, backtracking
+ * catastrófico en una regex) no se puede interrumpir desde dentro, así que se
+ * termina el worker, la tarea falla con WorkerLimitError y el hueco se
+ * rellena con un worker nuevo. El resto de tareas no se ve afectado.
+ */
+export class WorkerPool<TTask, TResult> {
+  private workers = new Set<Worker>();
+  private idle: Worker[] = [];
+  private active = new Map<Worker, PendingTask<TTask, TResult>>();
+  private queue: PendingTask<TTask, TResult>[] = [];
+  private controls = new Map<number, PendingControl>();
+  private nextId = 1;
+  private destroyed = false;
+
+  constructor(
+    private script: URL,
+    readonly size: number = defaultPoolSize(),
+    private options: WorkerPoolOptions = {}
+  ) {}
+
+  get pending(): number {
+    return this.queue.length + this.active.size;
+  }
+
+  run(task: TTask): Promise<TResult> {
+    if (this.destroyed) {
+      return Promise.reject(new Error("WorkerPool destruido"));
+    }
+
+    return new Promise<TResult>((resolve, reject) => {
+      this.queue.push({ id: this.nextId++, task, resolve, reject });
+      this.dispatch();
+    });
+  }
+
+  /**
+   * Envía un mensaje de control a todos los workers vivos y reúne sus
+   * respuestas. No ocupa un hueco de la cola: el worker lo atiende entre
+   * tareas (o durante la E/S de la tarea en curso).
+   */
+  broadcast<R>(payload: unknown): Promise<R[]> {
+    const workers = [...this.workers];
+    if (this.destroyed || workers.length === 0) return Promise.resolve([]);
+
+    const control = this.nextId++;
+    return new Promise<R[]>((resolve) => {
+      this.controls.set(control, {
+        waiting: new Set(workers),
+        results: [],
+        resolve: resolve as (results: unknown[]) => void,
+      });
+      workers.forEach((worker) => worker.postMessage({ control, payload }));
+    });
+  }
+
+  /**
+   * Arranca ya los workers que falten hasta `size`, ociosos, para que la
+   * primera tarea no pague el arranque del hilo.
+   */
+  prestart(): void {
+    while (!this.destroyed) {
+      const worker = this.spawn();
+      if (!worker) return;
+      worker.unref();
+      this.idle.push(worker);
+    }
+  }
+
+  async destroy(): Promise<void> {
+    this.destroyed = true;
+    const error = new Error("WorkerPool destruido");
+    this.queue.splice(0).forEach((pending) => pending.reject(error));
+    this.active.forEach((pending) => {
+      clearTimeout(pending.timer);
+      pending.reject(error);
+    });
+    this.active.clear();
+    this.idle = [];
+    await Promise.all([...this.workers].map((worker) => worker.terminate()));
+    this.workers.clear();
+  }
+
+  private dispatch(): void {
+    while (this.queue.length > 0) {
+      const worker = this.idle.pop() ?? this.spawn();
+      if (!worker) return;
+
+      const pending = this.queue.shift()!;
+      this.active.set(worker, pending);
+      worker.ref();
+      worker.postMessage({ id: pending.id, task: pending.task });
+
+      const timeoutMs = this.options.taskTimeoutMs ?? 0;
+      if (timeoutMs > 0) {
+        pending.timer = setTimeout(() => {
+          this.fail(
+            worker,
+            new WorkerLimitError("timeout", `La validación superó el límite de ${timeoutMs} ms y se canceló`)
+          );
+        }, timeoutMs);
+      }
+    }
+  }
+
+  /** Rechaza la tarea en curso del worker y lo termina; retire() lo sustituye. */
+  private fail(worker: Worker, error: Error): void {
+    const pending = this.active.get(worker);
+    if (pending) {
+      this.active.delete(worker);
+      clearTimeout(pending.timer);
+      pending.reject(error);
+    }
+    void worker.terminate();
+  }
+
+  private spawn(): Worker | null {
+    if (this.workers.size >= this.size) return null;
+
+    const worker = new Worker(this.script, {
+      workerData: this.options.workerData,
+      resourceLimits: this.options.resourceLimits,
+    });
+    this.workers.add(worker);
+
+    worker.on("message", (message: WorkerMessage<TResult>) => {
+      if (message.control !== undefined) {
+        this.settleControl(message.control, worker, message.result);
+        return;
+      }
+
+      const pending = this.active.get(worker);
+      if (!pending || pending.id !== message.id) return;
+
+      this.active.delete(worker);
+      clearTimeout(pending.timer);
+      if (message.error !== undefined) {
+        pending.reject(new Error(message.error));
+      } else {
+        pending.resolve(message.result as TResult);
+      }
+
+      // Un worker ocioso no debe mantener vivo el proceso
+      worker.unref();
+      this.idle.push(worker);
+      this.dispatch();
+    });
+
+    worker.on("error", (error: Error & { code?: string }) => {
+      if (error.code === "ERR_WORKER_OUT_OF_MEMORY") {
+        const maxMb = this.options.resourceLimits?.maxOldGenerationSizeMb;
+        error = new WorkerLimitError("memory", `La validación superó el límite de memoria${maxMb ? ` de ${maxMb} MB` : ""}`);
+      }
+      this.retire(worker, error);
+    });
+    worker.on("exit", (code) => {
+      this.retire(worker, new Error(`Worker terminó con código ${code}`));
+    });
+
+    return worker;
+  }
+
+  private settleControl(control: number, worker: Worker, result: unknown): void {
+    const pending = this.controls.get(control);
+    if (!pending || !pending.waiting.delete(worker)) return;
+    if (result !== undefined) pending.results.push(result);
+    if (pending.waiting.size === 0) {
+      this.controls.delete(control);
+      pending.resolve(pending.results);
+    }
+  }
+
+  private retire(worker: Worker, error: Error): void {
+    if (!this.workers.delete(worker)) return;
+
+    // Un worker caído no responderá a los mensajes de control pendientes;
+    // los que ya respondió no se vuelven a contar
+    [...this.controls.keys()].forEach((control) => this.settleControl(control, worker, undefined));
+
+    this.idle = this.idle.filter((w) => w !== worker);
+    const pending = this.active.get(worker);
+    if (pending) {
+      this.active.delete(worker);
+      clearTimeout(pending.timer);
+      pending.reject(error);
+    }
+
+    if (!this.destroyed) this.dispatch();
+  }
+}
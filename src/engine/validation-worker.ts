@@ -0,0 +1,67 @@
+import module from "module";
+import { parentPort } from "worker_threads";
+import { ValidationEngine } from "./ValidationEngine.js";
+import type { Language } from "../types-report.js";
+import { metrics } from "../metrics.js";
+import { LineRanges } from "../project/changes.js";
+import type { ValidationTask } from "./DirectoryValidator.js";
+
+type ControlMessage =
+  | { type: "metrics"; reset?: boolean }
+  | { type: "reloadConfig" }
+  | { type: "load"; languages: Language[] };
+
+// Los parsers se importan al primer uso de cada lenguaje, después de esto
+if (process.env.PATTERN_POLICE_COMPILE_CACHE !== "0") module.enableCompileCache?.();
+
+const engine = new ValidationEngine();
+
+async function handleControl(message: ControlMessage): Promise<unknown> {
+  if (message.type === "metrics") {
+    const snapshot = metrics.snapshot();
+    if (message.reset) metrics.reset();
+    return snapshot;
+  }
+  if (message.type === "reloadConfig") {
+    try {
+      return (await engine.reloadConfig()).changed;
+    } catch (error) {
+      // Mismo criterio que el hilo principal: se conserva la configuración anterior
+      return { error: error instanceof Error ? error.message : String(error) };
+    }
+  }
+  if (message.type === "load") {
+    try {
+      await Promise.all(message.languages.map((language) => engine.load(language)));
+      return message.languages;
+    } catch (error) {
+      // Precalentar es opcional: la primera tarea del lenguaje lo reintentará
+      return { error: error instanceof Error ? error.message : String(error) };
+    }
+  }
+  return undefined;
+}
+
+parentPort?.on("message", async (message: { id: number; task: ValidationTask } | { control: number; payload: ControlMessage }) => {
+  if ("control" in message) {
+    parentPort?.postMessage({ control: message.control, result: await handleControl(message.payload) });
+    return;
+  }
+
+  const { id, task } = message;
+  try {
+    if ("code" in task) await engine.load(task.language);
+    const result =
+      "code" in task
+        ? engine.analyzeCode(task.language, task.code, task.filename)
+        : "changedLines" in task
+        ? await engine.validateChanges(task.filepath, new LineRanges(task.changedLines))
+        : await engine.validateFile(task.filepath);
+    parentPort?.postMessage({ id, result });
+  } catch (error) {
+    parentPort?.postMessage({
+      id,
+      error: error instanceof Error ? error.message : String(error),
+    });
+  }
+});
@@ -0,0 +1,230 @@
+import { randomUUID } from "crypto";
+import * as fs from "fs/promises";
+import { createServer, IncomingMessage, ServerResponse } from "http";
+import { connect } from "net";
+import type { Server } from "@modelcontextprotocol/sdk/server/index.js";
+import { StreamableHTTPServerTransport } from "@modelcontextprotocol/sdk/server/streamableHttp.js";
+import { isInitializeRequest } from "@modelcontextprotocol/sdk/types.js";
+
+export interface HttpServeOptions {
+  /** Puerto TCP; se ignora si hay `socket` */
+  port: number;
+  host: string;
+  /** Ruta de un socket Unix (o named pipe en Windows) en lugar de TCP */
+  socket?: string;
+  /** Sesiones abiertas a la vez; por encima se rechazan las nuevas */
+  maxSessions: number;
+  /** Una sesión sin peticiones durante este tiempo se cierra */
+  idleMs: number;
+  /** Tamaño máximo del cuerpo de una petición */
+  maxBodyBytes: number;
+}
+
+const MCP_PATH = "/mcp";
+
+/** Uso: `pattern-police serve [--port n] [--host h] [--socket ruta]` */
+export function httpOptionsFromArgs(argv: string[], env: NodeJS.ProcessEnv = process.env): HttpServeOptions {
+  const number = (value: string | undefined, fallback: number) => {
+    const parsed = Number(value ?? fallback);
+    return Number.isInteger(parsed) && parsed > 0 ? parsed : fallback;
+  };
+  const options: HttpServeOptions = {
+    port: number(env.PATTERN_POLICE_HTTP_PORT, 7777),
+    host: env.PATTERN_POLICE_HTTP_HOST || "127.0.0.1",
+    socket: env.PATTERN_POLICE_HTTP_SOCKET || undefined,
+    maxSessions: number(env.PATTERN_POLICE_MAX_SESSIONS, 64),
+    idleMs: number(env.PATTERN_POLICE_SESSION_IDLE_MS, 30 * 60 * 1000),
+    maxBodyBytes: 32 * 1024 * 1024,
+  };
+
+  for (let i = 0; i < argv.length; i += 2) {
+    const [flag, value] = [argv[i], argv[i + 1]];
+    if (value === undefined) throw new Error(`Falta el valor de ${flag}`);
+    switch (flag) {
+      case "--port":
+        options.port = Number(value);
+        if (!Number.isInteger(options.port) || options.port < 0 || options.port > 65535) {
+          throw new Error(`Puerto no válido: '${value}'`);
+        }
+        break;
+      case "--host":
+        options.host = value;
+        break;
+      case "--socket":
+        options.socket = value;
+        break;
+      default:
+        throw new Error(`Opción desconocida: '${flag}'`);
+    }
+  }
+  return options;
+}
+
+interface Session {
+  transport: StreamableHTTPServerTransport;
+  server: Server;
+  lastSeen: number;
+}
+
+/**
+ * Servidor MCP compartido sobre Streamable HTTP, en TCP local o en un socket
+ * Unix. Cada sesión (un `initialize` de un cliente) recibe su propio Server
+ * creado con `createSession`, pero todas comparten el proceso: motor,
+ * cachés, pool de workers y planificador ya calientes.
+ */
+export async function serveHttp(createSession: () => Server, options: HttpServeOptions): Promise<() => Promise<void>> {
+  const sessions = new Map<string, Session>();
+  // Sesiones con el initialize en curso: cuentan para el límite antes de tener id
+  let opening = 0;
+
+  // En TCP, solo peticiones dirigidas al propio host (protección frente a DNS rebinding)
+  const security = options.socket
+    ? {}
+    : {
+        enableDnsRebindingProtection: true,
+        allowedHosts: [options.host, "localhost", "127.0.0.1", "[::1]"].flatMap((host) => [
+          host,
+          `${host}:${options.port}`,
+        ]),
+      };
+
+  const close = async (id: string) => {
+    const session = sessions.get(id);
+    if (!session) return;
+    sessions.delete(id);
+    await session.server.close().catch(() => {});
+  };
+
+  const open = async (): Promise<Omit<Session, "lastSeen">> => {
+    const server = createSession();
+    const transport = new StreamableHTTPServerTransport({
+      sessionIdGenerator: () => randomUUID(),
+      onsessioninitialized: (id) => {
+        sessions.set(id, { transport, server, lastSeen: Date.now() });
+      },
+      ...security,
+    });
+    transport.onclose = () => {
+      if (transport.sessionId) void close(transport.sessionId);
+    };
+    await server.connect(transport);
+    return { server, transport };
+  };
+
+  const handle = async (req: IncomingMessage, res: ServerResponse) => {
+    if (new URL(req.url ?? "/", "http://localhost").pathname !== MCP_PATH) {
+      return reply(res, 404, "No encontrado");
+    }
+
+    const id = req.headers["mcp-session-id"];
+    const session = typeof id === "string" ? sessions.get(id) : undefined;
+    if (session) session.lastSeen = Date.now();
+
+    if (req.method !== "POST") {
+      if (!session) return reply(res, 404, "Sesión no encontrada");
+      return session.transport.handleRequest(req, res);
+    }
+
+    let body: unknown;
+    try {
+      body = await readJson(req, options.maxBodyBytes);
+    } catch {
+      return reply(res, 400, "JSON no válido");
+    }
+    if (body === undefined) return reply(res, 413, "Cuerpo demasiado grande");
+
+    if (session) return session.transport.handleRequest(req, res, body);
+    if (id !== undefined) return reply(res, 404, "Sesión no encontrada");
+    if (!isInitializeRequest(body)) return reply(res, 400, "Se esperaba una petición initialize sin sesión");
+    if (sessions.size + opening >= options.maxSessions) {
+      return reply(res, 503, `Demasiadas sesiones abiertas (${sessions.size + opening})`);
+    }
+
+    opening++;
+    let opened: Omit<Session, "lastSeen"> | null = null;
+    try {
+      opened = await open();
+      await opened.transport.handleRequest(req, res, body);
+    } finally {
+      opening--;
+      // Sin id la sesión no llegó al mapa: nadie más cerraría su Server
+      if (opened && !opened.transport.sessionId) await opened.server.close().catch(() => {});
+    }
+  };
+
+  const http = createServer((req, res) => {
+    handle(req, res).catch((error) => {
+      console.error("Error en la petición HTTP:", error);
+      if (!res.headersSent) reply(res, 500, error instanceof Error ? error.message : String(error));
+      else res.end();
+    });
+  });
+
+  // Los clientes que desaparecen sin DELETE dejan sesiones colgadas
+  const sweep = setInterval(() => {
+    const limit = Date.now() - options.idleMs;
+    for (const [id, session] of sessions) {
+      if (session.lastSeen < limit) void close(id);
+    }
+  }, Math.min(options.idleMs, 60_000));
+  sweep.unref();
+
+  if (options.socket) {
+    await removeStaleSocket(options.socket);
+    await new Promise<void>((resolve, reject) => http.once("error", reject).listen(options.socket, resolve));
+    await fs.chmod(options.socket, 0o600).catch(() => {});
+    console.error(`Pattern Police MCP Server compartido en ${options.socket}${MCP_PATH}`);
+  } else {
+    await new Promise<void>((resolve, reject) =>
+      http.once("error", reject).listen(options.port, options.host, resolve)
+    );
+    console.error(`Pattern Police MCP Server compartido en http://${options.host}:${options.port}${MCP_PATH}`);
+  }
+
+  return async () => {
+    clearInterval(sweep);
+    await Promise.all([...sessions.keys()].map(close));
+    // Los streams SSE abiertos no terminan solos
+    const closed = new Promise<void>((resolve) => http.close(() => resolve()));
+    http.closeAllConnections();
+    await closed;
+  };
+}
+
+/** Error JSON-RPC sin id, como responde el SDK a peticiones que no puede atender. */
+function reply(res: ServerResponse, status: number, message: string): void {
+  res.writeHead(status, { "Content-Type": "application/json" });
+  res.end(JSON.stringify({ jsonrpc: "2.0", error: { code: -32000, message }, id: null }));
+}
+
+/** Cuerpo JSON de la petición; `undefined` si supera el límite. */
+async function readJson(req: IncomingMessage, maxBytes: number): Promise<unknown> {
+  const chunks: Buffer[] = [];
+  let size = 0;
+  for await (const chunk of req) {
+    size += chunk.length;
+    if (size > maxBytes) return undefined;
+    chunks.push(chunk);
+  }
+  return JSON.parse(Buffer.concat(chunks).toString("utf-8"));
+}
+
+/**
+ * Un socket de una ejecución anterior impide escuchar. Solo se borra si nadie
+ * acepta conexiones en él: el de otro servidor vivo se deja y listen() falla
+ * con EADDRINUSE. Otro tipo de archivo no se toca.
+ */
+async function removeStaleSocket(path: string): Promise<void> {
+  const stat = await fs.stat(path).catch(() => null);
+  if (!stat?.isSocket()) return;
+
+  const refused = await new Promise<boolean>((resolve) => {
+    const probe = connect(path);
+    probe.once("connect", () => {
+      probe.destroy();
+      resolve(false);
+    });
+    probe.once("error", (error: NodeJS.ErrnoException) => resolve(error.code === "ECONNREFUSED"));
+  });
+  if (refused) await fs.unlink(path).catch(() => {});
+}
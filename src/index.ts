@@ -7,67 +7,248 @@ import {
   ListToolsRequestSchema,
   Tool,
 } from "@modelcontextprotocol/sdk/types.js";
-import { PatternValidator } from "./validators/PatternValidator.js";
-import { JavaPatternValidator } from "./validators/JavaPatternValidator.js";
-import { VuePatternValidator } from "./validators/VuePatternValidator.js";
-import { PatternConfig } from "./types.js";
-import { JavaPatternConfig } from "./types-java.js";
-import { VuePatternConfig } from "./types-vue.js";
+import { ValidationEngine } from "./engine/ValidationEngine.js";
+import {
+  analyzeInPool,
+  createValidationPool,
+  limitViolation,
+  validateChanges,
+  validateDirectory,
+  validateFileInPool,
+  ValidationPool,
+} from "./engine/DirectoryValidator.js";
+import { WorkerLimitError } from "./engine/WorkerPool.js";
+import { RequestScheduler, SchedulerBusyError } from "./engine/RequestScheduler.js";
+import { ProjectWatcher } from "./project/ProjectWatcher.js";
+import { JavaProjectIndex } from "./project/JavaProjectIndex.js";
+import { CloneIndex } from "./project/CloneIndex.js";
+import { gitChanges, GitChanges, parseUnifiedDiff } from "./project/changes.js";
+import { DirectoryReport, FileReport, Language } from "./types-report.js";
+import { JavaPatternViolation } from "./types-java.js";
+import { VuePatternDetection, VuePatternViolation } from "./types-vue.js";
+import { clampPageSize, ResultPage, ResultStore } from "./engine/ResultStore.js";
+import { mergeSnapshots, metrics, MetricSnapshot, summarize } from "./metrics.js";
+import { ConfigWatcher } from "./engine/ConfigWatcher.js";
+import { CodeAnalysis, ConfigReloadResult } from "./engine/ValidationEngine.js";
+import { DEFAULT_MIN_DUPLICATION_TOKENS } from "./validators/clones/Fingerprints.js";
+import { resolve } from "path";
 import * as fs from "fs/promises";
-import { readFileSync } from "fs";
-import { fileURLToPath } from "url";
-import { dirname, join } from "path";
-
-// Resolver la ruta del directorio del módulo actual
-const __filename = fileURLToPath(import.meta.url);
-const __dirname = dirname(__filename);
-
-// Función helper para resolver rutas de archivos de configuración
-// Busca en el directorio del paquete instalado (relativo a dist/)
-const resolveConfigPath = (filename: string): string => {
-  // Cuando se ejecuta desde npm, el archivo está en dist/index.js
-  // Los configs están en la raíz del paquete (un nivel arriba de dist/)
-  return join(__dirname, "..", filename);
+
+type DirectoryPageMeta = {
+  root: string;
+  summary: (Omit<DirectoryReport, "reports"> & {
+    topFiles: { filepath: string; violations: number; error?: string }[];
+  }) | null;
+  error?: string;
+  /** Solo en validate_changes: origen del diff y archivos que toca */
+  changes?: { source: string; files: number };
 };
 
-const DEFAULT_CONFIG: PatternConfig = {
-  rules: {
-    naming: {
-      enabled: true,
-      severity: "warning",
-      patterns: {
-        classes: "PascalCase",
-        functions: "camelCase",
-        constants: "UPPER_CASE",
-        variables: "camelCase",
-      },
-    },
-    solid: {
-      enabled: true,
-      severity: "warning",
-      maxFunctionLines: 50,
-      maxClassMethods: 10,
-      maxParameters: 5,
-    },
-    codeSmells: {
-      enabled: true,
-      severity: "warning",
-      detectDuplication: true,
-      detectLongMethods: true,
-      detectGodClasses: true,
-      detectDeadCode: true,
-    },
-  },
+type ProgressReporter = (progress: number, total?: number, message?: string) => void;
+
+type VueResultItem =
+  | ({ kind: "detection" } & VuePatternDetection)
+  | ({ kind: "violation" } & VuePatternViolation);
+
+// Herramientas baratas (sin análisis): no esperan en la cola del planificador
+const CHEAP_TOOLS = new Set([
+  "list_patterns",
+  "list_java_patterns",
+  "list_vue_patterns",
+  "get_violations",
+  "get_cache_stats",
+  "get_metrics",
+  "get_result_page",
+  "get_changes",
+  "unwatch_project",
+]);
+
+const PAGE_SIZE_PROPERTY = {
+  type: "number",
+  description: "Elementos por página (por defecto 50, máximo 500)",
+};
+
+const WATCH_FILTER_PROPERTY = {
+  type: "array",
+  items: { type: "string" },
+  description: "Solo si la sesión vigila la misma raíz con varios filtros: los de watch_project que identifican el watcher",
 };
 
+/** Un watcher por raíz y filtros: con otros filtros se observan otros archivos. */
+function watcherKey(root: string, include?: unknown, exclude?: unknown): string {
+  const globs = (value: unknown) => (Array.isArray(value) ? value.map(String).sort() : []);
+  return JSON.stringify([root, globs(include), globs(exclude)]);
+}
+
+/** Un proyecto vigilado y las sesiones que lo mantienen. */
+interface WatchEntry {
+  watcher: ProjectWatcher;
+  /** Primera validación completa */
+  ready: Promise<void>;
+  sessions: number;
+}
+
+/**
+ * Estado compartido por todos los clientes: motor, cachés, pool de workers,
+ * proyectos vigilados y planificador. Cada cliente (la conexión stdio o una
+ * sesión HTTP) tiene su propio Server MCP y su propio ResultStore, así que
+ * los cursores de un cliente no ven los resultados de otro. Un proyecto
+ * vigilado se comparte entre las sesiones que lo piden con los mismos
+ * filtros y se detiene cuando la última lo suelta o se cierra.
+ */
 class PatternPoliceServer {
-  private server: Server;
-  private validator: PatternValidator;
-  private javaValidator: JavaPatternValidator | null = null;
-  private vueValidator: VuePatternValidator | null = null;
+  private engine: ValidationEngine;
+  private pool: ValidationPool | null = null;
+  private watchers = new Map<string, WatchEntry>();
+  private javaIndexes = new Map<string, JavaProjectIndex>();
+  private cloneIndexes = new Map<string, CloneIndex>();
+  private configWatcher: ConfigWatcher | null = null;
+  private scheduler = RequestScheduler.fromEnv();
+  private prewarmed = false;
 
   constructor() {
-    this.server = new Server(
+    this.engine = new ValidationEngine({ persistent: true });
+
+    this.startMetricsDump();
+    this.startConfigWatcher();
+  }
+
+  /** Recarga la configuración al cambiar sus archivos (PATTERN_POLICE_CONFIG_WATCH=0 lo desactiva). */
+  private startConfigWatcher(): void {
+    if (process.env.PATTERN_POLICE_CONFIG_WATCH === "0") return;
+
+    this.configWatcher = new ConfigWatcher(
+      () => ConfigWatcher.directoriesFor(this.engine.configDir, this.engine.getConfigSources()),
+      async () => {
+        const result = await this.reloadConfig();
+        if (result.changed.length > 0) {
+          console.error(`Configuración recargada: ${result.changed.join(", ")}`);
+        }
+      }
+    );
+    this.configWatcher.start();
+  }
+
+  /**
+   * Recarga la configuración en el motor principal y en los workers. El
+   * motor cambia de reglas de golpe: las validaciones en curso terminan con
+   * las anteriores y las siguientes usan las nuevas. Los proyectos vigilados
+   * revalidan los archivos de los lenguajes afectados.
+   */
+  private async reloadConfig(): Promise<ConfigReloadResult> {
+    const result = await this.engine.reloadConfig();
+    if (result.changed.length === 0) return result;
+
+    await this.pool?.broadcast({ type: "reloadConfig" });
+    this.watchers.forEach(({ watcher }) => watcher.invalidate(result.changed));
+    // Un archivo de configuración nuevo puede estar en otro directorio
+    this.configWatcher?.start();
+    return result;
+  }
+
+  private getPool(): ValidationPool {
+    this.pool ??= createValidationPool();
+    return this.pool;
+  }
+
+  /**
+   * Tras el primer handshake, arranca los workers y carga en ellos los
+   * lenguajes de PATTERN_POLICE_PREWARM (por defecto `typescript`; `none`
+   * lo desactiva) en segundo plano. El resto se carga al primer uso.
+   */
+  private prewarm(): void {
+    if (this.prewarmed) return;
+    this.prewarmed = true;
+
+    const available: Record<Language, boolean> = {
+      typescript: true,
+      java: this.engine.hasJava(),
+      vue: this.engine.hasVue(),
+    };
+    const languages = (process.env.PATTERN_POLICE_PREWARM ?? "typescript")
+      .split(",")
+      .map((language) => language.trim())
+      .filter((language): language is Language => available[language as Language] === true);
+    if (languages.length === 0) return;
+
+    setImmediate(() => {
+      const pool = this.getPool();
+      pool.prestart();
+      const start = metrics.start();
+      void pool.broadcast({ type: "load", languages }).then(() => metrics.end("server.prewarm", start));
+    });
+  }
+
+  /**
+   * Analiza código en un worker del pool para que una entrada patológica no
+   * bloquee el servidor. Los resultados se guardan en la caché del motor
+   * principal, así que repetir la misma validación no vuelve al pool.
+   */
+  private async analyzeIsolated<L extends Language>(
+    language: L,
+    code: string,
+    filename: string
+  ): Promise<CodeAnalysis[L] | WorkerLimitError> {
+    const key = this.engine.analysisKey(language, code, filename);
+    const cached = this.engine.cache.get<CodeAnalysis[L]>(key);
+    if (cached !== undefined) return cached;
+
+    // Llamadas concurrentes con el mismo archivo y contenido comparten análisis
+    return this.scheduler.shared(key, async () => {
+      try {
+        const result = await analyzeInPool(this.getPool(), language, code, filename);
+        if (result !== null) this.engine.cache.set(key, result);
+        return result;
+      } catch (error) {
+        if (error instanceof WorkerLimitError) return error;
+        throw error;
+      }
+    });
+  }
+
+  /** Respuesta de una validación cancelada por tiempo o memoria. */
+  private limitResponse(filename: string, error: WorkerLimitError) {
+    const violation = limitViolation(error);
+    const text =
+      `## Pattern Police - Validación cancelada\n\n` +
+      `📁 Archivo: ${filename}\n\n` +
+      `1. ❌ **${violation.rule}** (${violation.severity})\n` +
+      `   📝 ${violation.message}\n` +
+      `   💡 Sugerencia: ${violation.suggestion}\n`;
+    return {
+      content: [{ type: "text", text }],
+      structuredContent: { filename, violations: [violation] },
+    };
+  }
+
+  /** Vuelca periódicamente las métricas a PATTERN_POLICE_METRICS_FILE. */
+  private startMetricsDump(): void {
+    const file = process.env.PATTERN_POLICE_METRICS_FILE;
+    if (!file || !metrics.enabled) return;
+
+    const interval = Number(process.env.PATTERN_POLICE_METRICS_INTERVAL_MS ?? 60_000);
+    const timer = setInterval(async () => {
+      try {
+        const snapshot = (await this.collectMetrics(false)).map(summarize);
+        await fs.writeFile(file, JSON.stringify({ date: new Date().toISOString(), metrics: snapshot }, null, 2));
+      } catch (error) {
+        console.error(`No se pudieron volcar las métricas en ${file}:`, error);
+      }
+    }, Number.isFinite(interval) && interval > 0 ? interval : 60_000);
+    timer.unref();
+  }
+
+  /** Métricas del hilo principal más las de cada worker del pool. */
+  private async collectMetrics(reset: boolean): Promise<MetricSnapshot[]> {
+    const local = metrics.snapshot();
+    if (reset) metrics.reset();
+    const workers = this.pool ? await this.pool.broadcast<MetricSnapshot[]>({ type: "metrics", reset }) : [];
+    return mergeSnapshots(local, ...workers);
+  }
+
+  /** Server MCP de un cliente, con sus propios resultados paginados. */
+  createSession(): Server {
+    const server = new Server(
       {
         name: "pattern-police",
         version: "3.0.0",
@@ -78,73 +259,110 @@ class PatternPoliceServer {
         },
       }
     );
+    const results = new ResultStore();
+    // Claves de los proyectos vigilados que mantiene esta sesión
+    const watched = new Set<string>();
+    server.oninitialized = () => this.prewarm();
+    server.onclose = () => [...watched].forEach((key) => this.releaseWatcher(key, watched));
 
-    this.validator = new PatternValidator(DEFAULT_CONFIG);
-    this.loadJavaValidator();
-    this.loadVueValidator();
-
-    this.setupHandlers();
-  }
-
-  private loadJavaValidator(): void {
-    try {
-      const configPath = resolveConfigPath("java-patterns.config.json");
-      const configData = readFileSync(configPath, "utf-8");
-      const javaConfig: JavaPatternConfig = JSON.parse(configData);
-      this.javaValidator = new JavaPatternValidator(javaConfig);
-    } catch (error) {
-      console.error(
-        "Warning: Could not load Java validator config, Java validation disabled"
-      );
-    }
-  }
-
-  private loadVueValidator(): void {
-    try {
-      const configPath = resolveConfigPath("vue-patterns.config.json");
-      const configData = readFileSync(configPath, "utf-8");
-      const vueConfig: VuePatternConfig = JSON.parse(configData);
-      this.vueValidator = new VuePatternValidator(vueConfig);
-    } catch (error) {
-      console.error(
-        "Warning: Could not load Vue validator config, Vue validation disabled"
-      );
-    }
-  }
-
-  private setupHandlers(): void {
-    this.server.setRequestHandler(ListToolsRequestSchema, async () => ({
+    server.setRequestHandler(ListToolsRequestSchema, async () => ({
       tools: this.getTools(),
     }));
 
-    this.server.setRequestHandler(CallToolRequestSchema, async (request) => {
+    server.setRequestHandler(CallToolRequestSchema, async (request, extra) => {
       const { name, arguments: args } = request.params;
-
-      switch (name) {
-        case "validate_code":
-          return this.handleValidateCode(args);
-        case "validate_file":
-          return this.handleValidateFile(args);
-        case "validate_java_code":
-          return this.handleValidateJavaCode(args);
-        case "validate_java_file":
-          return this.handleValidateJavaFile(args);
-        case "validate_vue_code":
-          return this.handleValidateVueCode(args);
-        case "validate_vue_file":
-          return this.handleValidateVueFile(args);
-        case "list_patterns":
-          return this.handleListPatterns();
-        case "list_java_patterns":
-          return this.handleListJavaPatterns();
-        case "list_vue_patterns":
-          return this.handleListVuePatterns();
-        case "get_violations":
-          return this.handleGetViolations(args);
-        default:
-          throw new Error(`Unknown tool: ${name}`);
+      const progressToken = request.params._meta?.progressToken;
+      const progress: ProgressReporter | null =
+        progressToken === undefined
+          ? null
+          : (current, total, message) =>
+              void extra
+                .sendNotification({
+                  method: "notifications/progress",
+                  params: { progressToken, progress: current, total, message },
+                })
+                .catch(() => {});
+
+      const start = metrics.start();
+      try {
+        return await this.scheduler.run(
+          CHEAP_TOOLS.has(name) ? "high" : "normal",
+          () => this.callTool(name, args, results, watched, progress),
+          extra.signal
+        );
+      } catch (error) {
+        if (error instanceof SchedulerBusyError) return this.busyResponse(error);
+        throw error;
+      } finally {
+        metrics.end(`tool.${name}`, start);
       }
     });
+
+    return server;
+  }
+
+  /** Respuesta explícita de saturación: el cliente debe reintentar más tarde. */
+  private busyResponse(error: SchedulerBusyError) {
+    return {
+      content: [{ type: "text", text: `⏳ ${error.message}. Reintenta en unos segundos.` }],
+      structuredContent: { busy: true, active: error.active, queued: error.queued },
+      isError: true,
+    };
+  }
+
+  private async callTool(
+    name: string,
+    args: any,
+    results: ResultStore,
+    watched: Set<string>,
+    progress: ProgressReporter | null
+  ) {
+    switch (name) {
+      case "validate_code":
+        return this.handleValidateCode(args);
+      case "validate_file":
+        return this.handleValidateFile(args);
+      case "validate_java_code":
+        return this.handleValidateJavaCode(args, results);
+      case "validate_java_file":
+        return this.handleValidateJavaFile(args, results);
+      case "validate_vue_code":
+        return this.handleValidateVueCode(args, results);
+      case "validate_vue_file":
+        return this.handleValidateVueFile(args, results);
+      case "list_patterns":
+        return this.handleListPatterns();
+      case "list_java_patterns":
+        return this.handleListJavaPatterns();
+      case "analyze_java_project":
+        return this.handleAnalyzeJavaProject(args);
+      case "find_clones":
+        return this.handleFindClones(args);
+      case "list_vue_patterns":
+        return this.handleListVuePatterns();
+      case "get_violations":
+        return this.handleGetViolations(args);
+      case "reload_config":
+        return this.handleReloadConfig();
+      case "get_cache_stats":
+        return this.handleGetCacheStats();
+      case "watch_project":
+        return this.handleWatchProject(args, watched);
+      case "get_changes":
+        return this.handleGetChanges(args, watched);
+      case "unwatch_project":
+        return this.handleUnwatchProject(args, watched);
+      case "validate_directory":
+        return this.handleValidateDirectory(args, results, progress);
+      case "validate_changes":
+        return this.handleValidateChanges(args, results);
+      case "get_result_page":
+        return this.handleGetResultPage(args, results);
+      case "get_metrics":
+        return this.handleGetMetrics(args);
+      default:
+        throw new Error(`Unknown tool: ${name}`);
+    }
   }
 
   private getTools(): Tool[] {
@@ -207,6 +425,197 @@ class PatternPoliceServer {
           },
         },
       },
+      {
+        name: "validate_directory",
+        description:
+          "Valida todos los archivos TypeScript/JavaScript, Java y Vue de un directorio en paralelo (worker threads) y retorna un reporte agregado por lenguaje, severidad y regla.",
+        inputSchema: {
+          type: "object",
+          properties: {
+            root: {
+              type: "string",
+              description: "Directorio raíz a validar",
+            },
+            include: {
+              type: "array",
+              items: { type: "string" },
+              description: "Globs de archivos a incluir (ej: [\"src/**/*.ts\", \"**/*.vue\"])",
+            },
+            exclude: {
+              type: "array",
+              items: { type: "string" },
+              description: "Globs a excluir (node_modules, .git, dist, build y target se excluyen siempre)",
+            },
+            maxFiles: {
+              type: "number",
+              description: "Número máximo de archivos a validar (opcional)",
+            },
+            pageSize: PAGE_SIZE_PROPERTY,
+            background: {
+              type: "boolean",
+              description:
+                "Si es true, retorna de inmediato un cursor y la validación continúa; los archivos se obtienen con get_result_page a medida que se analizan",
+            },
+          },
+          required: ["root"],
+        },
+      },
+      {
+        name: "validate_changes",
+        description:
+          "Valida solo lo que cambió: lee un diff unificado (o lo obtiene de un repositorio git local) y analiza únicamente los archivos tocados. Los detectores cuyas clases, funciones o bloques SFC no tocan los hunks no se ejecutan y las violaciones se filtran a las líneas modificadas.",
+        inputSchema: {
+          type: "object",
+          properties: {
+            diff: {
+              type: "string",
+              description: "Diff unificado (ej: salida de `git diff`); las rutas se resuelven respecto a 'root'",
+            },
+            repo: {
+              type: "string",
+              description: "Repositorio git local; si no se pasa 'diff', se validan sus cambios respecto a 'base'",
+            },
+            base: {
+              type: "string",
+              description: "Revisión con la que comparar en modo git (por defecto HEAD; ej: origin/main)",
+            },
+            untracked: {
+              type: "boolean",
+              description: "En modo git, incluir los archivos sin seguimiento, que cuentan enteros (por defecto true)",
+            },
+            root: {
+              type: "string",
+              description: "Directorio desde el que se resuelven las rutas del diff (por defecto 'repo' o el directorio actual)",
+            },
+            include: {
+              type: "array",
+              items: { type: "string" },
+              description: "Globs de archivos a incluir",
+            },
+            exclude: {
+              type: "array",
+              items: { type: "string" },
+              description: "Globs a excluir (node_modules, .git, dist, build y target se excluyen siempre)",
+            },
+            pageSize: PAGE_SIZE_PROPERTY,
+          },
+        },
+      },
+      {
+        name: "watch_project",
+        description:
+          "Inicia el modo watch sobre un proyecto: valida todos los archivos una vez, mantiene los resultados en memoria y re-valida solo los archivos que cambian. Retorna un token de revisión para usar con get_changes.",
+        inputSchema: {
+          type: "object",
+          properties: {
+            root: {
+              type: "string",
+              description: "Directorio raíz del proyecto",
+            },
+            include: {
+              type: "array",
+              items: { type: "string" },
+              description: "Globs de archivos a incluir",
+            },
+            exclude: {
+              type: "array",
+              items: { type: "string" },
+              description: "Globs a excluir",
+            },
+          },
+          required: ["root"],
+        },
+      },
+      {
+        name: "get_changes",
+        description:
+          "Retorna solo las violaciones añadidas y eliminadas desde un token de revisión de un proyecto en modo watch, junto con el nuevo token.",
+        inputSchema: {
+          type: "object",
+          properties: {
+            root: {
+              type: "string",
+              description: "Directorio raíz del proyecto (el mismo usado en watch_project)",
+            },
+            since: {
+              type: "string",
+              description: "Token de revisión previo. Si se omite, retorna el estado completo",
+            },
+            include: WATCH_FILTER_PROPERTY,
+            exclude: WATCH_FILTER_PROPERTY,
+          },
+          required: ["root"],
+        },
+      },
+      {
+        name: "unwatch_project",
+        description:
+          "Deja de vigilar un proyecto en esta sesión. El watcher y sus resultados se liberan cuando ninguna sesión lo mantiene.",
+        inputSchema: {
+          type: "object",
+          properties: {
+            root: {
+              type: "string",
+              description: "Directorio raíz del proyecto",
+            },
+            include: WATCH_FILTER_PROPERTY,
+            exclude: WATCH_FILTER_PROPERTY,
+          },
+          required: ["root"],
+        },
+      },
+      {
+        name: "get_result_page",
+        description:
+          "Obtiene la siguiente página de un resultado paginado (validate_java_code, validate_vue_code, validate_directory, ...) a partir del cursor 'nextCursor'.",
+        inputSchema: {
+          type: "object",
+          properties: {
+            cursor: {
+              type: "string",
+              description: "Cursor retornado en la página anterior",
+            },
+            pageSize: PAGE_SIZE_PROPERTY,
+          },
+          required: ["cursor"],
+        },
+      },
+      {
+        name: "get_metrics",
+        description:
+          "Muestra tiempos y contadores internos por fase de cada validador (parseo, extracción, fases de detección), por regla y por herramienta: invocaciones, tiempo acumulado, p50/p99 aproximados, máximo y violaciones producidas.",
+        inputSchema: {
+          type: "object",
+          properties: {
+            filter: {
+              type: "string",
+              description: "Prefijo de las métricas a mostrar (ej: \"java.\", \"ts.rule.\", \"tool.\")",
+            },
+            reset: {
+              type: "boolean",
+              description: "Reinicia las métricas después de leerlas",
+            },
+          },
+        },
+      },
+      {
+        name: "reload_config",
+        description:
+          "Vuelve a leer la configuración (pattern-police.config.json, java-patterns.config.json, vue-patterns.config.json) sin reiniciar el servidor. Solo se invalida la caché de los lenguajes cuya configuración cambió. Normalmente no hace falta: los archivos se vigilan y se recargan solos.",
+        inputSchema: {
+          type: "object",
+          properties: {},
+        },
+      },
+      {
+        name: "get_cache_stats",
+        description:
+          "Muestra el estado de la caché de resultados de validación: entradas, memoria usada, aciertos y fallos.",
+        inputSchema: {
+          type: "object",
+          properties: {},
+        },
+      },
       {
         name: "validate_java_code",
         description:
@@ -222,6 +631,7 @@ class PatternPoliceServer {
               type: "string",
               description: "Nombre del archivo (opcional, para mejor contexto)",
             },
+            pageSize: PAGE_SIZE_PROPERTY,
           },
           required: ["code"],
         },
@@ -237,10 +647,69 @@ class PatternPoliceServer {
               type: "string",
               description: "Ruta al archivo Java (.java)",
             },
+            pageSize: PAGE_SIZE_PROPERTY,
           },
           required: ["filepath"],
         },
       },
+      {
+        name: "analyze_java_project",
+        description:
+          "Analiza un proyecto Java completo y detecta patrones arquitecturales entre archivos (MVC, Front Controller, Service Locator) usando un índice de clases, interfaces, herencia y anotaciones que se actualiza solo para los archivos modificados.",
+        inputSchema: {
+          type: "object",
+          properties: {
+            root: {
+              type: "string",
+              description: "Directorio raíz del proyecto Java",
+            },
+            include: {
+              type: "array",
+              items: { type: "string" },
+              description: "Globs de archivos a incluir (por defecto [\"**/*.java\"])",
+            },
+            exclude: {
+              type: "array",
+              items: { type: "string" },
+              description: "Globs a excluir",
+            },
+          },
+          required: ["root"],
+        },
+      },
+      {
+        name: "find_clones",
+        description:
+          "Detecta código duplicado (multilínea y entre archivos) en un proyecto TypeScript/JavaScript con huellas winnowing sobre los tokens normalizados del AST. El índice de huellas se actualiza solo para los archivos modificados.",
+        inputSchema: {
+          type: "object",
+          properties: {
+            root: {
+              type: "string",
+              description: "Directorio raíz del proyecto",
+            },
+            include: {
+              type: "array",
+              items: { type: "string" },
+              description: "Globs de archivos a incluir (por defecto, archivos TypeScript/JavaScript)",
+            },
+            exclude: {
+              type: "array",
+              items: { type: "string" },
+              description: "Globs a excluir",
+            },
+            minTokens: {
+              type: "number",
+              description: "Tokens mínimos de un bloque duplicado (no puede bajar del umbral de la configuración)",
+            },
+            maxResults: {
+              type: "number",
+              description: "Clones a mostrar como máximo (por defecto 50)",
+            },
+          },
+          required: ["root"],
+        },
+      },
       {
         name: "list_java_patterns",
         description:
@@ -266,6 +735,7 @@ class PatternPoliceServer {
               type: "string",
               description: "Nombre del archivo (opcional, para mejor contexto)",
             },
+            pageSize: PAGE_SIZE_PROPERTY,
           },
           required: ["code"],
         },
@@ -281,6 +751,7 @@ class PatternPoliceServer {
               type: "string",
               description: "Ruta al archivo Vue (.vue)",
             },
+            pageSize: PAGE_SIZE_PROPERTY,
           },
           required: ["filepath"],
         },
@@ -299,7 +770,9 @@ class PatternPoliceServer {
 
   private async handleValidateCode(args: any) {
     const { code, filename = "unknown.ts" } = args;
-    const violations = this.validator.validateCode(code, filename);
+    const result = await this.analyzeIsolated("typescript", code, filename);
+    if (result instanceof WorkerLimitError) return this.limitResponse(filename, result);
+    const { violations } = result;
 
     const warnings = violations.filter((v) => v.severity === "warning");
     const errors = violations.filter((v) => v.severity === "error");
@@ -353,7 +826,7 @@ class PatternPoliceServer {
   }
 
   private async handleListPatterns() {
-    const config = this.validator.getConfig();
+    const config = this.engine.getTypeScriptConfig();
     let response = `## Pattern Police - Patrones Configurados\n\n`;
 
     response += `### 1. Naming Conventions\n`;
@@ -384,7 +857,9 @@ class PatternPoliceServer {
     response += `- Severidad: ${config.rules.codeSmells.severity}\n`;
     response += `- Detecta:\n`;
     response += `  - Código duplicado: ${
-      config.rules.codeSmells.detectDuplication ? "✅" : "❌"
+      config.rules.codeSmells.detectDuplication
+        ? `✅ (bloques de ${config.rules.codeSmells.minDuplicationTokens ?? DEFAULT_MIN_DUPLICATION_TOKENS}+ tokens)`
+        : "❌"
     }\n`;
     response += `  - Métodos largos: ${
       config.rules.codeSmells.detectLongMethods ? "✅" : "❌"
@@ -392,7 +867,7 @@ class PatternPoliceServer {
     response += `  - God Classes: ${
       config.rules.codeSmells.detectGodClasses ? "✅" : "❌"
     }\n`;
-    response += `  - Código muerto: ${
+    response += `  - Código muerto (variables, funciones, parámetros e imports sin uso): ${
       config.rules.codeSmells.detectDeadCode ? "✅" : "❌"
     }\n`;
 
@@ -444,106 +919,972 @@ class PatternPoliceServer {
     };
   }
 
-  private async handleValidateJavaCode(args: any) {
-    if (!this.javaValidator) {
+  private async handleValidateDirectory(args: any, results: ResultStore, progress: ProgressReporter | null = null) {
+    const { root, include, exclude, maxFiles, pageSize, background } = args ?? {};
+
+    if (!root || typeof root !== "string") {
       return {
         content: [
           {
             type: "text",
-            text: "❌ Validador Java no disponible. Verifica que java-patterns.config.json existe.",
+            text: "❌ Error: Se requiere el parámetro 'root' (directorio a validar).",
           },
         ],
         isError: true,
       };
     }
 
-    const { code, filename = "Unknown.java" } = args;
-    const violations = this.javaValidator.validateCode(code, filename);
-
-    let response = `## Pattern Police Java - Patrones Detectados\n\n`;
-    response += `📁 Archivo: ${filename}\n`;
-    response += `🔍 Patrones encontrados: ${violations.length}\n\n`;
-
-    if (violations.length === 0) {
-      response += `No se detectaron patrones de diseño en este código.\n`;
-      response += `Esto puede significar que el código es simple o que no sigue patrones reconocibles.\n`;
-    } else {
-      const byCategory = violations.reduce((acc, v) => {
-        if (!acc[v.category]) acc[v.category] = [];
-        acc[v.category].push(v);
-        return acc;
-      }, {} as Record<string, any[]>);
-
-      const categoryNames: Record<string, string> = {
-        creational: "🏗️  Patrones Creacionales (GoF)",
-        structural: "🔗 Patrones Estructurales (GoF)",
-        behavioral: "🎭 Patrones de Comportamiento (GoF)",
-        enterprise: "🏢 Patrones Enterprise/J2EE",
-        architectural: "🏛️  Patrones Arquitecturales",
-        modern: "⚡ Patrones Modernos",
+    try {
+      const stat = await fs.stat(root);
+      if (!stat.isDirectory()) {
+        throw new Error(`'${root}' no es un directorio`);
+      }
+    } catch (error) {
+      return {
+        content: [
+          {
+            type: "text",
+            text: `❌ Error al leer el directorio: ${
+              error instanceof Error ? error.message : "Error desconocido"
+            }`,
+          },
+        ],
+        isError: true,
       };
-
-      Object.entries(byCategory).forEach(([category, patterns]) => {
-        response += `### ${categoryNames[category] || category}\n\n`;
-        patterns.forEach((p, idx) => {
-          response += `${idx + 1}. ${p.message}\n\n`;
-        });
-      });
     }
 
-    return {
-      content: [{ type: "text", text: response }],
+    let resultId = "";
+    let processed = 0;
+    let lastProgress = 0;
+
+    const start = () => {
+      resultId = results.create("directory", { root: resolve(root), summary: null }, [], false);
+      return validateDirectory(root, this.getPool(), {
+        include: Array.isArray(include) ? include : undefined,
+        exclude: Array.isArray(exclude) ? exclude : undefined,
+        maxFiles: typeof maxFiles === "number" ? maxFiles : undefined,
+        diskCache: this.engine.diskCache,
+        onReport: (fileReport) => {
+          processed++;
+          this.appendFileReport(results, resultId, fileReport);
+          // Como máximo una notificación cada 250 ms
+          if (progress && !background && performance.now() - lastProgress > 250) {
+            lastProgress = performance.now();
+            progress(processed, undefined, `${processed} archivos validados`);
+          }
+        },
+      }).then(
+        (report) => {
+          const { reports, ...summary } = report;
+          results.complete(resultId, { root: report.root, summary: { ...summary, topFiles: this.topFiles(reports) } });
+        },
+        (error: Error) => {
+          results.complete(resultId, { root: resolve(root), summary: null, error: error.message });
+        }
+      );
     };
+
+    if (background) {
+      // El hueco de esta petición se libera al responder: la validación
+      // ocupa el cupo de segundo plano hasta terminar
+      try {
+        void this.scheduler.background(start);
+      } catch (error) {
+        if (error instanceof SchedulerBusyError) return this.busyResponse(error);
+        throw error;
+      }
+    } else {
+      await start();
+      progress?.(processed, processed, "Validación completa");
+    }
+    return this.renderResultPage(results, resultId, 0, clampPageSize(pageSize));
   }
 
-  private async handleValidateJavaFile(args: any) {
-    if (!this.javaValidator) {
+  private async handleValidateChanges(args: any, results: ResultStore) {
+    const { diff, repo, base, untracked, root, include, exclude, pageSize } = args ?? {};
+
+    if (typeof diff !== "string" && (typeof repo !== "string" || !repo)) {
       return {
         content: [
           {
             type: "text",
-            text: "❌ Validador Java no disponible. Verifica que java-patterns.config.json existe.",
+            text: "❌ Error: Se requiere 'diff' (diff unificado) o 'repo' (repositorio git local).",
           },
         ],
         isError: true,
       };
     }
 
-    const { filepath } = args;
-
+    let changes: GitChanges;
+    let source: string;
     try {
-      const code = await fs.readFile(filepath, "utf-8");
-      return this.handleValidateJavaCode({ code, filename: filepath });
+      if (typeof diff === "string") {
+        const diffRoot = resolve(typeof root === "string" ? root : typeof repo === "string" ? repo : process.cwd());
+        changes = { root: diffRoot, files: parseUnifiedDiff(diff, diffRoot) };
+        source = "diff recibido";
+      } else {
+        const revision = typeof base === "string" && base ? base : "HEAD";
+        changes = await gitChanges(resolve(repo), revision, untracked !== false);
+        source = `git diff ${revision}`;
+      }
     } catch (error) {
       return {
         content: [
           {
             type: "text",
-            text: `❌ Error al leer el archivo: ${
-              error instanceof Error ? error.message : "Error desconocido"
-            }`,
+            text: `❌ Error al obtener los cambios: ${error instanceof Error ? error.message : "Error desconocido"}`,
           },
         ],
         isError: true,
       };
     }
+
+    const meta: DirectoryPageMeta = {
+      root: changes.root,
+      summary: null,
+      changes: { source, files: changes.files.length },
+    };
+    const resultId = results.create("directory", meta, [], false);
+
+    try {
+      const { reports, ...summary } = await validateChanges(changes.root, changes.files, this.getPool(), {
+        include: Array.isArray(include) ? include : undefined,
+        exclude: Array.isArray(exclude) ? exclude : undefined,
+        onReport: (fileReport) => this.appendFileReport(results, resultId, fileReport),
+      });
+      results.complete(resultId, { ...meta, summary: { ...summary, topFiles: this.topFiles(reports) } });
+    } catch (error) {
+      results.complete(resultId, { ...meta, error: error instanceof Error ? error.message : String(error) });
+    }
+    return this.renderResultPage(results, resultId, 0, clampPageSize(pageSize));
   }
 
-  private async handleListJavaPatterns() {
-    let response = `## Pattern Police Java - Catálogo Completo de Patrones\n\n`;
-    response += `Este validador detecta más de 50 patrones de diseño en código Java.\n\n`;
+  /** Añade al resultado un archivo con violaciones, sin los datos de los índices. */
+  private appendFileReport(results: ResultStore, resultId: string, fileReport: FileReport): void {
+    if (fileReport.violations.length === 0 && !fileReport.error) return;
+    const { classes: _classes, fingerprints: _fingerprints, contentHash: _hash, configFingerprint: _config, ...item } =
+      fileReport;
+    results.append(resultId, item);
+  }
 
-    response += `### 🏗️  Patrones Creacionales GoF (5)\n`;
-    response += `1. **Singleton** - Una única instancia global\n`;
-    response += `2. **Factory Method** - Creación de objetos mediante método factory\n`;
-    response += `3. **Abstract Factory** - Familias de objetos relacionados\n`;
-    response += `4. **Builder** - Construcción paso a paso de objetos complejos\n`;
-    response += `5. **Prototype** - Clonación de objetos\n\n`;
+  private topFiles(reports: FileReport[]) {
+    return [...reports]
+      .sort((a, b) => b.violations.length - a.violations.length)
+      .slice(0, 20)
+      .map((file) => ({ filepath: file.filepath, violations: file.violations.length, error: file.error }));
+  }
 
-    response += `### 🔗 Patrones Estructurales GoF (7)\n`;
-    response += `6. **Adapter** - Adapta interfaces incompatibles\n`;
-    response += `7. **Bridge** - Separa abstracción de implementación\n`;
-    response += `8. **Composite** - Estructura de árbol de objetos\n`;
+  private async handleGetResultPage(args: any, results: ResultStore) {
+    const decoded = typeof args?.cursor === "string" ? ResultStore.decodeCursor(args.cursor) : null;
+    if (!decoded) {
+      return {
+        content: [{ type: "text", text: "❌ Error: Cursor inválido." }],
+        isError: true,
+      };
+    }
+    return this.renderResultPage(results, decoded.resultId, decoded.offset, clampPageSize(args.pageSize));
+  }
+
+  /**
+   * Devuelve una página de un resultado almacenado: markdown solo de los
+   * elementos de la página y los mismos datos en structuredContent.
+   */
+  private renderResultPage(results: ResultStore, resultId: string, offset: number, pageSize: number) {
+    const page = results.page(resultId, offset, pageSize);
+    if (!page) {
+      return {
+        content: [
+          {
+            type: "text",
+            text: "❌ Error: El resultado expiró o no existe. Vuelve a ejecutar la validación.",
+          },
+        ],
+        isError: true,
+      };
+    }
+
+    const start = metrics.start();
+    const lines =
+      page.kind === "java"
+        ? this.renderJavaPage(page as ResultPage<JavaPatternViolation, { filename: string }>)
+        : page.kind === "vue"
+        ? this.renderVuePage(page as ResultPage<VueResultItem, { filename: string; detections: number; violations: number }>)
+        : this.renderDirectoryPage(page as ResultPage<FileReport, DirectoryPageMeta>);
+
+    if (page.items.length > 0 && (page.offset > 0 || page.nextCursor)) {
+      lines.push(
+        `📄 Elementos ${page.offset + 1}–${page.offset + page.items.length} de ${page.total}${
+          page.complete ? "" : " (análisis en curso)"
+        }`
+      );
+    }
+    metrics.end(`format.${page.kind}`, start);
+
+    if (page.nextCursor) {
+      lines.push(`➡️  Más resultados: usa \`get_result_page\` con \`cursor: "${page.nextCursor}"\``);
+    }
+
+    return {
+      content: [{ type: "text", text: lines.join("\n") }],
+      structuredContent: {
+        resultId: page.resultId,
+        kind: page.kind,
+        offset: page.offset,
+        total: page.total,
+        complete: page.complete,
+        nextCursor: page.nextCursor ?? null,
+        meta: page.meta,
+        items: page.items,
+      },
+    };
+  }
+
+  private renderJavaPage(page: ResultPage<JavaPatternViolation, { filename: string }>): string[] {
+    const lines: string[] = [];
+    if (page.offset === 0) {
+      lines.push(`## Pattern Police Java - Patrones Detectados\n`);
+      lines.push(`📁 Archivo: ${page.meta.filename}`);
+      lines.push(`🔍 Patrones encontrados: ${page.total}\n`);
+    }
+
+    if (page.total === 0) {
+      lines.push(`No se detectaron patrones de diseño en este código.`);
+      lines.push(`Esto puede significar que el código es simple o que no sigue patrones reconocibles.`);
+      return lines;
+    }
+
+    const categoryNames: Record<string, string> = {
+      creational: "🏗️  Patrones Creacionales (GoF)",
+      structural: "🔗 Patrones Estructurales (GoF)",
+      behavioral: "🎭 Patrones de Comportamiento (GoF)",
+      enterprise: "🏢 Patrones Enterprise/J2EE",
+      architectural: "🏛️  Patrones Arquitecturales",
+      modern: "⚡ Patrones Modernos",
+    };
+
+    const byCategory = new Map<string, { index: number; violation: JavaPatternViolation }[]>();
+    page.items.forEach((violation, idx) => {
+      const group = byCategory.get(violation.category) ?? [];
+      group.push({ index: page.offset + idx + 1, violation });
+      byCategory.set(violation.category, group);
+    });
+
+    byCategory.forEach((patterns, category) => {
+      lines.push(`### ${categoryNames[category] || category}\n`);
+      patterns.forEach(({ index, violation }) => lines.push(`${index}. ${violation.message}\n`));
+    });
+    return lines;
+  }
+
+  private renderVuePage(
+    page: ResultPage<VueResultItem, { filename: string; detections: number; violations: number }>
+  ): string[] {
+    const { filename, detections, violations } = page.meta;
+    const lines: string[] = [];
+    if (page.offset === 0) {
+      lines.push(`## Pattern Police Vue.js - Análisis de Patrones\n`);
+      lines.push(`📁 Archivo: ${filename}`);
+      lines.push(`✨ Patrones detectados: ${detections}`);
+      lines.push(`⚠️  Violaciones/Anti-patrones: ${violations}\n`);
+    }
+
+    if (detections === 0 && violations === 0) {
+      lines.push(`ℹ️  No se detectaron patrones ni violaciones en este componente.`);
+      lines.push(`Esto puede significar que el componente es muy simple o que usa patrones no reconocibles.`);
+      return lines;
+    }
+
+    const categoryNames: Record<string, string> = {
+      composables: "🧩 Composables Patterns",
+      components: "🧱 Component Patterns",
+      bestPractices: "✅ Best Practices",
+      template: "📄 Template Patterns",
+      lifecycle: "🔄 Lifecycle Patterns",
+    };
+
+    // Las detecciones van antes que las violaciones en la lista paginada
+    const pageDetections = new Map<string, { index: number; item: VuePatternDetection }[]>();
+    const pageViolations: { index: number; item: VuePatternViolation }[] = [];
+    page.items.forEach((item, idx) => {
+      const position = page.offset + idx;
+      if (item.kind === "detection") {
+        const group = pageDetections.get(item.category) ?? [];
+        group.push({ index: position + 1, item });
+        pageDetections.set(item.category, group);
+      } else {
+        pageViolations.push({ index: position - detections + 1, item });
+      }
+    });
+
+    if (pageDetections.size > 0) {
+      lines.push(`### 🎯 Patrones Detectados\n`);
+      pageDetections.forEach((patterns, category) => {
+        lines.push(`#### ${categoryNames[category] || category}\n`);
+        patterns.forEach(({ index, item: p }) => {
+          const confidenceIcon = p.confidence === "high" ? "🟢" : p.confidence === "medium" ? "🟡" : "🟠";
+          lines.push(`${index}. ${confidenceIcon} **${p.pattern}** (${p.componentName})`);
+          lines.push(`   📍 Ubicación: Línea ${p.location.line}${p.location.block ? ` (${p.location.block})` : ""}`);
+
+          if (p.evidence && p.evidence.length > 0) {
+            lines.push(`   ✓ Evidencia:`);
+            p.evidence.forEach((e) => lines.push(`     - ${e}`));
+          }
+          if (p.antiPatterns && p.antiPatterns.length > 0) {
+            lines.push(`   ⚠️  Anti-patrones detectados:`);
+            p.antiPatterns.forEach((a) => lines.push(`     - ${a}`));
+          }
+          if (p.suggestions && p.suggestions.length > 0) {
+            lines.push(`   💡 Sugerencias:`);
+            p.suggestions.forEach((suggestion) => lines.push(`     - ${suggestion}`));
+          }
+          lines.push("");
+        });
+      });
+    }
+
+    if (pageViolations.length > 0) {
+      lines.push(`### ⚠️  Violaciones y Anti-patrones\n`);
+      pageViolations.forEach(({ index, item: v }) => {
+        const icon = v.severity === "error" ? "❌" : v.severity === "warning" ? "⚠️" : "ℹ️";
+        lines.push(`${index}. ${icon} **${v.rule}** (${v.severity})`);
+        lines.push(`   📍 Línea: ${v.location.line}${v.location.block ? ` (${v.location.block})` : ""}`);
+        lines.push(`   📝 ${v.message}`);
+        if (v.suggestion) {
+          lines.push(`   💡 Sugerencia: ${v.suggestion}`);
+        }
+        lines.push("");
+      });
+    }
+    return lines;
+  }
+
+  private renderDirectoryPage(page: ResultPage<FileReport, DirectoryPageMeta>): string[] {
+    const { summary, error } = page.meta;
+    const lines: string[] = [];
+
+    if (page.offset === 0) {
+      lines.push(`## Pattern Police - Validación de ${page.meta.changes ? "Cambios" : "Directorio"}\n`);
+      lines.push(`📁 Raíz: ${page.meta.root}`);
+      if (page.meta.changes) {
+        lines.push(`🔀 Cambios: ${page.meta.changes.source} — ${page.meta.changes.files} archivo(s) modificado(s)`);
+      }
+    }
+    if (error) {
+      lines.push(`❌ La validación falló: ${error}`);
+    }
+
+    if (page.offset === 0 && summary) {
+      lines.push(`📄 Archivos analizados: ${summary.files} (TS/JS: ${summary.byLanguage.typescript}, Java: ${summary.byLanguage.java}, Vue: ${summary.byLanguage.vue})`);
+      lines.push(`⚙️  Workers: ${summary.workers} — ⏱️  ${(summary.durationMs / 1000).toFixed(2)} s`);
+      lines.push(`❌ Errores: ${summary.bySeverity.error}  ⚠️  Advertencias: ${summary.bySeverity.warning}  ℹ️  Info: ${summary.bySeverity.info}`);
+      if (summary.errors > 0) {
+        lines.push(`🚫 Archivos con error de lectura/análisis: ${summary.errors}`);
+      }
+      lines.push("");
+
+      const topRules = Object.entries(summary.byRule)
+        .sort((a, b) => b[1] - a[1])
+        .slice(0, 15);
+      if (topRules.length > 0) {
+        lines.push(`### Reglas más frecuentes\n`);
+        topRules.forEach(([rule, count]) => lines.push(`- **${rule}**: ${count}`));
+        lines.push("");
+      }
+
+      if (summary.topFiles.length > 0) {
+        lines.push(`### Archivos con más violaciones\n`);
+        summary.topFiles.forEach((file, idx) => {
+          const suffix = file.error ? ` — 🚫 ${file.error}` : "";
+          lines.push(`${idx + 1}. ${file.filepath} (${file.violations})${suffix}`);
+        });
+        lines.push("");
+      } else {
+        lines.push(`✅ ¡Excelente! No se encontraron violaciones.`);
+      }
+    } else if (!summary && !error) {
+      lines.push(`⏳ Validación en curso: ${page.total} archivo(s) con violaciones hasta ahora.\n`);
+    }
+
+    if (page.items.length > 0) {
+      lines.push(`### Detalle por archivo\n`);
+      page.items.forEach((file) => {
+        lines.push(`#### ${file.filepath}${file.error ? ` — 🚫 ${file.error}` : ""}`);
+        file.violations.forEach((v) => {
+          lines.push(`- **${v.rule}** (${v.severity}, línea ${v.line ?? "N/A"}): ${v.message.split("\n")[0]}`);
+        });
+        lines.push("");
+      });
+    }
+    return lines;
+  }
+
+  private async handleWatchProject(args: any, watched: Set<string>) {
+    const { root, include, exclude } = args ?? {};
+
+    if (!root || typeof root !== "string") {
+      return {
+        content: [
+          {
+            type: "text",
+            text: "❌ Error: Se requiere el parámetro 'root' (directorio del proyecto).",
+          },
+        ],
+        isError: true,
+      };
+    }
+
+    const dir = resolve(root);
+    const key = watcherKey(dir, include, exclude);
+
+    if (!this.watchers.has(key)) {
+      try {
+        const stat = await fs.stat(dir);
+        if (!stat.isDirectory()) {
+          throw new Error(`'${root}' no es un directorio`);
+        }
+      } catch (error) {
+        return {
+          content: [
+            {
+              type: "text",
+              text: `❌ Error al leer el directorio: ${
+                error instanceof Error ? error.message : "Error desconocido"
+              }`,
+            },
+          ],
+          isError: true,
+        };
+      }
+    }
+
+    // Otra sesión pudo crearlo mientras se comprobaba el directorio
+    let entry = this.watchers.get(key);
+    if (!entry) {
+      const watcher = new ProjectWatcher(
+        dir,
+        (filepath) => validateFileInPool(filepath, this.getPool(), this.engine.diskCache),
+        {
+          include: Array.isArray(include) ? include : undefined,
+          exclude: Array.isArray(exclude) ? exclude : undefined,
+        }
+      );
+      entry = { watcher, ready: watcher.start(), sessions: 0 };
+      this.watchers.set(key, entry);
+    }
+    if (!watched.has(key)) {
+      watched.add(key);
+      entry.sessions++;
+    }
+    // Otra sesión pudo crearlo y seguir con la primera validación
+    await entry.ready;
+    const { watcher } = entry;
+
+    const violations = watcher
+      .getReports()
+      .reduce((total, report) => total + report.violations.length, 0);
+
+    let response = `## Pattern Police - Modo Watch\n\n`;
+    response += `📁 Proyecto: ${watcher.root}\n`;
+    response += `📄 Archivos observados: ${watcher.fileCount}\n`;
+    response += `⚠️  Violaciones actuales: ${violations}\n`;
+    response += `🔖 Revisión: \`${watcher.token}\`\n\n`;
+    response += `Usa \`get_changes\` con \`since: "${watcher.token}"\` para obtener solo los cambios posteriores.\n`;
+
+    return {
+      content: [{ type: "text", text: response }],
+    };
+  }
+
+  private async handleGetChanges(args: any, watched: Set<string>) {
+    const { root, since } = args ?? {};
+    const key = this.sessionWatcherKey(args, watched);
+    const watcher = key ? this.watchers.get(key)?.watcher : undefined;
+
+    if (!watcher) {
+      return {
+        content: [
+          {
+            type: "text",
+            text: "❌ Error: El proyecto no está en modo watch en esta sesión. Usa 'watch_project' primero.",
+          },
+        ],
+        isError: true,
+      };
+    }
+
+    const changeSet = await watcher.getChanges(typeof since === "string" ? since : undefined);
+
+    const lines: string[] = [];
+    lines.push(`## Pattern Police - Cambios desde ${since ? `\`${since}\`` : "el inicio"}\n`);
+    lines.push(`🔖 Nueva revisión: \`${changeSet.revision}\``);
+    if (changeSet.resync) {
+      lines.push(`🔄 Token desconocido o expirado: se retorna el estado completo`);
+    }
+    lines.push(`📄 Archivos con cambios: ${changeSet.changes.length}\n`);
+
+    if (changeSet.changes.length === 0) {
+      lines.push(`✅ Sin cambios en las violaciones.`);
+    }
+
+    changeSet.changes.forEach((delta) => {
+      lines.push(`### ${delta.filepath}${delta.deleted ? " (eliminado)" : ""}`);
+      delta.removed.forEach((v) => {
+        lines.push(`- ➖ **${v.rule}** (línea ${v.line ?? "N/A"}): ${v.message}`);
+      });
+      delta.added.forEach((v) => {
+        lines.push(`- ➕ **${v.rule}** (línea ${v.line ?? "N/A"}): ${v.message}`);
+      });
+      lines.push("");
+    });
+
+    return {
+      content: [{ type: "text", text: lines.join("\n") }],
+    };
+  }
+
+  private async handleUnwatchProject(args: any, watched: Set<string>) {
+    const key = this.sessionWatcherKey(args, watched);
+    const entry = key ? this.watchers.get(key) : undefined;
+    if (key) this.releaseWatcher(key, watched);
+
+    let text = `ℹ️  El proyecto no estaba en modo watch en esta sesión.`;
+    if (entry) {
+      text =
+        entry.sessions === 0
+          ? `✅ Modo watch detenido para ${entry.watcher.root}`
+          : `✅ Esta sesión deja de vigilar ${entry.watcher.root} (otras ${entry.sessions} lo mantienen)`;
+    }
+    return {
+      content: [{ type: "text", text }],
+    };
+  }
+
+  /**
+   * Watcher de `root` que mantiene la sesión. Sin filtros en la llamada vale
+   * cualquiera de esa raíz, con preferencia por el que no tiene filtros.
+   */
+  private sessionWatcherKey(args: any, watched: Set<string>): string | undefined {
+    const { root, include, exclude } = args ?? {};
+    if (typeof root !== "string") return undefined;
+    const exact = watcherKey(resolve(root), include, exclude);
+    if (watched.has(exact)) return exact;
+    if (include !== undefined || exclude !== undefined) return undefined;
+    return [...watched].find((key) => this.watchers.get(key)?.watcher.root === resolve(root));
+  }
+
+  /** Suelta la referencia de una sesión; el último en soltarlo lo detiene. */
+  private releaseWatcher(key: string, watched: Set<string>): void {
+    if (!watched.delete(key)) return;
+    const entry = this.watchers.get(key);
+    if (!entry || --entry.sessions > 0) return;
+    entry.watcher.close();
+    this.watchers.delete(key);
+  }
+
+  /** Watcher sin filtros de la raíz, cuyos resultados cubren todo el proyecto. */
+  private async projectWatcher(root: string): Promise<ProjectWatcher | undefined> {
+    const entry = this.watchers.get(watcherKey(root));
+    if (!entry) return undefined;
+    await entry.ready;
+    await entry.watcher.settle();
+    return entry.watcher;
+  }
+
+  private async handleGetMetrics(args: any) {
+    const { filter, reset } = args ?? {};
+
+    if (!metrics.enabled) {
+      return {
+        content: [
+          {
+            type: "text",
+            text: "ℹ️  Métricas desactivadas (PATTERN_POLICE_METRICS=0).",
+          },
+        ],
+      };
+    }
+
+    const summaries = (await this.collectMetrics(reset === true))
+      .filter((m) => typeof filter !== "string" || m.name.startsWith(filter))
+      .map(summarize)
+      .sort((a, b) => b.totalMs - a.totalMs);
+
+    const lines: string[] = [];
+    lines.push(`## Pattern Police - Métricas\n`);
+    if (summaries.length === 0) {
+      lines.push(`ℹ️  Sin datos todavía.`);
+    } else {
+      lines.push(`| Métrica | Llamadas | Total ms | Media ms | p50 ms | p99 ms | Máx ms | Violaciones |`);
+      lines.push(`|---|---:|---:|---:|---:|---:|---:|---:|`);
+      summaries.forEach((m) => {
+        lines.push(
+          `| ${m.name} | ${m.invocations} | ${m.totalMs.toFixed(1)} | ${m.meanMs.toFixed(3)} | ≤${m.p50Ms.toFixed(2)} | ≤${m.p99Ms.toFixed(2)} | ${m.maxMs.toFixed(2)} | ${m.violations} |`
+        );
+      });
+    }
+    if (reset === true) {
+      lines.push(`\n🔄 Métricas reiniciadas.`);
+    }
+
+    return {
+      content: [{ type: "text", text: lines.join("\n") }],
+      structuredContent: {
+        metrics: summaries.map(({ buckets: _buckets, ...summary }) => summary),
+      },
+    };
+  }
+
+  private async handleReloadConfig() {
+    let result: ConfigReloadResult;
+    try {
+      result = await this.reloadConfig();
+    } catch (error) {
+      return {
+        content: [
+          {
+            type: "text",
+            text: `❌ No se pudo recargar la configuración; sigue vigente la anterior: ${error instanceof Error ? error.message : String(error)}`,
+          },
+        ],
+        isError: true,
+      };
+    }
+
+    let response = `## Pattern Police - Configuración\n\n`;
+    (Object.entries(result.sources) as [Language, string | null][]).forEach(([language, file]) => {
+      const changed = result.changed.includes(language) ? " 🔄" : "";
+      response += `- ${language}: ${file ?? "valores por defecto"}${changed}\n`;
+    });
+    response +=
+      result.changed.length > 0
+        ? `\n✅ Recargada (${result.changed.join(", ")}). Entradas de caché invalidadas: ${result.invalidated.memory} en memoria, ${result.invalidated.disk} en disco.\n`
+        : `\nℹ️  Sin cambios.\n`;
+
+    return {
+      content: [{ type: "text", text: response }],
+      structuredContent: { ...result },
+    };
+  }
+
+  private async handleGetCacheStats() {
+    const stats = this.engine.cache.getStats();
+
+    let response = `## Pattern Police - Caché de Análisis\n\n`;
+    response += `- Entradas: ${stats.entries} / ${stats.maxEntries}\n`;
+    response += `- Memoria estimada: ${(stats.bytes / 1024 / 1024).toFixed(2)} MB / ${(stats.maxBytes / 1024 / 1024).toFixed(0)} MB\n`;
+    response += `- Aciertos: ${stats.hits}\n`;
+    response += `- Fallos: ${stats.misses}\n`;
+    response += `- Expulsiones: ${stats.evictions}\n`;
+    response += `- Tasa de aciertos: ${(stats.hitRate * 100).toFixed(1)}%\n`;
+
+    const scheduler = this.scheduler.getStats();
+    response += `\n### Planificador de peticiones\n\n`;
+    response += `- En ejecución: ${scheduler.active} — En cola: ${scheduler.queued} — En segundo plano: ${scheduler.background}\n`;
+    response += `- Análisis compartidos: ${scheduler.coalesced}\n`;
+    response += `- Rechazadas por saturación: ${scheduler.rejected}\n`;
+
+    const disk = this.engine.diskCache?.getStats();
+    if (disk) {
+      response += `\n### Caché en disco\n\n`;
+      response += `- Archivo: ${disk.file}\n`;
+      response += `- Entradas: ${disk.entries} (cargadas al arrancar: ${disk.loaded})\n`;
+      response += `- Aciertos: ${disk.hits}\n`;
+      response += `- Fallos: ${disk.misses}\n`;
+    } else {
+      response += `\nℹ️  Caché en disco desactivada (define PATTERN_POLICE_CACHE_DIR para activarla).\n`;
+    }
+
+    return {
+      content: [{ type: "text", text: response }],
+    };
+  }
+
+  private async handleValidateJavaCode(args: any, results: ResultStore) {
+    const { code, filename = "Unknown.java", pageSize } = args;
+    const result = await this.analyzeIsolated("java", code, filename);
+    if (result instanceof WorkerLimitError) return this.limitResponse(filename, result);
+
+    if (!result) {
+      return {
+        content: [
+          {
+            type: "text",
+            text: "❌ Validador Java no disponible. Verifica que java-patterns.config.json existe.",
+          },
+        ],
+        isError: true,
+      };
+    }
+
+    const resultId = results.create("java", { filename }, result.violations);
+    return this.renderResultPage(results, resultId, 0, clampPageSize(pageSize));
+  }
+
+  private async handleValidateJavaFile(args: any, results: ResultStore) {
+    if (!this.engine.hasJava()) {
+      return {
+        content: [
+          {
+            type: "text",
+            text: "❌ Validador Java no disponible. Verifica que java-patterns.config.json existe.",
+          },
+        ],
+        isError: true,
+      };
+    }
+
+    const { filepath } = args;
+
+    try {
+      const code = await fs.readFile(filepath, "utf-8");
+      return this.handleValidateJavaCode({ ...args, code, filename: filepath }, results);
+    } catch (error) {
+      return {
+        content: [
+          {
+            type: "text",
+            text: `❌ Error al leer el archivo: ${
+              error instanceof Error ? error.message : "Error desconocido"
+            }`,
+          },
+        ],
+        isError: true,
+      };
+    }
+  }
+
+  private async handleAnalyzeJavaProject(args: any) {
+    const javaValidator = await this.engine.getJavaValidator();
+    if (!javaValidator) {
+      return {
+        content: [
+          {
+            type: "text",
+            text: "❌ Validador Java no disponible. Verifica que java-patterns.config.json existe.",
+          },
+        ],
+        isError: true,
+      };
+    }
+
+    const { root, include, exclude } = args ?? {};
+    if (!root || typeof root !== "string") {
+      return {
+        content: [
+          {
+            type: "text",
+            text: "❌ Error: Se requiere el parámetro 'root' (directorio del proyecto).",
+          },
+        ],
+        isError: true,
+      };
+    }
+
+    const key = resolve(root);
+    try {
+      const stat = await fs.stat(key);
+      if (!stat.isDirectory()) {
+        throw new Error(`'${root}' no es un directorio`);
+      }
+    } catch (error) {
+      return {
+        content: [
+          {
+            type: "text",
+            text: `❌ Error al leer el directorio: ${
+              error instanceof Error ? error.message : "Error desconocido"
+            }`,
+          },
+        ],
+        isError: true,
+      };
+    }
+
+    let index = this.javaIndexes.get(key);
+    if (!index) {
+      index = new JavaProjectIndex(key);
+      this.javaIndexes.set(key, index);
+    }
+
+    const start = performance.now();
+    const seen = new Set<string>();
+    let updated = 0;
+    const collect = (report: FileReport) => {
+      if (report.language !== "java" || !report.contentHash) return;
+      seen.add(report.filepath);
+      if (index!.updateFile(report.filepath, report.contentHash, report.classes ?? [])) updated++;
+    };
+
+    // Un proyecto en modo watch ya tiene los resultados al día
+    const watcher = await this.projectWatcher(key);
+    if (watcher) {
+      watcher.getReports().forEach(collect);
+    } else {
+      await validateDirectory(key, this.getPool(), {
+        include: Array.isArray(include) ? include : ["**/*.java"],
+        exclude: Array.isArray(exclude) ? exclude : undefined,
+        onReport: collect,
+        diskCache: this.engine.diskCache,
+        maxReports: 0,
+      });
+    }
+    const removed = index.retain(seen);
+    const violations = javaValidator.validateProject(index);
+    const durationMs = performance.now() - start;
+
+    const lines: string[] = [];
+    lines.push(`## Pattern Police Java - Análisis de Proyecto\n`);
+    lines.push(`📁 Proyecto: ${index.root}`);
+    lines.push(`📄 Archivos Java: ${index.fileCount} — Clases/interfaces: ${index.classCount}`);
+    lines.push(`🔄 Reindexados: ${updated} — Eliminados: ${removed} — ⏱️  ${(durationMs / 1000).toFixed(2)} s`);
+    lines.push(
+      `🏛️  Controllers: ${index.getRole("controller").length}, Modelos: ${index.getRole("model").length}, Vistas: ${index.getRole("view").length}`
+    );
+    lines.push("");
+
+    if (violations.length === 0) {
+      lines.push(`No se detectaron patrones arquitecturales entre archivos.`);
+    }
+    violations.forEach((v, idx) => {
+      lines.push(`${idx + 1}. ${v.message}`);
+      if (v.className) {
+        index!.findClass(v.className).forEach((entry) => lines.push(`   Archivo: ${entry.filepath}`));
+      }
+      lines.push("");
+    });
+
+    return {
+      content: [{ type: "text", text: lines.join("\n") }],
+    };
+  }
+
+  private async handleFindClones(args: any) {
+    const { codeSmells } = this.engine.getTypeScriptConfig().rules;
+    if (!codeSmells.enabled || !codeSmells.detectDuplication) {
+      return {
+        content: [
+          {
+            type: "text",
+            text: "❌ La detección de código duplicado está desactivada (rules.codeSmells.detectDuplication).",
+          },
+        ],
+        isError: true,
+      };
+    }
+
+    const { root, include, exclude, minTokens, maxResults } = args ?? {};
+    if (!root || typeof root !== "string") {
+      return {
+        content: [
+          {
+            type: "text",
+            text: "❌ Error: Se requiere el parámetro 'root' (directorio del proyecto).",
+          },
+        ],
+        isError: true,
+      };
+    }
+
+    const key = resolve(root);
+    try {
+      const stat = await fs.stat(key);
+      if (!stat.isDirectory()) {
+        throw new Error(`'${root}' no es un directorio`);
+      }
+    } catch (error) {
+      return {
+        content: [
+          {
+            type: "text",
+            text: `❌ Error al leer el directorio: ${
+              error instanceof Error ? error.message : "Error desconocido"
+            }`,
+          },
+        ],
+        isError: true,
+      };
+    }
+
+    let index = this.cloneIndexes.get(key);
+    if (!index) {
+      index = CloneIndex.fromEnv(key);
+      this.cloneIndexes.set(key, index);
+    }
+
+    const start = performance.now();
+    const seen = new Set<string>();
+    let updated = 0;
+    const collect = (report: FileReport) => {
+      if (report.language !== "typescript" || !report.contentHash || !report.fingerprints) return;
+      seen.add(report.filepath);
+      if (index!.updateFile(report.filepath, report.contentHash, report.fingerprints)) updated++;
+    };
+
+    // Un proyecto en modo watch ya tiene los resultados al día
+    const watcher = await this.projectWatcher(key);
+    if (watcher) {
+      watcher.getReports().forEach(collect);
+    } else {
+      await validateDirectory(key, this.getPool(), {
+        include: Array.isArray(include) ? include : ["**/*.{ts,tsx,mts,cts,js,jsx,mjs,cjs}"],
+        exclude: Array.isArray(exclude) ? exclude : undefined,
+        onReport: collect,
+        diskCache: this.engine.diskCache,
+        maxReports: 0,
+      });
+    }
+    const removed = index.retain(seen);
+
+    const threshold = codeSmells.minDuplicationTokens ?? DEFAULT_MIN_DUPLICATION_TOKENS;
+    const clones = index.findClones(typeof minTokens === "number" ? Math.max(threshold, minTokens) : threshold);
+    const limit = typeof maxResults === "number" && maxResults > 0 ? Math.floor(maxResults) : 50;
+    const durationMs = performance.now() - start;
+
+    const lines: string[] = [];
+    lines.push(`## Pattern Police - Código Duplicado\n`);
+    lines.push(`📁 Proyecto: ${index.root}`);
+    lines.push(`📄 Archivos: ${index.fileCount} — Tokens: ${index.tokenCount} — Huellas: ${index.fingerprintCount}`);
+    lines.push(`🔄 Reindexados: ${updated} — Eliminados: ${removed} — ⏱️  ${(durationMs / 1000).toFixed(2)} s`);
+    if (index.skippedCount > 0) {
+      lines.push(
+        `⚠️  ${index.skippedCount} archivos sin indexar por el límite de tokens (PATTERN_POLICE_CLONE_MAX_TOKENS)`
+      );
+    }
+    lines.push("");
+
+    if (clones.length === 0) {
+      lines.push(`No se detectó código duplicado.`);
+    }
+    clones.slice(0, limit).forEach(({ original, duplicate, tokens }, idx) => {
+      lines.push(`${idx + 1}. ${tokens} tokens duplicados`);
+      lines.push(`   ${original.filepath}:${original.startLine}-${original.endLine}`);
+      lines.push(`   ${duplicate.filepath}:${duplicate.startLine}-${duplicate.endLine}`);
+      lines.push("");
+    });
+    if (clones.length > limit) {
+      lines.push(`… y ${clones.length - limit} clones más.`);
+    }
+
+    return {
+      content: [{ type: "text", text: lines.join("\n") }],
+    };
+  }
+
+  private async handleListJavaPatterns() {
+    let response = `## Pattern Police Java - Catálogo Completo de Patrones\n\n`;
+    response += `Este validador detecta más de 50 patrones de diseño en código Java.\n\n`;
+
+    response += `### 🏗️  Patrones Creacionales GoF (5)\n`;
+    response += `1. **Singleton** - Una única instancia global\n`;
+    response += `2. **Factory Method** - Creación de objetos mediante método factory\n`;
+    response += `3. **Abstract Factory** - Familias de objetos relacionados\n`;
+    response += `4. **Builder** - Construcción paso a paso de objetos complejos\n`;
+    response += `5. **Prototype** - Clonación de objetos\n\n`;
+
+    response += `### 🔗 Patrones Estructurales GoF (7)\n`;
+    response += `6. **Adapter** - Adapta interfaces incompatibles\n`;
+    response += `7. **Bridge** - Separa abstracción de implementación\n`;
+    response += `8. **Composite** - Estructura de árbol de objetos\n`;
     response += `9. **Decorator** - Añade funcionalidad dinámicamente\n`;
     response += `10. **Facade** - Interfaz simplificada a subsistema complejo\n`;
     response += `11. **Flyweight** - Compartición eficiente de objetos\n`;
@@ -600,8 +1941,12 @@ class PatternPoliceServer {
     };
   }
 
-  private async handleValidateVueCode(args: any) {
-    if (!this.vueValidator) {
+  private async handleValidateVueCode(args: any, results: ResultStore) {
+    const { code, filename = "Component.vue", pageSize } = args;
+    const result = await this.analyzeIsolated("vue", code, filename);
+    if (result instanceof WorkerLimitError) return this.limitResponse(filename, result);
+
+    if (!result) {
       return {
         content: [
           {
@@ -613,112 +1958,21 @@ class PatternPoliceServer {
       };
     }
 
-    const { code, filename = "Component.vue" } = args;
-    const { detections, violations } = this.vueValidator.validate(
-      code,
-      filename
+    const { detections, violations } = result;
+    const items: VueResultItem[] = [
+      ...detections.map((d) => ({ kind: "detection" as const, ...d })),
+      ...violations.map((v) => ({ kind: "violation" as const, ...v })),
+    ];
+    const resultId = results.create(
+      "vue",
+      { filename, detections: detections.length, violations: violations.length },
+      items
     );
-
-    let response = `## Pattern Police Vue.js - Análisis de Patrones\n\n`;
-    response += `📁 Archivo: ${filename}\n`;
-    response += `✨ Patrones detectados: ${detections.length}\n`;
-    response += `⚠️  Violaciones/Anti-patrones: ${violations.length}\n\n`;
-
-    if (detections.length > 0) {
-      response += `### 🎯 Patrones Detectados\n\n`;
-
-      const byCategory = detections.reduce((acc, d) => {
-        if (!acc[d.category]) acc[d.category] = [];
-        acc[d.category].push(d);
-        return acc;
-      }, {} as Record<string, any[]>);
-
-      const categoryNames: Record<string, string> = {
-        composables: "🧩 Composables Patterns",
-        components: "🧱 Component Patterns",
-        bestPractices: "✅ Best Practices",
-        template: "📄 Template Patterns",
-        lifecycle: "🔄 Lifecycle Patterns",
-      };
-
-      Object.entries(byCategory).forEach(([category, patterns]) => {
-        response += `#### ${categoryNames[category] || category}\n\n`;
-        patterns.forEach((p, idx) => {
-          const confidenceIcon =
-            p.confidence === "high"
-              ? "🟢"
-              : p.confidence === "medium"
-              ? "🟡"
-              : "🟠";
-          response += `${idx + 1}. ${confidenceIcon} **${p.pattern}** (${
-            p.componentName
-          })\n`;
-          response += `   📍 Ubicación: Línea ${p.location.line}${
-            p.location.block ? ` (${p.location.block})` : ""
-          }\n`;
-
-          if (p.evidence && p.evidence.length > 0) {
-            response += `   ✓ Evidencia:\n`;
-            p.evidence.forEach((e: string) => {
-              response += `     - ${e}\n`;
-            });
-          }
-
-          if (p.antiPatterns && p.antiPatterns.length > 0) {
-            response += `   ⚠️  Anti-patrones detectados:\n`;
-            p.antiPatterns.forEach((a: string) => {
-              response += `     - ${a}\n`;
-            });
-          }
-
-          if (p.suggestions && p.suggestions.length > 0) {
-            response += `   💡 Sugerencias:\n`;
-            p.suggestions.forEach((s: string) => {
-              response += `     - ${s}\n`;
-            });
-          }
-
-          response += `\n`;
-        });
-      });
-    }
-
-    if (violations.length > 0) {
-      response += `### ⚠️  Violaciones y Anti-patrones\n\n`;
-
-      violations.forEach((v, idx) => {
-        const icon =
-          v.severity === "error"
-            ? "❌"
-            : v.severity === "warning"
-            ? "⚠️"
-            : "ℹ️";
-        response += `${idx + 1}. ${icon} **${v.rule}** (${v.severity})\n`;
-        response += `   📍 Línea: ${v.location.line}${
-          v.location.block ? ` (${v.location.block})` : ""
-        }\n`;
-        response += `   📝 ${v.message}\n`;
-
-        if (v.suggestion) {
-          response += `   💡 Sugerencia: ${v.suggestion}\n`;
-        }
-
-        response += `\n`;
-      });
-    }
-
-    if (detections.length === 0 && violations.length === 0) {
-      response += `ℹ️  No se detectaron patrones ni violaciones en este componente.\n`;
-      response += `Esto puede significar que el componente es muy simple o que usa patrones no reconocibles.\n`;
-    }
-
-    return {
-      content: [{ type: "text", text: response }],
-    };
+    return this.renderResultPage(results, resultId, 0, clampPageSize(pageSize));
   }
 
-  private async handleValidateVueFile(args: any) {
-    if (!this.vueValidator) {
+  private async handleValidateVueFile(args: any, results: ResultStore) {
+    if (!this.engine.hasVue()) {
       return {
         content: [
           {
@@ -761,7 +2015,7 @@ class PatternPoliceServer {
 
     try {
       const code = await fs.readFile(filepath, "utf-8");
-      return this.handleValidateVueCode({ code, filename: filepath });
+      return this.handleValidateVueCode({ ...args, code, filename: filepath }, results);
     } catch (error) {
       const errorMsg =
         error instanceof Error ? error.message : "Error desconocido";
@@ -838,13 +2092,48 @@ class PatternPoliceServer {
 
   async run(): Promise<void> {
     const transport = new StdioServerTransport();
-    await this.server.connect(transport);
+    await this.createSession().connect(transport);
     console.error("Pattern Police MCP Server ejecutándose en stdio");
   }
+
+  /**
+   * Un único proceso de larga duración para varios clientes (ventanas del
+   * IDE, agentes) sobre HTTP local o un socket Unix: comparten motor,
+   * cachés y pool en vez de arrancar cada uno su propio servidor.
+   */
+  async serve(argv: string[]): Promise<void> {
+    const { httpOptionsFromArgs, serveHttp } = await import("./http.js");
+    const stop = await serveHttp(() => this.createSession(), httpOptionsFromArgs(argv));
+
+    const shutdown = async () => {
+      await stop();
+      this.configWatcher?.close();
+      await this.pool?.destroy();
+      // "exit" vuelca la caché en disco
+      process.exit(0);
+    };
+    process.once("SIGINT", shutdown);
+    process.once("SIGTERM", shutdown);
+  }
 }
 
-const server = new PatternPoliceServer();
-server.run().catch((error) => {
-  console.error("Error fatal:", error);
-  process.exit(1);
-});
+// `pattern-police check ...` valida sin servidor (CI), `pattern-police serve ...` atiende a varios
+// clientes por HTTP; sin argumentos, servidor MCP por stdio
+if (process.argv[2] === "check") {
+  import("./cli.js")
+    .then(({ runCli }) => runCli(process.argv.slice(3)))
+    .then((code) => {
+      process.exitCode = code;
+    })
+    .catch((error) => {
+      console.error("Error fatal:", error);
+      process.exitCode = 2;
+    });
+} else {
+  const server = new PatternPoliceServer();
+  const started = process.argv[2] === "serve" ? server.serve(process.argv.slice(3)) : server.run();
+  started.catch((error) => {
+    console.error("Error fatal:", error);
+    process.exit(1);
+  });
+}
@@ -0,0 +1,15 @@
+#!/usr/bin/env node
+
+/**
+ * Punto de entrada del binario. Activa la caché de compilación de Node
+ * (22.1+) antes de cargar el servidor, así que los arranques siguientes
+ * reutilizan el código ya compilado del servidor y de sus dependencias
+ * (PATTERN_POLICE_COMPILE_CACHE=0 la desactiva; NODE_COMPILE_CACHE elige el
+ * directorio). Los imports estáticos se evalúan antes que el cuerpo del
+ * módulo, por eso el servidor llega con un import dinámico.
+ */
+import module from "module";
+
+if (process.env.PATTERN_POLICE_COMPILE_CACHE !== "0") module.enableCompileCache?.();
+
+await import("./index.js");
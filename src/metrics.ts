@@ -0,0 +1,153 @@
+/**
+ * Límites superiores (ms) de los buckets del histograma: escala exponencial
+ * de 10 µs a ~80 s. El último bucket recoge todo lo que los supera.
+ */
+const BUCKET_BOUNDS = Array.from({ length: 24 }, (_, i) => 0.01 * 2 ** i);
+
+export interface MetricSnapshot {
+  name: string;
+  invocations: number;
+  totalMs: number;
+  maxMs: number;
+  violations: number;
+  buckets: number[];
+}
+
+export interface MetricSummary extends MetricSnapshot {
+  meanMs: number;
+  p50Ms: number;
+  p99Ms: number;
+}
+
+class Metric {
+  invocations = 0;
+  totalMs = 0;
+  maxMs = 0;
+  violations = 0;
+  readonly buckets = new Float64Array(BUCKET_BOUNDS.length + 1);
+
+  constructor(readonly name: string) {}
+
+  observe(ms: number): void {
+    this.invocations++;
+    this.totalMs += ms;
+    if (ms > this.maxMs) this.maxMs = ms;
+
+    let bucket = 0;
+    while (bucket < BUCKET_BOUNDS.length && ms > BUCKET_BOUNDS[bucket]) bucket++;
+    this.buckets[bucket]++;
+  }
+
+  snapshot(): MetricSnapshot {
+    return {
+      name: this.name,
+      invocations: this.invocations,
+      totalMs: this.totalMs,
+      maxMs: this.maxMs,
+      violations: this.violations,
+      buckets: Array.from(this.buckets),
+    };
+  }
+}
+
+/** Percentil aproximado: límite superior del bucket que lo contiene. */
+function bucketPercentile(snapshot: MetricSnapshot, p: number): number {
+  const target = Math.ceil((p / 100) * snapshot.invocations);
+  let seen = 0;
+  for (let i = 0; i < snapshot.buckets.length; i++) {
+    seen += snapshot.buckets[i];
+    if (seen >= target && seen > 0) {
+      return Math.min(BUCKET_BOUNDS[i] ?? snapshot.maxMs, snapshot.maxMs);
+    }
+  }
+  return snapshot.maxMs;
+}
+
+export function summarize(snapshot: MetricSnapshot): MetricSummary {
+  return {
+    ...snapshot,
+    meanMs: snapshot.invocations > 0 ? snapshot.totalMs / snapshot.invocations : 0,
+    p50Ms: bucketPercentile(snapshot, 50),
+    p99Ms: bucketPercentile(snapshot, 99),
+  };
+}
+
+/** Combina snapshots de varios registros (p. ej. de cada worker). */
+export function mergeSnapshots(...sources: MetricSnapshot[][]): MetricSnapshot[] {
+  const merged = new Map<string, MetricSnapshot>();
+  for (const snapshots of sources) {
+    for (const snapshot of snapshots) {
+      const target = merged.get(snapshot.name);
+      if (!target) {
+        merged.set(snapshot.name, { ...snapshot, buckets: [...snapshot.buckets] });
+        continue;
+      }
+      target.invocations += snapshot.invocations;
+      target.totalMs += snapshot.totalMs;
+      target.maxMs = Math.max(target.maxMs, snapshot.maxMs);
+      target.violations += snapshot.violations;
+      snapshot.buckets.forEach((count, i) => (target.buckets[i] += count));
+    }
+  }
+  return [...merged.values()];
+}
+
+/**
+ * Contadores y tiempos por fase y por regla. Pensado para quedar activo en
+ * producción: `start()` es un `performance.now()` y `end()` una búsqueda en
+ * un Map más un incremento en un histograma preasignado. Se desactiva con
+ * PATTERN_POLICE_METRICS=0. El tiempo por regla, que mide cada handler en
+ * cada nodo, solo se toma con PATTERN_POLICE_METRICS=detailed.
+ */
+export class MetricsRegistry {
+  private metrics = new Map<string, Metric>();
+
+  constructor(readonly enabled: boolean = true, readonly detailed: boolean = false) {}
+
+  static fromEnv(env: NodeJS.ProcessEnv = process.env): MetricsRegistry {
+    return new MetricsRegistry(env.PATTERN_POLICE_METRICS !== "0", env.PATTERN_POLICE_METRICS === "detailed");
+  }
+
+  start(): number {
+    return this.enabled ? performance.now() : 0;
+  }
+
+  /** Registra el tiempo desde `start` y las violaciones producidas. */
+  end(name: string, start: number, violations = 0): void {
+    if (!this.enabled) return;
+    this.record(name, performance.now() - start, violations);
+  }
+
+  /** Registra una invocación con una duración ya medida. */
+  record(name: string, ms: number, violations = 0): void {
+    if (!this.enabled) return;
+    const metric = this.get(name);
+    metric.observe(ms);
+    metric.violations += violations;
+  }
+
+  /** Suma violaciones sin registrar tiempo. */
+  count(name: string, violations: number): void {
+    if (!this.enabled || violations === 0) return;
+    this.get(name).violations += violations;
+  }
+
+  snapshot(): MetricSnapshot[] {
+    return [...this.metrics.values()].map((metric) => metric.snapshot());
+  }
+
+  reset(): void {
+    this.metrics.clear();
+  }
+
+  private get(name: string): Metric {
+    let metric = this.metrics.get(name);
+    if (!metric) {
+      metric = new Metric(name);
+      this.metrics.set(name, metric);
+    }
+    return metric;
+  }
+}
+
+export const metrics = MetricsRegistry.fromEnv();
@@ -0,0 +1,152 @@
+import { resolve } from "path";
+import { Clone, findClones } from "../validators/clones/CloneMatcher.js";
+import type { FileFingerprints } from "../validators/clones/Fingerprints.js";
+
+export interface CloneIndexOptions {
+  /** Tokens como máximo en memoria; los archivos que no caben se omiten */
+  maxTokens?: number;
+}
+
+export interface ProjectCloneRegion {
+  filepath: string;
+  startLine: number;
+  endLine: number;
+}
+
+export interface ProjectClone {
+  original: ProjectCloneRegion;
+  duplicate: ProjectCloneRegion;
+  tokens: number;
+}
+
+interface IndexedFile {
+  hash: string;
+  fingerprints: FileFingerprints;
+}
+
+const DEFAULT_MAX_TOKENS = 5_000_000;
+
+/**
+ * Huellas winnowing de todos los archivos TypeScript/JavaScript de un
+ * proyecto, actualizadas por archivo igual que JavaProjectIndex. Cada token
+ * ocupa 8 bytes (hash y línea) más ~2/(w+1) huellas de 12 bytes, así que un
+ * presupuesto de tokens acota la memoria aunque el repositorio tenga
+ * millones de líneas.
+ */
+export class CloneIndex {
+  readonly root: string;
+  private files = new Map<string, IndexedFile>();
+  private fingerprints = 0;
+  private tokens = 0;
+  private skipped = new Set<string>();
+  private params: string | null = null;
+  private cached: { minTokens: number; clones: ProjectClone[] } | null = null;
+  private readonly maxTokens: number;
+
+  constructor(root: string, options: CloneIndexOptions = {}) {
+    this.root = resolve(root);
+    this.maxTokens = options.maxTokens ?? DEFAULT_MAX_TOKENS;
+  }
+
+  static fromEnv(root: string, env: NodeJS.ProcessEnv = process.env): CloneIndex {
+    const max = Number(env.PATTERN_POLICE_CLONE_MAX_TOKENS ?? DEFAULT_MAX_TOKENS);
+    return new CloneIndex(root, {
+      maxTokens: Number.isFinite(max) && max > 0 ? max : DEFAULT_MAX_TOKENS,
+    });
+  }
+
+  get fileCount(): number {
+    return this.files.size;
+  }
+
+  get fingerprintCount(): number {
+    return this.fingerprints;
+  }
+
+  get tokenCount(): number {
+    return this.tokens;
+  }
+
+  /** Archivos que no se indexaron por superar el presupuesto de tokens. */
+  get skippedCount(): number {
+    return this.skipped.size;
+  }
+
+  isCurrent(filepath: string, hash: string): boolean {
+    return this.files.get(filepath)?.hash === hash;
+  }
+
+  getFiles(): string[] {
+    return [...this.files.keys(), ...this.skipped];
+  }
+
+  /** Sustituye las huellas de un archivo; devuelve false si no cambió. */
+  updateFile(filepath: string, hash: string, fingerprints: FileFingerprints): boolean {
+    if (this.isCurrent(filepath, hash)) return false;
+
+    // Huellas con otro tamaño de ventana no son comparables: la
+    // configuración cambió y el índice se reconstruye
+    const params = `${fingerprints.k}:${fingerprints.w}`;
+    if (this.params !== params) {
+      this.files.clear();
+      this.skipped.clear();
+      this.fingerprints = 0;
+      this.tokens = 0;
+      this.params = params;
+    }
+
+    this.removeFile(filepath);
+    if (this.tokens + fingerprints.tokens.length > this.maxTokens) {
+      this.skipped.add(filepath);
+      return false;
+    }
+
+    this.files.set(filepath, { hash, fingerprints });
+    this.fingerprints += fingerprints.hashes.length;
+    this.tokens += fingerprints.tokens.length;
+    this.cached = null;
+    return true;
+  }
+
+  removeFile(filepath: string): boolean {
+    this.skipped.delete(filepath);
+    const file = this.files.get(filepath);
+    if (!file) return false;
+    this.files.delete(filepath);
+    this.fingerprints -= file.fingerprints.hashes.length;
+    this.tokens -= file.fingerprints.tokens.length;
+    this.cached = null;
+    return true;
+  }
+
+  /** Elimina los archivos que no estén en `keep` (borrados del disco). */
+  retain(keep: Set<string>): number {
+    let removed = 0;
+    for (const filepath of this.getFiles()) {
+      if (!keep.has(filepath) && this.removeFile(filepath)) removed++;
+    }
+    return removed;
+  }
+
+  /** Clones entre archivos y dentro de cada archivo, de mayor a menor. */
+  findClones(minTokens: number): ProjectClone[] {
+    if (this.cached && this.cached.minTokens === minTokens) return this.cached.clones;
+
+    const paths = [...this.files.keys()];
+    const toRegion = (region: Clone["original"]): ProjectCloneRegion => ({
+      filepath: paths[region.file],
+      startLine: region.startLine,
+      endLine: region.endLine,
+    });
+
+    const clones = findClones(
+      paths.map((filepath) => this.files.get(filepath)!.fingerprints),
+      { minTokens }
+    )
+      .map((clone) => ({ original: toRegion(clone.original), duplicate: toRegion(clone.duplicate), tokens: clone.tokens }))
+      .sort((a, b) => b.tokens - a.tokens);
+
+    this.cached = { minTokens, clones };
+    return clones;
+  }
+}
@@ -0,0 +1,118 @@
+import { resolve } from "path";
+import type { ClassInfo } from "../types-java.js";
+import { JAVA_ROLES, JavaRole, ROLE_PREDICATES } from "../validators/java/JavaRoles.js";
+
+export interface IndexedClass {
+  filepath: string;
+  info: ClassInfo;
+}
+
+interface IndexedFile {
+  hash: string;
+  classes: IndexedClass[];
+}
+
+type Bucket = Map<string, Set<IndexedClass>>;
+
+/** `com.acme.Repo<T>` -> `Repo` */
+const simpleName = (type: string) => type.replace(/<.*$/s, "").split(".").pop()!.trim();
+
+function addTo(bucket: Bucket, key: string, entry: IndexedClass): void {
+  let set = bucket.get(key);
+  if (!set) {
+    set = new Set();
+    bucket.set(key, set);
+  }
+  set.add(entry);
+}
+
+function removeFrom(bucket: Bucket, key: string, entry: IndexedClass): void {
+  const set = bucket.get(key);
+  if (!set) return;
+  set.delete(entry);
+  if (set.size === 0) bucket.delete(key);
+}
+
+/**
+ * Modelo de símbolos Java de todo un proyecto, construido de forma incremental
+ * a partir del ClassInfo de cada archivo. Los nombres y los roles se guardan
+ * en mapas inversos para que los detectores entre archivos consulten en
+ * tiempo casi constante en vez de recorrer todas las clases.
+ */
+export class JavaProjectIndex {
+  readonly root: string;
+  private files = new Map<string, IndexedFile>();
+  private byName: Bucket = new Map();
+  private roles = new Map<JavaRole, Set<IndexedClass>>(JAVA_ROLES.map((role) => [role, new Set()]));
+
+  constructor(root: string) {
+    this.root = resolve(root);
+  }
+
+  get fileCount(): number {
+    return this.files.size;
+  }
+
+  get classCount(): number {
+    let count = 0;
+    this.files.forEach((file) => (count += file.classes.length));
+    return count;
+  }
+
+  /** Indica si el archivo ya está indexado con ese contenido. */
+  isCurrent(filepath: string, hash: string): boolean {
+    return this.files.get(filepath)?.hash === hash;
+  }
+
+  getFiles(): string[] {
+    return [...this.files.keys()];
+  }
+
+  /** Sustituye las clases de un archivo; devuelve false si no cambió. */
+  updateFile(filepath: string, hash: string, classes: ClassInfo[]): boolean {
+    if (this.isCurrent(filepath, hash)) return false;
+    this.removeFile(filepath);
+
+    const entries = classes.map((info) => ({ filepath, info }));
+    this.files.set(filepath, { hash, classes: entries });
+
+    for (const entry of entries) {
+      const { info } = entry;
+      addTo(this.byName, info.name, entry);
+      for (const role of JAVA_ROLES) {
+        if (ROLE_PREDICATES[role](info)) this.roles.get(role)!.add(entry);
+      }
+    }
+    return true;
+  }
+
+  removeFile(filepath: string): boolean {
+    const file = this.files.get(filepath);
+    if (!file) return false;
+    this.files.delete(filepath);
+
+    for (const entry of file.classes) {
+      const { info } = entry;
+      removeFrom(this.byName, info.name, entry);
+      this.roles.forEach((set) => set.delete(entry));
+    }
+    return true;
+  }
+
+  /** Elimina los archivos que no estén en `keep` (borrados del disco). */
+  retain(keep: Set<string>): number {
+    let removed = 0;
+    for (const filepath of this.getFiles()) {
+      if (!keep.has(filepath) && this.removeFile(filepath)) removed++;
+    }
+    return removed;
+  }
+
+  findClass(name: string): IndexedClass[] {
+    return [...(this.byName.get(simpleName(name)) ?? [])];
+  }
+
+  getRole(role: JavaRole): ClassInfo[] {
+    return [...this.roles.get(role)!].map((entry) => entry.info);
+  }
+}
@@ -0,0 +1,360 @@
+import { watch, FSWatcher } from "fs";
+import * as fs from "fs/promises";
+import { join, relative, resolve, sep } from "path";
+import { randomBytes } from "crypto";
+import { FileReport, Language, ReportedViolation } from "../types-report.js";
+import {
+  compileGlob,
+  DEFAULT_EXCLUDES,
+  detectLanguage,
+  discoverFiles,
+  FileDiscoveryOptions,
+} from "./files.js";
+
+export interface ProjectWatcherOptions extends FileDiscoveryOptions {
+  debounceMs?: number;
+  maxHistory?: number;
+}
+
+export interface FileDelta {
+  filepath: string;
+  added: ReportedViolation[];
+  removed: ReportedViolation[];
+  deleted?: boolean;
+}
+
+export interface ChangeSet {
+  revision: string;
+  resync: boolean;
+  changes: FileDelta[];
+}
+
+interface HistoryEntry extends FileDelta {
+  revision: number;
+}
+
+type Validate = (filepath: string) => Promise<FileReport>;
+
+const violationKey = (v: ReportedViolation) =>
+  `${v.rule}|${v.line ?? ""}|${v.column ?? ""}|${v.message}`;
+
+/**
+ * Mantiene en memoria los resultados de validación de un proyecto y los
+ * actualiza solo para los archivos que cambian. Cada cambio incrementa la
+ * revisión y queda registrado como delta de violaciones.
+ *
+ * Se vigila cada directorio no excluido por separado, no la raíz de forma
+ * recursiva: en Linux cada directorio consume un watch de inotify y
+ * node_modules, .git o dist agotarían `max_user_watches`. Si el watcher
+ * falla o no quedan watches, el proyecto se marca para resincronizar: la
+ * siguiente consulta lo recorre entero de nuevo y los tokens anteriores
+ * devuelven `resync`.
+ */
+export class ProjectWatcher {
+  readonly root: string;
+  private readonly id = randomBytes(4).toString("hex");
+  private readonly reports = new Map<string, FileReport>();
+  private readonly history: HistoryEntry[] = [];
+  private readonly dirty = new Set<string>();
+  private readonly include: RegExp[];
+  private readonly exclude: RegExp[];
+  private readonly debounceMs: number;
+  private readonly maxHistory: number;
+  private revision = 0;
+  private readonly watchers = new Map<string, FSWatcher>();
+  /** Rutas sin lenguaje con eventos: directorios creados, renombrados o borrados */
+  private readonly touchedDirs = new Set<string>();
+  private stale = false;
+  private concurrency = 16;
+  private timer: NodeJS.Timeout | null = null;
+  private flushing: Promise<void> = Promise.resolve();
+
+  constructor(
+    root: string,
+    private validate: Validate,
+    private options: ProjectWatcherOptions = {}
+  ) {
+    this.root = resolve(root);
+    this.include = (options.include ?? []).map(compileGlob);
+    this.exclude = [...DEFAULT_EXCLUDES, ...(options.exclude ?? [])].map(compileGlob);
+    this.debounceMs = options.debounceMs ?? 100;
+    this.maxHistory = options.maxHistory ?? 10000;
+  }
+
+  get token(): string {
+    return `${this.id}-${this.revision}`;
+  }
+
+  get fileCount(): number {
+    return this.reports.size;
+  }
+
+  getReports(): FileReport[] {
+    return [...this.reports.values()];
+  }
+
+  async start(concurrency = 16): Promise<void> {
+    this.concurrency = concurrency;
+    await this.scan();
+  }
+
+  close(): void {
+    this.unwatch(this.root, true);
+    if (this.timer) clearTimeout(this.timer);
+    this.timer = null;
+  }
+
+  /** Valida todo el proyecto y vigila los directorios que recorre. */
+  private async scan(): Promise<void> {
+    const inFlight = new Set<Promise<void>>();
+    const walk = { onDirectory: (dir: string) => this.watchDirectory(dir) };
+    for await (const filepath of discoverFiles(this.root, this.options, walk)) {
+      const task: Promise<void> = this.validate(filepath)
+        .then(
+          (report) => {
+            this.reports.set(filepath, report);
+          },
+          () => {
+            // Archivo ilegible: se reintentará cuando cambie
+          }
+        )
+        .finally(() => inFlight.delete(task));
+      inFlight.add(task);
+      if (inFlight.size >= this.concurrency) await Promise.race(inFlight);
+    }
+    await Promise.all(inFlight);
+  }
+
+  private watchDirectory(dir: string): void {
+    if (this.watchers.has(dir)) return;
+    let watcher: FSWatcher;
+    try {
+      watcher = watch(dir, (_event, filename) => {
+        if (filename) this.onEvent(join(dir, filename.toString()));
+      });
+    } catch (error) {
+      // ENOSPC/EMFILE: sin watches, cada consulta recorre el proyecto de nuevo
+      this.markStale(error);
+      return;
+    }
+    watcher.on("error", (error) => {
+      // Un directorio borrado lo trata el evento de su padre
+      fs.access(dir).then(
+        () => this.markStale(error),
+        () => this.unwatch(dir, false)
+      );
+    });
+    this.watchers.set(dir, watcher);
+  }
+
+  /** Deja de vigilar `dir` y, con `nested`, todo lo que cuelga de él. */
+  private unwatch(dir: string, nested: boolean): void {
+    const prefix = dir + sep;
+    for (const [watched, watcher] of this.watchers) {
+      if (watched === dir || (nested && watched.startsWith(prefix))) {
+        watcher.close();
+        this.watchers.delete(watched);
+      }
+    }
+  }
+
+  private markStale(error: unknown): void {
+    if (!this.stale) console.error(`Watcher error (${this.root}), se resincronizará:`, error);
+    this.stale = true;
+  }
+
+  private onEvent(path: string): void {
+    if (this.matches(path)) this.dirty.add(path);
+    else if (!detectLanguage(path)) this.touchedDirs.add(path);
+    else return;
+    this.schedule();
+  }
+
+  /**
+   * Revalida los archivos de los lenguajes indicados, p. ej. tras recargar su
+   * configuración. Las diferencias aparecen en getChanges como cualquier otro
+   * cambio.
+   */
+  invalidate(languages: Language[]): void {
+    let scheduled = false;
+    this.reports.forEach((report, filepath) => {
+      if (!languages.includes(report.language)) return;
+      this.dirty.add(filepath);
+      scheduled = true;
+    });
+    if (scheduled) this.schedule();
+  }
+
+  /** Espera a que se procesen los cambios pendientes. */
+  async settle(): Promise<void> {
+    if (this.stale) {
+      this.stale = false;
+      this.flushing = this.flushing.then(() => this.resync());
+    }
+    if (this.timer) {
+      clearTimeout(this.timer);
+      this.timer = null;
+      this.flushing = this.flushing.then(() => this.flush());
+    }
+    await this.flushing;
+  }
+
+  /**
+   * Devuelve el delta neto de violaciones desde `since`. Si el token es de
+   * otro watcher o el historial ya no lo cubre, marca `resync` y devuelve el
+   * estado completo como violaciones añadidas.
+   */
+  async getChanges(since?: string): Promise<ChangeSet> {
+    await this.settle();
+
+    const sinceRevision = this.parseToken(since);
+    const oldest = this.history.length > 0 ? this.history[0].revision - 1 : this.revision;
+    if (sinceRevision === null || sinceRevision < oldest) {
+      return {
+        revision: this.token,
+        resync: true,
+        changes: this.getReports().map((report) => ({
+          filepath: report.filepath,
+          added: report.violations,
+          removed: [],
+        })),
+      };
+    }
+
+    const merged = new Map<string, { added: Map<string, ReportedViolation>; removed: Map<string, ReportedViolation>; deleted: boolean }>();
+    for (const entry of this.history) {
+      if (entry.revision <= sinceRevision) continue;
+
+      let delta = merged.get(entry.filepath);
+      if (!delta) {
+        delta = { added: new Map(), removed: new Map(), deleted: false };
+        merged.set(entry.filepath, delta);
+      }
+      delta.deleted = entry.deleted === true;
+
+      for (const v of entry.removed) {
+        const key = violationKey(v);
+        if (!delta.added.delete(key)) delta.removed.set(key, v);
+      }
+      for (const v of entry.added) {
+        const key = violationKey(v);
+        if (!delta.removed.delete(key)) delta.added.set(key, v);
+      }
+    }
+
+    const changes: FileDelta[] = [];
+    merged.forEach((delta, filepath) => {
+      if (delta.added.size === 0 && delta.removed.size === 0 && !delta.deleted) return;
+      changes.push({
+        filepath,
+        added: [...delta.added.values()],
+        removed: [...delta.removed.values()],
+        ...(delta.deleted ? { deleted: true } : {}),
+      });
+    });
+
+    return { revision: this.token, resync: false, changes };
+  }
+
+  private parseToken(token?: string): number | null {
+    if (!token) return null;
+    const [id, revision] = token.split("-");
+    const value = Number(revision);
+    return id === this.id && Number.isInteger(value) && value <= this.revision ? value : null;
+  }
+
+  private isExcludedDirectory(dir: string): boolean {
+    const rel = relative(this.root, dir).split(sep).join("/");
+    return this.exclude.some((re) => re.test(`${rel}/`));
+  }
+
+  private matches(filepath: string): boolean {
+    if (!detectLanguage(filepath)) return false;
+    const rel = relative(this.root, filepath).split(sep).join("/");
+    if (this.exclude.some((re) => re.test(rel))) return false;
+    return this.include.length === 0 || this.include.some((re) => re.test(rel));
+  }
+
+  private schedule(): void {
+    if (this.timer) clearTimeout(this.timer);
+    this.timer = setTimeout(() => {
+      this.timer = null;
+      this.flushing = this.flushing.then(() => this.flush());
+    }, this.debounceMs);
+  }
+
+  /**
+   * Vuelve a recorrer el proyecto desde cero. El historial se descarta, así
+   * que cualquier token anterior recibe el estado completo con `resync`.
+   */
+  private async resync(): Promise<void> {
+    this.unwatch(this.root, true);
+    this.dirty.clear();
+    this.touchedDirs.clear();
+    this.reports.clear();
+    this.history.splice(0);
+    this.revision++;
+    await this.scan();
+  }
+
+  /** Un directorio nuevo se vigila y sus archivos se validan; uno borrado se lleva sus archivos. */
+  private async syncDirectory(dir: string): Promise<void> {
+    const stat = await fs.stat(dir).catch(() => null);
+    if (stat?.isDirectory()) {
+      if (this.watchers.has(dir) || this.isExcludedDirectory(dir)) return;
+      const walk = { from: dir, onDirectory: (path: string) => this.watchDirectory(path) };
+      for await (const filepath of discoverFiles(this.root, this.options, walk)) this.dirty.add(filepath);
+      return;
+    }
+    if (stat) return;
+
+    this.unwatch(dir, true);
+    const prefix = dir + sep;
+    for (const filepath of this.reports.keys()) {
+      if (filepath.startsWith(prefix)) this.dirty.add(filepath);
+    }
+  }
+
+  private async flush(): Promise<void> {
+    const dirs = [...this.touchedDirs];
+    this.touchedDirs.clear();
+    for (const dir of dirs) await this.syncDirectory(dir);
+
+    const paths = [...this.dirty];
+    this.dirty.clear();
+
+    for (const filepath of paths) {
+      const previous = this.reports.get(filepath);
+      let current: FileReport | null = null;
+
+      try {
+        await fs.access(filepath);
+        current = await this.validate(filepath);
+      } catch {
+        current = null;
+      }
+
+      if (current) {
+        this.reports.set(filepath, current);
+      } else {
+        this.reports.delete(filepath);
+      }
+      this.record(filepath, previous?.violations ?? [], current?.violations ?? [], !current && !!previous);
+    }
+  }
+
+  private record(filepath: string, before: ReportedViolation[], after: ReportedViolation[], deleted: boolean): void {
+    const beforeKeys = new Map(before.map((v) => [violationKey(v), v]));
+    const afterKeys = new Map(after.map((v) => [violationKey(v), v]));
+
+    const added = after.filter((v) => !beforeKeys.has(violationKey(v)));
+    const removed = before.filter((v) => !afterKeys.has(violationKey(v)));
+    if (added.length === 0 && removed.length === 0 && !deleted) return;
+
+    this.revision++;
+    this.history.push({ revision: this.revision, filepath, added, removed, deleted });
+    if (this.history.length > this.maxHistory) {
+      this.history.splice(0, this.history.length - this.maxHistory);
+    }
+  }
+}
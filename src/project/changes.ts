@@ -0,0 +1,175 @@
+import { execFile } from "child_process";
+import { promisify } from "util";
+import { resolve } from "path";
+
+const run = promisify(execFile);
+
+export type LineRange = readonly [start: number, end: number];
+
+/**
+ * Líneas modificadas de un archivo (base 1, rangos cerrados), ordenadas y
+ * fusionadas para responder con búsqueda binaria. Viaja a los workers como
+ * array plano (`ranges`) y se reconstruye allí.
+ */
+export class LineRanges {
+  readonly ranges: readonly LineRange[];
+
+  constructor(ranges: readonly LineRange[]) {
+    const sorted = [...ranges].sort((a, b) => a[0] - b[0]);
+    const merged: [number, number][] = [];
+    for (const [start, end] of sorted) {
+      const last = merged[merged.length - 1];
+      if (last && start <= last[1] + 1) last[1] = Math.max(last[1], end);
+      else merged.push([start, end]);
+    }
+    this.ranges = merged;
+  }
+
+  /** Archivo nuevo o sin seguimiento: cuenta entero. */
+  static whole(): LineRanges {
+    return new LineRanges([[1, Number.MAX_SAFE_INTEGER]]);
+  }
+
+  get isWhole(): boolean {
+    return this.ranges.length === 1 && this.ranges[0][0] <= 1 && this.ranges[0][1] === Number.MAX_SAFE_INTEGER;
+  }
+
+  get lineCount(): number {
+    return this.ranges.reduce((sum, [start, end]) => sum + end - start + 1, 0);
+  }
+
+  has(line: number): boolean {
+    return this.overlaps(line, line);
+  }
+
+  overlaps(start: number, end: number): boolean {
+    let low = 0;
+    let high = this.ranges.length - 1;
+    // Primer rango que termina en `start` o después
+    while (low < high) {
+      const mid = (low + high) >>> 1;
+      if (this.ranges[mid][1] < start) low = mid + 1;
+      else high = mid;
+    }
+    const range = this.ranges[low];
+    return range !== undefined && range[1] >= start && range[0] <= end;
+  }
+}
+
+export interface FileChanges {
+  /** Ruta absoluta del archivo en el lado nuevo del diff */
+  filepath: string;
+  lines: LineRanges;
+}
+
+const HUNK = /^@@ -\d+(?:,(\d+))? \+(\d+)(?:,(\d+))? @@/;
+
+function diffPath(raw: string): string | null {
+  let path = raw.replace(/\t.*$/, "").trim();
+  if (path === "/dev/null") return null;
+  if (path.startsWith('"') && path.endsWith('"')) {
+    path = path.slice(1, -1).replace(/\\(["\\])/g, "$1").replace(/\\t/g, "\t").replace(/\\n/g, "\n");
+  }
+  return path;
+}
+
+/**
+ * Extrae de un diff unificado las líneas tocadas en el lado nuevo de cada
+ * archivo. Un hunk que solo borra marca la línea junto al hueco, para que el
+ * código que rodea al borrado se siga revisando. Los archivos borrados y los
+ * que no tienen hunks (binarios, solo renombrados) no aparecen.
+ */
+export function parseUnifiedDiff(diff: string, root: string): FileChanges[] {
+  const files = new Map<string, [number, number][]>();
+  let current: [number, number][] | null = null;
+  let oldPath: string | null = null;
+  // Líneas del hunk en curso: dentro de él, `--- x` es contenido y no una cabecera
+  let pendingOld = 0;
+  let pendingNew = 0;
+
+  for (const line of diff.split(/\r?\n/)) {
+    if (pendingOld > 0 || pendingNew > 0) {
+      if (line.startsWith("-")) pendingOld--;
+      else if (line.startsWith("+")) pendingNew--;
+      else if (!line.startsWith("\\")) {
+        pendingOld--;
+        pendingNew--;
+      }
+      continue;
+    }
+
+    if (line.startsWith("--- ")) {
+      oldPath = diffPath(line.slice(4));
+      current = null;
+    } else if (line.startsWith("+++ ")) {
+      let path = diffPath(line.slice(4));
+      if (path === null) {
+        current = null;
+        continue;
+      }
+      // `a/` en el lado viejo indica que el nuevo lleva `b/` (git diff sin --no-prefix)
+      if (path.startsWith("b/") && (oldPath === null || oldPath.startsWith("a/"))) path = path.slice(2);
+      const filepath = resolve(root, path);
+      current = files.get(filepath) ?? [];
+      files.set(filepath, current);
+    } else if (current && line.startsWith("@@")) {
+      const match = HUNK.exec(line);
+      if (!match) continue;
+      pendingOld = match[1] === undefined ? 1 : Number(match[1]);
+      const start = Number(match[2]);
+      const count = match[3] === undefined ? 1 : Number(match[3]);
+      pendingNew = count;
+      if (count === 0) {
+        current.push([Math.max(1, start), Math.max(1, start + 1)]);
+      } else {
+        current.push([start, start + count - 1]);
+      }
+    }
+  }
+
+  return [...files]
+    .filter(([, ranges]) => ranges.length > 0)
+    .map(([filepath, ranges]) => ({ filepath, lines: new LineRanges(ranges) }));
+}
+
+export interface GitChanges {
+  /** Raíz del repositorio (las rutas del diff son relativas a ella) */
+  root: string;
+  files: FileChanges[];
+}
+
+/**
+ * Cambios del árbol de trabajo de `repo` respecto a `base` (incluye lo que
+ * está en el índice) más, opcionalmente, los archivos sin seguimiento, que
+ * cuentan enteros.
+ */
+export async function gitChanges(repo: string, base = "HEAD", untracked = true): Promise<GitChanges> {
+  if (base.startsWith("-")) {
+    throw new Error(`Revisión base no válida: '${base}'`);
+  }
+
+  const git = async (args: string[]) =>
+    (await run("git", args, { cwd: repo, maxBuffer: 64 * 1024 * 1024, encoding: "utf-8" })).stdout;
+
+  const root = (await git(["rev-parse", "--show-toplevel"])).trim();
+  // Prefijos explícitos: diff.noprefix o diff.mnemonicPrefix cambiarían las rutas
+  const diff = await git([
+    "diff",
+    "--unified=0",
+    "--no-color",
+    "--no-ext-diff",
+    "--src-prefix=a/",
+    "--dst-prefix=b/",
+    base,
+    "--",
+  ]);
+  const files = parseUnifiedDiff(diff, root);
+
+  if (untracked) {
+    const listed = await git(["ls-files", "--others", "--exclude-standard", "--full-name", "-z"]);
+    for (const path of listed.split("\0")) {
+      if (path) files.push({ filepath: resolve(root, path), lines: LineRanges.whole() });
+    }
+  }
+  return { root, files };
+}
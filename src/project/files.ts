@@ -0,0 +1,169 @@
+import * as fs from "fs/promises";
+import { extname, isAbsolute, join, relative, sep } from "path";
+import type { Language } from "../types-report.js";
+
+const LANGUAGE_BY_EXTENSION: Record<string, Language> = {
+  ".ts": "typescript",
+  ".tsx": "typescript",
+  ".mts": "typescript",
+  ".cts": "typescript",
+  ".js": "typescript",
+  ".jsx": "typescript",
+  ".mjs": "typescript",
+  ".cjs": "typescript",
+  ".java": "java",
+  ".vue": "vue",
+};
+
+export const DEFAULT_EXCLUDES = [
+  "**/node_modules/**",
+  "**/.git/**",
+  "**/dist/**",
+  "**/build/**",
+  "**/target/**",
+];
+
+export function detectLanguage(filepath: string): Language | null {
+  if (filepath.endsWith(".d.ts")) return null;
+  return LANGUAGE_BY_EXTENSION[extname(filepath).toLowerCase()] ?? null;
+}
+
+/**
+ * Convierte un glob (`**`, `*`, `?`, `{a,b}`, `[abc]`) en una expresión
+ * regular sobre rutas relativas con separador `/`. Un patrón sin `/` se
+ * aplica a cualquier profundidad, como en .gitignore.
+ */
+export function compileGlob(pattern: string): RegExp {
+  let glob = pattern.replace(/\\/g, "/").replace(/^\.\//, "");
+  if (!glob.includes("/")) glob = `**/${glob}`;
+
+  let regex = "";
+  let inGroup = false;
+
+  for (let i = 0; i < glob.length; i++) {
+    const char = glob[i];
+
+    if (char === "*") {
+      if (glob[i + 1] === "*") {
+        const atSegmentStart = i === 0 || glob[i - 1] === "/";
+        const atSegmentEnd = glob[i + 2] === "/" || i + 2 === glob.length;
+        if (atSegmentStart && atSegmentEnd) {
+          if (glob[i + 2] === "/") {
+            regex += "(?:.*/)?";
+            i += 2;
+          } else {
+            regex += ".*";
+            i += 1;
+          }
+          continue;
+        }
+      }
+      regex += "[^/]*";
+    } else if (char === "?") {
+      regex += "[^/]";
+    } else if (char === "{") {
+      inGroup = true;
+      regex += "(?:";
+    } else if (char === "}" && inGroup) {
+      inGroup = false;
+      regex += ")";
+    } else if (char === "," && inGroup) {
+      regex += "|";
+    } else if (char === "[") {
+      const close = glob.indexOf("]", i + 1);
+      if (close === -1) {
+        regex += "\\[";
+      } else {
+        const body = glob.slice(i + 1, close).replace(/^!/, "^").replace(/\\/g, "\\\\");
+        regex += `[${body}]`;
+        i = close;
+      }
+    } else {
+      regex += char.replace(/[.+^$()|\\]/g, "\\$&");
+    }
+  }
+
+  return new RegExp(`^${regex}$`);
+}
+
+export interface FileDiscoveryOptions {
+  include?: string[];
+  exclude?: string[];
+}
+
+const toPosix = (path: string) => (sep === "/" ? path : path.split(sep).join("/"));
+
+function compileFilters(options: FileDiscoveryOptions) {
+  const include = (options.include ?? []).map(compileGlob);
+  const exclude = [...DEFAULT_EXCLUDES, ...(options.exclude ?? [])].map(compileGlob);
+  return {
+    isExcluded: (rel: string) => exclude.some((re) => re.test(rel)),
+    isIncluded: (rel: string) => include.length === 0 || include.some((re) => re.test(rel)),
+  };
+}
+
+/**
+ * Mismo criterio que discoverFiles para una lista de rutas ya conocida (por
+ * ejemplo, las de un diff). Las rutas fuera de `root` no pasan.
+ */
+export function createFileFilter(root: string, options: FileDiscoveryOptions = {}): (filepath: string) => boolean {
+  const { isExcluded, isIncluded } = compileFilters(options);
+  return (filepath) => {
+    const rel = toPosix(relative(root, filepath));
+    if (rel.startsWith("../") || rel === ".." || isAbsolute(rel)) return false;
+    return detectLanguage(filepath) !== null && !isExcluded(rel) && isIncluded(rel);
+  };
+}
+
+export interface DiscoveryWalk {
+  /** Subdirectorio de `root` por el que empezar; los filtros siguen siendo relativos a `root` */
+  from?: string;
+  /** Se llama con cada directorio recorrido (no excluido), empezando por el inicial */
+  onDirectory?: (dir: string) => void;
+}
+
+/**
+ * Recorre `root` y devuelve de forma perezosa las rutas de archivos con un
+ * lenguaje soportado que cumplen los filtros include/exclude.
+ */
+export async function* discoverFiles(
+  root: string,
+  options: FileDiscoveryOptions = {},
+  walk: DiscoveryWalk = {}
+): AsyncGenerator<string> {
+  const { isExcluded, isIncluded } = compileFilters(options);
+
+  const stack: string[] = [walk.from ?? root];
+  while (stack.length > 0) {
+    const dir = stack.pop()!;
+    let entries;
+    try {
+      entries = await fs.readdir(dir, { withFileTypes: true });
+    } catch {
+      continue;
+    }
+    walk.onDirectory?.(dir);
+
+    entries.sort((a, b) => (a.name < b.name ? -1 : a.name > b.name ? 1 : 0));
+    const subdirs: string[] = [];
+
+    for (const entry of entries) {
+      const fullPath = join(dir, entry.name);
+      const rel = toPosix(relative(root, fullPath));
+
+      if (entry.isDirectory()) {
+        if (!isExcluded(`${rel}/`)) subdirs.push(fullPath);
+        continue;
+      }
+
+      if (!entry.isFile() || !detectLanguage(entry.name)) continue;
+      if (isExcluded(rel)) continue;
+      if (!isIncluded(rel)) continue;
+
+      yield fullPath;
+    }
+
+    // Apilar en orden inverso para recorrer los subdirectorios alfabéticamente
+    for (let i = subdirs.length - 1; i >= 0; i--) stack.push(subdirs[i]);
+  }
+}
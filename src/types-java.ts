@@ -78,7 +78,18 @@ export interface JavaPatternRule {
   confidence?: "low" | "medium" | "high";
 }
 
+/**
+ * "outline" parsea solo las declaraciones, con los cuerpos de los métodos en
+ * blanco; "full" parsea el archivo entero.
+ */
+export type JavaParseMode = "outline" | "full";
+
 export interface JavaPatternConfig {
+  /**
+   * Fuerza un modo en todas las herramientas. Sin él, las de un solo archivo
+   * usan "full" y los recorridos de directorio, proyecto y cambios "outline".
+   */
+  parseMode?: JavaParseMode;
   rules: {
     // Creational Patterns
     creational?: {
@@ -158,3 +169,48 @@ export interface JavaPatternViolation {
   suggestion?: string;
   evidence?: string[];
 }
+
+export interface ClassInfo {
+  name: string;
+  isInterface: boolean;
+  isAbstract: boolean;
+  methods: MethodInfo[];
+  fields: FieldInfo[];
+  implements: string[];
+  extends: string | null;
+  annotations: string[];
+  modifiers: string[];
+  /** Líneas que ocupa la declaración (para acotar la validación de cambios) */
+  startLine?: number;
+  endLine?: number;
+}
+
+export interface MethodInfo {
+  name: string;
+  isAbstract: boolean;
+  isStatic: boolean;
+  isPrivate: boolean;
+  isPublic: boolean;
+  returnType: string | null;
+  parameters: ParameterInfo[];
+  annotations: string[];
+}
+
+export interface FieldInfo {
+  name: string;
+  type: string;
+  isStatic: boolean;
+  isFinal: boolean;
+  isPrivate: boolean;
+  modifiers: string[];
+}
+
+export interface ParameterInfo {
+  name: string;
+  type: string;
+}
+
+export interface JavaAnalysisResult {
+  classes: ClassInfo[];
+  violations: JavaPatternViolation[];
+}
@@ -0,0 +1,45 @@
+import type { ClassInfo } from "./types-java.js";
+import type { FileFingerprints } from "./validators/clones/Fingerprints.js";
+
+export type Language = "typescript" | "java" | "vue";
+
+export type ReportSeverity = "error" | "warning" | "info";
+
+export interface ReportedViolation {
+  rule: string;
+  severity: ReportSeverity;
+  message: string;
+  line?: number;
+  column?: number;
+}
+
+export interface FileReport {
+  filepath: string;
+  language: Language;
+  violations: ReportedViolation[];
+  detections?: number;
+  error?: string;
+  durationMs?: number;
+  /** sha1 del contenido validado */
+  contentHash?: string;
+  /** Huella de la configuración del lenguaje con la que se validó */
+  configFingerprint?: string;
+  /** Resumen de clases (solo Java), para el índice de proyecto */
+  classes?: ClassInfo[];
+  /** Huellas de clones (solo TypeScript/JavaScript), para el índice de proyecto */
+  fingerprints?: FileFingerprints;
+}
+
+export interface DirectoryReport {
+  root: string;
+  files: number;
+  filesWithViolations: number;
+  errors: number;
+  durationMs: number;
+  workers: number;
+  byLanguage: Record<Language, number>;
+  bySeverity: Record<ReportSeverity, number>;
+  byRule: Record<string, number>;
+  /** Archivos con más violaciones, de mayor a menor y acotados por `maxReports` */
+  reports: FileReport[];
+}
@@ -123,6 +123,11 @@ export interface VuePatternViolation {
   suggestion?: string;
 }
 
+export interface VueValidationResult {
+  detections: VuePatternDetection[];
+  violations: VuePatternViolation[];
+}
+
 export interface VueComponentInfo {
   name: string;
   version: VueVersion;
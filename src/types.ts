@@ -32,6 +32,8 @@ export interface CodeSmellRules {
   enabled: boolean;
   severity: Severity;
   detectDuplication: boolean;
+  /** Tokens mínimos de un bloque duplicado (por defecto 50) */
+  minDuplicationTokens?: number;
   detectLongMethods: boolean;
   detectGodClasses: boolean;
   detectDeadCode: boolean;
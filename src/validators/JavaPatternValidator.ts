@@ -5,74 +5,236 @@ import type {
   JavaPatternDetection,
   JavaPatternName,
   JavaPatternCategory,
+  JavaAnalysisResult,
+  JavaParseMode,
+  ClassInfo,
+  MethodInfo,
+  FieldInfo,
+  ParameterInfo,
 } from "../types-java.js";
-
-interface ClassInfo {
-  name: string;
-  isInterface: boolean;
-  isAbstract: boolean;
-  methods: MethodInfo[];
-  fields: FieldInfo[];
-  implements: string[];
-  extends: string | null;
-  annotations: string[];
-  modifiers: string[];
-}
-
-interface MethodInfo {
-  name: string;
-  isAbstract: boolean;
-  isStatic: boolean;
-  isPrivate: boolean;
-  isPublic: boolean;
-  returnType: string | null;
-  parameters: ParameterInfo[];
-  annotations: string[];
-}
-
-interface FieldInfo {
-  name: string;
-  type: string;
-  isStatic: boolean;
-  isFinal: boolean;
-  isPrivate: boolean;
-  modifiers: string[];
+import type { JavaProjectIndex } from "../project/JavaProjectIndex.js";
+import type { LineRanges } from "../project/changes.js";
+import {
+  isController,
+  isFrontController,
+  isModel,
+  isServiceLocator,
+  isView,
+} from "./java/JavaRoles.js";
+import { buildClassFeatures, ClassFeatures, hasMethodNameContaining } from "./java/ClassFeatures.js";
+import { ClassDetector, DetectorDispatch } from "./java/DetectorDispatch.js";
+import { compileJavaPlan, JavaExecutionPlan } from "./java/JavaPlan.js";
+import { outlineJavaSource } from "./java/JavaOutline.js";
+import { metrics } from "../metrics.js";
+
+/**
+ * Estado de una única invocación de validateCode. Se crea por llamada para
+ * que el validador no tenga estado mutable compartido y una misma instancia
+ * pueda atender validaciones concurrentes.
+ */
+interface AnalysisContext {
+  readonly classes: ClassInfo[];
+  readonly detections: JavaPatternDetection[];
+  /** Líneas modificadas: solo se analizan las clases que las tocan */
+  readonly changes: LineRanges | null;
 }
 
-interface ParameterInfo {
-  name: string;
-  type: string;
+interface JavaClassDetector extends ClassDetector<AnalysisContext> {
+  readonly pattern: JavaPatternName;
 }
 
 export class JavaPatternValidator {
-  private config: JavaPatternConfig;
-  private classes: ClassInfo[] = [];
-  private detections: JavaPatternDetection[] = [];
+  private readonly config: JavaPatternConfig;
+
+  /**
+   * Detectores por clase en orden de fase y, dentro de cada fase, en el orden
+   * histórico (el orden de las detecciones forma parte de la salida). Los
+   * triggers son condiciones necesarias de cada detector: si ninguna se
+   * cumple, el detector no podría detectar nada y no se invoca. Los de
+   * patrones deshabilitados ni siquiera entran en el dispatch (ver compile()).
+   */
+  private readonly classDetectors: readonly JavaClassDetector[] = [
+    { pattern: "singleton", phase: "creational", triggers: ["ctor:private"], detect: (ctx, cls, f) => this.detectSingleton(ctx, cls, f) },
+    { pattern: "builder", phase: "creational", triggers: ["prefix:with", "prefix:set"], detect: (ctx, cls) => this.detectBuilder(ctx, cls) },
+    { pattern: "factory-method", phase: "creational", triggers: ["method:static-public"], detect: (ctx, cls) => this.detectFactoryMethod(ctx, cls) },
+    { pattern: "abstract-factory", phase: "creational", triggers: ["interface", "abstract"], detect: (ctx, cls, f) => this.detectAbstractFactory(ctx, cls, f) },
+    { pattern: "prototype", phase: "creational", triggers: ["implements:Cloneable"], detect: (ctx, cls) => this.detectPrototype(ctx, cls) },
+
+    { pattern: "adapter", phase: "structural", triggers: ["name:adapter", "name:wrapper"], detect: (ctx, cls) => this.detectAdapter(ctx, cls) },
+    { pattern: "decorator", phase: "structural", triggers: ["name:decorator", "extends"], detect: (ctx, cls, f) => this.detectDecorator(ctx, cls, f) },
+    { pattern: "facade", phase: "structural", triggers: ["name:facade", "field:instance"], detect: (ctx, cls, f) => this.detectFacade(ctx, cls, f) },
+    { pattern: "proxy", phase: "structural", triggers: ["name:proxy"], detect: (ctx, cls) => this.detectProxy(ctx, cls) },
+    { pattern: "composite", phase: "structural", triggers: ["field:collection"], detect: (ctx, cls, f) => this.detectComposite(ctx, cls, f) },
+    { pattern: "bridge", phase: "structural", triggers: ["abstract"], detect: (ctx, cls, f) => this.detectBridge(ctx, cls, f) },
+    { pattern: "flyweight", phase: "structural", triggers: ["field:static"], detect: (ctx, cls) => this.detectFlyweight(ctx, cls) },
+
+    { pattern: "observer", phase: "behavioral", triggers: ["field:collection"], detect: (ctx, cls, f) => this.detectObserver(ctx, cls, f) },
+    { pattern: "strategy", phase: "behavioral", triggers: ["interface", "field"], detect: (ctx, cls, f) => this.detectStrategy(ctx, cls, f) },
+    { pattern: "template-method", phase: "behavioral", triggers: ["abstract"], detect: (ctx, cls) => this.detectTemplateMethod(ctx, cls) },
+    { pattern: "command", phase: "behavioral", triggers: ["method:execute"], detect: (ctx, cls, f) => this.detectCommand(ctx, cls, f) },
+    { pattern: "state", phase: "behavioral", triggers: ["interface", "field"], detect: (ctx, cls, f) => this.detectState(ctx, cls, f) },
+    { pattern: "iterator", phase: "behavioral", triggers: ["implements:Iterator", "method:next"], detect: (ctx, cls, f) => this.detectIterator(ctx, cls, f) },
+    { pattern: "chain-of-responsibility", phase: "behavioral", triggers: ["field"], detect: (ctx, cls, f) => this.detectChainOfResponsibility(ctx, cls, f) },
+    { pattern: "mediator", phase: "behavioral", triggers: ["name:mediator"], detect: (ctx, cls, f) => this.detectMediator(ctx, cls, f) },
+    { pattern: "memento", phase: "behavioral", triggers: ["name:memento"], detect: (ctx, cls, f) => this.detectMemento(ctx, cls, f) },
+    { pattern: "visitor", phase: "behavioral", triggers: ["name:visitor", "method:accept"], detect: (ctx, cls, f) => this.detectVisitor(ctx, cls, f) },
+    { pattern: "interpreter", phase: "behavioral", triggers: ["name:expression"], detect: (ctx, cls, f) => this.detectInterpreter(ctx, cls, f) },
+
+    { pattern: "dao", phase: "enterprise", triggers: ["name:dao", "name:dataaccess"], detect: (ctx, cls) => this.detectDAO(ctx, cls) },
+    { pattern: "repository", phase: "enterprise", triggers: ["name:repository", "extends"], detect: (ctx, cls) => this.detectRepository(ctx, cls) },
+    { pattern: "dto", phase: "enterprise", triggers: ["field"], detect: (ctx, cls, f) => this.detectDTO(ctx, cls, f) },
+    { pattern: "service-layer", phase: "enterprise", triggers: ["name:service", "annotation:Service"], detect: (ctx, cls, f) => this.detectServiceLayer(ctx, cls, f) },
+    { pattern: "value-object", phase: "enterprise", triggers: ["method:equals"], detect: (ctx, cls, f) => this.detectValueObject(ctx, cls, f) },
+    { pattern: "data-mapper", phase: "enterprise", triggers: ["name:mapper"], detect: (ctx, cls) => this.detectDataMapper(ctx, cls) },
+    { pattern: "active-record", phase: "enterprise", triggers: ["method:save"], detect: (ctx, cls) => this.detectActiveRecord(ctx, cls) },
+
+    {
+      pattern: "dependency-injection",
+      phase: "modern",
+      triggers: ["annotation:Autowired", "annotation:Inject", "fieldModifier:Autowired", "ctor:params"],
+      detect: (ctx, cls, f) => this.detectDependencyInjection(ctx, cls, f),
+    },
+    {
+      pattern: "circuit-breaker",
+      phase: "modern",
+      triggers: ["annotation:CircuitBreaker", "annotation:HystrixCommand", "name:circuitbreaker", "field"],
+      detect: (ctx, cls, f) => this.detectCircuitBreaker(ctx, cls, f),
+    },
+    { pattern: "event-sourcing", phase: "modern", triggers: ["name:event"], detect: (ctx, cls, f) => this.detectEventSourcing(ctx, cls, f) },
+    { pattern: "cqrs", phase: "modern", triggers: ["name:command", "name:query"], detect: (ctx, cls, f) => this.detectCQRS(ctx, cls, f) },
+  ];
+
+  private compiled: { plan: JavaExecutionPlan; dispatch: DetectorDispatch<AnalysisContext> } | null = null;
 
   constructor(config: JavaPatternConfig) {
     this.config = config;
   }
 
+  /** Reglas habilitadas; la configuración se compila en el primer uso. */
+  private get plan(): JavaExecutionPlan {
+    return this.compile().plan;
+  }
+
+  /** Dispatch podado: solo contiene detectores de patrones habilitados. */
+  private get dispatch(): DetectorDispatch<AnalysisContext> {
+    return this.compile().dispatch;
+  }
+
+  private compile(): { plan: JavaExecutionPlan; dispatch: DetectorDispatch<AnalysisContext> } {
+    if (!this.compiled) {
+      const plan = compileJavaPlan(this.config);
+      const dispatch = new DetectorDispatch(this.classDetectors.filter(d => plan.rules.has(d.pattern)));
+      this.compiled = { plan, dispatch };
+    }
+    return this.compiled;
+  }
+
+  getConfig(): JavaPatternConfig {
+    return this.config;
+  }
+
   validateCode(code: string, filename: string = "source.java"): JavaPatternViolation[] {
+    return this.analyze(code, filename).violations;
+  }
+
+  /**
+   * Valida el código y devuelve además el resumen de clases extraído, que el
+   * índice de proyecto reutiliza sin volver a parsear. Con `changes`, los
+   * detectores solo corren sobre las clases que tocan líneas modificadas.
+   */
+  analyze(
+    code: string,
+    filename: string = "source.java",
+    changes: LineRanges | null = null,
+    parseMode: JavaParseMode = "full"
+  ): JavaAnalysisResult {
     try {
-      const cst = parse(code);
-      this.extractClassInfo(cst);
-      this.detectAllPatterns();
-      return this.generateViolations(filename);
+      const cst = this.parseDeclarations(code, this.config.parseMode ?? parseMode);
+
+      let start = metrics.start();
+      const ctx: AnalysisContext = {
+        classes: this.extractClassInfo(cst),
+        detections: [],
+        changes,
+      };
+      metrics.end("java.extractClassInfo", start);
+
+      this.detectAllPatterns(ctx);
+
+      start = metrics.start();
+      const violations = this.generateViolations(ctx.detections, filename).filter(this.touchedViolation(ctx));
+      metrics.end("java.generateViolations", start, violations.length);
+      violations.forEach(v => metrics.count(`java.pattern.${v.pattern}`, 1));
+
+      return { classes: ctx.classes, violations };
     } catch (error) {
-      return [{
-        rule: "parse-error",
-        pattern: "singleton" as JavaPatternName,
-        category: "creational" as JavaPatternCategory,
-        severity: "error",
-        message: `Error al parsear código Java: ${error instanceof Error ? error.message : String(error)}`,
-      }];
+      return {
+        classes: [],
+        violations: [{
+          rule: "parse-error",
+          pattern: "singleton" as JavaPatternName,
+          category: "creational" as JavaPatternCategory,
+          severity: "error",
+          message: `Error al parsear código Java: ${error instanceof Error ? error.message : String(error)}`,
+        }],
+      };
     }
   }
 
-  private extractClassInfo(cst: any): void {
-    this.classes = [];
-    
+  /**
+   * Ningún detector mira dentro de los cuerpos de los métodos, así que los
+   * recorridos de muchos archivos parsean solo el esquema. Si el esquema no
+   * parsea (una construcción que la pasada de llaves no entiende), se repite
+   * con el código completo: el resultado nunca es peor que el del parse
+   * completo. En cambio, un error de sintaxis dentro de un cuerpo no se
+   * informa como parse-error: por eso las herramientas de un solo archivo,
+   * donde ese error es lo que se quiere ver, parsean completo.
+   */
+  private parseDeclarations(code: string, parseMode: JavaParseMode): ReturnType<typeof parse> {
+    let source = code;
+    if (parseMode === "outline") {
+      const start = metrics.start();
+      source = outlineJavaSource(code);
+      metrics.end("java.outline", start);
+    }
+
+    const start = metrics.start();
+    try {
+      return parse(source);
+    } catch (error) {
+      if (source === code) throw error;
+      metrics.count("java.outline.fallback", 1);
+      return parse(code);
+    } finally {
+      metrics.end("java.parse", start);
+    }
+  }
+
+  /**
+   * Detecta los patrones arquitectónicos sobre el índice de todo el proyecto,
+   * donde controllers, modelos y vistas suelen estar en archivos distintos.
+   */
+  validateProject(index: JavaProjectIndex): JavaPatternViolation[] {
+    const ctx: AnalysisContext = { classes: [], detections: [], changes: null };
+    this.detectMVC(ctx, index.getRole("controller"), index.getRole("model"), index.getRole("view"));
+    this.detectFrontController(ctx, index.getRole("frontController"));
+    this.detectServiceLocator(ctx, index.getRole("serviceLocator"));
+    return this.generateViolations(ctx.detections, index.root);
+  }
+
+  private isTouched(ctx: AnalysisContext, cls: ClassInfo): boolean {
+    if (!ctx.changes || cls.startLine === undefined) return true;
+    return ctx.changes.overlaps(cls.startLine, cls.endLine ?? cls.startLine);
+  }
+
+  /** Descarta las violaciones de clases que el cambio no toca. */
+  private touchedViolation(ctx: AnalysisContext): (violation: JavaPatternViolation) => boolean {
+    if (!ctx.changes) return () => true;
+    const untouched = new Set(ctx.classes.filter((cls) => !this.isTouched(ctx, cls)).map((cls) => cls.name));
+    return (violation) => !violation.className || !untouched.has(violation.className);
+  }
+
+  private extractClassInfo(cst: any): ClassInfo[] {
     const visitor = new class extends BaseJavaCstVisitorWithDefaults {
       classes: ClassInfo[] = [];
       currentClass: ClassInfo | null = null;
@@ -89,6 +251,7 @@ export class JavaPatternValidator {
           extends: this.extractExtends(ctx),
           annotations: this.extractAnnotations(ctx),
           modifiers: this.extractModifiers(ctx),
+          ...this.extractSpan(ctx),
         };
 
         this.currentClass = classInfo;
@@ -109,6 +272,7 @@ export class JavaPatternValidator {
           extends: this.extractExtendsInterface(ctx),
           annotations: this.extractAnnotations(ctx),
           modifiers: [],
+          ...this.extractSpan(ctx),
         };
 
         this.currentClass = interfaceInfo;
@@ -168,6 +332,22 @@ export class JavaPatternValidator {
         super.fieldDeclaration(ctx);
       }
 
+      /** Primera y última línea de los hijos directos de la declaración. */
+      private extractSpan(ctx: any): Pick<ClassInfo, "startLine" | "endLine"> {
+        let startLine = Infinity;
+        let endLine = 0;
+        for (const children of Object.values(ctx) as any[][]) {
+          for (const child of children) {
+            // Nodos CST (location) o tokens (startLine/endLine)
+            const loc = child?.location ?? child;
+            if (typeof loc?.startLine !== "number") continue;
+            startLine = Math.min(startLine, loc.startLine);
+            endLine = Math.max(endLine, loc.endLine ?? loc.startLine);
+          }
+        }
+        return endLine > 0 ? { startLine, endLine } : {};
+      }
+
       private extractIdentifier(node: any): string {
         if (!node) return "Unknown";
         if (Array.isArray(node) && node[0]?.children?.Identifier) {
@@ -383,43 +563,62 @@ export class JavaPatternValidator {
     };
 
     visitor.visit(cst);
-    this.classes = visitor.classes;
+    return visitor.classes;
   }
 
-  private detectAllPatterns(): void {
-    this.detections = [];
+  private detectAllPatterns(ctx: AnalysisContext): void {
+    const dispatch = this.dispatch;
+
+    let features: ClassFeatures[] = [];
+    let selected: Uint8Array[] = [];
+    if (dispatch.size > 0) {
+      const start = metrics.start();
+      features = ctx.classes.map(buildClassFeatures);
+      // Una clase que el cambio no toca se queda sin detectores
+      selected = ctx.classes.map((cls, i) =>
+        this.isTouched(ctx, cls) ? dispatch.select(cls, features[i]) : new Uint8Array(dispatch.size)
+      );
+      metrics.end("java.features", start);
+    }
 
-    this.detectCreationalPatterns();
-    this.detectStructuralPatterns();
-    this.detectBehavioralPatterns();
-    this.detectEnterprisePatterns();
-    this.detectArchitecturalPatterns();
-    this.detectModernPatterns();
-  }
+    let invoked = 0;
+    const runPhase = (phase: string) => {
+      if (!dispatch.hasPhase(phase)) return;
+      this.timePhase(ctx, `java.detect.${phase}`, () => {
+        ctx.classes.forEach((cls, i) => {
+          invoked += dispatch.run(phase, ctx, cls, features[i], selected[i]);
+        });
+      });
+    };
 
-  private detectCreationalPatterns(): void {
-    this.classes.forEach(cls => {
-      this.detectSingleton(cls);
-      this.detectBuilder(cls);
-      this.detectFactoryMethod(cls);
-      this.detectAbstractFactory(cls);
-      this.detectPrototype(cls);
-    });
+    runPhase("creational");
+    runPhase("structural");
+    runPhase("behavioral");
+    runPhase("enterprise");
+    this.timePhase(ctx, "java.detect.architectural", () => this.detectArchitecturalPatterns(ctx));
+    runPhase("modern");
+
+    metrics.count("java.detectors.invoked", invoked);
+    metrics.count("java.detectors.skipped", dispatch.size * ctx.classes.length - invoked);
   }
 
-  private detectSingleton(cls: ClassInfo): void {
-    if (!this.config.rules.creational?.singleton?.enabled) return;
+  private timePhase(ctx: AnalysisContext, name: string, run: () => void): void {
+    const before = ctx.detections.length;
+    const start = metrics.start();
+    run();
+    metrics.end(name, start, ctx.detections.length - before);
+  }
 
-    const hasPrivateConstructor = cls.methods.some(m => m.name === cls.name && m.isPrivate);
-    const hasStaticInstance = cls.fields.some(f => f.isStatic && f.isFinal && f.type === cls.name);
+  private detectSingleton(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const hasStaticInstance = f.staticFinalFieldTypes.has(cls.name);
     const hasGetInstanceMethod = cls.methods.some(m => 
       (m.name.toLowerCase().includes("instance") || m.name.toLowerCase().includes("getinstance")) && 
       m.isStatic && 
       m.isPublic
     );
 
-    if (hasPrivateConstructor && (hasStaticInstance || hasGetInstanceMethod)) {
-      this.detections.push({
+    if (f.hasPrivateConstructor && (hasStaticInstance || hasGetInstanceMethod)) {
+      ctx.detections.push({
         pattern: "singleton",
         category: "creational",
         detected: true,
@@ -430,40 +629,35 @@ export class JavaPatternValidator {
           hasStaticInstance ? "Campo estático de tipo propio" : "",
           hasGetInstanceMethod ? "Método getInstance() estático" : "",
         ].filter(Boolean),
-        antipatterns: this.detectSingletonAntipatterns(cls),
+        antipatterns: this.detectSingletonAntipatterns(cls, f),
       });
     }
   }
 
-  private detectSingletonAntipatterns(cls: ClassInfo): string[] | undefined {
-    if (!this.config.rules.creational?.singleton?.detectAntipatterns) return undefined;
+  private detectSingletonAntipatterns(cls: ClassInfo, f: ClassFeatures): string[] | undefined {
+    if (!this.plan.rules.get("singleton")?.detectAntipatterns) return undefined;
 
     const antipatterns: string[] = [];
     
-    const staticInstance = cls.fields.find(f => f.isStatic && f.type === cls.name);
+    const staticInstance = cls.fields.find(field => field.isStatic && field.type === cls.name);
     if (staticInstance && !staticInstance.isFinal) {
       antipatterns.push("Instancia estática no es final (no thread-safe)");
     }
 
-    const hasCloneMethod = cls.methods.some(m => m.name === "clone");
-    if (!hasCloneMethod) {
+    if (!f.methodNames.has("clone")) {
       antipatterns.push("Debería override clone() para prevenir clonación");
     }
 
-    const hasSerializable = cls.implements.includes("Serializable");
-    const hasReadResolve = cls.methods.some(m => m.name === "readResolve");
-    if (hasSerializable && !hasReadResolve) {
+    if (f.interfaces.has("Serializable") && !f.methodNames.has("readResolve")) {
       antipatterns.push("Serializable sin readResolve() puede romper singleton");
     }
 
     return antipatterns.length > 0 ? antipatterns : undefined;
   }
 
-  private detectBuilder(cls: ClassInfo): void {
-    if (!this.config.rules.creational?.builder?.enabled) return;
-
+  private detectBuilder(ctx: AnalysisContext, cls: ClassInfo): void {
     const hasBuilderInnerClass = cls.name.includes("Builder") || 
-      this.classes.some(c => c.name === `${cls.name}Builder` || c.name.includes(`${cls.name}.Builder`));
+      ctx.classes.some(c => c.name === `${cls.name}Builder` || c.name.includes(`${cls.name}.Builder`));
     
     const hasBuildMethod = cls.methods.some(m => m.name === "build" && m.returnType !== "void");
     const hasFluentMethods = cls.methods.filter(m => 
@@ -472,7 +666,7 @@ export class JavaPatternValidator {
     ).length >= 2;
 
     if ((hasBuilderInnerClass || hasBuildMethod) && hasFluentMethods) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "builder",
         category: "creational",
         detected: true,
@@ -487,9 +681,7 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectFactoryMethod(cls: ClassInfo): void {
-    if (!this.config.rules.creational?.factoryMethod?.enabled) return;
-
+  private detectFactoryMethod(ctx: AnalysisContext, cls: ClassInfo): void {
     const factoryMethods = cls.methods.filter(m => 
       m.isStatic && 
       m.isPublic &&
@@ -501,7 +693,7 @@ export class JavaPatternValidator {
     );
 
     if (factoryMethods.length > 0) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "factory-method",
         category: "creational",
         detected: true,
@@ -515,16 +707,14 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectAbstractFactory(cls: ClassInfo): void {
-    if (!this.config.rules.creational?.abstractFactory?.enabled) return;
-
+  private detectAbstractFactory(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
     if (cls.isInterface || cls.isAbstract) {
-      const createMethods = cls.methods.filter(m => 
-        m.name.toLowerCase().includes("create") && m.returnType !== "void"
+      const createMethods = cls.methods.filter((m, i) => 
+        f.lowerMethodNames[i].includes("create") && m.returnType !== "void"
       );
 
       if (createMethods.length >= 2) {
-        this.detections.push({
+        ctx.detections.push({
           pattern: "abstract-factory",
           category: "creational",
           detected: true,
@@ -540,14 +730,12 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectPrototype(cls: ClassInfo): void {
-    if (!this.config.rules.creational?.prototype?.enabled) return;
-
+  private detectPrototype(ctx: AnalysisContext, cls: ClassInfo): void {
     const implementsCloneable = cls.implements.includes("Cloneable");
     const hasCloneMethod = cls.methods.some(m => m.name === "clone" && m.isPublic);
 
     if (implementsCloneable && hasCloneMethod) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "prototype",
         category: "creational",
         detected: true,
@@ -561,21 +749,7 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectStructuralPatterns(): void {
-    this.classes.forEach(cls => {
-      this.detectAdapter(cls);
-      this.detectDecorator(cls);
-      this.detectFacade(cls);
-      this.detectProxy(cls);
-      this.detectComposite(cls);
-      this.detectBridge(cls);
-      this.detectFlyweight(cls);
-    });
-  }
-
-  private detectAdapter(cls: ClassInfo): void {
-    if (!this.config.rules.structural?.adapter?.enabled) return;
-
+  private detectAdapter(ctx: AnalysisContext, cls: ClassInfo): void {
     const hasAdapter = cls.name.toLowerCase().includes("adapter") || 
       cls.name.toLowerCase().includes("wrapper");
     
@@ -583,7 +757,7 @@ export class JavaPatternValidator {
     const implementsInterface = cls.implements.length > 0;
 
     if (hasAdapter && hasComposition && implementsInterface) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "adapter",
         category: "structural",
         detected: true,
@@ -598,15 +772,13 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectDecorator(cls: ClassInfo): void {
-    if (!this.config.rules.structural?.decorator?.enabled) return;
-
-    const hasDecorator = cls.name.toLowerCase().includes("decorator");
+  private detectDecorator(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const hasDecorator = f.lowerName.includes("decorator");
     const extendsBase = cls.extends !== null;
-    const hasComponentField = cls.fields.some(f => !f.isStatic);
+    const hasComponentField = f.instanceFieldCount > 0;
 
     if ((hasDecorator || (extendsBase && hasComponentField)) && cls.implements.length === 0) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "decorator",
         category: "structural",
         detected: true,
@@ -621,15 +793,13 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectFacade(cls: ClassInfo): void {
-    if (!this.config.rules.structural?.facade?.enabled) return;
-
-    const hasFacade = cls.name.toLowerCase().includes("facade");
-    const hasMultipleFields = cls.fields.filter(f => !f.isStatic).length >= 2;
-    const hasPublicMethods = cls.methods.filter(m => m.isPublic && !m.isStatic).length >= 2;
+  private detectFacade(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const hasFacade = f.lowerName.includes("facade");
+    const hasMultipleFields = f.instanceFieldCount >= 2;
+    const hasPublicMethods = f.publicInstanceMethodCount >= 2;
 
     if (hasFacade || (hasMultipleFields && hasPublicMethods)) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "facade",
         category: "structural",
         detected: true,
@@ -644,15 +814,13 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectProxy(cls: ClassInfo): void {
-    if (!this.config.rules.structural?.proxy?.enabled) return;
-
+  private detectProxy(ctx: AnalysisContext, cls: ClassInfo): void {
     const hasProxy = cls.name.toLowerCase().includes("proxy");
     const implementsInterface = cls.implements.length > 0;
     const hasRealSubjectField = cls.fields.some(f => !f.isStatic && f.isPrivate);
 
     if (hasProxy && implementsInterface && hasRealSubjectField) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "proxy",
         category: "structural",
         detected: true,
@@ -667,17 +835,12 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectComposite(cls: ClassInfo): void {
-    if (!this.config.rules.structural?.composite?.enabled) return;
-
-    const hasCollectionField = cls.fields.some(f => 
-      f.type.includes("List") || f.type.includes("Set") || f.type.includes("Collection")
-    );
-    const hasAddMethod = cls.methods.some(m => m.name.toLowerCase().includes("add"));
-    const hasRemoveMethod = cls.methods.some(m => m.name.toLowerCase().includes("remove"));
+  private detectComposite(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const hasAddMethod = hasMethodNameContaining(f, "add");
+    const hasRemoveMethod = hasMethodNameContaining(f, "remove");
 
-    if (hasCollectionField && hasAddMethod && hasRemoveMethod) {
-      this.detections.push({
+    if (f.hasCollectionField && hasAddMethod && hasRemoveMethod) {
+      ctx.detections.push({
         pattern: "composite",
         category: "structural",
         detected: true,
@@ -691,15 +854,11 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectBridge(cls: ClassInfo): void {
-    if (!this.config.rules.structural?.bridge?.enabled) return;
-
-    const hasImplementationField = cls.fields.some(f => 
-      f.type.toLowerCase().includes("impl") || f.type.toLowerCase().includes("implementation")
-    );
+  private detectBridge(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const hasImplementationField = f.lowerFieldTypes.some(type => type.includes("impl"));
     
     if (cls.isAbstract && hasImplementationField) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "bridge",
         category: "structural",
         detected: true,
@@ -714,9 +873,7 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectFlyweight(cls: ClassInfo): void {
-    if (!this.config.rules.structural?.flyweight?.enabled) return;
-
+  private detectFlyweight(ctx: AnalysisContext, cls: ClassInfo): void {
     const hasStaticCache = cls.fields.some(f => 
       f.isStatic && (f.type.includes("Map") || f.type.includes("HashMap") || f.type.includes("Cache"))
     );
@@ -725,7 +882,7 @@ export class JavaPatternValidator {
     );
 
     if (hasStaticCache && hasGetMethod) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "flyweight",
         category: "structural",
         detected: true,
@@ -739,39 +896,18 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectBehavioralPatterns(): void {
-    this.classes.forEach(cls => {
-      this.detectObserver(cls);
-      this.detectStrategy(cls);
-      this.detectTemplateMethod(cls);
-      this.detectCommand(cls);
-      this.detectState(cls);
-      this.detectIterator(cls);
-      this.detectChainOfResponsibility(cls);
-      this.detectMediator(cls);
-      this.detectMemento(cls);
-      this.detectVisitor(cls);
-      this.detectInterpreter(cls);
-    });
-  }
-
-  private detectObserver(cls: ClassInfo): void {
-    if (!this.config.rules.behavioral?.observer?.enabled) return;
-
-    const hasObserversList = cls.fields.some(f => 
-      (f.type.includes("List") || f.type.includes("Set")) && 
-      (f.name.toLowerCase().includes("observer") || f.name.toLowerCase().includes("listener"))
-    );
-    const hasNotifyMethod = cls.methods.some(m => 
-      m.name.toLowerCase().includes("notify") || m.name.toLowerCase().includes("update")
+  private detectObserver(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const hasObserversList = cls.fields.some(field => 
+      (field.type.includes("List") || field.type.includes("Set")) && 
+      (field.name.toLowerCase().includes("observer") || field.name.toLowerCase().includes("listener"))
     );
-    const hasAddObserver = cls.methods.some(m => 
-      m.name.toLowerCase().includes("add") && 
-      (m.name.toLowerCase().includes("observer") || m.name.toLowerCase().includes("listener"))
+    const hasNotifyMethod = hasMethodNameContaining(f, "notify", "update");
+    const hasAddObserver = f.lowerMethodNames.some(name => 
+      name.includes("add") && (name.includes("observer") || name.includes("listener"))
     );
 
     if (hasObserversList && hasNotifyMethod && hasAddObserver) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "observer",
         category: "behavioral",
         detected: true,
@@ -786,21 +922,15 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectStrategy(cls: ClassInfo): void {
-    if (!this.config.rules.behavioral?.strategy?.enabled) return;
-
+  private detectStrategy(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
     const isStrategyInterface = cls.isInterface && cls.methods.length > 0;
-    const hasStrategyField = cls.fields.some(f => 
-      f.type.toLowerCase().includes("strategy") || f.type.toLowerCase().includes("algorithm")
-    );
-    const hasExecuteMethod = cls.methods.some(m => 
-      m.name.toLowerCase().includes("execute") || 
-      m.name.toLowerCase().includes("perform") ||
-      m.name.toLowerCase().includes("calculate")
+    const hasStrategyField = f.lowerFieldTypes.some(type => 
+      type.includes("strategy") || type.includes("algorithm")
     );
+    const hasExecuteMethod = hasMethodNameContaining(f, "execute", "perform", "calculate");
 
     if (isStrategyInterface || (hasStrategyField && hasExecuteMethod)) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "strategy",
         category: "behavioral",
         detected: true,
@@ -815,9 +945,7 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectTemplateMethod(cls: ClassInfo): void {
-    if (!this.config.rules.behavioral?.templateMethod?.enabled) return;
-
+  private detectTemplateMethod(ctx: AnalysisContext, cls: ClassInfo): void {
     const abstractMethods = cls.methods.filter(m => m.isAbstract);
     const templateMethod = cls.methods.find(m => 
       !m.isAbstract && 
@@ -826,7 +954,7 @@ export class JavaPatternValidator {
     );
 
     if (cls.isAbstract && abstractMethods.length > 0 && templateMethod) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "template-method",
         category: "behavioral",
         detected: true,
@@ -841,15 +969,13 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectCommand(cls: ClassInfo): void {
-    if (!this.config.rules.behavioral?.command?.enabled) return;
-
-    const hasExecuteMethod = cls.methods.some(m => m.name === "execute");
-    const hasUndoMethod = cls.methods.some(m => m.name === "undo");
-    const isCommand = cls.name.toLowerCase().includes("command");
+  private detectCommand(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const hasExecuteMethod = f.methodNames.has("execute");
+    const hasUndoMethod = f.methodNames.has("undo");
+    const isCommand = f.lowerName.includes("command");
 
     if (hasExecuteMethod && (isCommand || hasUndoMethod)) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "command",
         category: "behavioral",
         detected: true,
@@ -864,19 +990,13 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectState(cls: ClassInfo): void {
-    if (!this.config.rules.behavioral?.state?.enabled) return;
-
-    const hasStateField = cls.fields.some(f => 
-      f.type.toLowerCase().includes("state")
-    );
-    const hasChangeStateMethod = cls.methods.some(m => 
-      m.name.toLowerCase().includes("state") || m.name.toLowerCase().includes("transition")
-    );
-    const isStateInterface = cls.isInterface && cls.name.toLowerCase().includes("state");
+  private detectState(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const hasStateField = f.lowerFieldTypes.some(type => type.includes("state"));
+    const hasChangeStateMethod = hasMethodNameContaining(f, "state", "transition");
+    const isStateInterface = cls.isInterface && f.lowerName.includes("state");
 
     if (isStateInterface || (hasStateField && hasChangeStateMethod)) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "state",
         category: "behavioral",
         detected: true,
@@ -891,15 +1011,13 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectIterator(cls: ClassInfo): void {
-    if (!this.config.rules.behavioral?.iterator?.enabled) return;
-
-    const implementsIterator = cls.implements.some(i => i === "Iterator");
-    const hasNextMethod = cls.methods.some(m => m.name === "next");
-    const hasHasNextMethod = cls.methods.some(m => m.name === "hasNext");
+  private detectIterator(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const implementsIterator = f.interfaces.has("Iterator");
+    const hasNextMethod = f.methodNames.has("next");
+    const hasHasNextMethod = f.methodNames.has("hasNext");
 
     if (implementsIterator || (hasNextMethod && hasHasNextMethod)) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "iterator",
         category: "behavioral",
         detected: true,
@@ -913,18 +1031,14 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectChainOfResponsibility(cls: ClassInfo): void {
-    if (!this.config.rules.behavioral?.chainOfResponsibility?.enabled) return;
-
-    const hasNextHandler = cls.fields.some(f => 
-      f.type.toLowerCase().includes("handler") || f.name.toLowerCase().includes("next")
-    );
-    const hasHandleMethod = cls.methods.some(m => 
-      m.name.toLowerCase().includes("handle") || m.name.toLowerCase().includes("process")
+  private detectChainOfResponsibility(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const hasNextHandler = cls.fields.some((field, i) => 
+      f.lowerFieldTypes[i].includes("handler") || field.name.toLowerCase().includes("next")
     );
+    const hasHandleMethod = hasMethodNameContaining(f, "handle", "process");
 
     if (hasNextHandler && hasHandleMethod) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "chain-of-responsibility",
         category: "behavioral",
         detected: true,
@@ -938,19 +1052,12 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectMediator(cls: ClassInfo): void {
-    if (!this.config.rules.behavioral?.mediator?.enabled) return;
-
-    const isMediator = cls.name.toLowerCase().includes("mediator");
-    const hasColleaguesList = cls.fields.some(f => 
-      f.type.includes("List") || f.type.includes("Set") || f.type.includes("Collection")
-    );
-    const hasNotifyMethod = cls.methods.some(m => 
-      m.name.toLowerCase().includes("notify") || m.name.toLowerCase().includes("mediate")
-    );
+  private detectMediator(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const isMediator = f.lowerName.includes("mediator");
+    const hasNotifyMethod = hasMethodNameContaining(f, "notify", "mediate");
 
-    if (isMediator && hasColleaguesList && hasNotifyMethod) {
-      this.detections.push({
+    if (isMediator && f.hasCollectionField && hasNotifyMethod) {
+      ctx.detections.push({
         pattern: "mediator",
         category: "behavioral",
         detected: true,
@@ -965,15 +1072,13 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectMemento(cls: ClassInfo): void {
-    if (!this.config.rules.behavioral?.memento?.enabled) return;
-
-    const isMemento = cls.name.toLowerCase().includes("memento");
-    const hasStateFields = cls.fields.filter(f => f.isPrivate && f.isFinal).length > 0;
-    const hasCaretaker = this.classes.some(c => c.name.toLowerCase().includes("caretaker"));
+  private detectMemento(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const isMemento = f.lowerName.includes("memento");
+    const hasStateFields = f.privateFinalFieldCount > 0;
+    const hasCaretaker = ctx.classes.some(c => c.name.toLowerCase().includes("caretaker"));
 
     if (isMemento && hasStateFields) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "memento",
         category: "behavioral",
         detected: true,
@@ -988,15 +1093,14 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectVisitor(cls: ClassInfo): void {
-    if (!this.config.rules.behavioral?.visitor?.enabled) return;
-
-    const isVisitor = cls.name.toLowerCase().includes("visitor");
-    const hasVisitMethods = cls.methods.filter(m => m.name.startsWith("visit")).length >= 2;
-    const hasAcceptMethod = cls.methods.some(m => m.name === "accept");
+  private detectVisitor(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const isVisitor = f.lowerName.includes("visitor");
+    const visitMethods = f.methodPrefixes.has("visit") ? cls.methods.filter(m => m.name.startsWith("visit")).length : 0;
+    const hasVisitMethods = visitMethods >= 2;
+    const hasAcceptMethod = f.methodNames.has("accept");
 
     if ((isVisitor && hasVisitMethods) || hasAcceptMethod) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "visitor",
         category: "behavioral",
         detected: true,
@@ -1004,23 +1108,19 @@ export class JavaPatternValidator {
         location: { className: cls.name },
         evidence: [
           isVisitor ? "Nombre incluye 'Visitor'" : "",
-          hasVisitMethods ? `${cls.methods.filter(m => m.name.startsWith("visit")).length} métodos visit()` : "",
+          hasVisitMethods ? `${visitMethods} métodos visit()` : "",
           hasAcceptMethod ? "Método accept()" : "",
         ].filter(Boolean),
       });
     }
   }
 
-  private detectInterpreter(cls: ClassInfo): void {
-    if (!this.config.rules.behavioral?.interpreter?.enabled) return;
-
-    const hasInterpretMethod = cls.methods.some(m => 
-      m.name.toLowerCase().includes("interpret") || m.name.toLowerCase().includes("evaluate")
-    );
-    const isExpression = cls.name.toLowerCase().includes("expression");
+  private detectInterpreter(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const hasInterpretMethod = hasMethodNameContaining(f, "interpret", "evaluate");
+    const isExpression = f.lowerName.includes("expression");
 
     if (hasInterpretMethod && isExpression) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "interpreter",
         category: "behavioral",
         detected: true,
@@ -1034,34 +1134,20 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectEnterprisePatterns(): void {
-    this.classes.forEach(cls => {
-      this.detectDAO(cls);
-      this.detectRepository(cls);
-      this.detectDTO(cls);
-      this.detectServiceLayer(cls);
-      this.detectValueObject(cls);
-      this.detectDataMapper(cls);
-      this.detectActiveRecord(cls);
-    });
-  }
-
-  private detectDAO(cls: ClassInfo): void {
-    if (!this.config.rules.enterprise?.dao?.enabled) return;
-
+  private detectDAO(ctx: AnalysisContext, cls: ClassInfo): void {
     const isDAO = cls.name.toLowerCase().includes("dao") || cls.name.toLowerCase().includes("dataaccess");
     const hasCRUDMethods = this.hasCRUDMethods(cls);
     const hasEntityField = cls.fields.length > 0 || cls.methods.some(m => m.returnType !== "void");
 
     if (isDAO && hasCRUDMethods >= 3) {
       const antipatterns: string[] = [];
-      if (this.config.rules.enterprise?.dao?.detectAntipatterns) {
+      if (this.plan.rules.get("dao")?.detectAntipatterns) {
         if (!cls.isInterface) {
           antipatterns.push("DAO debería ser una interfaz");
         }
       }
 
-      this.detections.push({
+      ctx.detections.push({
         pattern: "dao",
         category: "enterprise",
         detected: true,
@@ -1077,9 +1163,7 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectRepository(cls: ClassInfo): void {
-    if (!this.config.rules.enterprise?.repository?.enabled) return;
-
+  private detectRepository(ctx: AnalysisContext, cls: ClassInfo): void {
     const isRepository = cls.name.toLowerCase().includes("repository");
     const hasSpringDataRepo = cls.extends !== null && cls.extends.includes("Repository");
     const hasDomainMethods = cls.methods.some(m => 
@@ -1088,13 +1172,13 @@ export class JavaPatternValidator {
 
     if (isRepository || hasSpringDataRepo) {
       const antipatterns: string[] = [];
-      if (this.config.rules.enterprise?.repository?.detectAntipatterns) {
+      if (this.plan.rules.get("repository")?.detectAntipatterns) {
         if (!cls.isInterface && !hasSpringDataRepo) {
           antipatterns.push("Repository debería ser una interfaz");
         }
       }
 
-      this.detections.push({
+      ctx.detections.push({
         pattern: "repository",
         category: "enterprise",
         detected: true,
@@ -1110,10 +1194,8 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectDTO(cls: ClassInfo): void {
-    if (!this.config.rules.enterprise?.dto?.enabled) return;
-
-    const isDTO = cls.name.toLowerCase().includes("dto") || cls.name.toLowerCase().includes("data");
+  private detectDTO(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const isDTO = f.lowerName.includes("dto") || f.lowerName.includes("data");
     const hasOnlyGettersSetters = cls.methods.every(m => 
       m.name.startsWith("get") || m.name.startsWith("set") || m.name.startsWith("is")
     );
@@ -1124,7 +1206,7 @@ export class JavaPatternValidator {
 
     if ((isDTO || (hasOnlyGettersSetters && hasMultipleFields && hasNoBusinessLogic)) && cls.fields.length > 0) {
       const antipatterns: string[] = [];
-      if (this.config.rules.enterprise?.dto?.detectAntipatterns) {
+      if (this.plan.rules.get("dto")?.detectAntipatterns) {
         const hasBusinessMethod = cls.methods.some(m => 
           !m.name.startsWith("get") && !m.name.startsWith("set") && !m.name.startsWith("is") && 
           m.name !== "toString" && m.name !== "hashCode" && m.name !== "equals"
@@ -1134,7 +1216,7 @@ export class JavaPatternValidator {
         }
       }
 
-      this.detections.push({
+      ctx.detections.push({
         pattern: "dto",
         category: "enterprise",
         detected: true,
@@ -1151,26 +1233,24 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectServiceLayer(cls: ClassInfo): void {
-    if (!this.config.rules.enterprise?.serviceLayer?.enabled) return;
-
-    const isService = cls.name.toLowerCase().includes("service") || cls.annotations.includes("Service");
-    const hasBusinessMethods = cls.methods.filter(m => m.isPublic && !m.isStatic).length >= 2;
-    const hasDependencies = cls.fields.filter(f => !f.isStatic).length >= 1;
+  private detectServiceLayer(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const isService = f.lowerName.includes("service") || f.annotations.has("Service");
+    const hasBusinessMethods = f.publicInstanceMethodCount >= 2;
+    const hasDependencies = f.instanceFieldCount >= 1;
 
     if (isService && hasBusinessMethods) {
       const antipatterns: string[] = [];
-      if (this.config.rules.enterprise?.serviceLayer?.detectAntipatterns) {
-        if (cls.fields.filter(f => !f.isFinal && !f.isStatic).length > 0) {
+      if (this.plan.rules.get("service-layer")?.detectAntipatterns) {
+        if (cls.fields.filter(field => !field.isFinal && !field.isStatic).length > 0) {
           antipatterns.push("Dependencias deberían ser final (inmutables)");
         }
-        const hasDAOInName = cls.fields.some(f => f.type.toLowerCase().includes("dao"));
+        const hasDAOInName = f.lowerFieldTypes.some(type => type.includes("dao"));
         if (hasDAOInName) {
           antipatterns.push("Service Layer debería depender de Repository, no DAO directamente");
         }
       }
 
-      this.detections.push({
+      ctx.detections.push({
         pattern: "service-layer",
         category: "enterprise",
         detected: true,
@@ -1186,16 +1266,13 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectValueObject(cls: ClassInfo): void {
-    if (!this.config.rules.enterprise?.valueObject?.enabled) return;
-
-    const allFieldsFinal = cls.fields.every(f => f.isFinal || f.isStatic);
-    const hasEqualsHashCode = cls.methods.some(m => m.name === "equals") && 
-                               cls.methods.some(m => m.name === "hashCode");
-    const noSetters = !cls.methods.some(m => m.name.startsWith("set"));
+  private detectValueObject(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const allFieldsFinal = cls.fields.every(field => field.isFinal || field.isStatic);
+    const hasEqualsHashCode = f.methodNames.has("equals") && f.methodNames.has("hashCode");
+    const noSetters = !f.methodPrefixes.has("set");
 
     if (allFieldsFinal && hasEqualsHashCode && noSetters && cls.fields.length > 0) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "value-object",
         category: "enterprise",
         detected: true,
@@ -1210,9 +1287,7 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectDataMapper(cls: ClassInfo): void {
-    if (!this.config.rules.enterprise?.dataMapper?.enabled) return;
-
+  private detectDataMapper(ctx: AnalysisContext, cls: ClassInfo): void {
     const isMapper = cls.name.toLowerCase().includes("mapper");
     const hasMapMethods = cls.methods.filter(m => 
       m.name.toLowerCase().includes("map") || 
@@ -1221,7 +1296,7 @@ export class JavaPatternValidator {
     ).length >= 2;
 
     if (isMapper && hasMapMethods) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "data-mapper",
         category: "enterprise",
         detected: true,
@@ -1235,15 +1310,13 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectActiveRecord(cls: ClassInfo): void {
-    if (!this.config.rules.enterprise?.activeRecord?.enabled) return;
-
+  private detectActiveRecord(ctx: AnalysisContext, cls: ClassInfo): void {
     const hasCRUDMethods = this.hasCRUDMethods(cls);
     const hasFields = cls.fields.length > 0;
     const hasSaveMethod = cls.methods.some(m => m.name === "save" && !m.isStatic);
 
     if (hasCRUDMethods >= 2 && hasFields && hasSaveMethod) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "active-record",
         category: "enterprise",
         detected: true,
@@ -1267,27 +1340,22 @@ export class JavaPatternValidator {
     return count;
   }
 
-  private detectArchitecturalPatterns(): void {
-    this.detectMVC();
-    this.detectFrontController();
-    this.detectServiceLocator();
+  private detectArchitecturalPatterns(ctx: AnalysisContext): void {
+    this.detectMVC(
+      ctx,
+      ctx.classes.filter(isController),
+      ctx.classes.filter(isModel),
+      ctx.classes.filter(isView)
+    );
+    this.detectFrontController(ctx, ctx.classes.filter(isFrontController));
+    this.detectServiceLocator(ctx, ctx.classes.filter(isServiceLocator));
   }
 
-  private detectMVC(): void {
-    if (!this.config.rules.architectural?.mvc?.enabled) return;
-
-    const controllers = this.classes.filter(c => 
-      c.name.toLowerCase().includes("controller") || c.annotations.includes("Controller") || c.annotations.includes("RestController")
-    );
-    const models = this.classes.filter(c => 
-      c.name.toLowerCase().includes("model") || c.annotations.includes("Entity")
-    );
-    const views = this.classes.filter(c => 
-      c.name.toLowerCase().includes("view")
-    );
+  private detectMVC(ctx: AnalysisContext, controllers: ClassInfo[], models: ClassInfo[], views: ClassInfo[]): void {
+    if (!this.plan.rules.has("mvc")) return;
 
     if (controllers.length > 0 && models.length > 0) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "mvc",
         category: "architectural",
         detected: true,
@@ -1302,19 +1370,12 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectFrontController(): void {
-    if (!this.config.rules.architectural?.frontController?.enabled) return;
-
-    const frontControllers = this.classes.filter(c => 
-      c.annotations.includes("ControllerAdvice") || 
-      c.annotations.includes("WebFilter") ||
-      c.name.toLowerCase().includes("dispatcherservlet") ||
-      c.name.toLowerCase().includes("frontcontroller")
-    );
+  private detectFrontController(ctx: AnalysisContext, frontControllers: ClassInfo[]): void {
+    if (!this.plan.rules.has("front-controller")) return;
 
     if (frontControllers.length > 0) {
       frontControllers.forEach(fc => {
-        this.detections.push({
+        ctx.detections.push({
           pattern: "front-controller",
           category: "architectural",
           detected: true,
@@ -1329,20 +1390,16 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectServiceLocator(): void {
-    if (!this.config.rules.architectural?.serviceLocator?.enabled) return;
-
-    const serviceLocators = this.classes.filter(c => 
-      c.name.toLowerCase().includes("servicelocator") || c.name.toLowerCase().includes("servicefactory")
-    );
+  private detectServiceLocator(ctx: AnalysisContext, serviceLocators: ClassInfo[]): void {
+    if (!this.plan.rules.has("service-locator")) return;
 
     serviceLocators.forEach(sl => {
       const antipatterns: string[] = [];
-      if (this.config.rules.architectural?.serviceLocator?.detectAntipatterns) {
+      if (this.plan.rules.get("service-locator")?.detectAntipatterns) {
         antipatterns.push("Service Locator es anti-patrón en Java moderno - usar Dependency Injection");
       }
 
-      this.detections.push({
+      ctx.detections.push({
         pattern: "service-locator",
         category: "architectural",
         detected: true,
@@ -1357,34 +1414,20 @@ export class JavaPatternValidator {
     });
   }
 
-  private detectModernPatterns(): void {
-    this.classes.forEach(cls => {
-      this.detectDependencyInjection(cls);
-      this.detectCircuitBreaker(cls);
-      this.detectEventSourcing(cls);
-      this.detectCQRS(cls);
-    });
-  }
-
-  private detectDependencyInjection(cls: ClassInfo): void {
-    if (!this.config.rules.modern?.dependencyInjection?.enabled) return;
-
-    const hasAutowired = cls.fields.some(f => f.modifiers.includes("Autowired")) ||
-                         cls.annotations.includes("Autowired");
-    const hasInject = cls.annotations.includes("Inject");
-    const hasConstructorInjection = cls.methods.some(m => 
-      m.name === cls.name && m.parameters.length > 0
-    ) && cls.fields.filter(f => f.isFinal).length > 0;
+  private detectDependencyInjection(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const hasAutowired = f.fieldModifiers.has("Autowired") || f.annotations.has("Autowired");
+    const hasInject = f.annotations.has("Inject");
+    const hasConstructorInjection = f.hasConstructorWithParameters && f.finalFieldCount > 0;
 
     if (hasAutowired || hasInject || hasConstructorInjection) {
       const antipatterns: string[] = [];
-      if (this.config.rules.modern?.dependencyInjection?.detectAntipatterns) {
+      if (this.plan.rules.get("dependency-injection")?.detectAntipatterns) {
         if (hasAutowired && !hasConstructorInjection) {
           antipatterns.push("Preferir constructor injection sobre field injection (@Autowired en campos)");
         }
       }
 
-      this.detections.push({
+      ctx.detections.push({
         pattern: "dependency-injection",
         category: "modern",
         detected: true,
@@ -1400,19 +1443,16 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectCircuitBreaker(cls: ClassInfo): void {
-    if (!this.config.rules.modern?.circuitBreaker?.enabled) return;
-
-    const hasCircuitBreakerAnnotation = cls.annotations.includes("CircuitBreaker") || 
-                                        cls.annotations.includes("HystrixCommand");
-    const hasCircuitBreakerName = cls.name.toLowerCase().includes("circuitbreaker");
-    const hasStateField = cls.fields.some(f => 
-      f.type.toLowerCase().includes("state") && 
-      (f.type.includes("OPEN") || f.type.includes("CLOSED") || f.type.includes("HALF_OPEN"))
+  private detectCircuitBreaker(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const hasCircuitBreakerAnnotation = f.annotations.has("CircuitBreaker") || f.annotations.has("HystrixCommand");
+    const hasCircuitBreakerName = f.lowerName.includes("circuitbreaker");
+    const hasStateField = cls.fields.some((field, i) => 
+      f.lowerFieldTypes[i].includes("state") && 
+      (field.type.includes("OPEN") || field.type.includes("CLOSED") || field.type.includes("HALF_OPEN"))
     );
 
     if (hasCircuitBreakerAnnotation || hasCircuitBreakerName || hasStateField) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "circuit-breaker",
         category: "modern",
         detected: true,
@@ -1427,15 +1467,13 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectEventSourcing(cls: ClassInfo): void {
-    if (!this.config.rules.modern?.eventSourcing?.enabled) return;
-
-    const isEvent = cls.name.toLowerCase().includes("event");
-    const hasEventStore = cls.name.toLowerCase().includes("eventstore");
-    const hasApplyMethod = cls.methods.some(m => m.name.toLowerCase().includes("apply"));
+  private detectEventSourcing(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const isEvent = f.lowerName.includes("event");
+    const hasEventStore = f.lowerName.includes("eventstore");
+    const hasApplyMethod = hasMethodNameContaining(f, "apply");
 
     if ((isEvent || hasEventStore) && hasApplyMethod) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "event-sourcing",
         category: "modern",
         detected: true,
@@ -1450,16 +1488,14 @@ export class JavaPatternValidator {
     }
   }
 
-  private detectCQRS(cls: ClassInfo): void {
-    if (!this.config.rules.modern?.cqrs?.enabled) return;
-
-    const isCommand = cls.name.toLowerCase().includes("command") && 
+  private detectCQRS(ctx: AnalysisContext, cls: ClassInfo, f: ClassFeatures): void {
+    const isCommand = f.lowerName.includes("command") && 
                       !cls.methods.some(m => m.returnType !== "void" && m.returnType !== null);
-    const isQuery = cls.name.toLowerCase().includes("query") && 
+    const isQuery = f.lowerName.includes("query") && 
                     cls.methods.some(m => m.returnType !== "void");
 
     if (isCommand || isQuery) {
-      this.detections.push({
+      ctx.detections.push({
         pattern: "cqrs",
         category: "modern",
         detected: true,
@@ -1474,14 +1510,16 @@ export class JavaPatternValidator {
     }
   }
 
-  private generateViolations(filename: string): JavaPatternViolation[] {
+  private generateViolations(detections: JavaPatternDetection[], filename: string): JavaPatternViolation[] {
     const violations: JavaPatternViolation[] = [];
 
-    this.detections.forEach(detection => {
-      const config = this.getPatternConfig(detection.pattern, detection.category);
-      if (!config || !config.enabled) return;
+    const { rules } = this.plan;
+
+    detections.forEach(detection => {
+      const config = rules.get(detection.pattern);
+      if (!config || config.category !== detection.category) return;
 
-      let message = `✓ Patrón detectado: ${this.formatPatternName(detection.pattern)} (${detection.category})`;
+      let message = `✓ Patrón detectado: ${config.displayName} (${detection.category})`;
       if (detection.confidence) {
         message += ` [Confianza: ${detection.confidence}]`;
       }
@@ -1508,7 +1546,7 @@ export class JavaPatternValidator {
       }
 
       violations.push({
-        rule: `pattern-${detection.pattern}`,
+        rule: config.rule,
         pattern: detection.pattern,
         category: detection.category,
         severity: config.severity,
@@ -1522,23 +1560,4 @@ export class JavaPatternValidator {
 
     return violations;
   }
-
-  private getPatternConfig(pattern: JavaPatternName, category: JavaPatternCategory): any {
-    const categoryConfig = this.config.rules[category];
-    if (!categoryConfig) return null;
-
-    const patternKey = this.patternNameToConfigKey(pattern);
-    return (categoryConfig as any)[patternKey] || null;
-  }
-
-  private patternNameToConfigKey(pattern: JavaPatternName): string {
-    return pattern.replace(/-([a-z])/g, (g) => g[1].toUpperCase());
-  }
-
-  private formatPatternName(pattern: JavaPatternName): string {
-    return pattern
-      .split("-")
-      .map(word => word.charAt(0).toUpperCase() + word.slice(1))
-      .join(" ");
-  }
 }
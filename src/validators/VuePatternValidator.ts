@@ -4,18 +4,58 @@ import {
   VuePatternDetection,
   VuePatternViolation,
   VueComponentInfo,
+  VueValidationResult,
   VuePatternCategory,
   VuePatternName,
   VueVersion
 } from '../types-vue.js';
+import { extractScriptInfo } from './vue/ScriptExtractor.js';
+import { BlockLocator, SourcePosition } from './vue/LineIndex.js';
+import {
+  findAttribute,
+  findDirective,
+  NODE_COMMENT,
+  NODE_ELEMENT,
+  NODE_TEXT,
+  TemplateElement,
+  TemplateRoot,
+  TemplateWalker,
+} from './vue/TemplateWalker.js';
+import { compileVuePlan, VueExecutionPlan } from './vue/VuePlan.js';
+import { metrics } from '../metrics.js';
+import type { LineRanges } from '../project/changes.js';
+
+type AnchorBlock = 'script' | 'template';
+
+/** Lo que las fases necesitan de la plantilla, reunido en un solo recorrido. */
+interface TemplateScan {
+  /** Usa <Teleport> o <Suspense> (solo existen en Vue 3) */
+  vue3Elements: boolean;
+  namedSlots: boolean;
+  scopedSlots: boolean;
+  /** La raíz de la plantilla solo contiene <slot> */
+  onlySlots: boolean;
+  vIfVFor: SourcePosition[];
+  vForWithoutKey: SourcePosition[];
+}
 
 export class VuePatternValidator {
   private config: VuePatternConfig;
+  private compiled: VueExecutionPlan | null = null;
 
   constructor(config: VuePatternConfig) {
     this.config = config;
   }
 
+  /** Fases y reglas habilitadas; la configuración se compila en el primer uso. */
+  private get plan(): VueExecutionPlan {
+    return this.compiled ??= compileVuePlan(this.config);
+  }
+
+  getConfig(): VuePatternConfig {
+    return this.config;
+  }
+
   private parseSFC(code: string, filename: string = 'Component.vue'): compiler.SFCDescriptor | null {
     try {
       const { descriptor, errors } = compiler.parse(code, {
@@ -35,7 +75,7 @@ export class VuePatternValidator {
     }
   }
 
-  private extractComponentInfo(descriptor: compiler.SFCDescriptor): VueComponentInfo {
+  private extractComponentInfo(descriptor: compiler.SFCDescriptor, template: TemplateScan): VueComponentInfo {
     const scriptContent = descriptor.script?.content || '';
     const scriptSetupContent = descriptor.scriptSetup?.content || '';
     
@@ -76,8 +116,7 @@ export class VuePatternValidator {
         content: descriptor.script.content,
         lang: descriptor.script.lang
       };
-      this.extractScriptInfo(descriptor.script.content, info);
-      this.extractOptionsAPIInfo(descriptor.script.content, info);
+      extractScriptInfo(descriptor.script.content, descriptor.script.lang, info, true);
     }
 
     if (descriptor.scriptSetup) {
@@ -85,17 +124,17 @@ export class VuePatternValidator {
         content: descriptor.scriptSetup.content,
         lang: descriptor.scriptSetup.lang
       };
-      this.extractScriptInfo(descriptor.scriptSetup.content, info);
+      extractScriptInfo(descriptor.scriptSetup.content, descriptor.scriptSetup.lang, info, false);
     }
 
-    info.version = this.detectVueVersion(info, scriptContent, scriptSetupContent);
+    info.version = this.detectVueVersion(info, scriptContent, scriptSetupContent, template);
     info.usesOptionsAPI = this.usesOptionsAPI(scriptContent);
     info.usesCompositionAPI = this.usesCompositionAPI(scriptContent, scriptSetupContent);
 
     return info;
   }
 
-  private detectVueVersion(info: VueComponentInfo, scriptContent: string, scriptSetupContent: string): VueVersion {
+  private detectVueVersion(info: VueComponentInfo, scriptContent: string, scriptSetupContent: string, template: TemplateScan): VueVersion {
     if (info.isScriptSetup) {
       return '3';
     }
@@ -104,7 +143,7 @@ export class VuePatternValidator {
       return '3';
     }
     
-    if (/<Teleport|<Suspense/.test(info.template?.content || '')) {
+    if (template.vue3Elements) {
       return '3';
     }
     
@@ -146,174 +185,170 @@ export class VuePatternValidator {
            /import\s+{\s*[^}]*(ref|reactive|computed|onMounted)[^}]*}\s+from\s+['"]vue['"]/.test(scriptContent);
   }
 
-  private extractOptionsAPIInfo(scriptContent: string, info: VueComponentInfo): void {
-    const exportMatch = scriptContent.match(/export\s+default\s+{([\s\S]+)};?\s*$/);
-    if (!exportMatch) {
-      return;
-    }
+  /**
+   * Bloques del SFC que tocan líneas modificadas. El rango incluye las
+   * etiquetas de apertura y cierre, que están fuera de `loc`.
+   */
+  private touchedBlocks(descriptor: compiler.SFCDescriptor, changes: LineRanges): Record<AnchorBlock, boolean> {
+    const touches = (block: compiler.SFCBlock | null) =>
+      block !== null && changes.overlaps(block.loc.start.line - 1, block.loc.end.line + 1);
+    return {
+      script: touches(descriptor.script) || touches(descriptor.scriptSetup),
+      template: touches(descriptor.template),
+    };
+  }
 
-    const optionsContent = exportMatch[1];
+  /**
+   * Con `changes`, las fases cuyos bloques (script, template) no tocan las
+   * líneas modificadas no se ejecutan y los resultados se acotan a los
+   * bloques tocados. Las líneas de Vue son relativas al bloque y muchas
+   * reglas informan del bloque entero, así que el filtro es por bloque.
+   */
+  public validate(code: string, filename: string = 'Component.vue', changes: LineRanges | null = null): VueValidationResult {
+    const detections: VuePatternDetection[] = [];
+    const violations: VuePatternViolation[] = [];
 
-    const mixinsMatch = optionsContent.match(/mixins\s*:\s*\[([\s\S]*?)\]/);
-    if (mixinsMatch) {
-      const mixinNames = mixinsMatch[1].match(/\w+/g);
-      if (mixinNames) {
-        info.mixins.push(...mixinNames);
-      }
+    let start = metrics.start();
+    const descriptor = this.parseSFC(code, filename);
+    metrics.end('vue.parseSFC', start);
+    if (!descriptor) {
+      violations.push({
+        rule: 'Mixin Usage (Anti-pattern)',
+        category: 'antiPatterns',
+        severity: 'error',
+        message: 'Failed to parse Vue component',
+        location: { line: 1, column: 1 }
+      });
+      return { detections, violations };
     }
 
-    const filtersMatch = optionsContent.match(/filters\s*:\s*{([\s\S]*?)(?=,\s*(?:data|methods|computed|watch|props|mounted|created|}\s*$))/);
-    if (filtersMatch) {
-      const filterNames = filtersMatch[1].match(/^\s*(\w+)\s*\(/gm);
-      if (filterNames) {
-        info.filters.push(...filterNames.map(f => f.trim().replace(/\s*\($/, '')));
-      }
+    // Solo cambiaron estilos u otros bloques: no hay nada que revisar
+    const touched = changes ? this.touchedBlocks(descriptor, changes) : null;
+    if (touched && !touched.script && !touched.template) {
+      return { detections, violations };
     }
 
-    const dataMatch = optionsContent.match(/data\s*\(\s*\)\s*{[\s\S]*?return\s*{([\s\S]*?)}/);
-    if (dataMatch) {
-      const dataNames = dataMatch[1].match(/(\w+)\s*:/g);
-      if (dataNames) {
-        info.data.push(...dataNames.map(d => d.replace(/\s*:$/, '')));
-      }
-    }
+    const plan = this.plan;
+    const anchored = (...blocks: AnchorBlock[]) => !touched || blocks.some(block => touched[block]);
 
-    const methodsMatch = optionsContent.match(/methods\s*:\s*{([\s\S]*?)(?=,\s*(?:computed|watch|mounted|created|beforeDestroy|}\s*$))/);
-    if (methodsMatch) {
-      const methodNames = methodsMatch[1].match(/(\w+)\s*\(/g);
-      if (methodNames) {
-        info.methods.push(...methodNames.map(m => m.replace(/\s*\($/, '')));
-      }
-    }
+    start = metrics.start();
+    const template = this.scanTemplate(descriptor, plan, anchored('template'));
+    metrics.end('vue.templateWalk', start);
 
-    const computedMatch = optionsContent.match(/computed\s*:\s*{([\s\S]*?)(?=,\s*(?:watch|methods|mounted|created|}\s*$))/);
-    if (computedMatch) {
-      const computedNames = computedMatch[1].match(/(\w+)\s*\(\s*\)\s*{|(\w+)\s*:/g);
-      if (computedNames) {
-        info.computed.push(...computedNames.map(c => c.replace(/\s*(\(|\:).*$/, '')));
-      }
-    }
+    start = metrics.start();
+    const componentInfo = this.extractComponentInfo(descriptor, template);
+    metrics.end('vue.extractComponentInfo', start);
+    const locator = new BlockLocator();
 
-    const watchMatch = optionsContent.match(/watch\s*:\s*{([\s\S]*?)(?=,\s*(?:computed|methods|mounted|created|}\s*$))/);
-    if (watchMatch) {
-      const watchNames = watchMatch[1].match(/['"]?(\w+)['"]?\s*\(/g);
-      if (watchNames) {
-        info.watch.push(...watchNames.map(w => w.replace(/['"]/g, '').replace(/\s*\($/, '')));
-      }
+    if (plan.composables && anchored('script')) {
+      detections.push(...this.timePhase('vue.composablePatterns', () => this.detectComposablePatterns(componentInfo, descriptor, locator)));
     }
 
-    const propsMatch = optionsContent.match(/props\s*:\s*(?:{([\s\S]*?)}|\[([\s\S]*?)\])/);
-    if (propsMatch && info.props.length === 0) {
-      if (propsMatch[1]) {
-        const propNames = propsMatch[1].match(/(\w+)\s*:/g);
-        if (propNames) {
-          info.props.push(...propNames.map(p => p.replace(/\s*:$/, '')));
-        }
-      } else if (propsMatch[2]) {
-        const propNames = propsMatch[2].match(/['"](\w+)['"]/g);
-        if (propNames) {
-          info.props.push(...propNames.map(p => p.replace(/['"]/g, '')));
-        }
-      }
+    if (plan.components && anchored('script', 'template')) {
+      detections.push(...this.timePhase('vue.componentPatterns', () => this.detectComponentPatterns(componentInfo, template)));
     }
-  }
 
-  private extractScriptInfo(scriptContent: string, info: VueComponentInfo): void {
-    const importRegex = /import\s+(?:{[^}]+}|[\w]+)\s+from\s+['"]([^'"]+)['"]/g;
-    let match;
-    while ((match = importRegex.exec(scriptContent)) !== null) {
-      info.imports.push(match[1]);
-      if (match[0].includes('use') && match[0].includes('{')) {
-        const composableMatch = match[0].match(/use\w+/g);
-        if (composableMatch) {
-          info.composables.push(...composableMatch);
-        }
-      }
+    if (componentInfo.usesOptionsAPI && componentInfo.version === '2' && anchored('script')) {
+      detections.push(...this.timePhase('vue.optionsAPIPatterns', () => this.detectOptionsAPIPatterns(componentInfo)));
     }
 
-    const definePropsRegex = /defineProps\s*<\s*([^>]+)\s*>\s*\(\)|defineProps\s*<\s*([^>]+)\s*>|defineProps\s*\(\s*{([^}]+)}/gs;
-    while ((match = definePropsRegex.exec(scriptContent)) !== null) {
-      const propsTypeName = match[1] || match[2];
-      if (propsTypeName && propsTypeName.trim().length < 50) {
-        const interfaceRegex = new RegExp(`interface\\s+${propsTypeName.trim()}\\s*{([^}]+)}`, 's');
-        const interfaceMatch = scriptContent.match(interfaceRegex);
-        if (interfaceMatch) {
-          const propNames = interfaceMatch[1].match(/(\w+)(?=\s*:|\s*\?)/g);
-          if (propNames) {
-            info.props.push(...propNames);
-          }
-        } else {
-          info.props.push('props');
-        }
-      } else if (match[3]) {
-        const propNames = match[3].match(/(\w+)(?=\s*:|\s*\?)/g);
-        if (propNames) {
-          info.props.push(...propNames);
-        }
-      }
+    if (plan.antiPatterns && anchored('script', 'template')) {
+      const rules = plan.antiPatterns;
+      violations.push(...this.timePhase('vue.antiPatterns', () => this.detectAntiPatterns(componentInfo, template, locator, rules)));
     }
 
-    const defineEmitsRegex = /defineEmits\s*<\s*{([^}]+)}\s*>|defineEmits\s*\(\s*\[([^\]]+)\]/gs;
-    while ((match = defineEmitsRegex.exec(scriptContent)) !== null) {
-      const emitsContent = match[1] || match[2];
-      if (emitsContent) {
-        const eventNames = emitsContent.match(/['"]([^'"]+)['"]/g);
-        if (eventNames) {
-          info.emits.push(...eventNames.map(e => e.replace(/['"]/g, '')));
-        }
-      }
+    if (plan.bestPractices && anchored('script')) {
+      const rules = plan.bestPractices;
+      violations.push(...this.timePhase('vue.bestPractices', () => this.detectBestPractices(componentInfo, descriptor, rules)));
     }
-  }
 
-  public validate(code: string, filename: string = 'Component.vue'): {
-    detections: VuePatternDetection[];
-    violations: VuePatternViolation[];
-  } {
-    const detections: VuePatternDetection[] = [];
-    const violations: VuePatternViolation[] = [];
+    if (plan.template && anchored('template')) {
+      violations.push(...this.timePhase('vue.templatePatterns', () => this.detectTemplatePatterns(template)));
+    }
 
-    const descriptor = this.parseSFC(code, filename);
-    if (!descriptor) {
-      violations.push({
-        rule: 'Mixin Usage (Anti-pattern)',
-        category: 'antiPatterns',
-        severity: 'error',
-        message: 'Failed to parse Vue component',
-        location: { line: 1, column: 1 }
-      });
-      return { detections, violations };
+    let result: VueValidationResult = { detections, violations };
+    if (touched) {
+      const inTouchedBlock = ({ location }: { location: { block?: string } }) =>
+        location.block === 'script' || location.block === 'template'
+          ? touched[location.block]
+          : touched.script || touched.template;
+      result = { detections: detections.filter(inTouchedBlock), violations: violations.filter(inTouchedBlock) };
     }
 
-    const componentInfo = this.extractComponentInfo(descriptor);
+    result.violations.forEach(v => metrics.count(`vue.rule.${v.rule}`, 1));
+    return result;
+  }
 
-    if (this.config.rules.composables?.enabled) {
-      detections.push(...this.detectComposablePatterns(componentInfo, descriptor));
-    }
+  /**
+   * Recorre una vez el AST de la plantilla que ya construyó compiler-sfc;
+   * cada regla habilitada registra sus handlers de elemento o directiva. Con
+   * `rules` a false (plantilla fuera del cambio) solo se mira lo que necesita
+   * la detección de versión. Sin AST (plantilla con `src`), no hay hallazgos.
+   */
+  private scanTemplate(descriptor: compiler.SFCDescriptor, plan: VueExecutionPlan, rules: boolean): TemplateScan {
+    const scan: TemplateScan = {
+      vue3Elements: false,
+      namedSlots: false,
+      scopedSlots: false,
+      onlySlots: false,
+      vIfVFor: [],
+      vForWithoutKey: [],
+    };
+    const block = descriptor.template;
+    const ast = block?.ast as unknown as TemplateRoot | undefined;
+    if (!block || !ast) return scan;
 
-    if (this.config.rules.components?.enabled) {
-      detections.push(...this.detectComponentPatterns(componentInfo, descriptor));
-    }
+    const walker = new TemplateWalker(block.loc.start);
+    const vue3 = () => {
+      scan.vue3Elements = true;
+    };
+    walker.register({ 'element:Teleport': vue3, 'element:Suspense': vue3 });
+
+    if (rules && plan.components) {
+      walker.register({
+        'element:slot': (element) => {
+          if (findAttribute(element, 'name')) scan.namedSlots = true;
+          if (findDirective(element, 'bind')) scan.scopedSlots = true;
+        },
+      });
 
-    if (componentInfo.usesOptionsAPI && componentInfo.version === '2') {
-      detections.push(...this.detectOptionsAPIPatterns(componentInfo));
+      // Comentarios y espacios no cuentan como contenido del componente
+      const content = ast.children.filter(
+        node => node.type !== NODE_COMMENT && !(node.type === NODE_TEXT && !String(node.content).trim())
+      );
+      scan.onlySlots =
+        content.length > 0 &&
+        content.every(node => node.type === NODE_ELEMENT && (node as TemplateElement).tag === 'slot');
     }
 
-    if (this.config.rules.antiPatterns?.enabled) {
-      violations.push(...this.detectAntiPatterns(componentInfo, descriptor));
+    if (rules && plan.antiPatterns?.vIfVFor) {
+      walker.register({
+        'directive:for': (_directive, element) => {
+          if (findDirective(element, 'if')) scan.vIfVFor.push(walker.position(element.loc));
+        },
+      });
     }
 
-    if (this.config.rules.bestPractices?.enabled) {
-      violations.push(...this.detectBestPractices(componentInfo, descriptor));
+    if (rules && plan.template) {
+      walker.register({
+        'directive:for': (_directive, element) => {
+          if (!findDirective(element, 'bind', 'key')) scan.vForWithoutKey.push(walker.position(element.loc));
+        },
+      });
     }
 
-    if (this.config.rules.template?.enabled) {
-      violations.push(...this.detectTemplatePatterns(componentInfo, descriptor));
-    }
+    walker.walk(ast);
+    return scan;
+  }
 
-    return { detections, violations };
+  private timePhase<T>(name: string, run: () => T[]): T[] {
+    const start = metrics.start();
+    const produced = run();
+    metrics.end(name, start, produced.length);
+    return produced;
   }
 
-  private detectComposablePatterns(info: VueComponentInfo, descriptor: compiler.SFCDescriptor): VuePatternDetection[] {
+  private detectComposablePatterns(info: VueComponentInfo, descriptor: compiler.SFCDescriptor, locator: BlockLocator): VuePatternDetection[] {
     const detections: VuePatternDetection[] = [];
     const scriptContent = info.scriptSetup?.content || info.script?.content || '';
 
@@ -357,7 +392,7 @@ export class VuePatternValidator {
         pattern: 'Composable Naming Convention',
         category: 'composables',
         componentName: composableName,
-        location: { line: this.getLineNumber(scriptContent, match.index), block: 'script' },
+        location: { ...locator.locate(scriptContent, match.index), block: 'script' },
         confidence: antiPatterns.length === 0 ? 'high' : 'medium',
         evidence,
         antiPatterns: antiPatterns.length > 0 ? antiPatterns : undefined,
@@ -368,7 +403,7 @@ export class VuePatternValidator {
     return detections;
   }
 
-  private detectComponentPatterns(info: VueComponentInfo, descriptor: compiler.SFCDescriptor): VuePatternDetection[] {
+  private detectComponentPatterns(info: VueComponentInfo, template: TemplateScan): VuePatternDetection[] {
     const detections: VuePatternDetection[] = [];
 
     if (info.isScriptSetup) {
@@ -414,43 +449,37 @@ export class VuePatternValidator {
       }
     }
 
-    if (descriptor.template) {
-      const templateContent = descriptor.template.content;
-      
-      if (this.hasSlots(templateContent)) {
-        const slotTypes: string[] = [];
-        if (/<slot\s+name=/.test(templateContent)) {
-          slotTypes.push('Named slots detectados');
-        }
-        if (/<slot\s+[^>]*:/.test(templateContent) || /<slot\s+v-bind/.test(templateContent)) {
-          slotTypes.push('Scoped slots detectados');
-        }
+    const slotTypes: string[] = [];
+    if (template.namedSlots) {
+      slotTypes.push('Named slots detectados');
+    }
+    if (template.scopedSlots) {
+      slotTypes.push('Scoped slots detectados');
+    }
 
-        if (slotTypes.length > 0) {
-          detections.push({
-            pattern: 'Scoped Slots',
-            category: 'components',
-            componentName: info.name,
-            location: { line: 1, block: 'template' },
-            confidence: 'high',
-            evidence: slotTypes
-          });
-        }
-      }
+    if (slotTypes.length > 0) {
+      detections.push({
+        pattern: 'Scoped Slots',
+        category: 'components',
+        componentName: info.name,
+        location: { line: 1, block: 'template' },
+        confidence: 'high',
+        evidence: slotTypes
+      });
+    }
 
-      if (this.isRenderlessComponent(info, templateContent)) {
-        detections.push({
-          pattern: 'Renderless Component',
-          category: 'components',
-          componentName: info.name,
-          location: { line: 1, block: 'template' },
-          confidence: 'high',
-          evidence: [
-            'Template contiene solo <slot>',
-            'Proporciona lógica sin UI (render props pattern)'
-          ]
-        });
-      }
+    if (template.onlySlots && (info.scriptSetup !== undefined || info.script !== undefined)) {
+      detections.push({
+        pattern: 'Renderless Component',
+        category: 'components',
+        componentName: info.name,
+        location: { line: 1, block: 'template' },
+        confidence: 'high',
+        evidence: [
+          'Template contiene solo <slot>',
+          'Proporciona lógica sin UI (render props pattern)'
+        ]
+      });
     }
 
     return detections;
@@ -535,18 +564,23 @@ export class VuePatternValidator {
     return detections;
   }
 
-  private detectAntiPatterns(info: VueComponentInfo, descriptor: compiler.SFCDescriptor): VuePatternViolation[] {
+  private detectAntiPatterns(
+    info: VueComponentInfo,
+    template: TemplateScan,
+    locator: BlockLocator,
+    rules: NonNullable<VueExecutionPlan['antiPatterns']>
+  ): VuePatternViolation[] {
     const violations: VuePatternViolation[] = [];
     const scriptContent = info.script?.content || '';
 
-    if (this.config.rules.antiPatterns?.detectMixins && info.mixins.length > 0) {
+    if (rules.mixins && info.mixins.length > 0) {
       if (info.version === '3') {
         violations.push({
           rule: 'Mixin Usage (Anti-pattern)',
           category: 'antiPatterns',
           severity: 'warning',
           message: 'Uso de mixins detectado. En Vue 3, preferir composables',
-          location: { line: this.getLineNumber(scriptContent, scriptContent.indexOf('mixins')), block: 'script' },
+          location: { ...locator.locate(scriptContent, scriptContent.indexOf('mixins')), block: 'script' },
           suggestion: 'Migrar a composables usando Composition API'
         });
       }
@@ -558,28 +592,25 @@ export class VuePatternValidator {
         category: 'migration',
         severity: 'warning',
         message: 'Filters han sido removidos en Vue 3',
-        location: { line: this.getLineNumber(scriptContent, scriptContent.indexOf('filters')), block: 'script' },
+        location: { ...locator.locate(scriptContent, scriptContent.indexOf('filters')), block: 'script' },
         suggestion: 'Usar computed properties o métodos en su lugar'
       });
     }
 
-    if (descriptor.template && this.config.rules.antiPatterns?.detectVIfVFor) {
-      const templateContent = descriptor.template.content;
-      const vIfVForRegex = /<\w+[^>]*v-for[^>]*v-if|<\w+[^>]*v-if[^>]*v-for/g;
-      let match;
-      while ((match = vIfVForRegex.exec(templateContent)) !== null) {
+    if (rules.vIfVFor) {
+      template.vIfVFor.forEach(position => {
         violations.push({
           rule: 'v-if with v-for (Anti-pattern)',
           category: 'antiPatterns',
           severity: 'warning',
           message: 'v-if y v-for en el mismo elemento es un anti-patrón',
-          location: { line: this.getLineNumber(templateContent, match.index), block: 'template' },
+          location: { ...position, block: 'template' },
           suggestion: 'Usar computed property para filtrar la lista, o envolver en template'
         });
-      }
+      });
     }
 
-    if (this.config.rules.antiPatterns?.detectPropMutation) {
+    if (rules.propMutation) {
       const scriptContent = info.scriptSetup?.content || info.script?.content || '';
       if (info.props.length > 0) {
         info.props.forEach(prop => {
@@ -590,7 +621,7 @@ export class VuePatternValidator {
               category: 'antiPatterns',
               severity: 'error',
               message: `Mutación directa de prop "${prop}" detectada`,
-              location: { line: this.getLineNumber(scriptContent, scriptContent.search(mutationRegex)), block: 'script' },
+              location: { ...locator.locate(scriptContent, scriptContent.search(mutationRegex)), block: 'script' },
               suggestion: 'Emitir evento para que el componente padre actualice el valor'
             });
           }
@@ -598,22 +629,23 @@ export class VuePatternValidator {
       }
     }
 
-    if (this.config.rules.antiPatterns?.detectParentAccess) {
+    if (rules.parentAccess) {
       const scriptContent = info.scriptSetup?.content || info.script?.content || '';
-      if (/\$parent|\$children|\$root/.test(scriptContent)) {
+      const parentAccess = scriptContent.search(/\$parent|\$children|\$root/);
+      if (parentAccess !== -1) {
         violations.push({
           rule: '$parent Access (Anti-pattern)',
           category: 'antiPatterns',
           severity: 'warning',
           message: 'Acceso a $parent, $children o $root detectado',
-          location: { line: 1, block: 'script' },
+          location: { ...locator.locate(scriptContent, parentAccess), block: 'script' },
           suggestion: 'Usar props, eventos o provide/inject en su lugar'
         });
       }
     }
 
-    const maxSize = this.config.rules.components?.maxComponentSize || 300;
-    const totalLines = (info.scriptSetup?.content || info.script?.content || '').split('\n').length;
+    const maxSize = this.plan.maxComponentSize;
+    const totalLines = locator.index(info.scriptSetup?.content || info.script?.content || '').lineCount;
     if (totalLines > maxSize) {
       violations.push({
         rule: 'God Component (Anti-pattern)',
@@ -628,10 +660,14 @@ export class VuePatternValidator {
     return violations;
   }
 
-  private detectBestPractices(info: VueComponentInfo, descriptor: compiler.SFCDescriptor): VuePatternViolation[] {
+  private detectBestPractices(
+    info: VueComponentInfo,
+    descriptor: compiler.SFCDescriptor,
+    rules: NonNullable<VueExecutionPlan['bestPractices']>
+  ): VuePatternViolation[] {
     const violations: VuePatternViolation[] = [];
 
-    if (this.config.rules.bestPractices?.enforcePropValidation && info.props.length > 0) {
+    if (rules.propValidation && info.props.length > 0) {
       const scriptContent = info.scriptSetup?.content || info.script?.content || '';
       const hasValidation = /defineProps</.test(scriptContent) || /type:\s*(?:String|Number|Boolean|Array|Object|Function)/.test(scriptContent);
       
@@ -647,7 +683,7 @@ export class VuePatternValidator {
       }
     }
 
-    if (this.config.rules.bestPractices?.enforceEventNaming && info.emits.length > 0) {
+    if (rules.eventNaming && info.emits.length > 0) {
       info.emits.forEach(event => {
         if (!/^[a-z]+(-[a-z]+)*$/.test(event)) {
           violations.push({
@@ -662,7 +698,7 @@ export class VuePatternValidator {
       });
     }
 
-    if (this.config.rules.bestPractices?.enforceScriptSetup && !info.isScriptSetup && descriptor.script) {
+    if (rules.scriptSetup && !info.isScriptSetup && descriptor.script) {
       violations.push({
         rule: 'Script Setup Usage',
         category: 'bestPractices',
@@ -676,26 +712,15 @@ export class VuePatternValidator {
     return violations;
   }
 
-  private detectTemplatePatterns(info: VueComponentInfo, descriptor: compiler.SFCDescriptor): VuePatternViolation[] {
-    const violations: VuePatternViolation[] = [];
-
-    if (descriptor.template && this.config.rules.template?.enforceVForKey) {
-      const templateContent = descriptor.template.content;
-      const vForWithoutKey = /<\w+[^>]*v-for(?![^>]*:key)(?![^>]*v-bind:key)/g;
-      let match;
-      while ((match = vForWithoutKey.exec(templateContent)) !== null) {
-        violations.push({
-          rule: 'Missing v-for Key (Anti-pattern)',
-          category: 'template',
-          severity: 'warning',
-          message: 'v-for sin :key detectado',
-          location: { line: this.getLineNumber(templateContent, match.index), block: 'template' },
-          suggestion: 'Siempre usar :key con v-for para performance y correctitud'
-        });
-      }
-    }
-
-    return violations;
+  private detectTemplatePatterns(template: TemplateScan): VuePatternViolation[] {
+    return template.vForWithoutKey.map(position => ({
+      rule: 'Missing v-for Key (Anti-pattern)',
+      category: 'template',
+      severity: 'warning',
+      message: 'v-for sin :key detectado',
+      location: { ...position, block: 'template' },
+      suggestion: 'Siempre usar :key con v-for para performance y correctitud'
+    }));
   }
 
   private extractFunctionBody(content: string, startIndex: number): string {
@@ -742,18 +767,4 @@ export class VuePatternValidator {
     return /(?:onMounted|onUnmounted|onBeforeMount|onBeforeUnmount|onUpdated|onBeforeUpdate)\s*\(/.test(functionBody);
   }
 
-  private hasSlots(templateContent: string): boolean {
-    return /<slot[\s>]/.test(templateContent);
-  }
-
-  private isRenderlessComponent(info: VueComponentInfo, templateContent: string): boolean {
-    const cleanTemplate = templateContent.replace(/<!--[\s\S]*?-->/g, '').trim();
-    return /^<slot[\s/>]/.test(cleanTemplate) && 
-           (info.scriptSetup !== undefined || info.script !== undefined) &&
-           !/<\w+(?:\s+[^>]*)?>(?!<slot)/.test(cleanTemplate);
-  }
-
-  private getLineNumber(content: string, index: number): number {
-    return content.substring(0, index).split('\n').length;
-  }
 }
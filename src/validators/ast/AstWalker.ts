@@ -0,0 +1,114 @@
+import { visitorKeys } from "@typescript-eslint/typescript-estree";
+import type { TSESTree } from "@typescript-eslint/typescript-estree";
+import type { PatternConfig, PatternViolation } from "../../types.js";
+import type { FileFingerprints } from "../clones/Fingerprints.js";
+
+type NodeType = TSESTree.Node["type"];
+type NodeOfType<T extends NodeType> = Extract<TSESTree.Node, { type: T }>;
+
+export type AstNodeHandler<T extends TSESTree.Node = TSESTree.Node> = (
+  node: T,
+  parent: TSESTree.Node | undefined,
+  key: string | undefined
+) => void;
+
+/**
+ * Handlers que una regla registra por tipo de nodo. `Tipo:exit` se invoca
+ * al salir del nodo, después de visitar todos sus hijos.
+ */
+export type AstRuleHandlers = {
+  [K in NodeType]?: AstNodeHandler<NodeOfType<K>>;
+} & {
+  [K in NodeType as `${K}:exit`]?: AstNodeHandler<NodeOfType<K>>;
+};
+
+export interface AstRuleContext {
+  readonly config: PatternConfig;
+  readonly code: string;
+  /** Huellas de clones del archivo (null si la detección de duplicados está desactivada) */
+  readonly fingerprints: FileFingerprints | null;
+  report(violation: PatternViolation): void;
+}
+
+export interface AstRule {
+  readonly name: string;
+  /**
+   * Sus handlers solo examinan el nodo que reciben (la clase, la función...):
+   * al validar cambios, los nodos que no tocan líneas modificadas se omiten.
+   */
+  readonly anchored?: boolean;
+  isEnabled(config: PatternConfig): boolean;
+  create(context: AstRuleContext): AstRuleHandlers;
+}
+
+// Claves que nunca contienen nodos hijos (fallback para tipos sin visitor keys)
+const NON_CHILD_KEYS = new Set(["parent", "loc", "range", "tokens", "comments"]);
+const fallbackKeysCache = new Map<string, readonly string[]>();
+
+function getChildKeys(node: TSESTree.Node): readonly string[] {
+  const keys = visitorKeys[node.type];
+  if (keys) return keys;
+
+  let cached = fallbackKeysCache.get(node.type);
+  if (!cached) {
+    cached = Object.keys(node).filter((key) => !NON_CHILD_KEYS.has(key));
+    fallbackKeysCache.set(node.type, cached);
+  }
+  return cached;
+}
+
+/**
+ * Recorre el AST una sola vez siguiendo las visitor keys de cada tipo de nodo
+ * y despacha cada nodo a los handlers registrados por las reglas.
+ */
+export class AstWalker {
+  private enterHandlers = new Map<string, AstNodeHandler[]>();
+  private exitHandlers = new Map<string, AstNodeHandler[]>();
+
+  register(handlers: AstRuleHandlers): void {
+    for (const [selector, handler] of Object.entries(handlers)) {
+      if (!handler) continue;
+      const isExit = selector.endsWith(":exit");
+      const type = isExit ? selector.slice(0, -":exit".length) : selector;
+      const target = isExit ? this.exitHandlers : this.enterHandlers;
+      const list = target.get(type);
+      if (list) {
+        list.push(handler as AstNodeHandler);
+      } else {
+        target.set(type, [handler as AstNodeHandler]);
+      }
+    }
+  }
+
+  walk(root: TSESTree.Node): void {
+    this.visit(root, undefined, undefined);
+  }
+
+  private visit(node: TSESTree.Node, parent: TSESTree.Node | undefined, key: string | undefined): void {
+    const enter = this.enterHandlers.get(node.type);
+    if (enter) {
+      for (let i = 0; i < enter.length; i++) enter[i](node, parent, key);
+    }
+
+    const keys = getChildKeys(node);
+    for (let k = 0; k < keys.length; k++) {
+      const childKey = keys[k];
+      const child = (node as any)[childKey];
+      if (!child || typeof child !== "object") continue;
+
+      if (Array.isArray(child)) {
+        for (let i = 0; i < child.length; i++) {
+          const item = child[i];
+          if (item && typeof item.type === "string") this.visit(item, node, childKey);
+        }
+      } else if (typeof child.type === "string") {
+        this.visit(child, node, childKey);
+      }
+    }
+
+    const exit = this.exitHandlers.get(node.type);
+    if (exit) {
+      for (let i = 0; i < exit.length; i++) exit[i](node, parent, key);
+    }
+  }
+}
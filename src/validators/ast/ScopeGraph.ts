@@ -0,0 +1,351 @@
+import type { TSESTree } from "@typescript-eslint/typescript-estree";
+import type { AstRuleHandlers } from "./AstWalker.js";
+
+export type BindingKind = "variable" | "function" | "parameter" | "import" | "other";
+
+export interface Binding {
+  readonly name: string;
+  readonly kind: BindingKind;
+  readonly line: number;
+  readonly column: number;
+  /** No se informa aunque no se use (exportada, ambient, `_`, `other`...) */
+  ignored: boolean;
+  used: boolean;
+}
+
+interface Scope {
+  readonly parent: Scope | null;
+  readonly node: TSESTree.Node;
+  readonly isFunction: boolean;
+  /** Declaraciones propias, por identificador internado */
+  readonly bindings: Map<number, Binding>;
+  /** Referencias pendientes de resolver al salir del ámbito */
+  readonly references: number[];
+  readonly params: Binding[];
+}
+
+type FunctionLike =
+  | TSESTree.FunctionDeclaration
+  | TSESTree.FunctionExpression
+  | TSESTree.ArrowFunctionExpression;
+
+type Signature =
+  | TSESTree.TSDeclareFunction
+  | TSESTree.TSEmptyBodyFunctionExpression
+  | TSESTree.TSMethodSignature
+  | TSESTree.TSFunctionType
+  | TSESTree.TSConstructorType
+  | TSESTree.TSCallSignatureDeclaration
+  | TSESTree.TSConstructSignatureDeclaration;
+
+const FUNCTION_TYPES = new Set(["FunctionDeclaration", "FunctionExpression", "ArrowFunctionExpression"]);
+
+// Claves (por tipo de padre) en las que un Identifier es un nombre y no una
+// referencia a una variable
+const KEY_NAMES = new Set([
+  "MethodDefinition",
+  "PropertyDefinition",
+  "AccessorProperty",
+  "TSAbstractMethodDefinition",
+  "TSAbstractPropertyDefinition",
+  "TSAbstractAccessorProperty",
+  "TSPropertySignature",
+  "TSMethodSignature",
+  "Property",
+]);
+
+function isNameOnly(parent: TSESTree.Node, key: string | undefined): boolean {
+  if (KEY_NAMES.has(parent.type)) return key === "key" && !(parent as { computed?: boolean }).computed;
+
+  switch (parent.type) {
+    case "MemberExpression":
+      return key === "property" && !parent.computed;
+    case "LabeledStatement":
+    case "BreakStatement":
+    case "ContinueStatement":
+      return key === "label";
+    case "ImportSpecifier":
+      return key === "imported";
+    case "ExportSpecifier":
+    case "ExportAllDeclaration":
+      return key === "exported";
+    case "TSEnumMember":
+      return key === "id";
+    case "TSQualifiedName":
+      return key === "right";
+    case "TSTypeParameter":
+      return key === "name";
+    case "TSIndexSignature":
+      return key === "parameters";
+    case "ImportAttribute":
+      return key === "key";
+    case "MetaProperty":
+      return true;
+    default:
+      return false;
+  }
+}
+
+function isExported(parent: TSESTree.Node | undefined): boolean {
+  return parent?.type === "ExportNamedDeclaration" || parent?.type === "ExportDefaultDeclaration";
+}
+
+/**
+ * Grafo de ámbitos construido durante el recorrido único del AstWalker. Cada
+ * ámbito guarda sus declaraciones y las referencias que aparecen en él; al
+ * salir del ámbito (cuando ya conoce todas sus declaraciones, incluidas las
+ * elevadas) resuelve las referencias y pasa las que no encuentra al padre.
+ * Así dos variables con el mismo nombre en ámbitos distintos no se mezclan.
+ * Los nombres se internan a enteros para que los mapas por ámbito y las
+ * listas de referencias no repitan cadenas.
+ */
+export class ScopeGraph {
+  /** Todas las declaraciones, en orden de aparición */
+  readonly bindings: Binding[] = [];
+  private readonly names = new Map<string, number>();
+  private readonly declared = new Set<TSESTree.Node>();
+  private scope: Scope | null = null;
+  private program: Scope | null = null;
+  private hasJsx = false;
+
+  handlers(): AstRuleHandlers {
+    const block = (node: TSESTree.Node) => this.push(node, false);
+    const exit = (node: TSESTree.Node) => this.pop(node);
+
+    return {
+      Program: (node) => {
+        this.program = this.push(node, true);
+      },
+
+      FunctionDeclaration: (node, parent) => {
+        if (node.id) this.declare(node.id, "function", this.scope!, isExported(parent) || node.declare);
+        this.enterFunction(node);
+      },
+      "FunctionDeclaration:exit": exit,
+
+      FunctionExpression: (node) => {
+        this.enterFunction(node);
+        if (node.id) this.declare(node.id, "other", this.scope!);
+      },
+      "FunctionExpression:exit": exit,
+
+      ArrowFunctionExpression: (node) => this.enterFunction(node),
+      "ArrowFunctionExpression:exit": exit,
+
+      TSDeclareFunction: (node) => {
+        // Una sobrecarga nombra la función, no la usa
+        if (node.id) this.declared.add(node.id);
+        this.enterSignature(node);
+      },
+      "TSDeclareFunction:exit": exit,
+      TSEmptyBodyFunctionExpression: (node) => this.enterSignature(node),
+      "TSEmptyBodyFunctionExpression:exit": exit,
+      TSMethodSignature: (node) => this.enterSignature(node),
+      "TSMethodSignature:exit": exit,
+      TSFunctionType: (node) => this.enterSignature(node),
+      "TSFunctionType:exit": exit,
+      TSConstructorType: (node) => this.enterSignature(node),
+      "TSConstructorType:exit": exit,
+      TSCallSignatureDeclaration: (node) => this.enterSignature(node),
+      "TSCallSignatureDeclaration:exit": exit,
+      TSConstructSignatureDeclaration: (node) => this.enterSignature(node),
+      "TSConstructSignatureDeclaration:exit": exit,
+
+      BlockStatement: (node, parent, key) => {
+        // El cuerpo de una función comparte ámbito con sus parámetros
+        if (key === "body" && parent && FUNCTION_TYPES.has(parent.type)) return;
+        block(node);
+      },
+      "BlockStatement:exit": exit,
+      StaticBlock: block,
+      "StaticBlock:exit": exit,
+      ForStatement: block,
+      "ForStatement:exit": exit,
+      ForInStatement: block,
+      "ForInStatement:exit": exit,
+      ForOfStatement: block,
+      "ForOfStatement:exit": exit,
+      SwitchStatement: block,
+      "SwitchStatement:exit": exit,
+      CatchClause: (node) => {
+        block(node);
+        this.declarePattern(node.param, "other", this.scope!, true);
+      },
+      "CatchClause:exit": exit,
+
+      VariableDeclaration: (node, parent) => {
+        const scope = node.kind === "var" ? this.functionScope() : this.scope!;
+        const ignored = node.declare || isExported(parent);
+        for (const declarator of node.declarations) {
+          this.declarePattern(declarator.id, "variable", scope, ignored);
+        }
+      },
+
+      ImportDeclaration: (node) => {
+        for (const specifier of node.specifiers) {
+          this.declare(specifier.local, "import", this.scope!);
+        }
+      },
+
+      ClassDeclaration: (node) => {
+        if (node.id) this.declare(node.id, "other", this.scope!, true);
+      },
+      ClassExpression: (node) => {
+        if (node.id) this.declared.add(node.id);
+      },
+      TSInterfaceDeclaration: (node) => this.declare(node.id, "other", this.scope!, true),
+      TSTypeAliasDeclaration: (node) => this.declare(node.id, "other", this.scope!, true),
+      TSEnumDeclaration: (node) => this.declare(node.id, "other", this.scope!, true),
+      TSModuleDeclaration: (node) => {
+        if (node.id.type === "Identifier") this.declare(node.id, "other", this.scope!, true);
+      },
+
+      Identifier: (node, parent, key) => {
+        if (this.declared.has(node) || (parent && isNameOnly(parent, key))) return;
+        this.scope!.references.push(this.intern(node.name));
+      },
+
+      JSXIdentifier: (node, parent, key) => {
+        // <div> es una etiqueta; <Foo> y <foo.Bar> son referencias
+        const isComponent =
+          (parent?.type === "JSXOpeningElement" || parent?.type === "JSXClosingElement") &&
+          key === "name" &&
+          /^[A-Z]/.test(node.name);
+        const isNamespace = parent?.type === "JSXMemberExpression" && key === "object";
+        if (isComponent || isNamespace) this.scope!.references.push(this.intern(node.name));
+      },
+      JSXOpeningElement: () => {
+        this.hasJsx = true;
+      },
+      JSXOpeningFragment: () => {
+        this.hasJsx = true;
+      },
+    };
+  }
+
+  /**
+   * Cierra los ámbitos que queden abiertos (el del programa) y devuelve las
+   * declaraciones con su estado de uso. Se llama desde `Program:exit`.
+   */
+  finish(): Binding[] {
+    // Con el runtime clásico de JSX, `React` se usa implícitamente
+    if (this.hasJsx && this.program) this.program.references.push(this.intern("React"));
+    while (this.scope) this.pop(this.scope.node);
+    return this.bindings;
+  }
+
+  private intern(name: string): number {
+    let id = this.names.get(name);
+    if (id === undefined) {
+      id = this.names.size;
+      this.names.set(name, id);
+    }
+    return id;
+  }
+
+  private push(node: TSESTree.Node, isFunction: boolean): Scope {
+    this.scope = { parent: this.scope, node, isFunction, bindings: new Map(), references: [], params: [] };
+    return this.scope;
+  }
+
+  private pop(node: TSESTree.Node): void {
+    const scope = this.scope;
+    if (!scope || scope.node !== node) return;
+
+    for (const id of scope.references) {
+      const binding = scope.bindings.get(id);
+      if (binding) {
+        binding.used = true;
+      } else if (scope.parent) {
+        scope.parent.references.push(id);
+      }
+    }
+
+    // Solo cuentan los parámetros sin usar detrás del último usado: los
+    // anteriores suelen venir impuestos por la firma (callbacks, interfaces)
+    let usedAfter = false;
+    for (let i = scope.params.length - 1; i >= 0; i--) {
+      if (scope.params[i].used) usedAfter = true;
+      else if (usedAfter) scope.params[i].ignored = true;
+    }
+
+    this.scope = scope.parent;
+  }
+
+  private functionScope(): Scope {
+    let scope = this.scope!;
+    while (!scope.isFunction && scope.parent) scope = scope.parent;
+    return scope;
+  }
+
+  private enterFunction(node: FunctionLike): void {
+    const scope = this.push(node, true);
+    for (const param of node.params) {
+      const target = param.type === "AssignmentPattern" ? param.left : param.type === "RestElement" ? param.argument : param;
+      if (target.type === "Identifier") {
+        const binding = this.declare(target, "parameter", scope, target.name.startsWith("_") || target.name === "this");
+        scope.params.push(binding);
+      } else {
+        this.declarePattern(param, "other", scope, true);
+      }
+    }
+  }
+
+  /** Firmas sin cuerpo: sus parámetros son nombres, no referencias. */
+  private enterSignature(node: Signature): void {
+    const scope = this.push(node, true);
+    for (const param of node.params) this.declarePattern(param, "other", scope, true);
+  }
+
+  private declarePattern(pattern: TSESTree.Node | null, kind: BindingKind, scope: Scope, ignored: boolean): void {
+    if (!pattern) return;
+
+    switch (pattern.type) {
+      case "Identifier":
+        this.declare(pattern, kind, scope, ignored);
+        break;
+      case "ObjectPattern": {
+        // `const { omitido, ...resto } = obj` es la forma habitual de descartar
+        const hasRest = pattern.properties.some((property) => property.type === "RestElement");
+        for (const property of pattern.properties) {
+          if (property.type === "RestElement") this.declarePattern(property, kind, scope, ignored);
+          else this.declarePattern(property.value, kind, scope, ignored || hasRest);
+        }
+        break;
+      }
+      case "ArrayPattern":
+        for (const element of pattern.elements) this.declarePattern(element, kind, scope, ignored);
+        break;
+      case "RestElement":
+        this.declarePattern(pattern.argument, kind, scope, ignored);
+        break;
+      case "AssignmentPattern":
+        this.declarePattern(pattern.left, kind, scope, ignored);
+        break;
+      case "TSParameterProperty":
+        this.declarePattern(pattern.parameter, "other", scope, true);
+        break;
+    }
+  }
+
+  private declare(id: TSESTree.Identifier, kind: BindingKind, scope: Scope, ignored = false): Binding {
+    this.declared.add(id);
+    const key = this.intern(id.name);
+
+    // Redeclaraciones (`var` repetido, sobrecargas): vale la primera
+    const existing = scope.bindings.get(key);
+    if (existing) return existing;
+
+    const binding: Binding = {
+      name: id.name,
+      kind,
+      line: id.loc.start.line,
+      column: id.loc.start.column,
+      ignored: ignored || kind === "other",
+      used: false,
+    };
+    scope.bindings.set(key, binding);
+    this.bindings.push(binding);
+    return binding;
+  }
+}
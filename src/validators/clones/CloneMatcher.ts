@@ -0,0 +1,143 @@
+import type { FileFingerprints } from "./Fingerprints.js";
+
+export interface CloneRegion {
+  /** Índice del archivo en la lista recibida */
+  file: number;
+  startLine: number;
+  endLine: number;
+}
+
+export interface Clone {
+  /** Primera aparición (por archivo y posición) */
+  original: CloneRegion;
+  duplicate: CloneRegion;
+  /** Tokens idénticos del bloque, medidos sobre los flujos de tokens */
+  tokens: number;
+}
+
+export interface CloneMatchOptions {
+  minTokens: number;
+  /**
+   * Una huella presente en más sitios es código repetitivo (boilerplate) y
+   * no se empareja: así el número de pares sigue siendo lineal.
+   */
+  maxOccurrences?: number;
+  /** Corta el resultado para no inundar el informe */
+  maxClones?: number;
+}
+
+/**
+ * Extiende la coincidencia que contiene el token `at` de `a` y `at + offset`
+ * de `b` en ambos sentidos, sin bajar de `floor`. Devuelve [inicio, fin) en `a`.
+ */
+function measure(a: FileFingerprints, b: FileFingerprints, at: number, offset: number, floor: number): [number, number] {
+  const ta = a.tokens;
+  const tb = b.tokens;
+  let start = at;
+  while (start > floor && start + offset > 0 && ta[start - 1] === tb[start - 1 + offset]) start--;
+  let end = at;
+  while (end < ta.length && end + offset < tb.length && ta[end] === tb[end + offset]) end++;
+  return [start, end];
+}
+
+/**
+ * Empareja huellas idénticas entre archivos (o dentro de uno) y agrupa las
+ * coincidencias con el mismo desplazamiento. Cada grupo se mide sobre los
+ * flujos de tokens, así que solo se informan bloques de al menos
+ * `minTokens` tokens realmente iguales. Los emparejamientos se hacen
+ * ordenando arrays tipados: O(n log n) en huellas, sin mapas por hash.
+ */
+export function findClones(files: readonly FileFingerprints[], options: CloneMatchOptions): Clone[] {
+  const maxOccurrences = options.maxOccurrences ?? 16;
+  const maxClones = options.maxClones ?? Infinity;
+  if (files.length === 0) return [];
+  const { k } = files[0];
+
+  let total = 0;
+  files.forEach((file) => (total += file.hashes.length));
+
+  const fileOf = new Uint32Array(total);
+  const pos = new Uint32Array(total);
+  const keys = new Float64Array(total);
+  let n = 0;
+  files.forEach((file, f) => {
+    for (let i = 0; i < file.hashes.length; i++, n++) {
+      fileOf[n] = f;
+      pos[n] = file.positions[i];
+      keys[n] = file.hashes[i];
+    }
+  });
+
+  // Empate por orden global (archivo, posición): el ancla de cada grupo es
+  // siempre la primera aparición
+  const order = new Uint32Array(total).map((_, i) => i);
+  order.sort((a, b) => keys[a] - keys[b] || a - b);
+
+  const pairA: number[] = [];
+  const pairB: number[] = [];
+  for (let start = 0; start < total; ) {
+    let end = start + 1;
+    while (end < total && keys[order[end]] === keys[order[start]]) end++;
+
+    if (end - start > 1 && end - start <= maxOccurrences) {
+      const anchor = order[start];
+      for (let i = start + 1; i < end; i++) {
+        const other = order[i];
+        // Dentro de un mismo archivo, ventanas solapadas no son un clon
+        if (fileOf[anchor] === fileOf[other] && pos[other] - pos[anchor] < k) continue;
+        pairA.push(anchor);
+        pairB.push(other);
+      }
+    }
+    start = end;
+  }
+
+  const delta = (p: number) => pos[pairB[p]] - pos[pairA[p]];
+  const pairs = new Uint32Array(pairA.length).map((_, i) => i);
+  pairs.sort(
+    (p, q) =>
+      fileOf[pairA[p]] - fileOf[pairA[q]] ||
+      fileOf[pairB[p]] - fileOf[pairB[q]] ||
+      delta(p) - delta(q) ||
+      pairA[p] - pairA[q]
+  );
+
+  const region = (file: number, start: number, end: number): CloneRegion => ({
+    file,
+    startLine: files[file].lines[start],
+    endLine: files[file].lines[end - 1],
+  });
+
+  const clones: Clone[] = [];
+  for (let i = 0; i < pairs.length && clones.length < maxClones; ) {
+    const first = pairs[i];
+    const fileA = fileOf[pairA[first]];
+    const fileB = fileOf[pairB[first]];
+    const offset = delta(first);
+    // Las huellas del grupo van por posición: las que caen dentro de un
+    // bloque ya medido no abren otro
+    let covered = 0;
+    for (
+      ;
+      i < pairs.length &&
+      fileOf[pairA[pairs[i]]] === fileA &&
+      fileOf[pairB[pairs[i]]] === fileB &&
+      delta(pairs[i]) === offset &&
+      clones.length < maxClones;
+      i++
+    ) {
+      const at = pos[pairA[pairs[i]]];
+      if (at < covered) continue;
+      // Un hash que colisiona mide 0 tokens
+      const [start, end] = measure(files[fileA], files[fileB], at, offset, covered);
+      covered = Math.max(end, at + 1);
+      if (end - start < options.minTokens) continue;
+      clones.push({
+        original: region(fileA, start, end),
+        duplicate: region(fileB, start + offset, end + offset),
+        tokens: end - start,
+      });
+    }
+  }
+  return clones;
+}
@@ -0,0 +1,184 @@
+import type { TSESTree } from "@typescript-eslint/typescript-estree";
+
+/** Tokens mínimos de un bloque para considerarlo duplicado. */
+export const DEFAULT_MIN_DUPLICATION_TOKENS = 50;
+
+/**
+ * Huellas winnowing de un archivo. `hashes` son hashes de 52 bits de una
+ * ventana de `k` tokens normalizados (caben exactos en un double) y
+ * `positions` va en paralelo, ordenado por posición. El flujo de tokens se
+ * conserva para medir cada coincidencia: una huella común solo dice que hay
+ * al menos `k` tokens iguales.
+ */
+export interface FileFingerprints {
+  readonly k: number;
+  readonly w: number;
+  readonly tokenCount: number;
+  readonly hashes: Float64Array;
+  /** Índice del primer token de la ventana */
+  readonly positions: Uint32Array;
+  /** Hash normalizado de cada token */
+  readonly tokens: Uint32Array;
+  /** Línea de cada token */
+  readonly lines: Uint32Array;
+}
+
+export interface FingerprintParams {
+  /** Tokens por ventana (por debajo de esto, ruido) */
+  readonly k: number;
+  /** Ventanas por bloque de winnowing */
+  readonly w: number;
+}
+
+/**
+ * Con winnowing, cualquier coincidencia de al menos `w + k - 1` tokens
+ * comparte como mínimo una huella: se reparte el umbral entre ambos.
+ */
+export function fingerprintParams(minTokens = DEFAULT_MIN_DUPLICATION_TOKENS): FingerprintParams {
+  const threshold = Math.max(20, Math.floor(minTokens));
+  const k = Math.floor(threshold / 2);
+  return { k, w: threshold - k + 1 };
+}
+
+const BASE_1 = 0x01000193;
+const BASE_2 = 0x5bd1e995;
+const TWO_POW_20 = 0x100000;
+
+function hashString(value: string): number {
+  let hash = 0x811c9dc5;
+  for (let i = 0; i < value.length; i++) {
+    hash ^= value.charCodeAt(i);
+    hash = Math.imul(hash, 0x01000193);
+  }
+  return hash >>> 0;
+}
+
+const IDENTIFIER_HASH = hashString("$id");
+const LITERAL_HASH = hashString("$lit");
+
+// Los nombres y los valores no cuentan: dos bloques que solo difieren en
+// ellos son el mismo código
+function normalizedHash(token: TSESTree.Token): number {
+  switch (token.type) {
+    case "Identifier":
+    case "JSXIdentifier":
+    case "PrivateIdentifier":
+      return IDENTIFIER_HASH;
+    case "String":
+    case "Numeric":
+    case "Template":
+    case "RegularExpression":
+    case "JSXText":
+      return LITERAL_HASH;
+    default:
+      return hashString(token.value);
+  }
+}
+
+function isImportLike(node: TSESTree.ProgramStatement): boolean {
+  return (
+    node.type === "ImportDeclaration" ||
+    node.type === "ExportAllDeclaration" ||
+    node.type === "TSImportEqualsDeclaration" ||
+    (node.type === "ExportNamedDeclaration" && node.source !== null)
+  );
+}
+
+/**
+ * Flujo de tokens normalizados del programa. Los imports/re-exports quedan
+ * fuera: tras normalizar todos se parecen y solo generarían ruido.
+ */
+export function tokenStream(program: TSESTree.Program): { hashes: Uint32Array; lines: Uint32Array } {
+  const tokens = program.tokens ?? [];
+  const skipped = program.body.filter(isImportLike).map((node) => node.range);
+  const hashes = new Uint32Array(tokens.length);
+  const lines = new Uint32Array(tokens.length);
+
+  let count = 0;
+  let range = 0;
+  for (const token of tokens) {
+    const offset = token.range[0];
+    while (range < skipped.length && skipped[range][1] <= offset) range++;
+    if (range < skipped.length && skipped[range][0] <= offset) continue;
+
+    hashes[count] = normalizedHash(token);
+    lines[count] = token.loc.start.line;
+    count++;
+  }
+  // Copias exactas: las huellas se guardan en caché y viajan entre workers
+  return { hashes: hashes.slice(0, count), lines: lines.slice(0, count) };
+}
+
+/**
+ * Rabin-Karp sobre ventanas de `k` tokens y winnowing robusto (mínimo más a
+ * la derecha de cada bloque de `w` ventanas, con una cola monótona): O(n) en
+ * tokens y ~2/(w+1) huellas por token.
+ */
+export function fingerprint(stream: { hashes: Uint32Array; lines: Uint32Array }, params: FingerprintParams): FileFingerprints {
+  const { k, w } = params;
+  const { hashes: tokens, lines } = stream;
+  const windows = tokens.length - k + 1;
+  const empty: FileFingerprints = {
+    k,
+    w,
+    tokenCount: tokens.length,
+    hashes: new Float64Array(0),
+    positions: new Uint32Array(0),
+    tokens,
+    lines,
+  };
+  if (windows <= 0) return empty;
+
+  let pow1 = 1;
+  let pow2 = 1;
+  for (let i = 1; i < k; i++) {
+    pow1 = Math.imul(pow1, BASE_1);
+    pow2 = Math.imul(pow2, BASE_2);
+  }
+
+  const windowHashes = new Float64Array(windows);
+  let h1 = 0;
+  let h2 = 0;
+  for (let i = 0; i < k; i++) {
+    h1 = (Math.imul(h1, BASE_1) + tokens[i]) | 0;
+    h2 = (Math.imul(h2, BASE_2) + tokens[i]) | 0;
+  }
+  for (let i = 0; ; i++) {
+    windowHashes[i] = (h1 >>> 0) * TWO_POW_20 + ((h2 >>> 0) >>> 12);
+    if (i + 1 >= windows) break;
+    const out = tokens[i];
+    const next = tokens[i + k];
+    h1 = (Math.imul((h1 - Math.imul(out, pow1)) | 0, BASE_1) + next) | 0;
+    h2 = (Math.imul((h2 - Math.imul(out, pow2)) | 0, BASE_2) + next) | 0;
+  }
+
+  const span = Math.min(w, windows);
+  const selected = new Uint32Array(windows);
+  const deque = new Int32Array(windows);
+  let head = 0;
+  let tail = 0;
+  let count = 0;
+  let last = -1;
+
+  for (let i = 0; i < windows; i++) {
+    while (tail > head && windowHashes[deque[tail - 1]] >= windowHashes[i]) tail--;
+    deque[tail++] = i;
+    if (deque[head] <= i - span) head++;
+    if (i >= span - 1 && deque[head] !== last) {
+      last = deque[head];
+      selected[count++] = last;
+    }
+  }
+
+  const result = {
+    ...empty,
+    hashes: new Float64Array(count),
+    positions: new Uint32Array(count),
+  };
+  for (let i = 0; i < count; i++) {
+    const position = selected[i];
+    result.hashes[i] = windowHashes[position];
+    result.positions[i] = position;
+  }
+  return result;
+}
@@ -0,0 +1,182 @@
+import type { ClassInfo } from "../../types-java.js";
+
+/**
+ * Rasgos de una clase calculados en una sola pasada sobre sus miembros. Los
+ * detectores leen estos conjuntos y contadores en lugar de recorrer
+ * `methods`/`fields` con `some`/`filter` y `toLowerCase()` una vez por patrón.
+ */
+export interface ClassFeatures {
+  readonly lowerName: string;
+  readonly methodNames: ReadonlySet<string>;
+  readonly lowerMethodNames: readonly string[];
+  readonly methodPrefixes: ReadonlySet<string>;
+  readonly staticFinalFieldTypes: ReadonlySet<string>;
+  readonly lowerFieldTypes: readonly string[];
+  readonly fieldModifiers: ReadonlySet<string>;
+  readonly annotations: ReadonlySet<string>;
+  readonly interfaces: ReadonlySet<string>;
+  readonly hasPrivateConstructor: boolean;
+  readonly hasConstructorWithParameters: boolean;
+  readonly hasStaticPublicMethod: boolean;
+  readonly hasCollectionField: boolean;
+  readonly staticFieldCount: number;
+  readonly instanceFieldCount: number;
+  readonly finalFieldCount: number;
+  readonly privateFinalFieldCount: number;
+  readonly publicInstanceMethodCount: number;
+}
+
+/** Prefijos de nombre de método que consultan los detectores (`startsWith`). */
+export const METHOD_PREFIXES = ["get", "set", "is", "with", "find", "visit"] as const;
+
+/**
+ * Condición barata que una clase debe cumplir para que merezca la pena
+ * ejecutar un detector. Un detector declara varias y basta con una.
+ */
+export type JavaTrigger =
+  | "class"
+  | "interface"
+  | "abstract"
+  | "extends"
+  | "field"
+  | "field:static"
+  | "field:instance"
+  | "field:collection"
+  | "ctor:private"
+  | "ctor:params"
+  | "method:static-public"
+  | `name:${string}`
+  | `method:${string}`
+  | `prefix:${(typeof METHOD_PREFIXES)[number]}`
+  | `implements:${string}`
+  | `annotation:${string}`
+  | `fieldModifier:${string}`;
+
+export function buildClassFeatures(cls: ClassInfo): ClassFeatures {
+  const methodNames = new Set<string>();
+  const lowerMethodNames: string[] = [];
+  const methodPrefixes = new Set<string>();
+  let hasPrivateConstructor = false;
+  let hasConstructorWithParameters = false;
+  let hasStaticPublicMethod = false;
+  let publicInstanceMethodCount = 0;
+
+  for (const m of cls.methods) {
+    methodNames.add(m.name);
+    lowerMethodNames.push(m.name.toLowerCase());
+    for (const prefix of METHOD_PREFIXES) {
+      if (m.name.startsWith(prefix)) methodPrefixes.add(prefix);
+    }
+    if (m.name === cls.name) {
+      if (m.isPrivate) hasPrivateConstructor = true;
+      if (m.parameters.length > 0) hasConstructorWithParameters = true;
+    }
+    if (m.isPublic) {
+      if (m.isStatic) {
+        if (m.returnType !== "void") hasStaticPublicMethod = true;
+      } else {
+        publicInstanceMethodCount++;
+      }
+    }
+  }
+
+  const staticFinalFieldTypes = new Set<string>();
+  const lowerFieldTypes: string[] = [];
+  const fieldModifiers = new Set<string>();
+  let hasCollectionField = false;
+  let staticFieldCount = 0;
+  let finalFieldCount = 0;
+  let privateFinalFieldCount = 0;
+
+  for (const f of cls.fields) {
+    lowerFieldTypes.push(f.type.toLowerCase());
+    f.modifiers.forEach((modifier) => fieldModifiers.add(modifier));
+    if (f.type.includes("List") || f.type.includes("Set") || f.type.includes("Collection")) {
+      hasCollectionField = true;
+    }
+    if (f.isStatic) {
+      staticFieldCount++;
+      if (f.isFinal) staticFinalFieldTypes.add(f.type);
+    }
+    if (f.isFinal) {
+      finalFieldCount++;
+      if (f.isPrivate) privateFinalFieldCount++;
+    }
+  }
+
+  return {
+    lowerName: cls.name.toLowerCase(),
+    methodNames,
+    lowerMethodNames,
+    methodPrefixes,
+    staticFinalFieldTypes,
+    lowerFieldTypes,
+    fieldModifiers,
+    annotations: new Set(cls.annotations),
+    interfaces: new Set(cls.implements),
+    hasPrivateConstructor,
+    hasConstructorWithParameters,
+    hasStaticPublicMethod,
+    hasCollectionField,
+    staticFieldCount,
+    instanceFieldCount: cls.fields.length - staticFieldCount,
+    finalFieldCount,
+    privateFinalFieldCount,
+    publicInstanceMethodCount,
+  };
+}
+
+/** Algún nombre de método (en minúsculas) contiene alguno de los fragmentos. */
+export function hasMethodNameContaining(features: ClassFeatures, ...fragments: string[]): boolean {
+  return features.lowerMethodNames.some((name) => fragments.some((fragment) => name.includes(fragment)));
+}
+
+type TriggerTest = (cls: ClassInfo, features: ClassFeatures) => boolean;
+
+/** Traduce un trigger a su comprobación; se hace una vez al construir el dispatch. */
+export function compileTrigger(trigger: JavaTrigger): TriggerTest {
+  switch (trigger) {
+    case "class":
+      return () => true;
+    case "interface":
+      return (cls) => cls.isInterface;
+    case "abstract":
+      return (cls) => cls.isAbstract;
+    case "extends":
+      return (cls) => cls.extends !== null;
+    case "field":
+      return (cls) => cls.fields.length > 0;
+    case "field:static":
+      return (_cls, f) => f.staticFieldCount > 0;
+    case "field:instance":
+      return (_cls, f) => f.instanceFieldCount > 0;
+    case "field:collection":
+      return (_cls, f) => f.hasCollectionField;
+    case "ctor:private":
+      return (_cls, f) => f.hasPrivateConstructor;
+    case "ctor:params":
+      return (_cls, f) => f.hasConstructorWithParameters;
+    case "method:static-public":
+      return (_cls, f) => f.hasStaticPublicMethod;
+  }
+
+  const separator = trigger.indexOf(":");
+  const kind = trigger.slice(0, separator);
+  const arg = trigger.slice(separator + 1);
+  switch (kind) {
+    case "name":
+      return (_cls, f) => f.lowerName.includes(arg);
+    case "method":
+      return (_cls, f) => f.methodNames.has(arg);
+    case "prefix":
+      return (_cls, f) => f.methodPrefixes.has(arg);
+    case "implements":
+      return (_cls, f) => f.interfaces.has(arg);
+    case "annotation":
+      return (_cls, f) => f.annotations.has(arg);
+    case "fieldModifier":
+      return (_cls, f) => f.fieldModifiers.has(arg);
+    default:
+      throw new Error(`Trigger de detector desconocido: ${trigger}`);
+  }
+}
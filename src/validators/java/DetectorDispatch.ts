@@ -0,0 +1,76 @@
+import type { ClassInfo } from "../../types-java.js";
+import { ClassFeatures, compileTrigger, JavaTrigger } from "./ClassFeatures.js";
+
+export interface ClassDetector<C> {
+  readonly phase: string;
+  readonly triggers: readonly JavaTrigger[];
+  readonly detect: (ctx: C, cls: ClassInfo, features: ClassFeatures) => void;
+}
+
+/**
+ * Índice trigger → detectores. Cada trigger distinto se evalúa una sola vez
+ * por clase y solo se ejecutan los detectores con algún trigger cumplido, de
+ * modo que el coste crece con las coincidencias y no con patrones × miembros.
+ * El orden de ejecución es siempre el de declaración.
+ */
+export class DetectorDispatch<C> {
+  private readonly tests: ((cls: ClassInfo, features: ClassFeatures) => boolean)[] = [];
+  private readonly detectorsByTrigger: number[][] = [];
+  private readonly phaseRanges = new Map<string, [number, number]>();
+
+  constructor(private readonly detectors: readonly ClassDetector<C>[]) {
+    const triggerIds = new Map<JavaTrigger, number>();
+
+    detectors.forEach((detector, index) => {
+      const range = this.phaseRanges.get(detector.phase);
+      if (range && range[1] !== index) {
+        throw new Error(`Los detectores de la fase ${detector.phase} deben declararse contiguos`);
+      }
+      this.phaseRanges.set(detector.phase, [range ? range[0] : index, index + 1]);
+
+      detector.triggers.forEach((trigger) => {
+        let id = triggerIds.get(trigger);
+        if (id === undefined) {
+          id = this.tests.length;
+          triggerIds.set(trigger, id);
+          this.tests.push(compileTrigger(trigger));
+          this.detectorsByTrigger.push([]);
+        }
+        this.detectorsByTrigger[id].push(index);
+      });
+    });
+  }
+
+  get size(): number {
+    return this.detectors.length;
+  }
+
+  hasPhase(phase: string): boolean {
+    return this.phaseRanges.has(phase);
+  }
+
+  /** Marca qué detectores aplican a la clase (uno por posición de declaración). */
+  select(cls: ClassInfo, features: ClassFeatures): Uint8Array {
+    const selected = new Uint8Array(this.detectors.length);
+    for (let id = 0; id < this.tests.length; id++) {
+      if (this.tests[id](cls, features)) {
+        for (const index of this.detectorsByTrigger[id]) selected[index] = 1;
+      }
+    }
+    return selected;
+  }
+
+  /** Ejecuta los detectores seleccionados de una fase; devuelve cuántos corrieron. */
+  run(phase: string, ctx: C, cls: ClassInfo, features: ClassFeatures, selected: Uint8Array): number {
+    const range = this.phaseRanges.get(phase);
+    if (!range) return 0;
+
+    let invoked = 0;
+    for (let index = range[0]; index < range[1]; index++) {
+      if (selected[index] === 0) continue;
+      this.detectors[index].detect(ctx, cls, features);
+      invoked++;
+    }
+    return invoked;
+  }
+}
@@ -0,0 +1,259 @@
+/**
+ * Esquema de declaraciones de un archivo Java: el mismo texto con el interior
+ * de los cuerpos de métodos, constructores e inicializadores en blanco. Se
+ * conservan los saltos de línea, así que líneas y columnas de todo lo demás
+ * no cambian, y el CST resultante tiene las mismas declaraciones con bloques
+ * vacíos. Es una pasada de lexer (literales, comentarios y llaves), sin
+ * parsear: el parser completo solo ve firmas y campos.
+ *
+ * No se vacían los cuerpos que declaran tipos locales (`class`, `interface`,
+ * `enum`, `record`) o clases anónimas, para que el resumen de clases sea el
+ * mismo que con el parse completo, ni nada que no sea un miembro directo de
+ * un tipo (inicializadores de campos, lambdas, clases anónimas fuera de
+ * métodos, cuerpos de constantes enum).
+ */
+
+type Frame = { kind: "type" } | { kind: "enum"; constants: boolean } | { kind: "other" };
+
+interface Header {
+  /** Tokens significativos desde el último `;`, `{` o `}` */
+  tokens: number;
+  parens: number;
+  typeKeyword: "class" | "enum" | null;
+  /** Inicializador de campo (`=`) o expresión (`new`, `->`) */
+  expression: boolean;
+  throws: boolean;
+  lastWord: string | null;
+  /** Último carácter significativo */
+  last: string;
+}
+
+const newHeader = (): Header => ({
+  tokens: 0,
+  parens: 0,
+  typeKeyword: null,
+  expression: false,
+  throws: false,
+  lastWord: null,
+  last: "",
+});
+
+const LOCAL_TYPE_KEYWORDS = new Set(["class", "interface", "enum"]);
+
+// Por código de carácter: esta pasada recorre el archivo entero y debe costar
+// mucho menos que el parser
+function isIdentifierStart(char: number): boolean {
+  return (char >= 97 && char <= 122) || (char >= 65 && char <= 90) || char === 95 || char === 36 || char > 127;
+}
+
+function isIdentifierPart(char: number): boolean {
+  return isIdentifierStart(char) || (char >= 48 && char <= 57);
+}
+
+function isWhitespace(char: number): boolean {
+  return char === 32 || char === 10 || char === 13 || char === 9 || char === 12;
+}
+
+/** Índice tras el comentario o literal que empieza en `i`, o -1 si no hay ninguno. */
+function skipLiteral(code: string, i: number): number {
+  const char = code[i];
+  if (char === "/" && code[i + 1] === "/") {
+    const end = code.indexOf("\n", i);
+    return end === -1 ? code.length : end;
+  }
+  if (char === "/" && code[i + 1] === "*") {
+    const end = code.indexOf("*/", i + 2);
+    return end === -1 ? code.length : end + 2;
+  }
+  if (char === '"' && code.startsWith('"""', i)) {
+    for (let j = i + 3; j < code.length; j++) {
+      if (code[j] === "\\") j++;
+      else if (code.startsWith('"""', j)) return j + 3;
+    }
+    return code.length;
+  }
+  if (char === '"' || char === "'") {
+    for (let j = i + 1; j < code.length; j++) {
+      if (code[j] === "\\") j++;
+      else if (code[j] === char || code[j] === "\n") return j + 1;
+    }
+    return code.length;
+  }
+  return -1;
+}
+
+function skipTrivia(code: string, i: number): number {
+  while (i < code.length) {
+    if (isWhitespace(code.charCodeAt(i))) {
+      i++;
+    } else if (code[i] === "/" && (code[i + 1] === "/" || code[i + 1] === "*")) {
+      i = skipLiteral(code, i);
+    } else {
+      break;
+    }
+  }
+  return i;
+}
+
+/**
+ * Llave de cierre del bloque que abre en `open` y si dentro se declara
+ * algún tipo local o clase anónima. -1 si el bloque no se cierra.
+ */
+function matchBlock(code: string, open: number): { close: number; declaresType: boolean } {
+  let depth = 0;
+  let declaresType = false;
+  let last = "";
+  /** Hubo un `new` desde el último `;`, `{` o `}` */
+  let afterNew = false;
+
+  for (let i = open; i < code.length; ) {
+    const skipped = skipLiteral(code, i);
+    if (skipped !== -1) {
+      i = skipped;
+      last = '"';
+      continue;
+    }
+
+    const char = code[i];
+    if (isIdentifierStart(code.charCodeAt(i))) {
+      let end = i + 1;
+      while (end < code.length && isIdentifierPart(code.charCodeAt(end))) end++;
+      const word = code.slice(i, end);
+      // `Foo.class` es un literal, no una declaración; `record` solo lo es si le sigue un nombre
+      if (
+        last !== "." &&
+        (LOCAL_TYPE_KEYWORDS.has(word) || (word === "record" && isIdentifierStart(code.charCodeAt(skipTrivia(code, end)))))
+      ) {
+        declaresType = true;
+      }
+      if (word === "new") afterNew = true;
+      last = "w";
+      i = end;
+      continue;
+    }
+
+    if (char === "{") {
+      // `new Foo(...) {` abre una clase anónima
+      if (afterNew && last === ")") declaresType = true;
+      depth++;
+    } else if (char === "}" && --depth === 0) {
+      return { close: i, declaresType };
+    }
+    if (char === ";" || char === "{" || char === "}") afterNew = false;
+    if (!isWhitespace(code.charCodeAt(i))) last = char;
+    i++;
+  }
+  return { close: -1, declaresType };
+}
+
+export function outlineJavaSource(code: string): string {
+  const blanks: [number, number][] = [];
+  const stack: Frame[] = [{ kind: "type" }];
+  let header = newHeader();
+
+  for (let i = 0; i < code.length; ) {
+    const skipped = skipLiteral(code, i);
+    if (skipped !== -1) {
+      header.tokens++;
+      header.last = '"';
+      i = skipped;
+      continue;
+    }
+
+    const frame = stack[stack.length - 1];
+    const char = code[i];
+
+    if (frame.kind === "other") {
+      if (char === "{") stack.push({ kind: "other" });
+      else if (char === "}") stack.pop();
+      i++;
+      continue;
+    }
+
+    if (isIdentifierStart(code.charCodeAt(i))) {
+      let end = i + 1;
+      while (end < code.length && isIdentifierPart(code.charCodeAt(end))) end++;
+      const word = code.slice(i, end);
+
+      if (header.last !== ".") {
+        if (word === "class" || word === "interface") header.typeKeyword ??= "class";
+        else if (word === "enum") header.typeKeyword ??= "enum";
+        // `record` es contextual: solo declara un tipo si le sigue un nombre
+        else if (word === "record" && isIdentifierStart(code.charCodeAt(skipTrivia(code, end)))) header.typeKeyword ??= "class";
+        else if (word === "throws") header.throws = true;
+        else if (word === "new" && header.parens <= 0) header.expression = true;
+      }
+      header.tokens++;
+      header.lastWord = word;
+      header.last = "w";
+      i = end;
+      continue;
+    }
+
+    if (isWhitespace(code.charCodeAt(i))) {
+      i++;
+      continue;
+    }
+
+    if (char === "(") header.parens++;
+    else if (char === ")") header.parens--;
+    // Dentro de paréntesis `=` es un argumento de anotación (`@Foo(x = 1)`)
+    else if (header.parens <= 0 && (char === "=" || (char === "-" && code[i + 1] === ">"))) header.expression = true;
+
+    if (char === ";" && header.parens <= 0) {
+      if (frame.kind === "enum") frame.constants = false;
+      header = newHeader();
+      i++;
+      continue;
+    }
+
+    if (char === "}") {
+      stack.pop();
+      if (stack.length === 0) stack.push({ kind: "type" });
+      header = newHeader();
+      i++;
+      continue;
+    }
+
+    if (char === "{") {
+      const isMemberBody =
+        header.parens <= 0 &&
+        !header.typeKeyword &&
+        !header.expression &&
+        !(frame.kind === "enum" && frame.constants) &&
+        (header.last === ")" || header.throws || header.tokens === 0 || (header.tokens === 1 && header.lastWord === "static"));
+
+      if (header.typeKeyword && header.parens <= 0) {
+        stack.push(header.typeKeyword === "enum" ? { kind: "enum", constants: true } : { kind: "type" });
+      } else if (isMemberBody) {
+        const { close, declaresType } = matchBlock(code, i);
+        if (close !== -1 && !declaresType) {
+          if (close > i + 1) blanks.push([i + 1, close]);
+          header = newHeader();
+          i = close + 1;
+          continue;
+        }
+        stack.push({ kind: "other" });
+      } else {
+        stack.push({ kind: "other" });
+      }
+      header = newHeader();
+      i++;
+      continue;
+    }
+
+    header.tokens++;
+    header.last = char;
+    i++;
+  }
+
+  if (blanks.length === 0) return code;
+
+  let result = "";
+  let from = 0;
+  for (const [start, end] of blanks) {
+    result += code.slice(from, start) + code.slice(start, end).replace(/[^\r\n]/g, " ");
+    from = end;
+  }
+  return result + code.slice(from);
+}
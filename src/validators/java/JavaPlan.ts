@@ -0,0 +1,60 @@
+import type {
+  JavaPatternCategory,
+  JavaPatternConfig,
+  JavaPatternName,
+  JavaPatternRule,
+} from "../../types-java.js";
+
+/** Regla habilitada con todo lo que necesita la generación de violaciones ya resuelto. */
+export interface CompiledJavaRule {
+  readonly pattern: JavaPatternName;
+  readonly category: JavaPatternCategory;
+  readonly rule: string;
+  readonly displayName: string;
+  readonly severity: JavaPatternRule["severity"];
+  readonly detectAntipatterns: boolean;
+}
+
+/**
+ * Configuración Java aplanada: solo contiene las reglas habilitadas, indexadas
+ * por patrón. Se compila una vez por validador (es decir, por carga de la
+ * configuración) y sustituye a las búsquedas `rules[category][camelCase]` que
+ * antes se hacían en cada detector y en cada detección.
+ */
+export interface JavaExecutionPlan {
+  readonly rules: ReadonlyMap<JavaPatternName, CompiledJavaRule>;
+}
+
+export function compileJavaPlan(config: JavaPatternConfig): JavaExecutionPlan {
+  const rules = new Map<JavaPatternName, CompiledJavaRule>();
+
+  Object.entries(config.rules ?? {}).forEach(([category, patterns]) => {
+    Object.entries((patterns ?? {}) as Record<string, JavaPatternRule | undefined>).forEach(([key, rule]) => {
+      if (!rule?.enabled) return;
+
+      const pattern = configKeyToPatternName(key);
+      rules.set(pattern, {
+        pattern,
+        category: category as JavaPatternCategory,
+        rule: `pattern-${pattern}`,
+        displayName: formatPatternName(pattern),
+        severity: rule.severity,
+        detectAntipatterns: rule.detectAntipatterns === true,
+      });
+    });
+  });
+
+  return { rules };
+}
+
+/** `factoryMethod` → `factory-method` */
+function configKeyToPatternName(key: string): JavaPatternName {
+  return key.replace(/[A-Z]/g, (c) => `-${c.toLowerCase()}`) as JavaPatternName;
+}
+
+function formatPatternName(pattern: JavaPatternName): string {
+  return pattern
+    .split("-")
+    .map(word => word.charAt(0).toUpperCase() + word.slice(1))
+    .join(" ");
+}
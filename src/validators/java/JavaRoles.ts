@@ -0,0 +1,48 @@
+import type { ClassInfo } from "../../types-java.js";
+
+/**
+ * Roles arquitectónicos de una clase. Los comparten la detección por archivo
+ * y el índice de proyecto para que ambos clasifiquen igual.
+ */
+export type JavaRole = "controller" | "model" | "view" | "frontController" | "serviceLocator";
+
+export const JAVA_ROLES: readonly JavaRole[] = [
+  "controller",
+  "model",
+  "view",
+  "frontController",
+  "serviceLocator",
+];
+
+export function isController(c: ClassInfo): boolean {
+  return c.name.toLowerCase().includes("controller") || c.annotations.includes("Controller") || c.annotations.includes("RestController");
+}
+
+export function isModel(c: ClassInfo): boolean {
+  return c.name.toLowerCase().includes("model") || c.annotations.includes("Entity");
+}
+
+export function isView(c: ClassInfo): boolean {
+  return c.name.toLowerCase().includes("view");
+}
+
+export function isFrontController(c: ClassInfo): boolean {
+  return (
+    c.annotations.includes("ControllerAdvice") ||
+    c.annotations.includes("WebFilter") ||
+    c.name.toLowerCase().includes("dispatcherservlet") ||
+    c.name.toLowerCase().includes("frontcontroller")
+  );
+}
+
+export function isServiceLocator(c: ClassInfo): boolean {
+  return c.name.toLowerCase().includes("servicelocator") || c.name.toLowerCase().includes("servicefactory");
+}
+
+export const ROLE_PREDICATES: Record<JavaRole, (c: ClassInfo) => boolean> = {
+  controller: isController,
+  model: isModel,
+  view: isView,
+  frontController: isFrontController,
+  serviceLocator: isServiceLocator,
+};
@@ -0,0 +1,96 @@
+import type { Severity } from "../../types.js";
+import type { AstRule } from "../ast/AstWalker.js";
+import { BindingKind, ScopeGraph } from "../ast/ScopeGraph.js";
+import { findClones } from "../clones/CloneMatcher.js";
+import { DEFAULT_MIN_DUPLICATION_TOKENS } from "../clones/Fingerprints.js";
+
+// Por archivo basta con los bloques más evidentes
+const MAX_CLONES_PER_FILE = 20;
+
+const UNUSED: Record<Exclude<BindingKind, "other">, { rule: string; message: (name: string) => string; suggestion: string }> = {
+  variable: {
+    rule: "code-smell-unused-variable",
+    message: (name) => `La variable '${name}' está declarada pero nunca se usa`,
+    suggestion: `Elimina esta variable o úsala en tu código`,
+  },
+  function: {
+    rule: "code-smell-unused-function",
+    message: (name) => `La función '${name}' está declarada pero nunca se usa`,
+    suggestion: `Elimina la función o expórtala si se usa desde otro módulo`,
+  },
+  parameter: {
+    rule: "code-smell-unused-parameter",
+    message: (name) => `El parámetro '${name}' nunca se usa`,
+    suggestion: `Elimínalo o añade el prefijo '_' si la firma lo exige`,
+  },
+  import: {
+    rule: "code-smell-unused-import",
+    message: (name) => `'${name}' se importa pero nunca se usa`,
+    suggestion: `Elimina este import`,
+  },
+};
+
+export const codeSmellRule: AstRule = {
+  name: "codeSmells",
+
+  isEnabled: (config) => config.rules.codeSmells.enabled,
+
+  create(context) {
+    const { codeSmells } = context.config.rules;
+    const scopes = codeSmells.detectDeadCode ? new ScopeGraph() : null;
+
+    return {
+      ...scopes?.handlers(),
+
+      "Program:exit"() {
+        const lines = context.code.split("\n");
+
+        if (scopes) {
+          for (const binding of scopes.finish()) {
+            if (binding.used || binding.ignored || binding.kind === "other") continue;
+            const unused = UNUSED[binding.kind];
+            context.report({
+              rule: unused.rule,
+              message: unused.message(binding.name),
+              severity: codeSmells.severity,
+              line: binding.line,
+              column: binding.column,
+              suggestion: unused.suggestion,
+            });
+          }
+        }
+
+        if (codeSmells.detectDuplication && context.fingerprints) {
+          const clones = findClones([context.fingerprints], {
+            minTokens: codeSmells.minDuplicationTokens ?? DEFAULT_MIN_DUPLICATION_TOKENS,
+            maxClones: MAX_CLONES_PER_FILE,
+          });
+
+          clones.forEach(({ original, duplicate, tokens }) => {
+            context.report({
+              rule: "code-smell-duplication",
+              message: `Código duplicado: las líneas ${duplicate.startLine}-${duplicate.endLine} repiten las líneas ${original.startLine}-${original.endLine} (${tokens} tokens)`,
+              severity: "info" as Severity,
+              line: duplicate.startLine,
+              suggestion: `Considera extraer este código en una función reutilizable`,
+            });
+          });
+        }
+
+        const commentOnlyLines = lines.filter(
+          (line) => line.trim().startsWith("//") || line.trim().startsWith("/*")
+        ).length;
+        const codeLines = lines.filter((line) => line.trim() && !line.trim().startsWith("//")).length;
+
+        if (codeLines > 0 && commentOnlyLines / codeLines < 0.05 && codeLines > 50) {
+          context.report({
+            rule: "code-smell-lack-of-comments",
+            message: `Este archivo tiene muy pocos comentarios (${commentOnlyLines} comentarios para ${codeLines} líneas de código)`,
+            severity: "info" as Severity,
+            suggestion: `Agrega comentarios para explicar la lógica compleja`,
+          });
+        }
+      },
+    };
+  },
+};
@@ -0,0 +1,93 @@
+import type { Severity } from "../../types.js";
+import type { AstRule } from "../ast/AstWalker.js";
+
+export const namingRule: AstRule = {
+  name: "naming",
+  anchored: true,
+
+  isEnabled: (config) => config.rules.naming.enabled,
+
+  create(context) {
+    const { naming } = context.config.rules;
+
+    return {
+      ClassDeclaration(node) {
+        if (!node.id) return;
+        const className = node.id.name;
+        if (!/^[A-Z][a-zA-Z0-9]*$/.test(className)) {
+          context.report({
+            rule: "naming-class-pascalcase",
+            message: `La clase '${className}' debe usar PascalCase`,
+            severity: naming.severity,
+            line: node.loc?.start.line,
+            column: node.loc?.start.column,
+            suggestion: `Renombrar a '${toPascalCase(className)}'`,
+          });
+        }
+      },
+
+      FunctionDeclaration(node) {
+        if (!node.id) return;
+        const funcName = node.id.name;
+        if (!/^[a-z][a-zA-Z0-9]*$/.test(funcName)) {
+          context.report({
+            rule: "naming-function-camelcase",
+            message: `La función '${funcName}' debe usar camelCase`,
+            severity: naming.severity,
+            line: node.loc?.start.line,
+            column: node.loc?.start.column,
+            suggestion: `Renombrar a '${toCamelCase(funcName)}'`,
+          });
+        }
+      },
+
+      MethodDefinition(node) {
+        if (node.key.type !== "Identifier" || node.kind !== "method") return;
+        const methodName = node.key.name;
+        if (!/^[a-z][a-zA-Z0-9]*$/.test(methodName) && methodName !== "constructor") {
+          context.report({
+            rule: "naming-method-camelcase",
+            message: `El método '${methodName}' debe usar camelCase`,
+            severity: naming.severity,
+            line: node.loc?.start.line,
+            column: node.loc?.start.column,
+            suggestion: `Renombrar a '${toCamelCase(methodName)}'`,
+          });
+        }
+      },
+
+      VariableDeclaration(node) {
+        if (node.kind !== "const") return;
+        for (const declarator of node.declarations) {
+          if (declarator.id.type !== "Identifier") continue;
+          const constName = declarator.id.name;
+          const isUpperCase = constName === constName.toUpperCase();
+          const isCamelCase = /^[a-z][a-zA-Z0-9]*$/.test(constName);
+
+          if (!isUpperCase && !isCamelCase && constName.includes("_")) {
+            context.report({
+              rule: "naming-const-convention",
+              message: `La constante '${constName}' debería usar camelCase o UPPER_CASE`,
+              severity: "info" as Severity,
+              line: declarator.loc?.start.line,
+              column: declarator.loc?.start.column,
+              suggestion: `Usar camelCase para valores o UPPER_CASE para constantes globales`,
+            });
+          }
+        }
+      },
+    };
+  },
+};
+
+function toPascalCase(str: string): string {
+  return str
+    .replace(/^[a-z]/, (char) => char.toUpperCase())
+    .replace(/_([a-z])/g, (_, char) => char.toUpperCase());
+}
+
+function toCamelCase(str: string): string {
+  return str
+    .replace(/^[A-Z]/, (char) => char.toLowerCase())
+    .replace(/_([a-z])/g, (_, char) => char.toUpperCase());
+}
@@ -0,0 +1,106 @@
+import type { TSESTree } from "@typescript-eslint/typescript-estree";
+import type { AstRule } from "../ast/AstWalker.js";
+
+export const solidRule: AstRule = {
+  name: "solid",
+  anchored: true,
+
+  isEnabled: (config) => config.rules.solid.enabled,
+
+  create(context) {
+    const { solid, codeSmells } = context.config.rules;
+
+    const checkFunction = (
+      node:
+        | TSESTree.FunctionDeclaration
+        | TSESTree.FunctionExpression
+        | TSESTree.ArrowFunctionExpression
+    ) => {
+      const params = node.params.length;
+      if (params > solid.maxParameters) {
+        const name = node.type === "FunctionDeclaration" && node.id ? node.id.name : "función anónima";
+        context.report({
+          rule: "solid-too-many-parameters",
+          message: `La función '${name}' tiene ${params} parámetros (máx: ${solid.maxParameters})`,
+          severity: solid.severity,
+          line: node.loc?.start.line,
+          column: node.loc?.start.column,
+          suggestion: `Considera usar un objeto de opciones o dividir la función`,
+        });
+      }
+
+      if (codeSmells.detectLongMethods && node.loc) {
+        const functionLength = node.loc.end.line - node.loc.start.line;
+        if (functionLength > solid.maxFunctionLines) {
+          const name = node.type === "FunctionDeclaration" && node.id ? node.id.name : "función anónima";
+          context.report({
+            rule: "solid-function-too-long",
+            message: `La función '${name}' tiene ${functionLength} líneas (máx: ${solid.maxFunctionLines})`,
+            severity: solid.severity,
+            line: node.loc.start.line,
+            column: node.loc.start.column,
+            suggestion: `Divide esta función en funciones más pequeñas y específicas`,
+          });
+        }
+      }
+    };
+
+    return {
+      FunctionDeclaration: checkFunction,
+      FunctionExpression: checkFunction,
+      ArrowFunctionExpression: checkFunction,
+
+      MethodDefinition(node) {
+        if (node.value.type !== "FunctionExpression") return;
+
+        const params = node.value.params.length;
+        if (params > solid.maxParameters) {
+          const name = node.key.type === "Identifier" ? node.key.name : "método";
+          context.report({
+            rule: "solid-too-many-parameters",
+            message: `El método '${name}' tiene ${params} parámetros (máx: ${solid.maxParameters})`,
+            severity: solid.severity,
+            line: node.loc?.start.line,
+            column: node.loc?.start.column,
+            suggestion: `Considera usar un objeto de opciones o dividir el método`,
+          });
+        }
+
+        if (codeSmells.detectLongMethods && node.value.loc) {
+          const methodLength = node.value.loc.end.line - node.value.loc.start.line;
+          if (methodLength > solid.maxFunctionLines) {
+            const name = node.key.type === "Identifier" ? node.key.name : "método";
+            context.report({
+              rule: "solid-method-too-long",
+              message: `El método '${name}' tiene ${methodLength} líneas (máx: ${solid.maxFunctionLines})`,
+              severity: solid.severity,
+              line: node.value.loc.start.line,
+              column: node.value.loc.start.column,
+              suggestion: `Divide este método en métodos más pequeños y específicos`,
+            });
+          }
+        }
+      },
+
+      ClassDeclaration(node) {
+        if (!codeSmells.detectGodClasses) return;
+
+        const methodCount = node.body.body.filter(
+          (member) => member.type === "MethodDefinition" && member.kind === "method"
+        ).length;
+
+        if (methodCount > solid.maxClassMethods) {
+          const className = node.id ? node.id.name : "clase anónima";
+          context.report({
+            rule: "solid-god-class",
+            message: `La clase '${className}' tiene ${methodCount} métodos (máx: ${solid.maxClassMethods})`,
+            severity: solid.severity,
+            line: node.loc?.start.line,
+            column: node.loc?.start.column,
+            suggestion: `Considera dividir esta clase aplicando Single Responsibility Principle`,
+          });
+        }
+      },
+    };
+  },
+};
@@ -0,0 +1,59 @@
+export interface SourcePosition {
+  line: number;
+  column: number;
+}
+
+/**
+ * Tabla de inicios de línea de un bloque, construida una sola vez. Convierte
+ * offsets en línea/columna (base 1) con búsqueda binaria.
+ */
+export class LineIndex {
+  private readonly starts: Uint32Array;
+
+  constructor(content: string) {
+    const starts = [0];
+    for (let i = content.indexOf("\n"); i !== -1; i = content.indexOf("\n", i + 1)) {
+      starts.push(i + 1);
+    }
+    this.starts = Uint32Array.from(starts);
+  }
+
+  get lineCount(): number {
+    return this.starts.length;
+  }
+
+  /** Un offset negativo (búsqueda sin resultado) se reporta en 1:1. */
+  position(offset: number): SourcePosition {
+    if (offset <= 0) return { line: 1, column: 1 };
+
+    let low = 0;
+    let high = this.starts.length - 1;
+    while (low < high) {
+      const mid = (low + high + 1) >>> 1;
+      if (this.starts[mid] <= offset) low = mid;
+      else high = mid - 1;
+    }
+    return { line: low + 1, column: offset - this.starts[low] + 1 };
+  }
+}
+
+/**
+ * Índices de línea de una validación, uno por contenido de bloque. Los
+ * detectores eligen el bloque (script, script setup, template) por contenido.
+ */
+export class BlockLocator {
+  private readonly indexes = new Map<string, LineIndex>();
+
+  index(content: string): LineIndex {
+    let index = this.indexes.get(content);
+    if (!index) {
+      index = new LineIndex(content);
+      this.indexes.set(content, index);
+    }
+    return index;
+  }
+
+  locate(content: string, offset: number): SourcePosition {
+    return this.index(content).position(offset);
+  }
+}
@@ -0,0 +1,215 @@
+import { parse } from "@typescript-eslint/typescript-estree";
+import type { TSESTree } from "@typescript-eslint/typescript-estree";
+import type { VueComponentInfo } from "../../types-vue.js";
+import { AstWalker } from "../ast/AstWalker.js";
+
+type OptionValue = TSESTree.Node | null | undefined;
+
+/** Nombre estático de una clave de objeto (`foo`, `'foo'`, `"a.b"`) */
+function keyName(property: TSESTree.ObjectLiteralElement | TSESTree.TypeElement): string | null {
+  if (!("key" in property) || !property.key || ("computed" in property && property.computed)) {
+    return null;
+  }
+  const key = property.key;
+  if (key.type === "Identifier") return key.name;
+  if (key.type === "Literal" && (typeof key.value === "string" || typeof key.value === "number")) {
+    return String(key.value);
+  }
+  return null;
+}
+
+function objectKeys(node: OptionValue): string[] {
+  if (node?.type !== "ObjectExpression") return [];
+  return node.properties.map(keyName).filter((name): name is string => name !== null);
+}
+
+function stringElements(node: OptionValue): string[] {
+  if (node?.type !== "ArrayExpression") return [];
+  return node.elements.flatMap((element) =>
+    element?.type === "Literal" && typeof element.value === "string" ? [element.value] : []
+  );
+}
+
+function typeMemberKeys(members: TSESTree.TypeElement[]): string[] {
+  return members.map(keyName).filter((name): name is string => name !== null);
+}
+
+/** Objeto retornado por `data() { return {...} }` o `data: () => ({...})` */
+function dataObject(node: OptionValue): TSESTree.ObjectExpression | null {
+  if (node?.type !== "FunctionExpression" && node?.type !== "ArrowFunctionExpression") {
+    return null;
+  }
+  if (node.body.type === "ObjectExpression") return node.body;
+  if (node.body.type !== "BlockStatement") return null;
+
+  for (const statement of node.body.body) {
+    if (statement.type === "ReturnStatement" && statement.argument?.type === "ObjectExpression") {
+      return statement.argument;
+    }
+  }
+  return null;
+}
+
+/** `export default {...}`, `defineComponent({...})` o `Vue.extend({...})` */
+function componentOptions(program: TSESTree.Program): TSESTree.ObjectExpression | null {
+  for (const statement of program.body) {
+    if (statement.type !== "ExportDefaultDeclaration") continue;
+
+    let declaration = statement.declaration as TSESTree.Node;
+    while (declaration.type === "TSAsExpression" || declaration.type === "TSSatisfiesExpression") {
+      declaration = declaration.expression;
+    }
+    if (declaration.type === "ObjectExpression") return declaration;
+    if (declaration.type === "CallExpression" && declaration.arguments[0]?.type === "ObjectExpression") {
+      return declaration.arguments[0];
+    }
+  }
+  return null;
+}
+
+function extractOptions(options: TSESTree.ObjectExpression, info: VueComponentInfo): void {
+  for (const property of options.properties) {
+    if (property.type !== "Property") continue;
+
+    const name = keyName(property);
+    const value = property.value as OptionValue;
+    switch (name) {
+      case "mixins":
+        if (value?.type === "ArrayExpression") {
+          value.elements.forEach((element) => {
+            if (element?.type === "Identifier") info.mixins.push(element.name);
+          });
+        }
+        break;
+      case "filters":
+        info.filters.push(...objectKeys(value));
+        break;
+      case "data":
+        info.data.push(...objectKeys(dataObject(value)));
+        break;
+      case "methods":
+        info.methods.push(...objectKeys(value));
+        break;
+      case "computed":
+        info.computed.push(...objectKeys(value));
+        break;
+      case "watch":
+        info.watch.push(...objectKeys(value));
+        break;
+      case "props":
+        if (info.props.length === 0) {
+          info.props.push(...(value?.type === "ArrayExpression" ? stringElements(value) : objectKeys(value)));
+        }
+        break;
+    }
+  }
+}
+
+function extractDefineProps(call: TSESTree.CallExpression, program: TSESTree.Program, info: VueComponentInfo): void {
+  const typeArgument = call.typeArguments?.params[0];
+  if (typeArgument?.type === "TSTypeLiteral") {
+    info.props.push(...typeMemberKeys(typeArgument.members));
+    return;
+  }
+  if (typeArgument?.type === "TSTypeReference" && typeArgument.typeName.type === "Identifier") {
+    const members = findTypeMembers(program, typeArgument.typeName.name);
+    if (members) {
+      info.props.push(...typeMemberKeys(members));
+    } else {
+      info.props.push("props");
+    }
+    return;
+  }
+
+  const argument = call.arguments[0] as OptionValue;
+  info.props.push(...(argument?.type === "ArrayExpression" ? stringElements(argument) : objectKeys(argument)));
+}
+
+function extractDefineEmits(call: TSESTree.CallExpression, info: VueComponentInfo): void {
+  const typeArgument = call.typeArguments?.params[0];
+  if (typeArgument?.type === "TSTypeLiteral") {
+    for (const member of typeArgument.members) {
+      if (member.type === "TSCallSignatureDeclaration") {
+        // (e: 'change', id: number): void
+        const param = member.params[0];
+        const annotation = param?.type === "Identifier" ? param.typeAnnotation?.typeAnnotation : undefined;
+        if (annotation?.type === "TSLiteralType" && annotation.literal.type === "Literal") {
+          info.emits.push(String(annotation.literal.value));
+        }
+      } else {
+        // change: [id: number]
+        const name = keyName(member);
+        if (name) info.emits.push(name);
+      }
+    }
+    return;
+  }
+
+  info.emits.push(...stringElements(call.arguments[0] as OptionValue));
+}
+
+function findTypeMembers(program: TSESTree.Program, name: string): TSESTree.TypeElement[] | null {
+  for (const statement of program.body) {
+    const declaration =
+      statement.type === "ExportNamedDeclaration" ? statement.declaration : statement;
+    if (declaration?.type === "TSInterfaceDeclaration" && declaration.id.name === name) {
+      return declaration.body.body;
+    }
+    if (
+      declaration?.type === "TSTypeAliasDeclaration" &&
+      declaration.id.name === name &&
+      declaration.typeAnnotation.type === "TSTypeLiteral"
+    ) {
+      return declaration.typeAnnotation.members;
+    }
+  }
+  return null;
+}
+
+/**
+ * Extrae imports, composables, props, emits y (si se pide) las opciones del
+ * Options API a partir de un único parseo del bloque de script. Sustituye a
+ * las expresiones regulares, que retrocedían mucho en componentes grandes.
+ * Si el script no parsea, `info` queda sin cambios.
+ */
+export function extractScriptInfo(
+  content: string,
+  lang: string | undefined,
+  info: VueComponentInfo,
+  includeOptionsAPI: boolean
+): void {
+  let program: TSESTree.Program;
+  try {
+    // En lang="ts" los `<T>valor` son aserciones de tipo, no JSX
+    const jsx = !lang || lang === "js" || lang === "jsx" || lang === "tsx";
+    program = parse(content, { jsx, range: false, loc: false, comment: false });
+  } catch {
+    return;
+  }
+
+  for (const statement of program.body) {
+    if (statement.type !== "ImportDeclaration") continue;
+
+    info.imports.push(statement.source.value);
+    for (const specifier of statement.specifiers) {
+      if (specifier.type === "ImportSpecifier" && specifier.local.name.startsWith("use")) {
+        info.composables.push(specifier.local.name);
+      }
+    }
+  }
+
+  const walker = new AstWalker();
+  walker.register({
+    CallExpression(call) {
+      if (call.callee.type !== "Identifier") return;
+      if (call.callee.name === "defineProps") extractDefineProps(call, program, info);
+      else if (call.callee.name === "defineEmits") extractDefineEmits(call, info);
+    },
+  });
+  walker.walk(program);
+
+  if (includeOptionsAPI) {
+    const options = componentOptions(program);
+    if (options) extractOptions(options, info);
+  }
+}
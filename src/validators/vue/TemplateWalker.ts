@@ -0,0 +1,144 @@
+import type { SourcePosition } from "./LineIndex.js";
+
+/**
+ * Subconjunto del AST de plantillas de @vue/compiler-core que usan las
+ * reglas. Los valores de `type` son los de su enum NodeTypes, que es
+ * `const` y compiler-sfc no lo exporta en runtime.
+ */
+export const NODE_ELEMENT = 1;
+export const NODE_TEXT = 2;
+export const NODE_COMMENT = 3;
+export const NODE_ATTRIBUTE = 6;
+export const NODE_DIRECTIVE = 7;
+
+export interface TemplateLocation {
+  start: { line: number; column: number; offset: number };
+  end: { line: number; column: number; offset: number };
+}
+
+export interface TemplateAttribute {
+  type: typeof NODE_ATTRIBUTE;
+  name: string;
+  value?: { content: string };
+  loc: TemplateLocation;
+}
+
+export interface TemplateDirective {
+  type: typeof NODE_DIRECTIVE;
+  /** Sin prefijo: `for`, `if`, `bind`, `on`, `slot`... */
+  name: string;
+  arg?: { content?: string; isStatic?: boolean };
+  loc: TemplateLocation;
+}
+
+export interface TemplateElement {
+  type: typeof NODE_ELEMENT;
+  tag: string;
+  props: (TemplateAttribute | TemplateDirective)[];
+  children: TemplateNode[];
+  loc: TemplateLocation;
+}
+
+/** Texto, comentarios, interpolaciones...: solo importa que no son elementos */
+export type TemplateNode = TemplateElement | { type: number; loc: TemplateLocation; content?: unknown };
+
+export interface TemplateRoot {
+  children: TemplateNode[];
+}
+
+export type TemplateElementHandler = (element: TemplateElement, parent: TemplateElement | null) => void;
+export type TemplateDirectiveHandler = (directive: TemplateDirective, element: TemplateElement) => void;
+
+/**
+ * Handlers que una regla registra: `element` para todos los elementos,
+ * `element:<tag>` para una etiqueta y `directive:<nombre>` para una
+ * directiva (sin el prefijo `v-`).
+ */
+export type TemplateHandlers = {
+  element?: TemplateElementHandler;
+  [tag: `element:${string}`]: TemplateElementHandler | undefined;
+  [directive: `directive:${string}`]: TemplateDirectiveHandler | undefined;
+};
+
+export function findDirective(element: TemplateElement, name: string, arg?: string): TemplateDirective | undefined {
+  for (const prop of element.props) {
+    if (prop.type === NODE_DIRECTIVE && prop.name === name && (arg === undefined || prop.arg?.content === arg)) {
+      return prop;
+    }
+  }
+  return undefined;
+}
+
+export function findAttribute(element: TemplateElement, name: string): TemplateAttribute | undefined {
+  for (const prop of element.props) {
+    if (prop.type === NODE_ATTRIBUTE && prop.name === name) return prop;
+  }
+  return undefined;
+}
+
+/**
+ * Recorre una sola vez el AST que @vue/compiler-sfc ya construyó para el
+ * bloque `<template>` y despacha cada elemento y directiva a los handlers
+ * registrados por las reglas, como AstWalker con el AST de TypeScript.
+ */
+export class TemplateWalker {
+  private elementHandlers: TemplateElementHandler[] = [];
+  private tagHandlers = new Map<string, TemplateElementHandler[]>();
+  private directiveHandlers = new Map<string, TemplateDirectiveHandler[]>();
+
+  /** `block` es el inicio del contenido del bloque, para dar posiciones relativas a él. */
+  constructor(private readonly block: { line: number; column: number }) {}
+
+  register(handlers: TemplateHandlers): void {
+    for (const [selector, handler] of Object.entries(handlers)) {
+      if (!handler) continue;
+      if (selector === "element") {
+        this.elementHandlers.push(handler as TemplateElementHandler);
+      } else if (selector.startsWith("element:")) {
+        push(this.tagHandlers, selector.slice("element:".length), handler as TemplateElementHandler);
+      } else if (selector.startsWith("directive:")) {
+        push(this.directiveHandlers, selector.slice("directive:".length), handler as TemplateDirectiveHandler);
+      }
+    }
+  }
+
+  get isEmpty(): boolean {
+    return this.elementHandlers.length === 0 && this.tagHandlers.size === 0 && this.directiveHandlers.size === 0;
+  }
+
+  walk(root: TemplateRoot): void {
+    if (this.isEmpty) return;
+    for (const child of root.children) this.visit(child, null);
+  }
+
+  /** Posición de un nodo relativa al contenido del bloque, como el resto de reglas Vue. */
+  position(loc: TemplateLocation): SourcePosition {
+    const line = loc.start.line - this.block.line + 1;
+    return { line, column: line === 1 ? loc.start.column - this.block.column + 1 : loc.start.column };
+  }
+
+  private visit(node: TemplateNode, parent: TemplateElement | null): void {
+    if (node.type !== NODE_ELEMENT) return;
+    const element = node as TemplateElement;
+
+    for (const handler of this.elementHandlers) handler(element, parent);
+    const byTag = this.tagHandlers.get(element.tag);
+    if (byTag) for (const handler of byTag) handler(element, parent);
+
+    if (this.directiveHandlers.size > 0) {
+      for (const prop of element.props) {
+        if (prop.type !== NODE_DIRECTIVE) continue;
+        const byName = this.directiveHandlers.get(prop.name);
+        if (byName) for (const handler of byName) handler(prop, element);
+      }
+    }
+
+    for (const child of element.children) this.visit(child, element);
+  }
+}
+
+function push<T>(map: Map<string, T[]>, key: string, value: T): void {
+  const list = map.get(key);
+  if (list) list.push(value);
+  else map.set(key, [value]);
+}
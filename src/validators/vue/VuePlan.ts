@@ -0,0 +1,56 @@
+import type { VuePatternConfig } from '../../types-vue.js';
+
+/**
+ * Configuración Vue aplanada en lo que realmente se va a ejecutar. Una fase
+ * deshabilitada, o sin ninguna regla activa, queda a null y no se invoca.
+ */
+export interface VueExecutionPlan {
+  readonly composables: boolean;
+  readonly components: boolean;
+  readonly antiPatterns: {
+    readonly mixins: boolean;
+    readonly vIfVFor: boolean;
+    readonly propMutation: boolean;
+    readonly parentAccess: boolean;
+  } | null;
+  readonly bestPractices: {
+    readonly propValidation: boolean;
+    readonly eventNaming: boolean;
+    readonly scriptSetup: boolean;
+  } | null;
+  readonly template: {
+    readonly vForKey: boolean;
+  } | null;
+  readonly maxComponentSize: number;
+}
+
+export function compileVuePlan(config: VuePatternConfig): VueExecutionPlan {
+  const { composables, components, antiPatterns, bestPractices, template } = config.rules;
+
+  const bestPracticesPlan = bestPractices?.enabled
+    ? {
+        propValidation: bestPractices.enforcePropValidation === true,
+        eventNaming: bestPractices.enforceEventNaming === true,
+        scriptSetup: bestPractices.enforceScriptSetup === true,
+      }
+    : null;
+
+  return {
+    composables: composables?.enabled === true,
+    components: components?.enabled === true,
+    // Filters en Vue 3 y God Component no tienen flag propio: la fase se
+    // ejecuta siempre que la categoría esté habilitada
+    antiPatterns: antiPatterns?.enabled
+      ? {
+          mixins: antiPatterns.detectMixins === true,
+          vIfVFor: antiPatterns.detectVIfVFor === true,
+          propMutation: antiPatterns.detectPropMutation === true,
+          parentAccess: antiPatterns.detectParentAccess === true,
+        }
+      : null,
+    bestPractices:
+      bestPracticesPlan && Object.values(bestPracticesPlan).some(Boolean) ? bestPracticesPlan : null,
+    template: template?.enabled && template.enforceVForKey ? { vForKey: true } : null,
+    maxComponentSize: components?.maxComponentSize || 300,
+  };
+}
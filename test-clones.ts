@@ -0,0 +1,106 @@
+#!/usr/bin/env tsx
+
+import { fingerprint, fingerprintParams } from './src/validators/clones/Fingerprints';
+import { findClones } from './src/validators/clones/CloneMatcher';
+
+// Flujos de tokens sintéticos: hashes aleatorios (con semilla) en los que
+// solo el bloque compartido coincide, un token por línea
+let seed = 0x2f6b1d;
+const random = () => {
+  seed = (seed + 0x6d2b79f5) | 0;
+  let t = Math.imul(seed ^ (seed >>> 15), 1 | seed);
+  t = (t + Math.imul(t ^ (t >>> 7), 61 | t)) ^ t;
+  return (t ^ (t >>> 14)) >>> 0;
+};
+const noise = (length: number) => Array.from({ length }, random);
+
+const MIN_TOKENS = 50;
+const params = fingerprintParams(MIN_TOKENS);
+const fingerprintOf = (tokens: number[]) =>
+  fingerprint({ hashes: Uint32Array.from(tokens), lines: Uint32Array.from(tokens, (_, i) => i + 1) }, params);
+
+let failures = 0;
+const check = (label: string, ok: boolean, detail: string) => {
+  if (!ok) {
+    failures++;
+    console.log(`   ❌ ${label}: ${detail}`);
+  }
+};
+
+/** A y B comparten `length` tokens en posiciones distintas; devuelve los clones y dónde está el bloque. */
+const pair = (length: number) => {
+  const shared = noise(length);
+  const [prefixA, prefixB] = [1 + (random() % 120), 1 + (random() % 120)];
+  const a = [...noise(prefixA), ...shared, ...noise(1 + (random() % 120))];
+  const b = [...noise(prefixB), ...shared, ...noise(1 + (random() % 120))];
+  const clones = findClones([fingerprintOf(a), fingerprintOf(b)], { minTokens: MIN_TOKENS });
+  return { clones, a: { start: prefixA + 1, end: prefixA + length }, b: { start: prefixB + 1, end: prefixB + length } };
+};
+
+console.log('🧪 Testing clone detection (winnowing)\n');
+console.log('='.repeat(80));
+console.log(`\n⚙️  minTokens=${MIN_TOKENS} k=${params.k} w=${params.w}`);
+
+// 1. Un bloque de exactamente minTokens siempre se detecta, sea cual sea su posición
+const TRIALS = 200;
+for (let trial = 0; trial < TRIALS; trial++) {
+  const { clones, a, b } = pair(MIN_TOKENS);
+  check('en el umbral', clones.length === 1, `${clones.length} clones en el intento ${trial}`);
+  const clone = clones[0];
+  if (!clone) continue;
+  check(
+    'en el umbral',
+    clone.original.startLine === a.start && clone.original.endLine === a.end &&
+      clone.duplicate.startLine === b.start && clone.duplicate.endLine === b.end,
+    `región distinta del bloque compartido en el intento ${trial}`
+  );
+  check('en el umbral', clone.tokens === MIN_TOKENS, `mide ${clone.tokens} tokens en el intento ${trial}`);
+}
+console.log(`\n🎯 En el umbral: ${TRIALS} pares con ${MIN_TOKENS} tokens en común`);
+
+// 2. Un bloque largo se informa como un único clon, sin trocearlo
+for (const length of [2 * MIN_TOKENS, 8 * MIN_TOKENS, 40 * MIN_TOKENS]) {
+  const { clones, a } = pair(length);
+  check(`${length} tokens`, clones.length === 1, `${clones.length} clones en lugar de 1`);
+  const clone = clones[0];
+  if (!clone) continue;
+  check(`${length} tokens`, clone.tokens === length, `mide ${clone.tokens} tokens`);
+  check(`${length} tokens`, clone.original.startLine === a.start && clone.original.endLine === a.end, 'región distinta del bloque');
+}
+console.log(`\n📏 Por encima del umbral: bloques de ${2 * MIN_TOKENS} a ${40 * MIN_TOKENS} tokens`);
+
+// 3. Menos de k tokens en común no comparten ninguna ventana
+for (let trial = 0; trial < 20; trial++) {
+  const { clones } = pair(params.k - 1);
+  check('bajo el umbral', clones.length === 0, `${clones.length} clones con ${params.k - 1} tokens en común`);
+}
+console.log(`\n🔇 Bajo el umbral: ${params.k - 1} tokens en común no son un clon`);
+
+// 4. De k a minTokens - 1 tokens en común sí comparten huellas, pero miden
+// menos que el umbral y no se informan
+for (let length = params.k; length < MIN_TOKENS; length++) {
+  for (let trial = 0; trial < 10; trial++) {
+    const { clones } = pair(length);
+    check('cerca del umbral', clones.length === 0, `${clones.length} clones con ${length} tokens en común`);
+  }
+}
+console.log(`\n📐 Cerca del umbral: de ${params.k} a ${MIN_TOKENS - 1} tokens en común no son un clon`);
+
+// 5. Dentro de un mismo archivo
+const block = noise(3 * MIN_TOKENS);
+const single = [...noise(40), ...block, ...noise(70), ...block, ...noise(40)];
+const inFile = findClones([fingerprintOf(single)], { minTokens: MIN_TOKENS });
+check('mismo archivo', inFile.length === 1, `${inFile.length} clones en lugar de 1`);
+if (inFile[0]) {
+  check('mismo archivo', inFile[0].original.file === 0 && inFile[0].duplicate.file === 0, 'archivo equivocado');
+  check('mismo archivo', inFile[0].original.endLine < inFile[0].duplicate.startLine, 'las regiones se solapan');
+  check('mismo archivo', inFile[0].tokens === 3 * MIN_TOKENS, `mide ${inFile[0].tokens} tokens`);
+}
+console.log('\n📄 Mismo archivo: un bloque repetido');
+
+console.log('\n' + '='.repeat(80));
+if (failures > 0) {
+  console.log(`\n❌ ${failures} comprobación(es) fallidas\n`);
+  process.exit(1);
+}
+console.log('\n✅ Solo se informan bloques de al menos minTokens tokens, medidos con exactitud\n');
@@ -0,0 +1,112 @@
+#!/usr/bin/env tsx
+
+import { parseUnifiedDiff } from './src/project/changes';
+
+const ROOT = '/repo';
+
+let failures = 0;
+const expectChanges = (label: string, diff: string, expected: Record<string, [number, number][]>) => {
+  const actual = Object.fromEntries(
+    parseUnifiedDiff(diff, ROOT).map((file) => [file.filepath.slice(ROOT.length + 1), file.lines.ranges])
+  );
+  if (JSON.stringify(actual) !== JSON.stringify(expected)) {
+    failures++;
+    console.log(`   ❌ ${label}`);
+    console.log(`      esperado: ${JSON.stringify(expected)}`);
+    console.log(`      obtenido: ${JSON.stringify(actual)}`);
+  }
+};
+
+console.log('🧪 Testing parseUnifiedDiff\n');
+console.log('='.repeat(80));
+
+// 1. Conteo de hunks: líneas de contenido que parecen cabeceras
+expectChanges('conteo de hunks', `diff --git a/src/a.ts b/src/a.ts
+index 1111111..2222222 100644
+--- a/src/a.ts
++++ b/src/a.ts
+@@ -3,2 +3,2 @@ export function a() {
+--- separador viejo
+-++ otro
++++ separador nuevo
++-- otro
+@@ -10 +10,3 @@
+-const x = 1;
++const x = 2;
++const y = 3;
++const z = 4;
+@@ -20,2 +22,0 @@
+-borrada
+-borrada
+`, { 'src/a.ts': [[3, 4], [10, 12], [22, 23]] });
+console.log('\n🔢 Conteo de hunks: contenido con "--- " y "+++ " dentro de un hunk');
+
+// 2. "\\ No newline at end of file" no cuenta como línea del hunk
+expectChanges('sin salto final', `diff --git a/src/b.ts b/src/b.ts
+--- a/src/b.ts
++++ b/src/b.ts
+@@ -5 +5 @@
+-export default 1;
+\\ No newline at end of file
++export default 2;
+\\ No newline at end of file
+diff --git a/src/c.ts b/src/c.ts
+--- a/src/c.ts
++++ b/src/c.ts
+@@ -1 +1 @@
+-a
++b
+`, { 'src/b.ts': [[5, 5]], 'src/c.ts': [[1, 1]] });
+console.log('\n↩️  Sin salto final: "\\ No newline at end of file"');
+
+// 3. Renombrados: cuenta la ruta nueva; sin hunks no aparece
+expectChanges('renombrado', `diff --git a/src/old.ts b/src/new.ts
+similarity index 90%
+rename from src/old.ts
+rename to src/new.ts
+--- a/src/old.ts
++++ b/src/new.ts
+@@ -2 +2 @@
+-import { x } from './x';
++import { x } from './y';
+diff --git a/src/moved.ts b/lib/moved.ts
+similarity index 100%
+rename from src/moved.ts
+rename to lib/moved.ts
+`, { 'src/new.ts': [[2, 2]] });
+console.log('\n✏️  Renombrados: ruta nueva, y nada si solo se movió');
+
+// 4. Archivos borrados y nuevos
+expectChanges('borrados y nuevos', `diff --git a/src/gone.ts b/src/gone.ts
+deleted file mode 100644
+--- a/src/gone.ts
++++ /dev/null
+@@ -1,2 +0,0 @@
+-const a = 1;
+-const b = 2;
+diff --git a/src/added.ts b/src/added.ts
+new file mode 100644
+--- /dev/null
++++ b/src/added.ts
+@@ -0,0 +1,3 @@
++export const a = 1;
++export const b = 2;
++export const c = 3;
+`, { 'src/added.ts': [[1, 3]] });
+console.log('\n🗑️  Borrados (fuera) y nuevos (enteros)');
+
+// 5. Diff sin prefijos (git diff --no-prefix o diff.noprefix)
+expectChanges('sin prefijos', `--- src/d.ts
++++ src/d.ts
+@@ -4,0 +5,2 @@
++nueva
++nueva
+`, { 'src/d.ts': [[5, 6]] });
+console.log('\n📎 Sin prefijos: rutas tal cual');
+
+console.log('\n' + '='.repeat(80));
+if (failures > 0) {
+  console.log(`\n❌ ${failures} diff(s) con líneas distintas de las esperadas\n`);
+  process.exit(1);
+}
+console.log('\n✅ Todas las líneas modificadas coinciden con las esperadas\n');
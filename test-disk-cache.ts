@@ -0,0 +1,170 @@
+#!/usr/bin/env tsx
+
+import { createHash } from 'crypto';
+import { rmSync } from 'fs';
+import * as fs from 'fs/promises';
+import { tmpdir } from 'os';
+import { join } from 'path';
+import { CacheFingerprint, DiskCache } from './src/engine/DiskCache';
+import { FileReport, Language } from './src/types-report';
+
+let failures = 0;
+const check = (label: string, ok: boolean, detail: string) => {
+  if (!ok) {
+    failures++;
+    console.log(`   ❌ ${label}: ${detail}`);
+  }
+};
+
+const FINGERPRINT: CacheFingerprint = {
+  version: '1.0.0',
+  languages: { typescript: 'ts-1', java: 'java-1', vue: 'vue-1' },
+};
+const withLanguage = (language: Language, value: string): CacheFingerprint => ({
+  ...FINGERPRINT,
+  languages: { ...FINGERPRINT.languages, [language]: value },
+});
+
+// Cada DiskCache registra un flushSync() en 'exit'
+process.setMaxListeners(32);
+
+const dir = await fs.mkdtemp(join(tmpdir(), 'disk-cache-'));
+const cacheDir = join(dir, 'cache');
+const sha1 = (content: string) => createHash('sha1').update(content).digest('hex');
+
+/** Escribe el archivo y devuelve su stat y el informe que lo acompaña. */
+const source = async (name: string, language: Language, content: string) => {
+  const filepath = join(dir, name);
+  await fs.writeFile(filepath, content);
+  const report: FileReport = {
+    filepath,
+    language,
+    violations: [{ rule: `${language}-rule`, severity: 'warning', message: `en ${name}`, line: 1 }],
+    contentHash: sha1(content),
+    configFingerprint: FINGERPRINT.languages[language],
+  };
+  return { filepath, report, stat: await fs.stat(filepath) };
+};
+
+/** Caché nueva sobre el mismo directorio, como tras reiniciar el servidor. */
+const reopen = async (fingerprint = FINGERPRINT) => {
+  const cache = new DiskCache(cacheDir, fingerprint, { flushDelayMs: 60_000 });
+  await cache.ready();
+  return cache;
+};
+
+console.log('🧪 Testing DiskCache\n');
+console.log('='.repeat(80));
+
+const java = await source('Service.java', 'java', 'class Service {}');
+const ts = await source('util.ts', 'typescript', 'export const x = 1;');
+
+// 1. Lo guardado con flush() se recupera tal cual al cargar de nuevo
+{
+  const cache = await reopen();
+  cache.set(java.filepath, java.stat, java.report);
+  cache.set(ts.filepath, ts.stat, ts.report);
+  await cache.flush();
+
+  const loaded = await reopen();
+  check('ida y vuelta', loaded.getStats().loaded === 2, `se cargaron ${loaded.getStats().loaded} entradas`);
+  const report = loaded.get(java.filepath, java.stat);
+  check('ida y vuelta', report !== undefined, 'sin acierto tras recargar');
+  check(
+    'ida y vuelta',
+    JSON.stringify(report) === JSON.stringify(java.report),
+    `informe distinto: ${JSON.stringify(report)}`
+  );
+  check('ida y vuelta', loaded.getStats().hits === 1, `hits=${loaded.getStats().hits}`);
+}
+console.log('\n💾 Ida y vuelta: flush() y carga devuelven los mismos informes');
+
+// 2. Un touch cambia el mtime pero no el contenido: acierto por hash
+{
+  const touched = new Date(Date.now() + 60_000);
+  await fs.utimes(java.filepath, touched, touched);
+  const stat = await fs.stat(java.filepath);
+
+  const cache = await reopen();
+  check('touch', cache.get(java.filepath, stat) === undefined, 'get() acertó con un mtime distinto');
+  const report = cache.getByHash(java.filepath, stat, java.report.contentHash!);
+  check('touch', report?.violations[0]?.message === 'en Service.java', 'getByHash() no acertó con el mismo contenido');
+  check('touch', cache.get(java.filepath, stat) !== undefined, 'el mtime no se actualizó tras getByHash()');
+  check('touch', cache.getByHash(java.filepath, stat, sha1('class Service { int x; }')) === undefined, 'acierto con otro contenido');
+  const stats = cache.getStats();
+  check('touch', stats.hits === 2 && stats.misses === 0, `hits=${stats.hits} misses=${stats.misses}`);
+
+  // El mtime actualizado también se persiste
+  await cache.flush();
+  const loaded = await reopen();
+  check('touch', loaded.get(java.filepath, stat) !== undefined, 'el nuevo mtime no llegó a disco');
+}
+console.log('\n👆 Touch sin cambios: acierto por contenido y mtime actualizado');
+
+// 3. Cambia la configuración de un lenguaje: solo se descartan sus archivos
+{
+  const javaStat = await fs.stat(java.filepath);
+  const loaded = await reopen(withLanguage('java', 'java-2'));
+  check('huella al cargar', loaded.getStats().loaded === 1, `se cargaron ${loaded.getStats().loaded} entradas`);
+  check('huella al cargar', loaded.get(java.filepath, javaStat) === undefined, 'Java sobrevivió a su cambio de configuración');
+  check('huella al cargar', loaded.get(ts.filepath, ts.stat) !== undefined, 'TypeScript se descartó sin cambiar');
+
+  const live = await reopen();
+  const removed = await live.setFingerprint(withLanguage('typescript', 'ts-2'));
+  check('setFingerprint', removed === 1, `descartó ${removed} entradas`);
+  check('setFingerprint', live.get(ts.filepath, ts.stat) === undefined, 'TypeScript sobrevivió a su cambio de configuración');
+  check('setFingerprint', live.get(java.filepath, javaStat) !== undefined, 'Java se descartó sin cambiar');
+
+  // Un informe calculado con la configuración anterior ya no se guarda
+  live.set(ts.filepath, ts.stat, ts.report);
+  check('setFingerprint', live.get(ts.filepath, ts.stat) === undefined, 'se guardó un informe con la huella anterior');
+
+  const other = await reopen({ ...FINGERPRINT, version: '2.0.0' });
+  check('versión', other.getStats().loaded === 0, `otra versión cargó ${other.getStats().loaded} entradas`);
+}
+console.log('\n🔑 Huellas: un cambio de configuración solo invalida ese lenguaje');
+
+// 4. Un archivo truncado o corrupto se descarta sin lanzar
+{
+  const file = join(cacheDir, 'analysis.cache');
+  const valid = await fs.readFile(file);
+  const cases: [string, Buffer][] = [
+    ['registro truncado', valid.subarray(0, valid.length - 10)],
+    ['cabecera truncada', valid.subarray(0, 7)],
+    ['cabecera inválida', Buffer.from('no es una caché')],
+    ['vacío', Buffer.alloc(0)],
+  ];
+  const error = console.error;
+  console.error = () => {};
+  try {
+    for (const [label, data] of cases) {
+      await fs.writeFile(file, data);
+      try {
+        const cache = await reopen();
+        check(label, cache.getStats().entries === 0, `quedaron ${cache.getStats().entries} entradas`);
+        check(label, cache.get(ts.filepath, ts.stat) === undefined, 'acierto sobre un archivo corrupto');
+
+        // La caché sigue siendo utilizable y el siguiente flush() la repara
+        cache.set(ts.filepath, ts.stat, ts.report);
+        await cache.flush();
+        const repaired = await reopen();
+        check(label, repaired.get(ts.filepath, ts.stat) !== undefined, 'flush() no reescribió el archivo');
+      } catch (e) {
+        check(label, false, `lanzó ${(e as Error).message}`);
+      }
+    }
+  } finally {
+    console.error = error;
+  }
+}
+console.log('\n🧯 Corrupción: archivos truncados o inválidos se descartan sin lanzar');
+
+// Después de los flushSync() pendientes, que volverían a crear el directorio
+process.on('exit', () => rmSync(dir, { recursive: true, force: true }));
+
+console.log('\n' + '='.repeat(80));
+if (failures > 0) {
+  console.log(`\n❌ ${failures} comprobación(es) fallidas\n`);
+  process.exit(1);
+}
+console.log('\n✅ La caché en disco sobrevive a reinicios, touches, recargas y corrupción\n');
@@ -0,0 +1,83 @@
+#!/usr/bin/env tsx
+
+import { JavaPatternValidator } from './src/validators/JavaPatternValidator';
+import type { JavaPatternConfig, JavaPatternViolation } from './src/types-java';
+import * as fs from 'fs';
+import * as path from 'path';
+
+const config: JavaPatternConfig = JSON.parse(fs.readFileSync('java-patterns.config.json', 'utf-8'));
+
+const corpusDir = 'examples/JavaPatterns';
+const corpus = [
+  ...fs.readdirSync(corpusDir).filter(f => f.endsWith('.java')).map(f => path.join(corpusDir, f)),
+  'examples/JavaPatternsGoF.java',
+  'examples/JavaPatternsEnterprise.java',
+].map(file => ({ file, code: fs.readFileSync(file, 'utf-8') }));
+
+const ROUNDS = 20;
+const serialize = (violations: JavaPatternViolation[]) => JSON.stringify(violations);
+
+let failures = 0;
+const check = (label: string, file: string, actual: string, expected: string) => {
+  if (actual !== expected) {
+    failures++;
+    console.log(`   ❌ ${label}: resultado distinto para ${file}`);
+  }
+};
+
+console.log('🧪 Testing JavaPatternValidator reentrancy\n');
+console.log('='.repeat(80));
+
+// 1. Línea base: validaciones secuenciales, una instancia nueva por archivo
+const baseline = new Map<string, string>();
+for (const { file, code } of corpus) {
+  baseline.set(file, serialize(new JavaPatternValidator(config).validateCode(code, file)));
+}
+console.log(`\n📄 Corpus: ${corpus.length} archivos`);
+
+// 2. Validaciones intercaladas sobre una única instancia compartida
+const shared = new JavaPatternValidator(config);
+const tasks: Promise<void>[] = [];
+for (let round = 0; round < ROUNDS; round++) {
+  corpus.forEach(({ file, code }, idx) => {
+    tasks.push((async () => {
+      for (let i = 0; i < (round + idx) % 5; i++) {
+        await new Promise(resolve => setImmediate(resolve));
+      }
+      check('intercalado', file, serialize(shared.validateCode(code, file)), baseline.get(file)!);
+    })());
+  });
+}
+await Promise.all(tasks);
+console.log(`\n🔀 Intercaladas: ${tasks.length} validaciones sobre una instancia compartida`);
+
+// 3. Reentrancia real: la configuración dispara una validación anidada
+//    en mitad de otra, sobre la misma instancia
+let nested = 0;
+let depth = 0;
+let validator: JavaPatternValidator;
+const reentrantConfig = new Proxy(config, {
+  get(target, prop, receiver) {
+    if (prop === 'rules' && depth === 0 && nested < ROUNDS * corpus.length) {
+      depth++;
+      const { file, code } = corpus[nested++ % corpus.length];
+      check('anidado', file, serialize(validator.validateCode(code, file)), baseline.get(file)!);
+      depth--;
+    }
+    return Reflect.get(target, prop, receiver);
+  },
+});
+validator = new JavaPatternValidator(reentrantConfig);
+for (let round = 0; round < ROUNDS; round++) {
+  for (const { file, code } of corpus) {
+    check('externo', file, serialize(validator.validateCode(code, file)), baseline.get(file)!);
+  }
+}
+console.log(`\n🪆 Anidadas: ${nested} validaciones dentro de otras validaciones en curso`);
+
+console.log('\n' + '='.repeat(80));
+if (failures > 0) {
+  console.log(`\n❌ ${failures} resultado(s) difieren de la ejecución secuencial\n`);
+  process.exit(1);
+}
+console.log('\n✅ Todas las validaciones concurrentes coinciden con la ejecución secuencial\n');
@@ -0,0 +1,173 @@
+#!/usr/bin/env tsx
+
+import { JavaPatternValidator } from './src/validators/JavaPatternValidator';
+import { outlineJavaSource } from './src/validators/java/JavaOutline';
+import type { JavaPatternConfig } from './src/types-java';
+import { metrics } from './src/metrics';
+import * as fs from 'fs';
+import * as path from 'path';
+
+const config: JavaPatternConfig = JSON.parse(fs.readFileSync('java-patterns.config.json', 'utf-8'));
+const outline = new JavaPatternValidator({ ...config, parseMode: 'outline' });
+const full = new JavaPatternValidator({ ...config, parseMode: 'full' });
+const unforced = new JavaPatternValidator(config);
+
+// Construcciones en las que contar llaves es delicado
+const EDGE_CASES = `package demo;
+
+import java.util.List;
+
+@interface Retry {
+    int times() default 3;
+    String[] on() default {"IOException", "TimeoutException"};
+}
+
+enum Operation {
+    PLUS("+") {
+        @Override
+        int apply(int a, int b) { return a + b; }
+    },
+    TIMES("*") {
+        @Override
+        int apply(int a, int b) { return a * b; }
+    };
+
+    private final String symbol;
+
+    Operation(String symbol) { this.symbol = symbol; }
+
+    abstract int apply(int a, int b);
+}
+
+record Range(int low, int high) implements Comparable<Range> {
+    Range {
+        if (low > high) throw new IllegalArgumentException("{" + low);
+    }
+
+    static Range of(int value) {
+        record Bounds(int min, int max) {}
+        Bounds bounds = new Bounds(value, value);
+        return new Range(bounds.min(), bounds.max());
+    }
+
+    public int compareTo(Range other) { return Integer.compare(low, other.low); }
+}
+
+public class ReportService implements Runnable {
+    private static final char OPEN = '{';
+    private static final char CLOSE = '}';
+    private final Runnable hook = new Runnable() {
+        @Override
+        public void run() { System.out.println("}"); }
+    };
+    private final String template = """
+        { "report": "%s" }
+        }}} \\""" {
+        """;
+
+    static { System.out.println('}'); }
+
+    public ReportService() {
+        if (OPEN == '{') { hook.run(); }
+    }
+
+    public Runnable later() {
+        return new Runnable() {
+            @Override
+            public void run() { System.out.println("{"); }
+        };
+    }
+
+    @Override
+    public void run() {
+        String brace = "}";
+        List<String> items = List.of("{", "}");
+        items.forEach(item -> { if (item.equals(brace)) { return; } });
+    }
+
+    public String render(String value) throws IllegalStateException {
+        return template.formatted(value) + CLOSE;
+    }
+}
+`;
+
+const corpusDir = 'examples/JavaPatterns';
+const corpus = [
+  { file: 'edge-cases.java', code: EDGE_CASES },
+  ...fs.readdirSync(corpusDir).filter(f => f.endsWith('.java')).map(f => path.join(corpusDir, f)),
+  'examples/JavaPatternsGoF.java',
+  'examples/JavaPatternsEnterprise.java',
+].map(entry => (typeof entry === 'string' ? { file: entry, code: fs.readFileSync(entry, 'utf-8') } : entry));
+
+const fallbacks = () => metrics.snapshot().find(m => m.name === 'java.outline.fallback')?.violations ?? 0;
+
+let failures = 0;
+const fail = (message: string) => {
+  failures++;
+  console.log(`   ❌ ${message}`);
+};
+
+console.log('🧪 Testing Java outline parsing\n');
+console.log('='.repeat(80));
+
+// 1. El esquema conserva líneas y produce el mismo resumen de clases que el parse completo
+for (const { file, code } of corpus) {
+  const skeleton = outlineJavaSource(code);
+  if (skeleton.length !== code.length || skeleton.split('\n').length !== code.split('\n').length) {
+    fail(`${file}: el esquema cambia longitud o líneas`);
+  }
+
+  const before = fallbacks();
+  const fromOutline = outline.analyze(code, file);
+  if (fallbacks() !== before) fail(`${file}: el esquema no parsea y se repitió con el código completo`);
+  const fromFull = full.analyze(code, file);
+
+  if (JSON.stringify(fromOutline.classes) !== JSON.stringify(fromFull.classes)) {
+    fail(`${file}: resumen de clases distinto del parse completo`);
+  }
+  if (JSON.stringify(fromOutline.violations) !== JSON.stringify(fromFull.violations)) {
+    fail(`${file}: violaciones distintas del parse completo`);
+  }
+}
+const edgeOutline = outlineJavaSource(EDGE_CASES);
+if (!edgeOutline.includes('record Bounds')) fail('se vació el cuerpo que declara el record local Bounds');
+if (!edgeOutline.includes('println("{")')) fail('se vació el cuerpo que declara una clase anónima');
+if (edgeOutline.includes('item.equals(brace)')) fail('no se vació el cuerpo de run()');
+console.log(`\n📄 Esquema frente a parse completo: ${corpus.length} archivos`);
+
+// 2. Un error de sintaxis dentro de un cuerpo no llega al parser en modo outline
+const broken = `public class Broken {
+    public void run() {
+        int x = ;
+    }
+}
+`;
+const brokenOutline = outline.analyze(broken, 'Broken.java');
+const brokenFull = full.analyze(broken, 'Broken.java');
+if (brokenOutline.violations.some(v => v.rule === 'parse-error') || brokenOutline.classes[0]?.name !== 'Broken') {
+  fail('outline: un error dentro de un método debería pasar inadvertido');
+}
+if (!brokenFull.violations.some(v => v.rule === 'parse-error')) {
+  fail('full: un error dentro de un método debería informarse como parse-error');
+}
+console.log('\n🩹 Errores dentro de cuerpos: solo los informa parseMode "full"');
+
+// 3. Sin parseMode en la configuración, cada herramienta elige: completo por
+// defecto (validate_java_code/file) y esquema cuando lo pide un recorrido
+if (!unforced.analyze(broken, 'Broken.java').violations.some(v => v.rule === 'parse-error')) {
+  fail('por defecto: un archivo suelto debería parsearse completo');
+}
+if (unforced.analyze(broken, 'Broken.java', null, 'outline').violations.some(v => v.rule === 'parse-error')) {
+  fail('recorrido: el esquema pedido no se usó');
+}
+if (outline.analyze(broken, 'Broken.java', null, 'full').violations.some(v => v.rule === 'parse-error')) {
+  fail('configuración: parseMode "outline" debería imponerse a lo que pide la herramienta');
+}
+console.log('\n🎛️  Sin parseMode: completo para un archivo, esquema para los recorridos');
+
+console.log('\n' + '='.repeat(80));
+if (failures > 0) {
+  console.log(`\n❌ ${failures} comprobación(es) fallidas\n`);
+  process.exit(1);
+}
+console.log('\n✅ El esquema produce las mismas clases y violaciones que el parse completo\n');
@@ -0,0 +1,157 @@
+#!/usr/bin/env tsx
+
+import { RequestScheduler, SchedulerBusyError } from './src/engine/RequestScheduler';
+
+let failures = 0;
+const check = (label: string, ok: boolean, detail: string) => {
+  if (!ok) {
+    failures++;
+    console.log(`   ❌ ${label}: ${detail}`);
+  }
+};
+
+/** Promesa que el test resuelve cuando quiere. */
+const deferred = <T = void>() => {
+  let resolve!: (value: T) => void;
+  const promise = new Promise<T>((r) => (resolve = r));
+  return { promise, resolve };
+};
+const settle = <T>(promise: Promise<T>) =>
+  promise.then((value) => ({ value, error: undefined }), (error: Error) => ({ value: undefined, error }));
+const tick = () => new Promise((resolve) => setImmediate(resolve));
+
+console.log('🧪 Testing RequestScheduler\n');
+console.log('='.repeat(80));
+
+// 1. Llamadas concurrentes con la misma clave comparten un único análisis
+{
+  const scheduler = new RequestScheduler({ maxConcurrent: 2, maxQueue: 2, maxWaitMs: 0 });
+  const gate = deferred<string>();
+  let calls = 0;
+  const analysis = () => {
+    calls++;
+    return gate.promise;
+  };
+  const first = scheduler.shared('src/a.ts', analysis);
+  const second = scheduler.shared('src/a.ts', analysis);
+  const other = scheduler.shared('src/b.ts', async () => 'b');
+  gate.resolve('a');
+  const results = await Promise.all([first, second, other]);
+  check('coalescencia', calls === 1, `el análisis se ejecutó ${calls} veces`);
+  check('coalescencia', results.join() === 'a,a,b', `resultados ${results.join()}`);
+  check('coalescencia', scheduler.getStats().coalesced === 1, `coalesced=${scheduler.getStats().coalesced}`);
+  await scheduler.shared('src/a.ts', analysis);
+  check('coalescencia', calls === 2, 'una llamada posterior reutilizó un análisis ya terminado');
+}
+console.log('\n🔗 Coalescencia: una sola ejecución por clave en vuelo');
+
+// 2. Cola llena o espera excesiva: SchedulerBusyError sin ejecutar la petición
+{
+  const scheduler = new RequestScheduler({ maxConcurrent: 1, maxQueue: 1, maxWaitMs: 0 });
+  const gate = deferred();
+  const running = scheduler.run('normal', () => gate.promise);
+  let queuedRan = false;
+  const queued = scheduler.run('normal', async () => {
+    queuedRan = true;
+  });
+  let rejectedRan = false;
+  const rejected = await settle(
+    scheduler.run('normal', async () => {
+      rejectedRan = true;
+    })
+  );
+  check('ocupado', rejected.error instanceof SchedulerBusyError, 'la tercera petición no se rechazó como ocupada');
+  check('ocupado', !rejectedRan, 'la petición rechazada llegó a ejecutarse');
+  check('ocupado', (await scheduler.run('high', async () => 'ok')) === 'ok', 'la prioridad alta esperó a la cola');
+  await tick();
+  check('ocupado', !queuedRan, 'la petición en cola se ejecutó con el hueco ocupado');
+  gate.resolve();
+  await Promise.all([running, queued]);
+  check('ocupado', queuedRan, 'la petición en cola no heredó el hueco');
+  check('ocupado', scheduler.getStats().active === 0, `active=${scheduler.getStats().active} tras terminar`);
+
+  const slow = new RequestScheduler({ maxConcurrent: 1, maxQueue: 4, maxWaitMs: 20 });
+  const hold = deferred();
+  const holding = slow.run('normal', () => hold.promise);
+  const waited = await settle(slow.run('normal', async () => 'tarde'));
+  check('ocupado', waited.error instanceof SchedulerBusyError, 'la espera máxima en cola no se respetó');
+  check('ocupado', slow.getStats().queued === 0, 'la petición caducada sigue en la cola');
+  hold.resolve();
+  await holding;
+  check('ocupado', slow.getStats().rejected === 1, `rejected=${slow.getStats().rejected}`);
+}
+console.log('\n🚦 Ocupado: cola llena y espera máxima');
+
+// 3. Cancelación: antes de encolar y mientras espera
+{
+  const scheduler = new RequestScheduler({ maxConcurrent: 1, maxQueue: 4, maxWaitMs: 0 });
+  const aborted = new AbortController();
+  aborted.abort();
+  let ran = false;
+  const early = await settle(
+    scheduler.run('normal', async () => {
+      ran = true;
+    }, aborted.signal)
+  );
+  check('cancelada', early.error !== undefined && !ran, 'una señal ya abortada ejecutó la petición');
+  check('cancelada', scheduler.getStats().active === 0, 'una señal ya abortada ocupó un hueco');
+
+  const gate = deferred();
+  const running = scheduler.run('normal', () => gate.promise);
+  const late = await settle(scheduler.run('normal', async () => {}, aborted.signal));
+  check('cancelada', late.error !== undefined && scheduler.getStats().queued === 0, 'una señal ya abortada quedó en la cola');
+
+  const controller = new AbortController();
+  const waiting = settle(scheduler.run('normal', async () => {}, controller.signal));
+  check('cancelada', scheduler.getStats().queued === 1, 'la petición no llegó a la cola');
+  controller.abort();
+  check('cancelada', (await waiting).error !== undefined, 'la petición cancelada en cola no se rechazó');
+  check('cancelada', scheduler.getStats().queued === 0, 'la petición cancelada sigue en la cola');
+  gate.resolve();
+  await running;
+  check('cancelada', scheduler.getStats().active === 0, `active=${scheduler.getStats().active} tras terminar`);
+}
+console.log('\n🛑 Cancelación: señal abortada antes y durante la espera');
+
+// 4. Segundo plano: cupo propio, ocupado hasta que el trabajo termina
+{
+  const scheduler = new RequestScheduler({ maxConcurrent: 1, maxQueue: 0, maxWaitMs: 0, maxBackground: 1 });
+  const gate = deferred();
+  const job = scheduler.background(() => gate.promise);
+  check('segundo plano', scheduler.getStats().background === 1, `background=${scheduler.getStats().background}`);
+  check('segundo plano', scheduler.getStats().active === 0, 'el trabajo en segundo plano ocupa un hueco de peticiones');
+
+  let secondRan = false;
+  let busy: unknown;
+  try {
+    void scheduler.background(async () => {
+      secondRan = true;
+    });
+  } catch (error) {
+    busy = error;
+  }
+  check('segundo plano', busy instanceof SchedulerBusyError, 'el segundo trabajo no se rechazó como ocupado');
+  check('segundo plano', !secondRan, 'el trabajo rechazado llegó a ejecutarse');
+
+  // Las peticiones normales siguen teniendo su hueco
+  check('segundo plano', (await settle(scheduler.run('normal', async () => 'ok'))).value === 'ok', 'una petición normal se bloqueó');
+
+  gate.resolve();
+  await job;
+  check('segundo plano', scheduler.getStats().background === 0, `background=${scheduler.getStats().background} tras terminar`);
+  const failed = await settle(
+    scheduler.background(async () => {
+      throw new Error('fallo');
+    })
+  );
+  check('segundo plano', failed.error?.message === 'fallo', 'el error del trabajo no se propagó');
+  check('segundo plano', scheduler.getStats().background === 0, 'un trabajo fallido no liberó el cupo');
+}
+console.log('\n🌙 Segundo plano: cupo acotado hasta que el trabajo termina');
+
+console.log('\n' + '='.repeat(80));
+if (failures > 0) {
+  console.log(`\n❌ ${failures} comprobación(es) fallidas\n`);
+  process.exit(1);
+}
+console.log('\n✅ El planificador coalesce, rechaza, cancela y acota el segundo plano como se espera\n');
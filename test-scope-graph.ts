@@ -0,0 +1,89 @@
+#!/usr/bin/env tsx
+
+import { parse } from '@typescript-eslint/typescript-estree';
+import { AstWalker } from './src/validators/ast/AstWalker';
+import { Binding, ScopeGraph } from './src/validators/ast/ScopeGraph';
+
+const analyze = (code: string): Binding[] => {
+  const graph = new ScopeGraph();
+  const walker = new AstWalker();
+  walker.register(graph.handlers());
+  walker.walk(parse(code, { loc: true, range: true }));
+  return graph.finish();
+};
+
+let failures = 0;
+const expectUse = (label: string, bindings: Binding[], name: string, line: number, used: boolean) => {
+  const binding = bindings.find(b => b.name === name && b.line === line);
+  if (!binding) {
+    failures++;
+    console.log(`   ❌ ${label}: no hay declaración de '${name}' en la línea ${line}`);
+  } else if (binding.used !== used) {
+    failures++;
+    console.log(`   ❌ ${label}: '${name}' (línea ${line}) debería estar ${used ? 'usada' : 'sin usar'}`);
+  }
+};
+
+console.log('🧪 Testing ScopeGraph\n');
+console.log('='.repeat(80));
+
+// 1. Sombreado: la variable interna no usa la externa del mismo nombre
+const shadowing = analyze(`const value = 1;
+export function read() {
+  const value = 2;
+  return value;
+}
+export function write(value: number) {
+  return value;
+}`);
+expectUse('sombreado', shadowing, 'value', 1, false);
+expectUse('sombreado', shadowing, 'value', 3, true);
+expectUse('sombreado', shadowing, 'value', 6, true);
+console.log('\n🌗 Sombreado: variables y parámetros con el nombre de una externa');
+
+// 2. Elevación: uso antes de la declaración (funciones y var)
+const hoisting = analyze(`run();
+function run() {
+  return helper + nested();
+  function nested() {
+    return 1;
+  }
+}
+var helper = 1;
+function idle() {}`);
+expectUse('elevación', hoisting, 'run', 2, true);
+expectUse('elevación', hoisting, 'helper', 8, true);
+expectUse('elevación', hoisting, 'nested', 4, true);
+expectUse('elevación', hoisting, 'idle', 9, false);
+console.log('\n⬆️  Elevación: funciones y var usadas antes de declararse');
+
+// 3. Un import usado solo como tipo cuenta como usado
+const typeOnly = analyze(`import { Config, Unused } from './config';
+import type { Options } from './options';
+export const load = (raw: string, options?: Options): Config => JSON.parse(raw);`);
+expectUse('solo tipo', typeOnly, 'Config', 1, true);
+expectUse('solo tipo', typeOnly, 'Unused', 1, false);
+expectUse('solo tipo', typeOnly, 'Options', 2, true);
+console.log('\n🏷️  Solo tipo: imports referenciados en anotaciones');
+
+// 4. Las sobrecargas (TSDeclareFunction) no usan la función
+const overloads = analyze(`function format(value: string): string;
+function format(value: number): string;
+function format(value: unknown): string {
+  return String(value);
+}
+function parse(text: string): number;
+function parse(text: string): number {
+  return Number(text);
+}
+parse('1');`);
+expectUse('sobrecarga', overloads, 'format', 3, false);
+expectUse('sobrecarga', overloads, 'parse', 7, true);
+console.log('\n🔀 Sobrecargas: las firmas sin cuerpo no cuentan como uso');
+
+console.log('\n' + '='.repeat(80));
+if (failures > 0) {
+  console.log(`\n❌ ${failures} comprobación(es) fallidas\n`);
+  process.exit(1);
+}
+console.log('\n✅ El grafo de ámbitos resuelve todas las referencias esperadas\n');
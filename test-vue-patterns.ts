@@ -79,6 +79,28 @@ if (antiResult.violations.length > 0) {
 }
 console.log('\n');
 
+console.log('=== TEST 4: <script setup lang="tsx"> ===');
+const tsxCode = `<script setup lang="tsx">
+const props = defineProps<{ title: string; count: number }>();
+const Badge = () => <span class="badge">{props.count}</span>;
+</script>
+
+<template>
+  <h2>{{ title }}</h2>
+  <Badge />
+</template>
+`;
+const tsxResult = validator.validate(tsxCode, 'TsxTitle.vue');
+const tsxProps = tsxResult.detections.find(d => d.pattern === 'Smart/Dumb Components');
+console.log(`✨ Patrones detectados: ${tsxResult.detections.length}`);
+if (tsxProps?.evidence?.includes('Define 2 prop(s) con defineProps')) {
+  console.log('✅ Props extraídas del script con JSX');
+} else {
+  console.log('❌ No se extrajeron las props de un script lang="tsx"');
+  process.exit(1);
+}
+console.log('\n');
+
 const totalDetections = composableResult.detections.length + smartResult.detections.length + antiResult.detections.length;
 const totalViolations = composableResult.violations.length + smartResult.violations.length + antiResult.violations.length;
 